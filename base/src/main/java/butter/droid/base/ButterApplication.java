@@ -39,16 +39,24 @@ import javax.inject.Inject;
 import butter.droid.base.beaming.BeamManager;
 import butter.droid.base.content.preferences.Prefs;
 import butter.droid.base.manager.updater.ButterUpdateManager;
+import butter.droid.base.startup.StartupOrchestrator;
 import butter.droid.base.torrent.TorrentService;
 import butter.droid.base.utils.FileUtils;
 import butter.droid.base.utils.LocaleUtils;
 import butter.droid.base.utils.PrefUtils;
 import butter.droid.base.utils.StorageUtils;
 import butter.droid.base.utils.VersionUtils;
+import butter.droid.base.vlc.VLCInstance;
 import timber.log.Timber;
 
 public class ButterApplication extends Application implements ButterUpdateManager.Listener {
 
+    public static final String TASK_CLEAN_CACHE = "clean_cache";
+    public static final String TASK_TORRENT_SERVICE = "torrent_service";
+    public static final String TASK_CHECK_UPDATES = "check_updates";
+    public static final String TASK_PREWARM_VLC = "prewarm_vlc";
+    public static final String TASK_LOG_STORAGE = "log_storage";
+
     private static String sDefSystemLanguage;
     private static ButterApplication sThis;
 
@@ -57,6 +65,8 @@ public class ButterApplication extends Application implements ButterUpdateManage
     @Inject
     ButterUpdateManager updateManager;
 
+    private final StartupOrchestrator startup = new StartupOrchestrator();
+
     @Override
     protected void attachBaseContext(Context base) {
         super.attachBaseContext(base);
@@ -109,12 +119,53 @@ public class ButterApplication extends Application implements ButterUpdateManage
         }
 
         updateManager.setListener(this);
-        updateManager.checkUpdates(false);
+        Picasso.setSingletonInstance(picasso);
 
-        if(VersionUtils.isUsingCorrectBuild()) {
-            TorrentService.start(this);
-        }
+        final boolean correctBuild = VersionUtils.isUsingCorrectBuild();
+        // debug builds can start the old way, to measure what the phases gain
+        startup.setSequential(BuildConfig.DEBUG && PrefUtils.get(this, Prefs.SEQUENTIAL_STARTUP, false));
+        startup.add(TASK_CLEAN_CACHE, StartupOrchestrator.Phase.CRITICAL, true, new Runnable() {
+            @Override
+            public void run() {
+                cleanCache();
+            }
+        }).add(TASK_TORRENT_SERVICE, StartupOrchestrator.Phase.AFTER_FIRST_FRAME, false, new Runnable() {
+            @Override
+            public void run() {
+                // starts the torrent session, activities binding to the service earlier don't
+                if (correctBuild) {
+                    TorrentService.start(ButterApplication.this);
+                }
+            }
+        }, TASK_CLEAN_CACHE).add(TASK_CHECK_UPDATES, StartupOrchestrator.Phase.IDLE, false, new Runnable() {
+            @Override
+            public void run() {
+                updateManager.checkUpdates(false);
+            }
+        }).add(TASK_PREWARM_VLC, StartupOrchestrator.Phase.IDLE, false, new Runnable() {
+            @Override
+            public void run() {
+                if (correctBuild) {
+                    VLCInstance.prewarm(ButterApplication.this);
+                }
+            }
+        }).add(TASK_LOG_STORAGE, StartupOrchestrator.Phase.IDLE, true, new Runnable() {
+            @Override
+            public void run() {
+                Timber.d("StorageLocations: " + StorageUtils.getAllStorageLocations());
+            }
+        });
+        startup.start(this);
+    }
 
+    /**
+     * @return the startup of the application, to run on demand tasks or look at its timings
+     */
+    public StartupOrchestrator getStartup() {
+        return startup;
+    }
+
+    private void cleanCache() {
         File path = new File(PrefUtils.get(this, Prefs.STORAGE_LOCATION, StorageUtils.getIdealCacheDirectory(this).toString()));
         File directory = new File(path, "/torrents/");
         if (PrefUtils.get(this, Prefs.REMOVE_CACHE, true)) {
@@ -127,10 +178,7 @@ public class ButterApplication extends Application implements ButterUpdateManage
             }
         }
 
-        Timber.d("StorageLocations: " + StorageUtils.getAllStorageLocations());
         Timber.i("Chosen cache location: " + directory);
-
-        Picasso.setSingletonInstance(picasso);
     }
 
     @Override
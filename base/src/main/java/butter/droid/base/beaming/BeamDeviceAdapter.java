@@ -74,9 +74,11 @@ public class BeamDeviceAdapter extends BaseAdapter {
         mKeys = new ArrayList<>(mDevices.keySet());
 
         mBeamManager.addDiscoveryListener(mListener);
+        mBeamManager.acquireDiscovery(this);
     }
 
     public void destroy() {
+        mBeamManager.releaseDiscovery(this);
         mBeamManager.removeDiscoveryListener(mListener);
     }
 
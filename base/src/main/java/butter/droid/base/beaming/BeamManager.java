@@ -20,6 +20,9 @@ package butter.droid.base.beaming;
 import android.app.AlertDialog;
 import android.content.Context;
 import android.content.DialogInterface;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.text.InputType;
 import android.view.inputmethod.InputMethodManager;
 import android.widget.EditText;
@@ -27,8 +30,10 @@ import android.widget.Toast;
 
 import com.connectsdk.core.ImageInfo;
 import com.connectsdk.core.MediaInfo;
+import com.connectsdk.core.Util;
 import com.connectsdk.device.ConnectableDevice;
 import com.connectsdk.device.ConnectableDeviceListener;
+import com.connectsdk.device.DefaultConnectableDeviceStore;
 import com.connectsdk.discovery.CapabilityFilter;
 import com.connectsdk.discovery.DiscoveryManager;
 import com.connectsdk.discovery.DiscoveryManagerListener;
@@ -51,6 +56,9 @@ import com.connectsdk.service.capability.VolumeControl;
 import com.connectsdk.service.command.ServiceCommandError;
 import com.connectsdk.service.sessions.LaunchSession;
 import com.github.se_bastiaan.torrentstreamserver.TorrentStreamServer;
+import com.sjl.foreground.Foreground;
+
+import org.json.JSONObject;
 
 import java.io.File;
 import java.net.MalformedURLException;
@@ -58,6 +66,7 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -77,6 +86,12 @@ import timber.log.Timber;
  */
 public class BeamManager implements ConnectableDeviceListener, DiscoveryManagerListener {
 
+    // a scan when a screen with the beam icon opens, at most every interval
+    private static final long BURST_MS = 10000;
+    private static final long BURST_INTERVAL_MS = 5 * 60 * 1000;
+    // the beam icon is shown before the first scan if a stored device was seen this recently
+    private static final long KNOWN_DEVICE_TTL_S = 3 * 24 * 60 * 60;
+
     private static BeamManager sInstance;
 
     private Context mContext;
@@ -91,6 +106,15 @@ public class BeamManager implements ConnectableDeviceListener, DiscoveryManagerL
     private AlertDialog mPairingAlertDialog;
     private AlertDialog mPairingCodeDialog;
     private StreamInfo mStreamInfo;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final List<Object> mDiscoveryOwners = new ArrayList<>();
+    private boolean mSearching;
+    private long mSearchStart;
+    private long mLastBurst;
+    private long mFirstSearch;
+    private long mTotalSearchTime;
+    private int mSearchCount;
+    private volatile boolean mHasKnownDevices;
 
     private BeamManager(Context context) {
         mContext = context;
@@ -135,6 +159,114 @@ public class BeamManager implements ConnectableDeviceListener, DiscoveryManagerL
                         })
                         .create();
 
+        loadKnownDevices();
+        Foreground.get().addListener(new Foreground.Listener() {
+            @Override
+            public void onBecameForeground() {
+                // a device picker that stayed open in the background keeps scanning
+                if (!mDiscoveryOwners.isEmpty()) {
+                    startDiscovery();
+                }
+            }
+
+            @Override
+            public void onBecameBackground() {
+                stopDiscovery();
+            }
+        });
+    }
+
+    public static BeamManager getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new BeamManager(context);
+        }
+
+        return sInstance;
+    }
+
+    public void onDestroy() {
+        if (mDiscoveryManager == null) {
+            return;
+        }
+        mDiscoveryOwners.clear();
+        stopDiscovery();
+        mDiscoveryManager.removeListener(this);
+        mDiscoveryManager.onDestroy();
+    }
+
+    /**
+     * Scans for devices for {@link #BURST_MS}, unless the last scan is less than
+     * {@link #BURST_INTERVAL_MS} ago. Call it when the beam icon could be shown.
+     */
+    public void requestDiscovery() {
+        if (mSearching || (mLastBurst > 0 && SystemClock.elapsedRealtime() - mLastBurst < BURST_INTERVAL_MS)) {
+            return;
+        }
+
+        startDiscovery();
+        mHandler.postDelayed(mEndBurst, BURST_MS);
+    }
+
+    /**
+     * Keeps scanning for devices until {@link #releaseDiscovery} is called with the same owner, e.g.
+     * while the device picker is open.
+     */
+    public void acquireDiscovery(Object owner) {
+        if (!mDiscoveryOwners.contains(owner)) {
+            mDiscoveryOwners.add(owner);
+        }
+        mHandler.removeCallbacks(mEndBurst);
+        startDiscovery();
+    }
+
+    public void releaseDiscovery(Object owner) {
+        mDiscoveryOwners.remove(owner);
+        if (mDiscoveryOwners.isEmpty()) {
+            stopDiscovery();
+        }
+    }
+
+    private final Runnable mEndBurst = new Runnable() {
+        @Override
+        public void run() {
+            if (mDiscoveryOwners.isEmpty()) {
+                stopDiscovery();
+            }
+        }
+    };
+
+    private void startDiscovery() {
+        if (mSearching) {
+            return;
+        }
+
+        getDiscoveryManager().start();
+        mSearching = true;
+        mSearchStart = SystemClock.elapsedRealtime();
+        mLastBurst = mSearchStart;
+    }
+
+    // stops the scan and closes its sockets, found devices and discovery owners are kept
+    private void stopDiscovery() {
+        mHandler.removeCallbacks(mEndBurst);
+        if (!mSearching) {
+            return;
+        }
+
+        mDiscoveryManager.stop();
+        mSearching = false;
+        long scanned = SystemClock.elapsedRealtime() - mSearchStart;
+        mTotalSearchTime += scanned;
+        mSearchCount++;
+        Timber.d("Device discovery ran %d ms (%d scans, %d s of %d s since the first one)", scanned, mSearchCount,
+                mTotalSearchTime / 1000, (SystemClock.elapsedRealtime() - mFirstSearch) / 1000);
+    }
+
+    private DiscoveryManager getDiscoveryManager() {
+        if (mDiscoveryManager != null) {
+            return mDiscoveryManager;
+        }
+
         // CastService.setApplicationID(Constants.CAST_ID); Do not use since suspended by Google
         DiscoveryManager.init(ButterApplication.getAppContext());
         mDiscoveryManager = DiscoveryManager.getInstance();
@@ -153,26 +285,13 @@ public class BeamManager implements ConnectableDeviceListener, DiscoveryManagerL
                 MediaPlayer.Play_Video,
                 MediaControl.Any
         ));
-        mDiscoveryManager.start();
         mDiscoveryManager.addListener(this);
-    }
-
-    public static BeamManager getInstance(Context context) {
-        if (sInstance == null) {
-            sInstance = new BeamManager(context);
-        }
-
-        return sInstance;
-    }
-
-    public void onDestroy() {
-        mDiscoveryManager.removeListener(this);
-        mDiscoveryManager.stop();
-        mDiscoveryManager.onDestroy();
+        mFirstSearch = SystemClock.elapsedRealtime();
+        return mDiscoveryManager;
     }
 
     public Map<String, ConnectableDevice> getDevices() {
-        Map<String, ConnectableDevice> devices = mDiscoveryManager.getCompatibleDevices();
+        Map<String, ConnectableDevice> devices = getDiscoveryManager().getCompatibleDevices();
         for (Map.Entry<String, ConnectableDevice> entry : devices.entrySet()){
             if (entry.getValue().getServices().isEmpty()) {
                 devices.remove(entry.getKey());
@@ -185,8 +304,51 @@ public class BeamManager implements ConnectableDeviceListener, DiscoveryManagerL
         return mCurrentDevice;
     }
 
+    /**
+     * @return true if devices were found, or before the first scan of this session if the device
+     * store has one that was seen within {@link #KNOWN_DEVICE_TTL_S}
+     */
     public boolean hasCastDevices() {
-        return mDiscoveryManager.getCompatibleDevices().size() > 0;
+        if (mDiscoveryManager != null && mDiscoveryManager.getCompatibleDevices().size() > 0) {
+            return true;
+        }
+        return mSearchCount == 0 && mHasKnownDevices;
+    }
+
+    /**
+     * Reads ConnectSDK's device store on its own, without creating the DiscoveryManager that would
+     * start the providers, and updates the beam icon once it knows whether a device was seen recently.
+     */
+    private void loadKnownDevices() {
+        Util.runInBackground(new Runnable() {
+            @Override
+            public void run() {
+                JSONObject devices = new DefaultConnectableDeviceStore(mContext).getStoredDevices();
+                long seenAfter = Util.getTime() - KNOWN_DEVICE_TTL_S;
+
+                Iterator<String> ids = devices.keys();
+                while (ids.hasNext()) {
+                    JSONObject device = devices.optJSONObject(ids.next());
+                    if (device == null) {
+                        continue;
+                    }
+
+                    long lastSeen = Math.max(device.optLong(ConnectableDevice.KEY_LAST_DETECTED, 0),
+                            device.optLong(ConnectableDevice.KEY_LAST_CONNECTED, 0));
+                    if (lastSeen > seenAfter) {
+                        mHasKnownDevices = true;
+                        mHandler.post(new Runnable() {
+                            @Override
+                            public void run() {
+                                for (BeamListener listener : mListeners)
+                                    listener.updateBeamIcon();
+                            }
+                        });
+                        return;
+                    }
+                }
+            }
+        });
     }
 
     public boolean isConnected() {
@@ -328,11 +490,13 @@ public class BeamManager implements ConnectableDeviceListener, DiscoveryManagerL
     }
 
     public void addDiscoveryListener(DiscoveryManagerListener listener) {
-        mDiscoveryManager.addListener(listener);
+        getDiscoveryManager().addListener(listener);
     }
 
     public void removeDiscoveryListener(DiscoveryManagerListener listener) {
-        mDiscoveryManager.removeListener(listener);
+        if (mDiscoveryManager != null) {
+            mDiscoveryManager.removeListener(listener);
+        }
     }
 
     public void addListener(BeamListener listener) {
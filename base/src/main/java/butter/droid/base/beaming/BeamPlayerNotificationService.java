@@ -8,7 +8,9 @@ import android.content.Context;
 import android.content.Intent;
 import android.graphics.Bitmap;
 import android.graphics.drawable.Drawable;
+import android.os.Handler;
 import android.os.IBinder;
+import android.os.Looper;
 
 import androidx.core.app.NotificationCompat;
 import androidx.media.app.NotificationCompat.MediaStyle;
@@ -32,11 +34,13 @@ public class BeamPlayerNotificationService extends Service {
     private static final String ACTION_REWIND = "action_rewind";
     private static final String ACTION_FAST_FORWARD = "action_fast_foward";
     private static final String ACTION_STOP = "action_stop";
+    private static final long PLAY_STATE_POLL_INTERVAL_MS = 5000;
 
     private BeamManager mManager;
     private MediaControl mMediaControl;
     private Boolean mIsPlaying = false;
     private Bitmap mImage;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
 
     @Override
     public IBinder onBind(Intent intent) {
@@ -173,7 +177,12 @@ public class BeamPlayerNotificationService extends Service {
         if(mManager.getConnectedDevice() != null) {
 
             mMediaControl = mManager.getMediaControl();
-            mMediaControl.subscribePlayState(mPlayStateListener);
+            if (BeamPositionTracker.hasNativePlayState(mMediaControl)) {
+                mMediaControl.subscribePlayState(mPlayStateListener);
+            } else {
+                // the emulated subscription polls every 500 ms, the notification can live with less
+                mHandler.postDelayed(mPlayStatePollRunnable, PLAY_STATE_POLL_INTERVAL_MS);
+            }
             mManager.addDeviceListener(mDeviceListener);
 
             mMediaControl.getPlayState(mPlayStateListener);
@@ -211,6 +220,7 @@ public class BeamPlayerNotificationService extends Service {
     @Override
     public void onDestroy() {
         super.onDestroy();
+        mHandler.removeCallbacks(mPlayStatePollRunnable);
         NotificationManager notificationManager = (NotificationManager) getApplicationContext().getSystemService(Context.NOTIFICATION_SERVICE);
         notificationManager.cancel(1);
     }
@@ -233,6 +243,14 @@ public class BeamPlayerNotificationService extends Service {
         }
     };
 
+    private final Runnable mPlayStatePollRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mMediaControl.getPlayState(mPlayStateListener);
+            mHandler.postDelayed(this, PLAY_STATE_POLL_INTERVAL_MS);
+        }
+    };
+
     private BeamDeviceListener mDeviceListener = new BeamDeviceListener() {
         @Override
         public void onDeviceDisconnected(ConnectableDevice device) {
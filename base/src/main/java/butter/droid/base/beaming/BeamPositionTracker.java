@@ -0,0 +1,351 @@
+/*
+ * This file is part of Butter.
+ *
+ * Butter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Butter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Butter. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package butter.droid.base.beaming;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import com.connectsdk.service.capability.MediaControl;
+import com.connectsdk.service.capability.PlaybackInfoControl;
+import com.connectsdk.service.command.ServiceCommandError;
+import com.connectsdk.service.command.ServiceSubscription;
+
+import timber.log.Timber;
+
+/**
+ * Keeps track of the playback position of beamed media without polling the device every second.
+ * <p/>
+ * The position is interpolated locally from the last known (position, rate, timestamp) triple and
+ * pushed to the listener on every UI tick. Play state changes come from the device's subscription
+ * (GENA LastChange for DLNA, service-native events elsewhere) and only adjust the rate. The device
+ * is polled for its real position at an adaptive interval that backs off while the interpolation
+ * stays in sync and drops back to the minimum as soon as it drifts, a seek happens or the play
+ * state changes.
+ * <p/>
+ * Services that only emulate play state events by polling (AirPlay) are not subscribed to at all;
+ * the tracker's own poll fetches position, duration and play state in one request instead and
+ * reports play state changes through {@link Listener#onPlayStateChanged}.
+ */
+public class BeamPositionTracker {
+
+    private static final long TICK_INTERVAL_MS = 250;
+    private static final long MIN_POLL_INTERVAL_MS = 1000;
+    private static final long MAX_POLL_INTERVAL_MS = 16000;
+    // the poll is the only source of play state changes there, don't let a pause go unnoticed for long
+    private static final long MAX_INFO_POLL_INTERVAL_MS = 4000;
+    private static final long DRIFT_TOLERANCE_MS = 1000;
+
+    private final MediaControl mMediaControl;
+    private final PlaybackInfoControl mPlaybackInfoControl;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    private Listener mListener;
+    private ServiceSubscription<MediaControl.PlayStateListener> mSubscription;
+    private boolean mRunning = false;
+    private boolean mPollInFlight = false;
+    private boolean mPlayStateKnown = false;
+    private boolean mDurationPending = false;
+    private int mSeekGeneration = 0;
+
+    private long mPosition = 0;
+    private long mTimestamp = SystemClock.elapsedRealtime();
+    private float mRate = 0f;
+    private long mDuration = 0;
+    private long mPollInterval = MIN_POLL_INTERVAL_MS;
+
+    private int mPollCount = 0;
+    private int mCorrectionCount = 0;
+
+    public BeamPositionTracker(MediaControl mediaControl) {
+        mMediaControl = mediaControl;
+        mPlaybackInfoControl = hasNativePlayState(mediaControl) ? null : (PlaybackInfoControl) mediaControl;
+    }
+
+    /**
+     * @return false when the service only emulates play state subscriptions by polling, in which
+     * case a running tracker should be the only source of play state
+     */
+    public static boolean hasNativePlayState(MediaControl mediaControl) {
+        return !(mediaControl instanceof PlaybackInfoControl);
+    }
+
+    public void start(Listener listener) {
+        if (mRunning) {
+            return;
+        }
+
+        mListener = listener;
+        mRunning = true;
+
+        if (mPlaybackInfoControl == null) {
+            try {
+                mSubscription = mMediaControl.subscribePlayState(mPlayStateListener);
+            } catch (UnsupportedOperationException e) {
+                Timber.d("Play state subscription not supported, relying on polling");
+            }
+            mMediaControl.getPlayState(mPlayStateListener);
+        }
+
+        mHandler.post(mPollRunnable);
+        mHandler.post(mTickRunnable);
+    }
+
+    public void stop() {
+        if (!mRunning) {
+            return;
+        }
+
+        mRunning = false;
+        mListener = null;
+        mHandler.removeCallbacks(mPollRunnable);
+        mHandler.removeCallbacks(mTickRunnable);
+
+        if (mSubscription != null) {
+            mSubscription.unsubscribe();
+            mSubscription = null;
+        }
+
+        Timber.d("Beam position tracker stopped after %d polls, %d corrections", mPollCount, mCorrectionCount);
+    }
+
+    /**
+     * @return the interpolated playback position in milliseconds
+     */
+    public long getPosition() {
+        long position = mPosition + (long) ((SystemClock.elapsedRealtime() - mTimestamp) * mRate);
+        if (mDuration > 0 && position > mDuration) {
+            position = mDuration;
+        }
+        return position;
+    }
+
+    public long getDuration() {
+        return mDuration;
+    }
+
+    /**
+     * Call after a seek command has been sent so the interpolation jumps right away and the real
+     * position is confirmed soon after.
+     */
+    public void onSeek(long position) {
+        // a poll sent before the seek would snap the position back, ignore its answer
+        mSeekGeneration++;
+        rebase(position);
+        schedulePoll(MIN_POLL_INTERVAL_MS);
+    }
+
+    /**
+     * Feeds a play state obtained outside of the tracker's own subscription.
+     */
+    public void updatePlayState(MediaControl.PlayStateStatus state) {
+        mPlayStateListener.onSuccess(state);
+    }
+
+    private void rebase(long position) {
+        mPosition = position;
+        mTimestamp = SystemClock.elapsedRealtime();
+    }
+
+    private void schedulePoll(long delay) {
+        if (!mRunning) {
+            return;
+        }
+
+        long max = mPlaybackInfoControl != null ? MAX_INFO_POLL_INTERVAL_MS : MAX_POLL_INTERVAL_MS;
+        delay = Math.min(delay, max);
+        mPollInterval = Math.max(delay, MIN_POLL_INTERVAL_MS);
+        mHandler.removeCallbacks(mPollRunnable);
+        mHandler.postDelayed(mPollRunnable, delay);
+    }
+
+    private void onPositionReceived(long position) {
+        long elapsed = SystemClock.elapsedRealtime() - mTimestamp;
+        long drift = Math.abs(position - getPosition());
+
+        if (!mPlayStateKnown && mPollCount > 1) {
+            // no play state events from this device, guess the rate from consecutive samples
+            mRate = position > mPosition && elapsed > 0 ? 1f : 0f;
+        }
+
+        rebase(position);
+
+        long next;
+        if (drift > DRIFT_TOLERANCE_MS) {
+            mCorrectionCount++;
+            next = MIN_POLL_INTERVAL_MS;
+        } else {
+            next = mPollInterval * 2;
+        }
+        schedulePoll(next);
+    }
+
+    private final Runnable mPollRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (!mRunning || mPollInFlight) {
+                return;
+            }
+
+            mPollInFlight = true;
+            mPollCount++;
+            final int seekGeneration = mSeekGeneration;
+
+            if (mPlaybackInfoControl != null) {
+                mPlaybackInfoControl.getPlaybackInfo(new PlaybackInfoControl.PlaybackInfoListener() {
+                    @Override
+                    public void onSuccess(PlaybackInfoControl.PlaybackInfo info) {
+                        mPollInFlight = false;
+                        if (!mRunning) {
+                            return;
+                        }
+
+                        if (info.duration > 0) {
+                            mDuration = info.duration;
+                        }
+                        boolean changed = applyPlayState(info.playState);
+                        if (changed && mListener != null) {
+                            mListener.onPlayStateChanged(info.playState);
+                        }
+                        if (isStale(seekGeneration)) {
+                            return;
+                        }
+                        onPositionReceived(info.position);
+                        if (changed) {
+                            schedulePoll(MIN_POLL_INTERVAL_MS);
+                        }
+                    }
+
+                    @Override
+                    public void onError(ServiceCommandError error) {
+                        mPollInFlight = false;
+                        schedulePoll(mPollInterval);
+                    }
+                });
+                return;
+            }
+
+            mMediaControl.getPosition(new MediaControl.PositionListener() {
+                @Override
+                public void onSuccess(Long position) {
+                    mPollInFlight = false;
+                    if (mRunning && !isStale(seekGeneration)) {
+                        onPositionReceived(position);
+                    }
+                }
+
+                @Override
+                public void onError(ServiceCommandError error) {
+                    mPollInFlight = false;
+                    schedulePoll(mPollInterval);
+                }
+            });
+
+            if (mDuration <= 0 && !mDurationPending) {
+                // some services keep retrying internally until the duration is known
+                mDurationPending = true;
+                mMediaControl.getDuration(mDurationListener);
+            }
+        }
+    };
+
+    private boolean isStale(int seekGeneration) {
+        if (seekGeneration == mSeekGeneration) {
+            return false;
+        }
+
+        // the poll onSeek scheduled may have been skipped while this one was in flight
+        schedulePoll(MIN_POLL_INTERVAL_MS);
+        return true;
+    }
+
+    /**
+     * @return true if the rate changed and the interpolation was rebased
+     */
+    private boolean applyPlayState(MediaControl.PlayStateStatus state) {
+        if (state == null || state == MediaControl.PlayStateStatus.Unknown) {
+            return false;
+        }
+
+        float rate = state == MediaControl.PlayStateStatus.Playing ? 1f : 0f;
+        boolean changed = !mPlayStateKnown || rate != mRate;
+
+        mPlayStateKnown = true;
+        if (changed) {
+            rebase(getPosition());
+            mRate = rate;
+        }
+        return changed;
+    }
+
+    private final Runnable mTickRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (!mRunning) {
+                return;
+            }
+
+            if (mListener != null) {
+                mListener.onPositionUpdate(getPosition(), mDuration);
+            }
+            mHandler.postDelayed(this, TICK_INTERVAL_MS);
+        }
+    };
+
+    private final MediaControl.PlayStateListener mPlayStateListener = new MediaControl.PlayStateListener() {
+        @Override
+        public void onSuccess(MediaControl.PlayStateStatus state) {
+            if (mRunning && applyPlayState(state)) {
+                schedulePoll(MIN_POLL_INTERVAL_MS);
+            }
+        }
+
+        @Override
+        public void onError(ServiceCommandError error) {
+        }
+    };
+
+    private final MediaControl.DurationListener mDurationListener = new MediaControl.DurationListener() {
+        @Override
+        public void onSuccess(Long duration) {
+            mDurationPending = false;
+            if (duration != null && duration > 0) {
+                mDuration = duration;
+            }
+        }
+
+        @Override
+        public void onError(ServiceCommandError error) {
+            mDurationPending = false;
+        }
+    };
+
+    public interface Listener {
+        /**
+         * Called on the main thread on every UI tick while the tracker is running.
+         */
+        void onPositionUpdate(long position, long duration);
+
+        /**
+         * Called on the main thread when the tracker's own poll sees the play state change, only
+         * for services without native play state events.
+         */
+        void onPlayStateChanged(MediaControl.PlayStateStatus state);
+    }
+
+}
@@ -0,0 +1,222 @@
+/*
+ * This file is part of Butter.
+ *
+ * Butter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Butter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Butter. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package butter.droid.base.content;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.os.Parcel;
+import android.os.SystemClock;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import timber.log.Timber;
+
+/**
+ * Parcels stored as files in a directory of the cache, one file per key.
+ * <p/>
+ * Parcels are only readable by the build that wrote them, so every file starts with the time the
+ * app was installed or updated, and a file written by another build reads as missing. Files are
+ * written next to their name first and renamed, so a reader never sees a partial one. Blocks, so
+ * it must not be used on the main thread.
+ */
+public class ParcelStore {
+
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    public interface Writer {
+        void write(Parcel parcel);
+    }
+
+    public interface Reader<T> {
+        /**
+         * @return what was read, or null if the parcel can't be used
+         */
+        T read(Parcel parcel);
+    }
+
+    private final Context context;
+    private final String directory;
+    private final int maxFiles;
+    private long installTime = -1;
+
+    /**
+     * @param directory Name of the directory in the cache
+     * @param maxFiles  The most files kept, the least recently written are dropped first, or 0 to
+     *                  keep them all
+     */
+    public ParcelStore(Context context, String directory, int maxFiles) {
+        this.context = context;
+        this.directory = directory;
+        this.maxFiles = maxFiles;
+    }
+
+    /**
+     * @return whether the parcel was stored
+     */
+    public boolean write(String key, Writer writer) {
+        long start = SystemClock.elapsedRealtime();
+        Parcel parcel = Parcel.obtain();
+        File file = getFile(key);
+        File temp = new File(file.getPath() + TEMP_SUFFIX);
+        try {
+            parcel.writeLong(getInstallTime());
+            writer.write(parcel);
+            byte[] data = parcel.marshall();
+
+            OutputStream out = new FileOutputStream(temp);
+            try {
+                out.write(data);
+            } finally {
+                out.close();
+            }
+            if (!temp.renameTo(file)) {
+                throw new IOException("Could not store " + file);
+            }
+
+            Timber.d("Stored %s/%s, %d bytes in %d ms", directory, key, data.length, SystemClock.elapsedRealtime() - start);
+            trim();
+            return true;
+        } catch (IOException | RuntimeException e) {
+            Timber.w(e, "Could not store %s/%s", directory, key);
+            //noinspection ResultOfMethodCallIgnored
+            temp.delete();
+            return false;
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    /**
+     * @return what the reader read, or null if nothing usable is stored under the key
+     */
+    public <T> T read(String key, Reader<T> reader) {
+        File file = getFile(key);
+        if (!file.exists()) {
+            return null;
+        }
+
+        long start = SystemClock.elapsedRealtime();
+        Parcel parcel = Parcel.obtain();
+        try {
+            byte[] data = readFully(file);
+            parcel.unmarshall(data, 0, data.length);
+            parcel.setDataPosition(0);
+            if (parcel.readLong() != getInstallTime()) {
+                return null;
+            }
+
+            T result = reader.read(parcel);
+            Timber.d("Restored %s/%s, %d bytes in %d ms", directory, key, data.length, SystemClock.elapsedRealtime() - start);
+            return result;
+        } catch (IOException | RuntimeException e) {
+            Timber.w(e, "Could not restore %s/%s", directory, key);
+            return null;
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    public File getFile(String key) {
+        return new File(getDirectory(), key);
+    }
+
+    public File getDirectory() {
+        File dir = new File(context.getCacheDir(), directory);
+        if (!dir.exists() && !dir.mkdirs()) {
+            Timber.w("Could not create %s", dir);
+        }
+        return dir;
+    }
+
+    /**
+     * @return the time the app was installed or last updated, which tells the builds apart
+     */
+    public synchronized long getInstallTime() {
+        if (installTime < 0) {
+            try {
+                installTime = context.getPackageManager().getPackageInfo(context.getPackageName(), 0).lastUpdateTime;
+            } catch (PackageManager.NameNotFoundException e) {
+                installTime = 0;
+            }
+        }
+        return installTime;
+    }
+
+    /**
+     * @return the parts joined to a key, with only characters that are safe in a file name
+     */
+    public static String getKey(String... parts) {
+        StringBuilder key = new StringBuilder();
+        for (String part : parts) {
+            if (key.length() > 0) {
+                key.append('_');
+            }
+            key.append(String.valueOf(part).replaceAll("[^A-Za-z0-9._-]", "_"));
+        }
+        return key.toString();
+    }
+
+    private static byte[] readFully(File file) throws IOException {
+        byte[] data = new byte[(int) file.length()];
+        InputStream in = new FileInputStream(file);
+        try {
+            int read = 0;
+            while (read < data.length) {
+                int count = in.read(data, read, data.length - read);
+                if (count < 0) {
+                    throw new IOException("Unexpected end of " + file);
+                }
+                read += count;
+            }
+        } finally {
+            in.close();
+        }
+        return data;
+    }
+
+    private void trim() {
+        if (maxFiles <= 0) {
+            return;
+        }
+        File[] files = getDirectory().listFiles();
+        if (files == null || files.length <= maxFiles) {
+            return;
+        }
+
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                long diff = b.lastModified() - a.lastModified();
+                return diff > 0 ? 1 : diff < 0 ? -1 : 0;
+            }
+        });
+        for (int i = maxFiles; i < files.length; i++) {
+            if (!files[i].delete()) {
+                Timber.w("Could not remove %s", files[i]);
+            }
+        }
+    }
+
+}
@@ -1,5 +1,6 @@
 package butter.droid.base.content.preferences;
 
+import android.app.AlertDialog;
 import android.content.Context;
 import android.content.Intent;
 import android.content.pm.PackageInfo;
@@ -18,6 +19,7 @@ import java.util.Locale;
 import java.util.Map;
 
 import butter.droid.base.BuildConfig;
+import butter.droid.base.ButterApplication;
 import butter.droid.base.Constants;
 import butter.droid.base.R;
 import butter.droid.base.fragments.dialog.ChangeLogDialogFragment;
@@ -755,6 +757,51 @@ public interface PreferencesHandler {
                     })
                     .build());
 
+            if (BuildConfig.DEBUG) {
+                prefItems.add(PrefItem.newBuilder(context)
+                        .setIconResource(R.drawable.ic_prefs_version)
+                        .setTitleResource(R.string.startup_timings)
+                        .setPreferenceKey("")
+                        .setDefaultValue("")
+                        .setOnClickListener(new PrefItem.OnClickListener() {
+                            @Override
+                            public void onClick(final PrefItem item) {
+                                new AlertDialog.Builder(context)
+                                        .setTitle(R.string.startup_timings)
+                                        .setMessage(ButterApplication.getAppContext().getStartup().getReport())
+                                        .setPositiveButton(android.R.string.ok, null)
+                                        .show();
+                            }
+                        })
+                        .setSubtitleGenerator(new PrefItem.SubtitleGenerator() {
+                            @Override
+                            public String get(PrefItem item) {
+                                return context.getString(R.string.tap_to_open);
+                            }
+                        })
+                        .build());
+
+                prefItems.add(PrefItem.newBuilder(context)
+                        .setIconResource(R.drawable.ic_prefs_version)
+                        .setTitleResource(R.string.sequential_startup)
+                        .setPreferenceKey(Prefs.SEQUENTIAL_STARTUP)
+                        .setDefaultValue(false)
+                        .setOnClickListener(new PrefItem.OnClickListener() {
+                            @Override
+                            public void onClick(final PrefItem item) {
+                                item.saveValue(!(boolean) item.getValue());
+                            }
+                        })
+                        .setSubtitleGenerator(new PrefItem.SubtitleGenerator() {
+                            @Override
+                            public String get(PrefItem item) {
+                                boolean enabled = (boolean) item.getValue();
+                                return enabled ? context.getString(R.string.enabled) : context.getString(R.string.disabled);
+                            }
+                        })
+                        .build());
+            }
+
             prefItems.add(PrefItem.newBuilder(context)
                     .setIconResource(R.drawable.ic_prefs_about)
                     .setTitleResource(R.string.about_app)
@@ -42,4 +42,5 @@ public class Prefs {
     public static final String SHOW_VPN = "show_vpn";
     public static final String PIXEL_FORMAT = "pixel_format";
     public static final String QUALITY_DEFAULT = "quality_default";
+    public static final String SEQUENTIAL_STARTUP = "sequential_startup";
 }
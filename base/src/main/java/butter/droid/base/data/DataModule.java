@@ -53,12 +53,13 @@ public class DataModule {
 
     @Provides
     @Singleton
-    public OkHttpClient provideOkHttpClient(Cache cache) {
+    public OkHttpClient provideOkHttpClient(Cache cache, TrafficCounter trafficCounter) {
         return new Builder()
                 .connectTimeout(30, TimeUnit.SECONDS)
                 .readTimeout(60, TimeUnit.SECONDS)
                 .retryOnConnectionFailure(true)
                 .cache(cache)
+                .addNetworkInterceptor(trafficCounter)
                 .build();
     }
 
@@ -20,11 +20,13 @@ package butter.droid.base.fragments;
 import android.annotation.TargetApi;
 import android.content.Context;
 import android.content.DialogInterface;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.PorterDuff;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.SystemClock;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
 import android.text.TextUtils;
@@ -70,11 +72,16 @@ import butter.droid.base.providers.subs.SubsProvider;
 import butter.droid.base.subs.Caption;
 import butter.droid.base.subs.SubtitleDownloader;
 import butter.droid.base.subs.TimedTextObject;
+import butter.droid.base.torrent.DownloadedPieces;
+import butter.droid.base.torrent.SeekThumbnailStrip;
 import butter.droid.base.torrent.StreamInfo;
 import butter.droid.base.torrent.TorrentService;
 import butter.droid.base.utils.FragmentUtil;
 import butter.droid.base.utils.LocaleUtils;
 import butter.droid.base.utils.PrefUtils;
+import butter.droid.base.utils.ThreadUtils;
+import butter.droid.base.vlc.HWDecoderBlacklist;
+import butter.droid.base.vlc.StreamCachingPolicy;
 import butter.droid.base.vlc.VLCInstance;
 import butter.droid.base.vlc.VLCOptions;
 import timber.log.Timber;
@@ -132,11 +139,24 @@ public abstract class BaseVideoPlayerFragment
     // probably required when hardware acceleration selection during playback is implemented
     @SuppressWarnings("FieldCanBeLocal")
     private boolean mDisabledHardwareAcceleration = false;
+    // codec and resolution of the video track, see HWDecoderBlacklist
+    private String mVideoKey;
+    // location of the current media, its key is remembered for the next time it plays
+    private String mVideoLocation;
+    // whether the current media was loaded without hardware decoding
+    private boolean mSoftwareDecoding;
+    // network caching of torrent streams, see StreamCachingPolicy
+    private final StreamCachingPolicy mCachingPolicy = new StreamCachingPolicy();
+    // seek bar previews of torrent streams, created once the duration is known
+    private SeekThumbnailStrip mSeekThumbnails;
 
     protected Callback mCallback;
 
     private View mRootView;
 
+    // start of the player, to measure how long it takes until the media is opening
+    private long mStartTime;
+
     private static LibVLC LibVLC() {
         return VLCInstance.get(ButterApplication.getAppContext());
     }
@@ -169,6 +189,7 @@ public abstract class BaseVideoPlayerFragment
     @Override
     public void onActivityCreated(@Nullable Bundle savedInstanceState) {
         super.onActivityCreated(savedInstanceState);
+        mStartTime = SystemClock.elapsedRealtime();
 
         if (getActivity() instanceof Callback && mCallback == null) {
             mCallback = (Callback) getActivity();
@@ -256,6 +277,15 @@ public abstract class BaseVideoPlayerFragment
 
         PrefUtils.save(getActivity(), RESUME_POSITION, 0);
 
+        if (mCachingPolicy.getCaching() > 0) {
+            Timber.i("Stream played with %d ms network caching and %d stalls", mCachingPolicy.getCaching(), mCachingPolicy.getStalls());
+        }
+
+        if (mSeekThumbnails != null) {
+            mSeekThumbnails.close();
+            mSeekThumbnails = null;
+        }
+
         mMediaPlayer.release();
         mLibVLC.release();
 
@@ -298,15 +328,34 @@ public abstract class BaseVideoPlayerFragment
             }
         }
 
-        int flags = mDisabledHardwareAcceleration ? VLCOptions.MEDIA_NO_HWACCEL : 0;
+        // the tracks are only known once the media plays, until then the key is predicted
+        mVideoLocation = videoLocation;
+        String videoKey = mVideoKey != null ? mVideoKey : HWDecoderBlacklist.predictKey(getActivity(), videoLocation, streamInfo.getQuality());
+        boolean noHardwareAcceleration = mDisabledHardwareAcceleration || HWDecoderBlacklist.isBlacklisted(getActivity(), videoKey);
+        if (noHardwareAcceleration && !mDisabledHardwareAcceleration) {
+            Timber.d("Hardware decoding is blacklisted for %s, starting with software decoding", videoKey);
+        }
+        mSoftwareDecoding = noHardwareAcceleration;
+        int flags = noHardwareAcceleration ? VLCOptions.MEDIA_NO_HWACCEL : 0;
         flags = flags | VLCOptions.MEDIA_VIDEO;
 
         org.videolan.libvlc.Media media = new org.videolan.libvlc.Media(mLibVLC, Uri.parse(videoLocation));
         VLCOptions.setMediaOptions(media, getActivity(), flags);
 
+        long resumeFrom = PrefUtils.get(getActivity(), RESUME_POSITION, mResumePosition);
+
+        TorrentService service = mCallback.getService();
+        Torrent torrent = service != null ? service.getCurrentTorrent() : null;
+        if (torrent != null) {
+            if (service.getStreamStatus() != null) {
+                mCachingPolicy.update(service.getStreamStatus());
+            }
+            File videoFile = torrent.getVideoFile();
+            mCachingPolicy.apply(media, videoFile != null ? videoFile.length() : 0, mDuration, resumeFrom);
+        }
+
         mMediaPlayer.setMedia(media);
 
-        long resumeFrom = PrefUtils.get(getActivity(), RESUME_POSITION, mResumePosition);
         if (resumeFrom > 0) {
             mMediaPlayer.setTime(resumeFrom);
         }
@@ -408,6 +457,7 @@ public abstract class BaseVideoPlayerFragment
 
     protected void setCurrentTime(long time) {
         if (time / getDuration() * 100 <= getStreamerProgress()) {
+            mCachingPolicy.onSeek();
             mMediaPlayer.setTime(time);
         }
     }
@@ -441,9 +491,71 @@ public abstract class BaseVideoPlayerFragment
     public abstract void onPlaybackEndReached();
 
     private void handleHardwareAccelerationError() {
-        saveVideoCurrentTime();
+        ThreadUtils.runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                if (getActivity() == null) {
+                    return;
+                }
+
+                if (!mDisabledHardwareAcceleration) {
+                    if (mVideoKey == null) {
+                        mVideoKey = readVideoKey();
+                    }
+                    HWDecoderBlacklist.recordFallback(getActivity(), mVideoKey);
+                    fallbackToSoftwareDecoding();
+                    return;
+                }
+
+                saveVideoCurrentTime();
+                mMediaPlayer.stop();
+                onHardwareAccelerationError();
+            }
+        });
+    }
+
+    /**
+     * Restarts the current media with software decoding at the current position. LibVLC can't
+     * swap the decoder of a running input, so the Media is recreated, but the stream and the
+     * position are kept and the user isn't asked.
+     */
+    private void fallbackToSoftwareDecoding() {
+        long time = mMediaPlayer.getTime();
+        mDisabledHardwareAcceleration = true;
+        if (time > 0) {
+            PrefUtils.save(getActivity(), RESUME_POSITION, time);
+        }
         mMediaPlayer.stop();
-        onHardwareAccelerationError();
+        loadMedia();
+    }
+
+    /**
+     * Called once the video track is known. Switches to software decoding right away if the
+     * hardware decoder already failed on this codec and resolution, but the predicted key didn't
+     * show that before the media was loaded.
+     */
+    private void checkVideoDecoder() {
+        if (mVideoKey != null) {
+            return;
+        }
+
+        mVideoKey = readVideoKey();
+        HWDecoderBlacklist.rememberKey(getActivity(), mVideoLocation, mVideoKey);
+        if (!mSoftwareDecoding && HWDecoderBlacklist.isBlacklisted(getActivity(), mVideoKey)
+                && PrefUtils.get(getActivity(), Prefs.HW_ACCELERATION, VLCOptions.HW_ACCELERATION_AUTOMATIC) != VLCOptions.HW_ACCELERATION_DISABLED) {
+            Timber.d("Hardware decoding is blacklisted for %s", mVideoKey);
+            fallbackToSoftwareDecoding();
+        }
+    }
+
+    private String readVideoKey() {
+        org.videolan.libvlc.Media media = mMediaPlayer.getMedia();
+        if (media == null) {
+            return null;
+        }
+        String key = HWDecoderBlacklist.getKey(media);
+        media.release();
+        return key;
     }
 
     @SuppressWarnings("SuspiciousNameCombination")
@@ -672,19 +784,25 @@ public abstract class BaseVideoPlayerFragment
     public void onEvent(MediaPlayer.Event event) {
         switch (event.type) {
             case MediaPlayer.Event.Playing:
+                mCachingPolicy.onPlaying();
                 getVideoSurface().getHolder().setKeepScreenOn(true);
                 mDuration = mMediaPlayer.getLength();
+                if (mSeekThumbnails == null) {
+                    createSeekThumbnails();
+                }
                 resumeVideo();
                 setProgressVisible(false);
                 showOverlay();
                 updatePlayPauseState();
                 break;
             case MediaPlayer.Event.Paused:
+                mCachingPolicy.onPaused();
                 getVideoSurface().getHolder().setKeepScreenOn(false);
                 saveVideoCurrentTime();
                 updatePlayPauseState();
                 break;
             case MediaPlayer.Event.Stopped:
+                mCachingPolicy.onPaused();
                 getVideoSurface().getHolder().setKeepScreenOn(false);
                 updatePlayPauseState();
                 break;
@@ -697,15 +815,33 @@ public abstract class BaseVideoPlayerFragment
                 updatePlayPauseState();
                 break;
             case MediaPlayer.Event.Opening:
+                if (mStartTime > 0) {
+                    Timber.d("Player start to media opening took %d ms", SystemClock.elapsedRealtime() - mStartTime);
+                    mStartTime = 0;
+                }
                 setProgressVisible(true);
                 mDuration = mMediaPlayer.getLength();
                 mMediaPlayer.play();
                 break;
             case MediaPlayer.Event.TimeChanged:
             case MediaPlayer.Event.PositionChanged:
+                if (event.type == MediaPlayer.Event.TimeChanged) {
+                    mCachingPolicy.onTimeChanged(event.getTimeChanged());
+                }
+                if (mSeekThumbnails != null) {
+                    mSeekThumbnails.setPosition(getCurrentTime());
+                }
                 onProgressChanged(getCurrentTime(), getDuration());
                 progressSubtitleCaption();
                 break;
+            case MediaPlayer.Event.Buffering:
+                mCachingPolicy.onBuffering(event.getBuffering());
+                break;
+            case MediaPlayer.Event.ESAdded:
+                if (event.getEsChangedType() == org.videolan.libvlc.Media.Track.Type.Video) {
+                    checkVideoDecoder();
+                }
+                break;
         }
     }
 
@@ -714,6 +850,41 @@ public abstract class BaseVideoPlayerFragment
         handleHardwareAccelerationError();
     }
 
+    private void createSeekThumbnails() {
+        TorrentService service = mCallback.getService();
+        Torrent torrent = service != null ? service.getCurrentTorrent() : null;
+        if (torrent == null || torrent.getVideoFile() == null || mDuration <= 0) {
+            return;
+        }
+
+        mSeekThumbnails = new SeekThumbnailStrip(getActivity(), torrent.getTorrentHandle().infoHash().toHex(), torrent.getVideoFile(),
+                new DownloadedPieces(torrent.getTorrentHandle(), torrent.getVideoFile()), mDuration);
+        mSeekThumbnails.setListener(new SeekThumbnailStrip.Listener() {
+            @Override
+            public void onThumbnailLoaded(long time) {
+                onSeekThumbnailLoaded(time);
+            }
+        });
+        mSeekThumbnails.setPosition(getCurrentTime());
+        mSeekThumbnails.setAvailableUntil(mStreamerProgress);
+        onSeekThumbnailsCreated(mSeekThumbnails);
+    }
+
+    /**
+     * @return the seek bar preview for the time, or null if there is none (yet)
+     */
+    protected Bitmap getSeekThumbnail(long time) {
+        return mSeekThumbnails != null ? mSeekThumbnails.get(time) : null;
+    }
+
+    /**
+     * Called when the preview for a time asked for with {@link #getSeekThumbnail(long)} became
+     * available.
+     */
+    protected void onSeekThumbnailLoaded(long time) {}
+
+    protected void onSeekThumbnailsCreated(SeekThumbnailStrip thumbnails) {}
+
     private void changeSurfaceLayout() {
         changeSurfaceSize(false);
     }
@@ -738,10 +909,17 @@ public abstract class BaseVideoPlayerFragment
 
     @Override
     public void onStreamProgress(Torrent torrent, StreamStatus streamStatus) {
+        mCachingPolicy.update(streamStatus);
+
         int newProgress = (int) ((getDuration() / 100) * streamStatus.progress);
         if (mStreamerProgress < newProgress) {
             mStreamerProgress = newProgress;
         }
+
+        SeekThumbnailStrip thumbnails = mSeekThumbnails;
+        if (thumbnails != null) {
+            thumbnails.setAvailableUntil(mStreamerProgress);
+        }
     }
 
     public interface Callback {
@@ -17,6 +17,7 @@
 
 package butter.droid.base.providers;
 
+import android.os.Process;
 import androidx.annotation.CallSuper;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -25,6 +26,9 @@ import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.util.AbstractMap;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 import okhttp3.Call;
 import okhttp3.Callback;
@@ -39,7 +43,13 @@ import okhttp3.Request;
  */
 public abstract class BaseProvider {
 
+    private static final int MAX_BACKGROUND_REQUESTS = 2;
+
+    // shared by the providers, so background requests of all of them together stay limited
+    private static Dispatcher backgroundDispatcher;
+
     private final OkHttpClient client;
+    private OkHttpClient backgroundClient;
     protected ObjectMapper mapper;
 
     public BaseProvider(OkHttpClient client, ObjectMapper mapper) {
@@ -70,6 +80,53 @@ public abstract class BaseProvider {
         return call;
     }
 
+    /**
+     * Enqueue a request nobody waits for yet, like a prefetch. It runs on threads of background
+     * priority, at most {@value #MAX_BACKGROUND_REQUESTS} at a time, so it doesn't hold up the
+     * requests of the screen in the queue of the client. {@link #cancel()} doesn't cancel it.
+     *
+     * @param request         Request
+     * @param requestCallback Callback
+     * @return Call
+     */
+    protected Call enqueueInBackground(Request request, Callback requestCallback) {
+        Call call = getBackgroundClient().newCall(request);
+        call.enqueue(requestCallback);
+        return call;
+    }
+
+    private synchronized OkHttpClient getBackgroundClient() {
+        if (backgroundClient == null) {
+            // shares the connection pool and the interceptors of the client
+            backgroundClient = client.newBuilder()
+                    .dispatcher(getBackgroundDispatcher())
+                    .build();
+        }
+        return backgroundClient;
+    }
+
+    private static synchronized Dispatcher getBackgroundDispatcher() {
+        if (backgroundDispatcher == null) {
+            ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactory() {
+                private int count;
+
+                @Override
+                public Thread newThread(final Runnable runnable) {
+                    return new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                            runnable.run();
+                        }
+                    }, "Provider background " + ++count);
+                }
+            });
+            backgroundDispatcher = new Dispatcher(executor);
+            backgroundDispatcher.setMaxRequests(MAX_BACKGROUND_REQUESTS);
+        }
+        return backgroundDispatcher;
+    }
+
     /**
      * This method will be called when user is done with data that he required. Provider should at this point
      * clean after itself. For example cancel all ongoing network request.
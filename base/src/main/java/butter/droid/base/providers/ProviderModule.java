@@ -24,8 +24,12 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import javax.inject.Singleton;
 
 import butter.droid.base.providers.media.AnimeProvider;
+import butter.droid.base.providers.media.MediaDetailCache;
 import butter.droid.base.providers.media.MoviesProvider;
 import butter.droid.base.providers.media.TVProvider;
+import butter.droid.base.providers.media.catalog.MediaCatalog;
+import butter.droid.base.providers.subs.CompositeSubsProvider;
+import butter.droid.base.providers.subs.SubsProvider;
 import butter.droid.base.providers.subs.open.OpenSubsProvider;
 import dagger.Module;
 import dagger.Provides;
@@ -41,25 +45,34 @@ public class ProviderModule {
         return new OpenSubsProvider(context, client, mapper, xmlrpcClient);
     }
 
+    @Provides
+    @Singleton
+    public SubsProvider provideSubsProvider(Context context, OkHttpClient client, ObjectMapper mapper,
+                                            OpenSubsProvider openSubsProvider) {
+        return new CompositeSubsProvider(context, client, mapper, openSubsProvider);
+    }
+
     @Provides
     @Singleton
     public MoviesProvider provideMoviesProvider(OkHttpClient client, ObjectMapper mapper,
-                                                OpenSubsProvider subsProvider) {
-        return new MoviesProvider(client, mapper, subsProvider);
+                                                SubsProvider subsProvider, MediaCatalog catalog) {
+        return new MoviesProvider(client, mapper, subsProvider, catalog);
     }
 
     @Provides
     @Singleton
     public TVProvider provideTVProvider(OkHttpClient client, ObjectMapper mapper,
-                                        OpenSubsProvider subsProvider) {
-        return new TVProvider(client, mapper, subsProvider);
+                                        SubsProvider subsProvider, MediaCatalog catalog,
+                                        MediaDetailCache detailCache) {
+        return new TVProvider(client, mapper, subsProvider, catalog, detailCache);
     }
 
     @Provides
     @Singleton
     public AnimeProvider provideAnimeProvider(OkHttpClient client, ObjectMapper mapper,
-                                              OpenSubsProvider subsProvider) {
-        return new AnimeProvider(client, mapper, subsProvider);
+                                              SubsProvider subsProvider, MediaCatalog catalog,
+                                              MediaDetailCache detailCache) {
+        return new AnimeProvider(client, mapper, subsProvider, catalog, detailCache);
     }
 
 }
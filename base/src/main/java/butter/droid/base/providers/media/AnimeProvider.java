@@ -28,6 +28,7 @@ import java.util.List;
 import butter.droid.base.BuildConfig;
 import butter.droid.base.ButterApplication;
 import butter.droid.base.R;
+import butter.droid.base.providers.media.catalog.MediaCatalog;
 import butter.droid.base.providers.media.models.Genre;
 import butter.droid.base.providers.media.models.Media;
 import butter.droid.base.providers.media.response.AnimeDetailsReponse;
@@ -39,8 +40,8 @@ import okhttp3.OkHttpClient;
 
 public class AnimeProvider extends MediaProvider {
 
-    public AnimeProvider(OkHttpClient client, ObjectMapper mapper, @Nullable SubsProvider subsProvider) {
-        super(client, mapper, subsProvider, BuildConfig.ANIME_URLS, "animes/", "anime/", 0);
+    public AnimeProvider(OkHttpClient client, ObjectMapper mapper, @Nullable SubsProvider subsProvider, @Nullable MediaCatalog catalog, @Nullable MediaDetailCache detailCache) {
+        super(client, mapper, subsProvider, catalog, detailCache, BuildConfig.ANIME_URLS, "animes/", "anime/", 0);
     }
 
     @Override
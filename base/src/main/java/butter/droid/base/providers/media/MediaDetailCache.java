@@ -0,0 +1,223 @@
+/*
+ * This file is part of Butter.
+ *
+ * Butter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Butter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Butter. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package butter.droid.base.providers.media;
+
+import android.content.Context;
+import android.os.Parcel;
+import androidx.annotation.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import butter.droid.base.content.ParcelStore;
+import butter.droid.base.providers.media.models.Media;
+import butter.droid.base.providers.media.models.Show;
+import timber.log.Timber;
+
+/**
+ * Details of media loaded with {@link MediaProvider#getDetail}, so opening a show again, or one
+ * whose details were prefetched, doesn't wait for the server.
+ * <p/>
+ * Details are used for {@link #TTL_MS}, unless the list item they are asked for says the show
+ * changed since: it was updated later or has another number of seasons. The last
+ * {@link #MAX_ITEMS} details are kept in memory, {@link #MAX_FILES} on disk. Callers get their own
+ * copy of the details, so the ones that change them don't change the cached ones.
+ */
+@Singleton
+public class MediaDetailCache {
+
+    static final long TTL_MS = 6 * 60 * 60 * 1000;
+    private static final int MAX_ITEMS = 8;
+    private static final int MAX_FILES = 24;
+    private static final String DIRECTORY = "details";
+
+    public interface Callback {
+        /**
+         * @param detail The cached details, or null if there are none that can be used
+         */
+        void onResult(@Nullable Media detail);
+    }
+
+    private static class Entry {
+        final Media detail;
+        final long time;
+
+        Entry(Media detail, long time) {
+            this.detail = detail;
+            this.time = time;
+        }
+    }
+
+    private final ParcelStore store;
+    private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MAX_ITEMS;
+        }
+    };
+    private final ExecutorService io = Executors.newSingleThreadExecutor();
+    private int hits;
+    private int diskHits;
+    private int misses;
+
+    @Inject
+    public MediaDetailCache(Context context) {
+        store = new ParcelStore(context, DIRECTORY, MAX_FILES);
+    }
+
+    /**
+     * Calls back with the cached details of the item, right away if they are in memory, otherwise
+     * once they are read from disk.
+     */
+    public void get(MediaProvider provider, final Media item, final Callback callback) {
+        final String key = getKey(provider, item);
+        Media detail = getFromMemory(key, item);
+        if (detail != null) {
+            callback.onResult(detail);
+            return;
+        }
+
+        io.execute(new Runnable() {
+            @Override
+            public void run() {
+                Entry entry = read(key);
+                Media detail = null;
+                synchronized (entries) {
+                    if (entry != null && isUsable(entry, item)) {
+                        entries.put(key, entry);
+                        detail = copy(entry.detail);
+                        diskHits++;
+                    } else {
+                        misses++;
+                    }
+                    log(key, detail != null ? "disk hit" : "miss");
+                }
+                callback.onResult(detail);
+            }
+        });
+    }
+
+    /**
+     * @return whether usable details of the item are in memory
+     */
+    public boolean isCached(MediaProvider provider, Media item) {
+        String key = getKey(provider, item);
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            return entry != null && isUsable(entry, item);
+        }
+    }
+
+    public void put(MediaProvider provider, Media item, final Media detail) {
+        final String key = getKey(provider, item);
+        final Entry entry = new Entry(copy(detail), System.currentTimeMillis());
+        synchronized (entries) {
+            entries.put(key, entry);
+        }
+
+        io.execute(new Runnable() {
+            @Override
+            public void run() {
+                write(key, entry);
+            }
+        });
+    }
+
+    private Media getFromMemory(String key, Media item) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (!isUsable(entry, item)) {
+                entries.remove(key);
+                return null;
+            }
+            hits++;
+            log(key, "hit");
+        }
+        return copy(entry.detail);
+    }
+
+    // must hold the lock
+    private void log(String key, String result) {
+        Timber.d("Detail cache %s for %s (%d hits, %d disk hits, %d misses)", result, key, hits, diskHits, misses);
+    }
+
+    private static boolean isUsable(Entry entry, Media item) {
+        long age = System.currentTimeMillis() - entry.time;
+        if (age < 0 || age > TTL_MS) {
+            return false;
+        }
+
+        if (item instanceof Show && entry.detail instanceof Show) {
+            Show listed = (Show) item;
+            Show cached = (Show) entry.detail;
+            if (listed.lastUpdated > cached.lastUpdated) {
+                return false;
+            }
+            if (listed.seasons != null && listed.seasons > 0 && !listed.seasons.equals(cached.seasons)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Media copy(Media detail) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            parcel.writeParcelable(detail, 0);
+            parcel.setDataPosition(0);
+            return parcel.readParcelable(Media.class.getClassLoader());
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    private void write(String key, final Entry entry) {
+        store.write(key, new ParcelStore.Writer() {
+            @Override
+            public void write(Parcel parcel) {
+                parcel.writeLong(entry.time);
+                parcel.writeParcelable(entry.detail, 0);
+            }
+        });
+    }
+
+    private Entry read(String key) {
+        return store.read(key, new ParcelStore.Reader<Entry>() {
+            @Override
+            public Entry read(Parcel parcel) {
+                long time = parcel.readLong();
+                Media detail = parcel.readParcelable(Media.class.getClassLoader());
+                return detail != null ? new Entry(detail, time) : null;
+            }
+        });
+    }
+
+    private static String getKey(MediaProvider provider, Media item) {
+        return ParcelStore.getKey(provider.getClass().getSimpleName(), item.videoId);
+    }
+
+}
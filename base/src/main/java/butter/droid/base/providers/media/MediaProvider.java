@@ -26,10 +26,13 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.IOException;
 import java.util.AbstractMap;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import butter.droid.base.R;
 import butter.droid.base.providers.BaseProvider;
+import butter.droid.base.providers.media.catalog.MediaCatalog;
 import butter.droid.base.providers.media.models.Genre;
 import butter.droid.base.providers.media.models.Media;
 import butter.droid.base.providers.subs.SubsProvider;
@@ -48,6 +51,12 @@ public abstract class MediaProvider extends BaseProvider {
 
     @Nullable
     private final SubsProvider subsProvider;
+    @Nullable
+    private final MediaCatalog catalog;
+    @Nullable
+    private final MediaDetailCache detailCache;
+    // callbacks waiting for the details of a video id
+    private final Map<String, List<Callback>> detailRequests = new HashMap<>();
 
     private static final int DEFAULT_NAVIGATION_INDEX = 1;
     private String[] apiUrls = new String[0];
@@ -55,9 +64,11 @@ public abstract class MediaProvider extends BaseProvider {
     private String itemDetailsPath = "";
     private Integer currentApi = 0;
 
-    public MediaProvider(OkHttpClient client, ObjectMapper mapper, @Nullable SubsProvider subsProvider, String[] apiUrls, String itemsPath, String itemDetailsPath, Integer currentApi) {
+    public MediaProvider(OkHttpClient client, ObjectMapper mapper, @Nullable SubsProvider subsProvider, @Nullable MediaCatalog catalog, @Nullable MediaDetailCache detailCache, String[] apiUrls, String itemsPath, String itemDetailsPath, Integer currentApi) {
         super(client, mapper);
         this.subsProvider = subsProvider;
+        this.catalog = catalog;
+        this.detailCache = detailCache;
         this.apiUrls = apiUrls;
         this.itemsPath = itemsPath;
         this.itemDetailsPath = itemDetailsPath;
@@ -193,6 +204,10 @@ public abstract class MediaProvider extends BaseProvider {
                     }
                     int actualSize = currentList.size();
                     ArrayList<Media> responseItems = getResponseFormattedList(responseStr, currentList);
+                    if (catalog != null && responseItems.size() > actualSize) {
+                        // the items of the page are appended to the ones that were already shown
+                        catalog.add(MediaProvider.this, responseItems.subList(actualSize, responseItems.size()), filters, actualSize);
+                    }
                     callback.onSuccess(filters, responseItems);
                     return;
                 }
@@ -201,17 +216,76 @@ public abstract class MediaProvider extends BaseProvider {
         });
     }
 
+    /**
+     * Get the details of a Media item, from the {@link MediaDetailCache} if they are cached there.
+     * A request for an item whose details are being loaded already waits for that one.
+     *
+     * @param currentList List the item is in
+     * @param index       Position of the item in the list
+     * @param callback    MediaProvider callback
+     */
     public void getDetail(ArrayList<Media> currentList, Integer index, final Callback callback) {
+        getDetail(currentList.get(index), false, callback);
+    }
+
+    /**
+     * Loads the details of the item into the {@link MediaDetailCache} ahead of time, with a
+     * request of background priority.
+     *
+     * @return false if there was nothing to load, the callback isn't called then
+     */
+    public boolean prefetchDetail(Media item, Callback callback) {
+        if (detailCache == null || detailCache.isCached(this, item)) {
+            return false;
+        }
+
+        getDetail(item, true, callback);
+        return true;
+    }
+
+    private void getDetail(final Media item, final boolean prefetch, final Callback callback) {
+        if (detailCache == null) {
+            fetchDetail(item, prefetch, callback);
+            return;
+        }
+
+        detailCache.get(this, item, new MediaDetailCache.Callback() {
+            @Override
+            public void onResult(@Nullable Media detail) {
+                if (detail == null) {
+                    fetchDetail(item, prefetch, callback);
+                    return;
+                }
+                ArrayList<Media> items = new ArrayList<>();
+                items.add(detail);
+                callback.onSuccess(null, items);
+            }
+        });
+    }
+
+    private void fetchDetail(final Media item, boolean prefetch, Callback callback) {
+        final String videoId = item.videoId;
+        synchronized (detailRequests) {
+            List<Callback> waiting = detailRequests.get(videoId);
+            if (waiting != null) {
+                waiting.add(callback);
+                return;
+            }
+            waiting = new ArrayList<>();
+            waiting.add(callback);
+            detailRequests.put(videoId, waiting);
+        }
+
         Request.Builder requestBuilder = new Request.Builder();
-        String url = apiUrls[currentApi] + itemDetailsPath + currentList.get(index).videoId;
+        String url = apiUrls[currentApi] + itemDetailsPath + videoId;
         requestBuilder.url(url);
 
         Timber.d(this.getClass().getSimpleName(), "Making request to: " + url);
 
-        enqueue(requestBuilder.build(), new okhttp3.Callback() {
+        okhttp3.Callback requestCallback = new okhttp3.Callback() {
             @Override
             public void onFailure(Call call, IOException e) {
-                callback.onFailure(e);
+                onDetailFailure(videoId, e);
             }
 
             @Override
@@ -222,23 +296,49 @@ public abstract class MediaProvider extends BaseProvider {
                         String responseStr = response.body().string();
 
                         if (responseStr.isEmpty()) {
-                            callback.onFailure(new NetworkErrorException("Empty response"));
+                            onDetailFailure(videoId, new NetworkErrorException("Empty response"));
+                            return;
                         }
 
                         ArrayList<Media> formattedData = getResponseDetailsFormattedList(responseStr);
                         if (formattedData.size() > 0) {
-                            callback.onSuccess(null, formattedData);
+                            if (detailCache != null) {
+                                detailCache.put(MediaProvider.this, item, formattedData.get(0));
+                            }
+                            for (Callback callback : removeDetailRequest(videoId)) {
+                                callback.onSuccess(null, new ArrayList<>(formattedData));
+                            }
                             return;
                         }
-                        callback.onFailure(new IllegalStateException("Empty list"));
+                        onDetailFailure(videoId, new IllegalStateException("Empty list"));
                         return;
                     }
                 } catch (Exception e) {
-                    callback.onFailure(e);
+                    onDetailFailure(videoId, e);
+                    return;
                 }
-                callback.onFailure(new NetworkErrorException("Couldn't connect to API"));
+                onDetailFailure(videoId, new NetworkErrorException("Couldn't connect to API"));
             }
-        });
+        };
+
+        if (prefetch) {
+            enqueueInBackground(requestBuilder.build(), requestCallback);
+        } else {
+            enqueue(requestBuilder.build(), requestCallback);
+        }
+    }
+
+    private void onDetailFailure(String videoId, Exception e) {
+        for (Callback callback : removeDetailRequest(videoId)) {
+            callback.onFailure(e);
+        }
+    }
+
+    private List<Callback> removeDetailRequest(String videoId) {
+        synchronized (detailRequests) {
+            List<Callback> waiting = detailRequests.remove(videoId);
+            return waiting != null ? waiting : new ArrayList<Callback>();
+        }
     }
 
     public int getLoadingMessage() {
@@ -274,6 +374,28 @@ public abstract class MediaProvider extends BaseProvider {
         return subsProvider != null;
     }
 
+    /**
+     * @return the items of this provider's list pages that match the query, best matches first,
+     * without asking the server
+     */
+    public List<Media> searchLocal(String query, @Nullable String genre, int limit) {
+        if (catalog == null) {
+            return new ArrayList<>();
+        }
+        return catalog.search(this, query, genre, limit);
+    }
+
+    /**
+     * @return the items of this provider's list pages the way the server would list them with the
+     * filters, without asking the server, empty if that order isn't known
+     */
+    public List<Media> getLocalList(Filters filters, int limit) {
+        if (catalog == null) {
+            return new ArrayList<>();
+        }
+        return catalog.list(this, filters, limit);
+    }
+
 
     public interface Callback {
         void onSuccess(Filters filters, ArrayList<Media> items);
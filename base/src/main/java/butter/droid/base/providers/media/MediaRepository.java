@@ -0,0 +1,154 @@
+/*
+ * This file is part of Butter.
+ *
+ * Butter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Butter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Butter. If not, see <http://www.gnu.org/licenses/>.
+ */
+package butter.droid.base.providers.media;
+
+import android.content.Context;
+import android.os.Parcel;
+import androidx.annotation.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import butter.droid.base.content.ParcelStore;
+import butter.droid.base.providers.media.models.Media;
+import butter.droid.base.utils.ThreadUtils;
+
+/**
+ * Media the screens of the app hand to each other, so only the key returned by {@link #put} has
+ * to go into an Intent or arguments Bundle instead of the whole media, which for a show includes
+ * every episode.
+ * <p/>
+ * The last {@link #MAX_ITEMS} media are kept in memory. Every media is also written to disk in the
+ * background, so a screen that is recreated after the process died still finds its media. Media
+ * that have to come from disk are read in the background too.
+ */
+@Singleton
+public class MediaRepository {
+
+    private static final int MAX_ITEMS = 16;
+    private static final int MAX_FILES = 32;
+    private static final String DIRECTORY = "media";
+
+    private final ParcelStore store;
+    private final Map<String, Media> items = new LinkedHashMap<String, Media>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Media> eldest) {
+            return size() > MAX_ITEMS;
+        }
+    };
+    // reads run after the writes before them, so a media that is still being written is found
+    private final ExecutorService io = Executors.newSingleThreadExecutor();
+
+    public interface Callback<T extends Media> {
+        /**
+         * @param media The media, or null if it is neither in memory nor on disk
+         */
+        void onMedia(@Nullable T media);
+    }
+
+    @Inject
+    public MediaRepository(Context context) {
+        store = new ParcelStore(context, DIRECTORY, MAX_FILES);
+    }
+
+    /**
+     * Stores the media, replacing the media stored under the same key.
+     *
+     * @return the key to get the media with
+     */
+    public String put(final Media media) {
+        final String key = getKey(media);
+        synchronized (items) {
+            items.put(key, media);
+        }
+
+        io.execute(new Runnable() {
+            @Override
+            public void run() {
+                write(key, media);
+            }
+        });
+        return key;
+    }
+
+    /**
+     * Gets the media stored under the key. A media that is in memory is handed to the callback right
+     * away, one that has to be read from disk is handed to it on the main thread once it was read.
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends Media> void get(final String key, final Callback<T> callback) {
+        if (key == null) {
+            callback.onMedia(null);
+            return;
+        }
+
+        Media media;
+        synchronized (items) {
+            media = items.get(key);
+        }
+        if (media != null) {
+            callback.onMedia((T) media);
+            return;
+        }
+
+        io.execute(new Runnable() {
+            @Override
+            public void run() {
+                final Media media = read(key);
+                if (media != null) {
+                    synchronized (items) {
+                        items.put(key, media);
+                    }
+                }
+                ThreadUtils.runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        callback.onMedia((T) media);
+                    }
+                });
+            }
+        });
+    }
+
+    private void write(String key, final Media media) {
+        store.write(key, new ParcelStore.Writer() {
+            @Override
+            public void write(Parcel parcel) {
+                parcel.writeParcelable(media, 0);
+            }
+        });
+    }
+
+    private Media read(String key) {
+        return store.read(key, new ParcelStore.Reader<Media>() {
+            @Override
+            public Media read(Parcel parcel) {
+                return parcel.readParcelable(Media.class.getClassLoader());
+            }
+        });
+    }
+
+    private static String getKey(Media media) {
+        return ParcelStore.getKey(media.getClass().getSimpleName(), media.videoId);
+    }
+
+}
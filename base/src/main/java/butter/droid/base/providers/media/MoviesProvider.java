@@ -28,6 +28,7 @@ import java.util.List;
 import butter.droid.base.BuildConfig;
 import butter.droid.base.ButterApplication;
 import butter.droid.base.R;
+import butter.droid.base.providers.media.catalog.MediaCatalog;
 import butter.droid.base.providers.media.models.Genre;
 import butter.droid.base.providers.media.models.Media;
 import butter.droid.base.providers.media.response.MovieResponse;
@@ -37,8 +38,9 @@ import okhttp3.OkHttpClient;
 
 public class MoviesProvider extends MediaProvider {
 
-    public MoviesProvider(OkHttpClient client, ObjectMapper mapper, @Nullable SubsProvider subsProvider) {
-        super(client, mapper, subsProvider, BuildConfig.MOVIE_URLS, "movies/", "", 0);
+    public MoviesProvider(OkHttpClient client, ObjectMapper mapper, @Nullable SubsProvider subsProvider, @Nullable MediaCatalog catalog) {
+        // the details of a movie come with the list, there is nothing to cache
+        super(client, mapper, subsProvider, catalog, null, BuildConfig.MOVIE_URLS, "movies/", "", 0);
     }
 
     @Override
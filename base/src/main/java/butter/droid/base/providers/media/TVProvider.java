@@ -28,6 +28,7 @@ import java.util.List;
 import butter.droid.base.BuildConfig;
 import butter.droid.base.ButterApplication;
 import butter.droid.base.R;
+import butter.droid.base.providers.media.catalog.MediaCatalog;
 import butter.droid.base.providers.media.models.Genre;
 import butter.droid.base.providers.media.models.Media;
 import butter.droid.base.providers.media.response.TVDetailsReponse;
@@ -38,8 +39,8 @@ import okhttp3.OkHttpClient;
 
 public class TVProvider extends MediaProvider {
 
-    public TVProvider(OkHttpClient client, ObjectMapper mapper, @Nullable SubsProvider subsProvider) {
-        super(client, mapper, subsProvider, BuildConfig.TV_URLS, "shows/", "show/", 0);
+    public TVProvider(OkHttpClient client, ObjectMapper mapper, @Nullable SubsProvider subsProvider, @Nullable MediaCatalog catalog, @Nullable MediaDetailCache detailCache) {
+        super(client, mapper, subsProvider, catalog, detailCache, BuildConfig.TV_URLS, "shows/", "show/", 0);
     }
 
     @Override
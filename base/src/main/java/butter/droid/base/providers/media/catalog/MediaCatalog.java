@@ -0,0 +1,888 @@
+/*
+ * This file is part of Butter.
+ *
+ * Butter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Butter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Butter. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package butter.droid.base.providers.media.catalog;
+
+import android.content.Context;
+import android.os.Parcel;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import butter.droid.base.content.ParcelStore;
+import butter.droid.base.providers.media.MediaProvider;
+import butter.droid.base.providers.media.models.Media;
+import timber.log.Timber;
+
+/**
+ * Every movie and show the media providers ever returned a list page with, so they can be searched,
+ * sorted and filtered on the device while the providers are still being asked.
+ * <p/>
+ * Items are kept in rows of parallel arrays, one array per column, and per provider. Year and
+ * rating orders are worked out from the columns, the title order is kept up to date as items come
+ * in, for the orders only the server knows the position an item was listed at is kept. At most
+ * {@link #MAX_ITEMS} are kept, the oldest are dropped first. The catalog is written to disk
+ * {@link #SAVE_DELAY} after it changed and read back when the app starts.
+ * <p/>
+ * Only the columns searches, sorts and filters use are kept in memory, with the id of every item.
+ * The full items are written to a {@link MediaRecordFile} and read back when a search or list
+ * returns them, the last {@link #MAX_RECENT} read and the ones that aren't written yet stay in
+ * memory. A catalog that isn't persistent keeps all of them in memory.
+ */
+@Singleton
+public class MediaCatalog {
+
+    static final int MAX_ITEMS = 20000;
+    private static final long SAVE_DELAY = 30000;
+    private static final int MAX_GENRES = 64;
+    private static final int MAX_RECENT = 256;
+    // the record file is compacted once it has more unused bytes than this and than used ones
+    private static final long MIN_COMPACT_BYTES = 1024 * 1024;
+    private static final String DIRECTORY = "catalog";
+    private static final String FILE = "media_catalog";
+    private static final String RECORDS = "records_";
+    // sorts only the server knows the order of
+    private static final MediaProvider.Filters.Sort[] LISTED_SORTS = {
+            MediaProvider.Filters.Sort.POPULARITY, MediaProvider.Filters.Sort.TRENDING, MediaProvider.Filters.Sort.DATE
+    };
+
+    private final Context context;
+    private final ParcelStore store;
+    private final boolean persistent;
+    private final ScheduledExecutorService io = Executors.newSingleThreadScheduledExecutor();
+    // replaced all at once by load()
+    private MediaSearchIndex index = new MediaSearchIndex();
+    private Map<String, Integer> rows = new HashMap<>();
+    private List<String> sourceNames = new ArrayList<>();
+    private List<String> genreNames = new ArrayList<>();
+    // full items by key that aren't in the record file yet
+    private Map<String, Media> unsaved = new HashMap<>();
+    // full items by key read from the record file last
+    private Map<String, Media> recent = createRecent();
+    private MediaRecordFile recordFile;
+    private int generation;
+    private long usedBytes;
+    private long unusedBytes;
+    private boolean saveScheduled;
+
+    // the columns, row i of the catalog is index i of every one of them
+    private int count;
+    private String[] ids = new String[256];
+    private int[] sources = new int[256];
+    private String[] titles = new String[256];
+    private int[] years = new int[256];
+    private int[] ratings = new int[256];
+    private long[] genres = new long[256];
+    // per listed sort, the position in the server's list plus one, 0 if it wasn't listed
+    private int[][] positions = new int[LISTED_SORTS.length][256];
+    // the record of the full item in the record file, 0 if it isn't there
+    private long[] records = new long[256];
+    // the rows sorted by title
+    private int[] byTitle = new int[256];
+
+    @Inject
+    public MediaCatalog(Context context) {
+        this(context, true);
+    }
+
+    /**
+     * @param persistent Whether the catalog is read back from disk and stored when it changes
+     */
+    MediaCatalog(Context context, boolean persistent) {
+        this.context = context;
+        this.persistent = persistent;
+        store = new ParcelStore(context, DIRECTORY, 0);
+        if (persistent) {
+            io.execute(new Runnable() {
+                @Override
+                public void run() {
+                    load();
+                }
+            });
+        }
+    }
+
+    /**
+     * Adds the items of a list page, items that are in the catalog already are replaced.
+     *
+     * @param filters The filters the page was loaded with
+     * @param offset  The number of items listed before the page
+     */
+    public void add(MediaProvider provider, List<Media> items, MediaProvider.Filters filters, int offset) {
+        synchronized (this) {
+            int source = getSource(provider.getClass().getSimpleName());
+            int listing = getListing(filters);
+            if (listing >= 0 && offset == 0) {
+                // the first page starts the list over
+                for (int row = 0; row < count; row++) {
+                    if (sources[row] == source) {
+                        positions[listing][row] = 0;
+                    }
+                }
+            }
+
+            for (int i = 0; i < items.size(); i++) {
+                int row = put(source, items.get(i), true);
+                if (row >= 0 && listing >= 0) {
+                    positions[listing][row] = offset + i + 1;
+                }
+            }
+            scheduleSave();
+        }
+    }
+
+    /**
+     * Lists the items of the provider the way the provider would list them with the filters, as
+     * far as the catalog knows them. Keywords and page of the filters are ignored.
+     *
+     * @param limit The maximum number of items
+     * @return the items, empty if the catalog doesn't know the order
+     */
+    public List<Media> list(MediaProvider provider, MediaProvider.Filters filters, int limit) {
+        long start = System.nanoTime();
+        MediaProvider.Filters.Sort sort = filters.getSort();
+        List<Media> result = new ArrayList<>();
+        int size = 0;
+
+        synchronized (this) {
+            Integer source = indexOf(sourceNames, provider.getClass().getSimpleName());
+            if (source == null) {
+                return result;
+            }
+            long genreMask = getGenreMask(filters.getGenre());
+            if (genreMask == 0 && filters.getGenre() != null) {
+                return result;
+            }
+
+            if (sort == MediaProvider.Filters.Sort.ALPHABET) {
+                // both A-Z tabs list from A to Z whatever their order is
+                for (int i = 0; i < count && result.size() < limit; i++) {
+                    int row = byTitle[i];
+                    if (sources[row] == source && (genreMask == 0 || (genres[row] & genreMask) != 0)) {
+                        addMedia(result, row);
+                        size++;
+                    }
+                }
+                return log(result, size, sort, start);
+            }
+
+            int listing = Arrays.asList(LISTED_SORTS).indexOf(sort);
+            boolean descending = filters.getOrder() == MediaProvider.Filters.Order.DESC;
+
+            // sort key in the high half, row in the low half, so sorting doesn't box anything
+            long[] keys = new long[count];
+            for (int row = 0; row < count; row++) {
+                if (sources[row] != source || (genreMask != 0 && (genres[row] & genreMask) == 0)) {
+                    continue;
+                }
+
+                long key;
+                if (listing >= 0) {
+                    if (positions[listing][row] == 0) {
+                        continue;
+                    }
+                    // the position is in the server's descending order already
+                    key = -positions[listing][row];
+                } else if (sort == MediaProvider.Filters.Sort.YEAR) {
+                    key = years[row];
+                } else {
+                    key = ratings[row];
+                }
+                keys[size++] = ((descending ? -key : key) << 32) | row;
+            }
+            Arrays.sort(keys, 0, size);
+
+            for (int i = 0; i < size && result.size() < limit; i++) {
+                addMedia(result, (int) keys[i]);
+            }
+        }
+
+        return log(result, size, sort, start);
+    }
+
+    private static List<Media> log(List<Media> result, int size, MediaProvider.Filters.Sort sort, long start) {
+        Timber.d("Listed %d of %d items by %s in %d us", result.size(), size, sort,
+                (System.nanoTime() - start) / 1000);
+        return result;
+    }
+
+    /**
+     * Searches the items of the provider whose title has words starting with the words of the
+     * query, best matches first.
+     *
+     * @param genre Only items of this genre, or null for all of them
+     * @param limit The maximum number of items
+     */
+    public List<Media> search(MediaProvider provider, String query, @Nullable String genre, int limit) {
+        long start = System.nanoTime();
+        final String normalizedQuery = MediaSearchIndex.normalize(query);
+        final String[] queryWords = MediaSearchIndex.split(normalizedQuery);
+        List<Media> result = new ArrayList<>();
+
+        synchronized (this) {
+            Integer source = indexOf(sourceNames, provider.getClass().getSimpleName());
+            BitSet found = index.find(queryWords, count);
+            if (source == null || found == null) {
+                return result;
+            }
+            long genreMask = getGenreMask(genre);
+            if (genreMask == 0 && genre != null) {
+                return result;
+            }
+
+            List<Integer> matches = new ArrayList<>();
+            for (int row = found.nextSetBit(0); row >= 0 && row < count; row = found.nextSetBit(row + 1)) {
+                if (sources[row] == source && (genreMask == 0 || (genres[row] & genreMask) != 0)
+                        && MediaSearchIndex.matches(queryWords, titles[row], getYear(row))) {
+                    matches.add(row);
+                }
+            }
+
+            final int[] scores = new int[count];
+            for (int row : matches) {
+                scores[row] = MediaSearchIndex.score(normalizedQuery, queryWords, titles[row]);
+            }
+            Collections.sort(matches, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer a, Integer b) {
+                    if (scores[a] != scores[b]) {
+                        return scores[b] - scores[a];
+                    }
+                    return ratings[b] - ratings[a];
+                }
+            });
+
+            for (int i = 0; i < matches.size() && result.size() < limit; i++) {
+                addMedia(result, matches.get(i));
+            }
+        }
+
+        Timber.d("Searched %d items for '%s' in %d us, %d results", count, query,
+                (System.nanoTime() - start) / 1000, result.size());
+        return result;
+    }
+
+    public synchronized int size() {
+        return count;
+    }
+
+    synchronized MediaSearchIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * @return the items of the first list followed by those of the second one that aren't in the
+     * first one already
+     */
+    public static List<Media> merge(List<? extends Media> first, List<? extends Media> second) {
+        List<Media> merged = new ArrayList<>(first);
+        Set<String> ids = new HashSet<>();
+        for (Media item : first) {
+            ids.add(item.videoId);
+        }
+        for (Media item : second) {
+            if (ids.add(item.videoId)) {
+                merged.add(item);
+            }
+        }
+        return merged;
+    }
+
+    // must hold the lock, returns the row of the item or -1 if it wasn't put
+    private int put(int source, Media item, boolean replace) {
+        if (item == null || item.videoId == null) {
+            return -1;
+        }
+
+        String key = getKey(source, item.videoId);
+        Integer row = rows.get(key);
+        if (row != null && !replace) {
+            return -1;
+        }
+        String title = MediaSearchIndex.normalize(item.title);
+        int year = parseInt(item.year);
+        boolean indexed = row != null;
+        if (indexed && (!title.equals(titles[row]) || year != years[row])) {
+            index.remove(row, titles[row], getYear(row));
+            removeFromTitleOrder(row);
+            indexed = false;
+        }
+        if (row == null) {
+            if (count == MAX_ITEMS) {
+                dropOldest(MAX_ITEMS / 4);
+            }
+            ensureCapacity(count + 1);
+            row = count++;
+            rows.put(key, row);
+            for (int[] listed : positions) {
+                listed[row] = 0;
+            }
+            records[row] = 0;
+        }
+
+        ids[row] = item.videoId;
+        unsaved.put(key, item);
+        recent.remove(key);
+        sources[row] = source;
+        ratings[row] = (int) (parseDouble(item.rating) * 10);
+        genres[row] = getGenres(item.genre);
+        if (!indexed) {
+            titles[row] = title;
+            years[row] = year;
+            index.add(row, titles[row], getYear(row));
+            addToTitleOrder(row);
+        }
+        return row;
+    }
+
+    // must hold the lock, the row is the only one of the rows that isn't in the title order yet
+    private void addToTitleOrder(int row) {
+        int sorted = count - 1;
+        int i = findInTitleOrder(row, sorted);
+        System.arraycopy(byTitle, i, byTitle, i + 1, sorted - i);
+        byTitle[i] = row;
+    }
+
+    // must hold the lock, before the title of the row changes
+    private void removeFromTitleOrder(int row) {
+        int i = findInTitleOrder(row, count);
+        System.arraycopy(byTitle, i + 1, byTitle, i, count - i - 1);
+    }
+
+    // must hold the lock, the index of the row in the first sorted rows of the title order, or
+    // where it goes if it isn't there
+    private int findInTitleOrder(int row, int sorted) {
+        int low = 0;
+        int high = sorted - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int other = byTitle[middle];
+            // equal titles are kept in row order, which dropping the oldest rows doesn't change
+            int compare = other == row ? 0 : titles[other].compareTo(titles[row]);
+            if (compare == 0) {
+                compare = other - row;
+            }
+            if (compare < 0) {
+                low = middle + 1;
+            } else if (compare > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return low;
+    }
+
+    // the listed sort the positions of items listed with the filters are kept for, or -1
+    private static int getListing(MediaProvider.Filters filters) {
+        if (filters.getKeywords() != null || filters.getGenre() != null
+                || filters.getOrder() != MediaProvider.Filters.Order.DESC) {
+            return -1;
+        }
+        return Arrays.asList(LISTED_SORTS).indexOf(filters.getSort());
+    }
+
+    // must hold the lock
+    private void dropOldest(int drop) {
+        for (int row = 0; row < drop; row++) {
+            String key = getKey(sources[row], ids[row]);
+            rows.remove(key);
+            unsaved.remove(key);
+            recent.remove(key);
+            setRecord(row, 0);
+        }
+
+        int kept = count - drop;
+        System.arraycopy(ids, drop, ids, 0, kept);
+        System.arraycopy(sources, drop, sources, 0, kept);
+        System.arraycopy(titles, drop, titles, 0, kept);
+        System.arraycopy(years, drop, years, 0, kept);
+        System.arraycopy(ratings, drop, ratings, 0, kept);
+        System.arraycopy(genres, drop, genres, 0, kept);
+        System.arraycopy(records, drop, records, 0, kept);
+        for (int[] listed : positions) {
+            System.arraycopy(listed, drop, listed, 0, kept);
+        }
+        for (int row = kept; row < count; row++) {
+            ids[row] = null;
+            titles[row] = null;
+        }
+        int sorted = 0;
+        for (int i = 0; i < count; i++) {
+            if (byTitle[i] >= drop) {
+                byTitle[sorted++] = byTitle[i] - drop;
+            }
+        }
+        count = kept;
+
+        // moved down in place, nothing is indexed again
+        for (Map.Entry<String, Integer> entry : rows.entrySet()) {
+            entry.setValue(entry.getValue() - drop);
+        }
+        index.dropRows(drop);
+        Timber.d("Dropped the %d oldest items of the media catalog", drop);
+    }
+
+    // must hold the lock
+    private void ensureCapacity(int capacity) {
+        if (capacity <= ids.length) {
+            return;
+        }
+        int size = Math.min(Math.max(capacity, ids.length * 2), MAX_ITEMS);
+        ids = copyOf(ids, new String[size]);
+        titles = copyOf(titles, new String[size]);
+        int[] grown = new int[size];
+        System.arraycopy(sources, 0, grown, 0, count);
+        sources = grown;
+        grown = new int[size];
+        System.arraycopy(years, 0, grown, 0, count);
+        years = grown;
+        grown = new int[size];
+        System.arraycopy(ratings, 0, grown, 0, count);
+        ratings = grown;
+        grown = new int[size];
+        System.arraycopy(byTitle, 0, grown, 0, count);
+        byTitle = grown;
+        long[] grownLongs = new long[size];
+        System.arraycopy(genres, 0, grownLongs, 0, count);
+        genres = grownLongs;
+        grownLongs = new long[size];
+        System.arraycopy(records, 0, grownLongs, 0, count);
+        records = grownLongs;
+        for (int i = 0; i < positions.length; i++) {
+            grown = new int[size];
+            System.arraycopy(positions[i], 0, grown, 0, count);
+            positions[i] = grown;
+        }
+    }
+
+    private <T> T[] copyOf(T[] array, T[] grown) {
+        System.arraycopy(array, 0, grown, 0, count);
+        return grown;
+    }
+
+    // must hold the lock, adds the full item of the row unless it can't be read
+    private void addMedia(List<Media> result, int row) {
+        String key = getKey(sources[row], ids[row]);
+        Media item = unsaved.get(key);
+        if (item == null) {
+            item = recent.get(key);
+        }
+        if (item == null && records[row] != 0) {
+            try {
+                item = MediaRecordFile.unmarshall(recordFile.read(records[row]));
+                recent.put(key, item);
+            } catch (IOException | RuntimeException e) {
+                Timber.w(e, "Could not read catalog item %s", key);
+            }
+        }
+        if (item != null) {
+            result.add(item);
+        }
+    }
+
+    // must hold the lock
+    private void setRecord(int row, long record) {
+        if (records[row] != 0) {
+            usedBytes -= MediaRecordFile.getLength(records[row]);
+            unusedBytes += MediaRecordFile.getLength(records[row]);
+        }
+        records[row] = record;
+        usedBytes += MediaRecordFile.getLength(record);
+    }
+
+    private static String getKey(int source, String id) {
+        return source + "|" + id;
+    }
+
+    private static Map<String, Media> createRecent() {
+        return new LinkedHashMap<String, Media>(MAX_RECENT, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Media> eldest) {
+                return size() > MAX_RECENT;
+            }
+        };
+    }
+
+    // must hold the lock
+    private String getYear(int row) {
+        return years[row] > 0 ? String.valueOf(years[row]) : null;
+    }
+
+    // must hold the lock
+    private int getSource(String name) {
+        Integer source = indexOf(sourceNames, name);
+        if (source == null) {
+            sourceNames.add(name);
+            source = sourceNames.size() - 1;
+        }
+        return source;
+    }
+
+    // must hold the lock
+    private long getGenres(String genre) {
+        if (genre == null) {
+            return 0;
+        }
+
+        long mask = 0;
+        for (String name : genre.split(",")) {
+            String normalized = MediaSearchIndex.normalize(name);
+            if (normalized.isEmpty()) {
+                continue;
+            }
+            Integer bit = indexOf(genreNames, normalized);
+            if (bit == null && genreNames.size() < MAX_GENRES) {
+                genreNames.add(normalized);
+                bit = genreNames.size() - 1;
+            }
+            if (bit != null) {
+                mask |= 1L << bit;
+            }
+        }
+        return mask;
+    }
+
+    // must hold the lock
+    private long getGenreMask(String genre) {
+        if (genre == null) {
+            return 0;
+        }
+        Integer bit = indexOf(genreNames, MediaSearchIndex.normalize(genre));
+        return bit == null ? 0 : 1L << bit;
+    }
+
+    private static Integer indexOf(List<String> names, String name) {
+        int index = names.indexOf(name);
+        return index < 0 ? null : index;
+    }
+
+    private static int parseInt(String value) {
+        try {
+            return value == null ? 0 : Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static double parseDouble(String value) {
+        try {
+            return value == null ? 0 : Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    // must hold the lock
+    private void scheduleSave() {
+        if (saveScheduled || !persistent) {
+            return;
+        }
+        saveScheduled = true;
+        io.schedule(new Runnable() {
+            @Override
+            public void run() {
+                save();
+            }
+        }, SAVE_DELAY, TimeUnit.MILLISECONDS);
+    }
+
+    private void save() {
+        final MediaRecordFile file;
+        final List<String> keys;
+        final List<Media> items;
+        synchronized (this) {
+            saveScheduled = false;
+            if (recordFile == null) {
+                recordFile = new MediaRecordFile(getRecordFile(generation));
+            }
+            file = recordFile;
+            keys = new ArrayList<>(unsaved.keySet());
+            items = new ArrayList<>(unsaved.values());
+        }
+
+        // only the items that changed are written, the columns point at their records
+        long[] written = new long[items.size()];
+        try {
+            for (int i = 0; i < items.size(); i++) {
+                written[i] = file.append(MediaRecordFile.marshall(items.get(i)));
+            }
+        } catch (IOException | RuntimeException e) {
+            Timber.w(e, "Could not store the catalog items");
+            return;
+        }
+
+        boolean compact;
+        synchronized (this) {
+            for (int i = 0; i < keys.size(); i++) {
+                String key = keys.get(i);
+                Integer row = rows.get(key);
+                // an item replaced meanwhile is written with the next save
+                if (row != null && unsaved.get(key) == items.get(i)) {
+                    unsaved.remove(key);
+                    recent.put(key, items.get(i));
+                    setRecord(row, written[i]);
+                } else {
+                    unusedBytes += MediaRecordFile.getLength(written[i]);
+                }
+            }
+            compact = unusedBytes > MIN_COMPACT_BYTES && unusedBytes > usedBytes;
+        }
+
+        MediaRecordFile replaced = compact ? compact(file) : null;
+        if (writeColumns() && replaced != null) {
+            // nothing on disk points at it anymore
+            replaced.delete();
+        }
+    }
+
+    /**
+     * Copies the records the catalog still uses to the record file of the next generation.
+     *
+     * @return the record file that was replaced, or null if it wasn't
+     */
+    private MediaRecordFile compact(MediaRecordFile file) {
+        long start = System.currentTimeMillis();
+        final List<String> keys = new ArrayList<>();
+        final List<Long> used = new ArrayList<>();
+        final int compacted;
+        synchronized (this) {
+            compacted = generation + 1;
+            for (int row = 0; row < count; row++) {
+                if (records[row] != 0) {
+                    keys.add(getKey(sources[row], ids[row]));
+                    used.add(records[row]);
+                }
+            }
+        }
+
+        MediaRecordFile copy = new MediaRecordFile(getRecordFile(compacted));
+        long[] copied = new long[used.size()];
+        long copiedBytes = 0;
+        try {
+            for (int i = 0; i < copied.length; i++) {
+                copied[i] = copy.append(file.read(used.get(i)));
+                copiedBytes += MediaRecordFile.getLength(copied[i]);
+            }
+        } catch (IOException e) {
+            Timber.w(e, "Could not compact the catalog items");
+            copy.delete();
+            return null;
+        }
+
+        synchronized (this) {
+            usedBytes = 0;
+            for (int i = 0; i < copied.length; i++) {
+                // saves run on this thread, so a record only changes when its row was dropped
+                Integer row = rows.get(keys.get(i));
+                if (row != null && records[row] == used.get(i)) {
+                    records[row] = copied[i];
+                    usedBytes += MediaRecordFile.getLength(copied[i]);
+                }
+            }
+            unusedBytes = copiedBytes - usedBytes;
+            recordFile = copy;
+            generation = compacted;
+        }
+        Timber.d("Compacted the catalog items to %d bytes in %d ms", copiedBytes, System.currentTimeMillis() - start);
+        return file;
+    }
+
+    private boolean writeColumns() {
+        final int recordGeneration;
+        final List<String> names;
+        final List<String> genreList;
+        final List<Integer> saved = new ArrayList<>();
+        final String[] rowIds;
+        final int[] rowSources;
+        final String[] rowTitles;
+        final int[] rowYears;
+        final int[] rowRatings;
+        final long[] rowGenres;
+        final long[] rowRecords;
+        final int[][] rowPositions = new int[LISTED_SORTS.length][];
+        synchronized (this) {
+            recordGeneration = generation;
+            names = new ArrayList<>(sourceNames);
+            genreList = new ArrayList<>(genreNames);
+            for (int row = 0; row < count; row++) {
+                // items that aren't in the record file yet are written with the next save
+                if (records[row] != 0) {
+                    saved.add(row);
+                }
+            }
+            rowIds = copyOf(ids, new String[count]);
+            rowTitles = copyOf(titles, new String[count]);
+            rowSources = Arrays.copyOf(sources, count);
+            rowYears = Arrays.copyOf(years, count);
+            rowRatings = Arrays.copyOf(ratings, count);
+            rowGenres = Arrays.copyOf(genres, count);
+            rowRecords = Arrays.copyOf(records, count);
+            for (int i = 0; i < positions.length; i++) {
+                rowPositions[i] = Arrays.copyOf(positions[i], count);
+            }
+        }
+
+        return store.write(FILE, new ParcelStore.Writer() {
+            @Override
+            public void write(Parcel parcel) {
+                parcel.writeInt(recordGeneration);
+                parcel.writeStringList(names);
+                parcel.writeStringList(genreList);
+                parcel.writeInt(saved.size());
+                for (int row : saved) {
+                    parcel.writeString(rowIds[row]);
+                    parcel.writeInt(rowSources[row]);
+                    parcel.writeString(rowTitles[row]);
+                    parcel.writeInt(rowYears[row]);
+                    parcel.writeInt(rowRatings[row]);
+                    parcel.writeLong(rowGenres[row]);
+                    parcel.writeLong(rowRecords[row]);
+                    for (int[] listed : rowPositions) {
+                        parcel.writeInt(listed[row]);
+                    }
+                }
+            }
+        });
+    }
+
+    private void load() {
+        long start = System.currentTimeMillis();
+        // restored into a catalog of its own, this one keeps answering searches meanwhile
+        final MediaCatalog restored = store.read(FILE, new ParcelStore.Reader<MediaCatalog>() {
+            @Override
+            public MediaCatalog read(Parcel parcel) {
+                MediaCatalog restored = new MediaCatalog(context, false);
+                synchronized (restored) {
+                    restored.generation = parcel.readInt();
+                    parcel.readStringList(restored.sourceNames);
+                    parcel.readStringList(restored.genreNames);
+                    int size = parcel.readInt();
+                    for (int i = 0; i < size; i++) {
+                        int row = restored.restore(parcel.readString(), parcel.readInt(), parcel.readString(),
+                                parcel.readInt(), parcel.readInt(), parcel.readLong(), parcel.readLong());
+                        for (int[] listed : restored.positions) {
+                            listed[row] = parcel.readInt();
+                        }
+                    }
+                }
+                return restored;
+            }
+        });
+
+        File current = restored != null ? getRecordFile(restored.generation) : null;
+        // left behind by another build or by a compaction that wasn't finished
+        File[] files = store.getDirectory().listFiles();
+        for (int i = 0; files != null && i < files.length; i++) {
+            if (files[i].getName().startsWith(RECORDS) && !files[i].equals(current) && !files[i].delete()) {
+                Timber.w("Could not remove %s", files[i]);
+            }
+        }
+        if (restored == null || !current.exists()) {
+            return;
+        }
+        long restoredAt = System.currentTimeMillis();
+        int size = restored.count;
+
+        synchronized (this) {
+            synchronized (restored) {
+                restored.recordFile = new MediaRecordFile(current);
+                restored.unusedBytes = current.length() - restored.usedBytes;
+                takeOver(restored);
+            }
+        }
+        Timber.d("Restored %d catalog items in %d ms, swapped in after %d ms", size,
+                restoredAt - start, System.currentTimeMillis() - restoredAt);
+    }
+
+    // must hold the lock, returns the row of the columns of an item in the record file
+    private int restore(String id, int source, String title, int year, int rating, long genreMask, long record) {
+        ensureCapacity(count + 1);
+        int row = count++;
+        rows.put(getKey(source, id), row);
+        ids[row] = id;
+        sources[row] = source;
+        titles[row] = title;
+        years[row] = year;
+        ratings[row] = rating;
+        genres[row] = genreMask;
+        setRecord(row, record);
+        index.add(row, title, getYear(row));
+        addToTitleOrder(row);
+        return row;
+    }
+
+    private File getRecordFile(int recordGeneration) {
+        return new File(store.getDirectory(), RECORDS + recordGeneration);
+    }
+
+    // must hold the lock of both, adds the items of this catalog to the restored one and takes its columns
+    private void takeOver(MediaCatalog restored) {
+        for (int row = 0; row < count; row++) {
+            // items added since the app started are newer
+            int source = restored.getSource(sourceNames.get(sources[row]));
+            List<Media> item = new ArrayList<>(1);
+            addMedia(item, row);
+            int restoredRow = item.isEmpty() ? -1 : restored.put(source, item.get(0), true);
+            for (int i = 0; i < positions.length && restoredRow >= 0; i++) {
+                if (positions[i][row] != 0) {
+                    restored.positions[i][restoredRow] = positions[i][row];
+                }
+            }
+        }
+
+        index = restored.index;
+        rows = restored.rows;
+        sourceNames = restored.sourceNames;
+        genreNames = restored.genreNames;
+        unsaved = restored.unsaved;
+        recent = restored.recent;
+        recordFile = restored.recordFile;
+        generation = restored.generation;
+        usedBytes = restored.usedBytes;
+        unusedBytes = restored.unusedBytes;
+        count = restored.count;
+        ids = restored.ids;
+        sources = restored.sources;
+        titles = restored.titles;
+        years = restored.years;
+        ratings = restored.ratings;
+        genres = restored.genres;
+        positions = restored.positions;
+        records = restored.records;
+        byTitle = restored.byTitle;
+    }
+
+}
@@ -0,0 +1,127 @@
+/*
+ * This file is part of Butter.
+ *
+ * Butter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Butter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Butter. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package butter.droid.base.providers.media.catalog;
+
+import android.os.Parcel;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import butter.droid.base.providers.media.models.Media;
+import timber.log.Timber;
+
+/**
+ * The full items of a {@link MediaCatalog}, marshalled one after the other into a file the catalog
+ * only keeps the position of every item in.
+ * <p/>
+ * Items are only ever appended, an item that is replaced or dropped leaves its old record behind
+ * until the catalog copies the records it still uses to a new file. A record is the offset of the
+ * item in the file and its length packed into a long, 0 is no record.
+ */
+class MediaRecordFile {
+
+    private static final int LENGTH_BITS = 24;
+    private static final long MAX_LENGTH = (1 << LENGTH_BITS) - 1;
+
+    private final File file;
+    private RandomAccessFile access;
+
+    MediaRecordFile(File file) {
+        this.file = file;
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    /**
+     * @return the record of the data
+     */
+    synchronized long append(byte[] data) throws IOException {
+        if (data.length == 0 || data.length > MAX_LENGTH) {
+            throw new IOException("Can't store a record of " + data.length + " bytes");
+        }
+        RandomAccessFile access = open();
+        // offset 0 stays unused, so no record is 0
+        long offset = Math.max(1, access.length());
+        access.seek(offset);
+        access.write(data);
+        return offset << LENGTH_BITS | data.length;
+    }
+
+    synchronized byte[] read(long record) throws IOException {
+        byte[] data = new byte[getLength(record)];
+        RandomAccessFile access = open();
+        access.seek(record >>> LENGTH_BITS);
+        access.readFully(data);
+        return data;
+    }
+
+    synchronized void close() {
+        if (access != null) {
+            try {
+                access.close();
+            } catch (IOException e) {
+                Timber.w(e, "Could not close %s", file);
+            }
+            access = null;
+        }
+    }
+
+    void delete() {
+        close();
+        if (file.exists() && !file.delete()) {
+            Timber.w("Could not remove %s", file);
+        }
+    }
+
+    static int getLength(long record) {
+        return (int) (record & MAX_LENGTH);
+    }
+
+    static byte[] marshall(Media item) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            parcel.writeParcelable(item, 0);
+            return parcel.marshall();
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    static Media unmarshall(byte[] data) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            parcel.unmarshall(data, 0, data.length);
+            parcel.setDataPosition(0);
+            return parcel.readParcelable(Media.class.getClassLoader());
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    // must hold the lock
+    private RandomAccessFile open() throws IOException {
+        if (access == null) {
+            access = new RandomAccessFile(file, "rw");
+        }
+        return access;
+    }
+
+}
@@ -0,0 +1,244 @@
+/*
+ * This file is part of Butter.
+ *
+ * Butter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Butter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Butter. If not, see <http://www.gnu.org/licenses/>.
+ */
+package butter.droid.base.providers.media.catalog;
+
+import java.text.Normalizer;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * Finds the rows of a {@link MediaCatalog} whose title starts with the words of a query.
+ * <p/>
+ * Titles are normalized (lower case, no accents, no punctuation) and split into words. Every word,
+ * every pair of neighbouring words written together ("spider man" is also "spiderman") and the
+ * year are kept in a sorted map, so all words starting with a prefix are one range of it. Not
+ * thread safe, the catalog guards it.
+ */
+class MediaSearchIndex {
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final TreeMap<String, Postings> words = new TreeMap<>();
+
+    /**
+     * Indexes the row, a row that was indexed before has to be {@link #remove removed} with its old
+     * title first.
+     */
+    void add(int row, String normalizedTitle, String year) {
+        String[] tokens = split(normalizedTitle);
+        for (int i = 0; i < tokens.length; i++) {
+            add(tokens[i], row);
+            if (i + 1 < tokens.length) {
+                add(tokens[i] + tokens[i + 1], row);
+            }
+        }
+        if (year != null && !year.isEmpty()) {
+            add(year, row);
+        }
+    }
+
+    /**
+     * Removes the row from the words of the title and year it was {@link #add added} with.
+     */
+    void remove(int row, String normalizedTitle, String year) {
+        String[] tokens = split(normalizedTitle);
+        for (int i = 0; i < tokens.length; i++) {
+            remove(tokens[i], row);
+            if (i + 1 < tokens.length) {
+                remove(tokens[i] + tokens[i + 1], row);
+            }
+        }
+        if (year != null && !year.isEmpty()) {
+            remove(year, row);
+        }
+    }
+
+    /**
+     * Removes the rows below {@code drop} and moves the others down by as many, in one pass over
+     * the postings instead of indexing every title again.
+     */
+    void dropRows(int drop) {
+        Iterator<Postings> iterator = words.values().iterator();
+        while (iterator.hasNext()) {
+            Postings postings = iterator.next();
+            postings.drop(drop);
+            if (postings.size == 0) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * @return the rows that have a word starting with every word of the query, null if the query
+     * has no words
+     */
+    BitSet find(String[] queryWords, int rows) {
+        if (queryWords.length == 0) {
+            return null;
+        }
+
+        BitSet result = null;
+        for (String queryWord : queryWords) {
+            BitSet matches = new BitSet(rows);
+            for (Postings postings : words.subMap(queryWord, true, queryWord + Character.MAX_VALUE, true).values()) {
+                for (int i = 0; i < postings.size; i++) {
+                    matches.set(postings.rows[i]);
+                }
+            }
+
+            if (result == null) {
+                result = matches;
+            } else {
+                result.and(matches);
+            }
+            if (result.isEmpty()) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    int getWordCount() {
+        return words.size();
+    }
+
+    int getPostingCount() {
+        int count = 0;
+        for (Postings postings : words.values()) {
+            count += postings.size;
+        }
+        return count;
+    }
+
+    private void add(String word, int row) {
+        Postings postings = words.get(word);
+        if (postings == null) {
+            postings = new Postings();
+            words.put(word, postings);
+        }
+        postings.add(row);
+    }
+
+    private void remove(String word, int row) {
+        Postings postings = words.get(word);
+        if (postings != null && postings.remove(row) && postings.size == 0) {
+            words.remove(word);
+        }
+    }
+
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String plain = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        return SEPARATORS.matcher(plain.toLowerCase(Locale.US)).replaceAll(" ").trim();
+    }
+
+    static String[] split(String normalized) {
+        return normalized.isEmpty() ? new String[0] : normalized.split(" ");
+    }
+
+    /**
+     * @return whether every query word starts a word of the title, or of the year
+     */
+    static boolean matches(String[] queryWords, String normalizedTitle, String year) {
+        String[] titleWords = split(normalizedTitle);
+        for (String queryWord : queryWords) {
+            if (!startsAnyWord(queryWord, titleWords) && (year == null || !year.startsWith(queryWord))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return how well the title matches, higher is better
+     */
+    static int score(String normalizedQuery, String[] queryWords, String normalizedTitle) {
+        int score = 0;
+        if (normalizedTitle.equals(normalizedQuery)) {
+            score += 8;
+        } else if (normalizedTitle.startsWith(normalizedQuery)) {
+            score += 4;
+        }
+        String padded = " " + normalizedTitle + " ";
+        for (String queryWord : queryWords) {
+            if (padded.contains(" " + queryWord + " ")) {
+                score += 2;
+            }
+        }
+        return score;
+    }
+
+    private static boolean startsAnyWord(String queryWord, String[] titleWords) {
+        for (int i = 0; i < titleWords.length; i++) {
+            if (titleWords[i].startsWith(queryWord)
+                    || (i + 1 < titleWords.length && queryWord.startsWith(titleWords[i])
+                    && (titleWords[i] + titleWords[i + 1]).startsWith(queryWord))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The rows a word occurs in.
+     */
+    private static class Postings {
+        int[] rows = new int[2];
+        int size;
+
+        void add(int row) {
+            // a title can contain a word twice, a row that is added again later is harmless
+            if (size > 0 && rows[size - 1] == row) {
+                return;
+            }
+            if (size == rows.length) {
+                int[] grown = new int[size * 2];
+                System.arraycopy(rows, 0, grown, 0, size);
+                rows = grown;
+            }
+            rows[size++] = row;
+        }
+
+        boolean remove(int row) {
+            for (int i = size - 1; i >= 0; i--) {
+                if (rows[i] == row) {
+                    System.arraycopy(rows, i + 1, rows, i, size - i - 1);
+                    size--;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void drop(int drop) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (rows[i] >= drop) {
+                    rows[kept++] = rows[i] - drop;
+                }
+            }
+            size = kept;
+        }
+    }
+
+}
@@ -0,0 +1,418 @@
+/*
+ * This file is part of Butter.
+ *
+ * Butter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Butter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Butter. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package butter.droid.base.providers.media.models;
+
+import android.os.Parcel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The episodes of a show, by season.
+ * <p/>
+ * The details of a show list every episode of every season, but a season is shown at a time. The
+ * episodes are kept as plain columns, sorted by season and episode once when they are built, and
+ * turned into {@link Episode} objects a season at a time when that season is asked for. The same
+ * season always returns the same objects, so subtitles filled in on them stay.
+ */
+public class SeasonEpisodes {
+
+    private final Show show;
+
+    // one row per episode, sorted by season then episode
+    private final int count;
+    private final int[] seasons;
+    private final int[] numbers;
+    private final int[] aired;
+    private final boolean[] dateBased;
+    private final String[] titles;
+    private final String[] overviews;
+    // the torrents of row i are torrentStart[i] until torrentStart[i + 1]
+    private final int[] torrentStart;
+    private final String[] qualities;
+    private final String[] urls;
+    private final int[] seeds;
+    private final int[] peers;
+
+    // the season numbers ascending, and the first row of each, with count as the last entry
+    private final int[] seasonNumbers;
+    private final int[] seasonStart;
+    private final List<List<Episode>> mapped;
+
+    private SeasonEpisodes(Show show, int count, int[] seasons, int[] numbers, int[] aired, boolean[] dateBased,
+                           String[] titles, String[] overviews, int[] torrentStart, String[] qualities,
+                           String[] urls, int[] seeds, int[] peers) {
+        this.show = show;
+        this.count = count;
+        this.seasons = seasons;
+        this.numbers = numbers;
+        this.aired = aired;
+        this.dateBased = dateBased;
+        this.titles = titles;
+        this.overviews = overviews;
+        this.torrentStart = torrentStart;
+        this.qualities = qualities;
+        this.urls = urls;
+        this.seeds = seeds;
+        this.peers = peers;
+
+        int seasonCount = 0;
+        for (int i = 0; i < count; i++) {
+            if (i == 0 || seasons[i] != seasons[i - 1]) {
+                seasonCount++;
+            }
+        }
+        seasonNumbers = new int[seasonCount];
+        seasonStart = new int[seasonCount + 1];
+        for (int i = 0, s = 0; i < count; i++) {
+            if (i == 0 || seasons[i] != seasons[i - 1]) {
+                seasonNumbers[s] = seasons[i];
+                seasonStart[s++] = i;
+            }
+        }
+        seasonStart[seasonCount] = count;
+        mapped = new ArrayList<>(Collections.<List<Episode>>nCopies(seasonCount, null));
+    }
+
+    static SeasonEpisodes empty(Show show) {
+        return new Builder().build(show);
+    }
+
+    static SeasonEpisodes readFromParcel(Parcel in, Show show) {
+        int count = in.readInt();
+        return new SeasonEpisodes(show, count, in.createIntArray(), in.createIntArray(), in.createIntArray(),
+                in.createBooleanArray(), in.createStringArray(), in.createStringArray(), in.createIntArray(),
+                in.createStringArray(), in.createStringArray(), in.createIntArray(), in.createIntArray());
+    }
+
+    /**
+     * Writes the columns only, mapped episodes are mapped again by the reader.
+     */
+    void writeToParcel(Parcel dest) {
+        dest.writeInt(count);
+        dest.writeIntArray(seasons);
+        dest.writeIntArray(numbers);
+        dest.writeIntArray(aired);
+        dest.writeBooleanArray(dateBased);
+        dest.writeStringArray(titles);
+        dest.writeStringArray(overviews);
+        dest.writeIntArray(torrentStart);
+        dest.writeStringArray(qualities);
+        dest.writeStringArray(urls);
+        dest.writeIntArray(seeds);
+        dest.writeIntArray(peers);
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @return the season numbers of the show, ascending
+     */
+    public int[] getSeasonNumbers() {
+        return seasonNumbers.clone();
+    }
+
+    /**
+     * @return the number of episodes of the season, without mapping it
+     */
+    public int getSize(int season) {
+        int index = Arrays.binarySearch(seasonNumbers, season);
+        return index < 0 ? 0 : seasonStart[index + 1] - seasonStart[index];
+    }
+
+    /**
+     * @return the episodes of the season sorted by episode, mapped now if they weren't yet
+     */
+    public synchronized List<Episode> get(int season) {
+        int index = Arrays.binarySearch(seasonNumbers, season);
+        return index < 0 ? Collections.<Episode>emptyList() : map(index);
+    }
+
+    /**
+     * @return the episodes of the season if they are mapped already, otherwise an empty list
+     */
+    public synchronized List<Episode> getMapped(int season) {
+        int index = Arrays.binarySearch(seasonNumbers, season);
+        List<Episode> episodes = index < 0 ? null : mapped.get(index);
+        return episodes != null ? episodes : Collections.<Episode>emptyList();
+    }
+
+    /**
+     * @return every episode of the show sorted by season and episode, which maps every season
+     */
+    public synchronized List<Episode> getAll() {
+        List<Episode> all = new ArrayList<>(count);
+        for (int i = 0; i < seasonNumbers.length; i++) {
+            all.addAll(map(i));
+        }
+        return all;
+    }
+
+    /**
+     * @return the last episode of the last season, or null if the show has none
+     */
+    public synchronized Episode getLatest() {
+        if (count == 0) {
+            return null;
+        }
+        List<Episode> episodes = map(seasonNumbers.length - 1);
+        return episodes.get(episodes.size() - 1);
+    }
+
+    /**
+     * @param next true for the episode after the episode, false for the one before it
+     * @return the episode next to the episode across seasons, or null if there is none
+     */
+    public synchronized Episode getAdjacent(Episode episode, boolean next) {
+        int row = find(episode.season, episode.episode);
+        if (row < 0) {
+            return null;
+        }
+        row += next ? 1 : -1;
+        if (row < 0 || row >= count) {
+            return null;
+        }
+
+        int index = Arrays.binarySearch(seasonNumbers, seasons[row]);
+        return map(index).get(row - seasonStart[index]);
+    }
+
+    // must hold the lock
+    private List<Episode> map(int index) {
+        List<Episode> episodes = mapped.get(index);
+        if (episodes != null) {
+            return episodes;
+        }
+
+        episodes = new ArrayList<>(seasonStart[index + 1] - seasonStart[index]);
+        for (int row = seasonStart[index]; row < seasonStart[index + 1]; row++) {
+            Episode episode = new Episode();
+            for (int t = torrentStart[row]; t < torrentStart[row + 1]; t++) {
+                episode.torrents.put(qualities[t], new Media.Torrent(urls[t], seeds[t], peers[t]));
+            }
+
+            episode.showName = show.title;
+            episode.dateBased = dateBased[row];
+            episode.aired = aired[row];
+            episode.title = titles[row];
+            episode.overview = overviews[row];
+            episode.season = seasons[row];
+            episode.episode = numbers[row];
+            episode.videoId = show.videoId + episode.season + episode.episode;
+            episode.imdbId = show.imdbId;
+            episode.image = episode.fullImage = episode.headerImage = show.headerImage;
+            episodes.add(episode);
+        }
+
+        episodes = Collections.unmodifiableList(episodes);
+        mapped.set(index, episodes);
+        return episodes;
+    }
+
+    private int find(int season, int number) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int compare = compare(seasons[middle], numbers[middle], season, number);
+            if (compare < 0) {
+                low = middle + 1;
+            } else if (compare > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    private static int compare(int season, int number, int otherSeason, int otherNumber) {
+        if (season != otherSeason) {
+            return season < otherSeason ? -1 : 1;
+        }
+        return number < otherNumber ? -1 : (number == otherNumber ? 0 : 1);
+    }
+
+    /**
+     * Collects the episodes of a show as they come from the API, in any order. An episode that is
+     * added twice keeps what was added last.
+     */
+    public static class Builder {
+        private int count;
+        private int[] seasons = new int[16];
+        private int[] numbers = new int[16];
+        private int[] aired = new int[16];
+        private boolean[] dateBased = new boolean[16];
+        private String[] titles = new String[16];
+        private String[] overviews = new String[16];
+        private int[] torrentStart = new int[17];
+
+        private int torrents;
+        private String[] qualities = new String[16];
+        private String[] urls = new String[16];
+        private int[] seeds = new int[16];
+        private int[] peers = new int[16];
+
+        public Builder addEpisode(int season, int episode, int aired, boolean dateBased, String title, String overview) {
+            if (count == seasons.length) {
+                int capacity = count * 2;
+                seasons = Arrays.copyOf(seasons, capacity);
+                numbers = Arrays.copyOf(numbers, capacity);
+                this.aired = Arrays.copyOf(this.aired, capacity);
+                this.dateBased = Arrays.copyOf(this.dateBased, capacity);
+                titles = Arrays.copyOf(titles, capacity);
+                overviews = Arrays.copyOf(overviews, capacity);
+                torrentStart = Arrays.copyOf(torrentStart, capacity + 1);
+            }
+
+            seasons[count] = season;
+            numbers[count] = episode;
+            this.aired[count] = aired;
+            this.dateBased[count] = dateBased;
+            titles[count] = title;
+            overviews[count] = overview;
+            torrentStart[count] = torrents;
+            count++;
+            torrentStart[count] = torrents;
+            return this;
+        }
+
+        /**
+         * Adds a torrent to the episode that was added last.
+         */
+        public Builder addTorrent(String quality, String url, int seeds, int peers) {
+            if (count == 0) {
+                throw new IllegalStateException("Torrent added before any episode");
+            }
+            if (torrents == qualities.length) {
+                int capacity = torrents * 2;
+                qualities = Arrays.copyOf(qualities, capacity);
+                urls = Arrays.copyOf(urls, capacity);
+                this.seeds = Arrays.copyOf(this.seeds, capacity);
+                this.peers = Arrays.copyOf(this.peers, capacity);
+            }
+
+            qualities[torrents] = quality;
+            urls[torrents] = url;
+            this.seeds[torrents] = seeds;
+            this.peers[torrents] = peers;
+            torrents++;
+            torrentStart[count] = torrents;
+            return this;
+        }
+
+        /**
+         * Sorts the episodes by season and episode. The show is read when a season is mapped, so it
+         * can still be filled in after this.
+         */
+        public SeasonEpisodes build(Show show) {
+            int[] order = sort();
+
+            int rows = 0;
+            for (int i = 0; i < count; i++) {
+                if (i == count - 1 || compare(seasons[order[i]], numbers[order[i]], seasons[order[i + 1]], numbers[order[i + 1]]) != 0) {
+                    order[rows++] = order[i];
+                }
+            }
+
+            int[] sortedSeasons = new int[rows];
+            int[] sortedNumbers = new int[rows];
+            int[] sortedAired = new int[rows];
+            boolean[] sortedDateBased = new boolean[rows];
+            String[] sortedTitles = new String[rows];
+            String[] sortedOverviews = new String[rows];
+            int[] sortedTorrentStart = new int[rows + 1];
+            int torrentCount = 0;
+            for (int i = 0; i < rows; i++) {
+                torrentCount += torrentStart[order[i] + 1] - torrentStart[order[i]];
+            }
+            String[] sortedQualities = new String[torrentCount];
+            String[] sortedUrls = new String[torrentCount];
+            int[] sortedSeeds = new int[torrentCount];
+            int[] sortedPeers = new int[torrentCount];
+
+            int t = 0;
+            for (int i = 0; i < rows; i++) {
+                int row = order[i];
+                sortedSeasons[i] = seasons[row];
+                sortedNumbers[i] = numbers[row];
+                sortedAired[i] = aired[row];
+                sortedDateBased[i] = dateBased[row];
+                sortedTitles[i] = titles[row];
+                sortedOverviews[i] = overviews[row];
+                sortedTorrentStart[i] = t;
+                for (int j = torrentStart[row]; j < torrentStart[row + 1]; j++, t++) {
+                    sortedQualities[t] = qualities[j];
+                    sortedUrls[t] = urls[j];
+                    sortedSeeds[t] = seeds[j];
+                    sortedPeers[t] = peers[j];
+                }
+            }
+            sortedTorrentStart[rows] = t;
+
+            return new SeasonEpisodes(show, rows, sortedSeasons, sortedNumbers, sortedAired, sortedDateBased,
+                    sortedTitles, sortedOverviews, sortedTorrentStart, sortedQualities, sortedUrls, sortedSeeds,
+                    sortedPeers);
+        }
+
+        // the rows in order, of two equal episodes the one added last comes last
+        private int[] sort() {
+            boolean packable = true;
+            for (int i = 0; i < count && packable; i++) {
+                packable = seasons[i] >= 0 && seasons[i] <= Short.MAX_VALUE && numbers[i] >= 0 && numbers[i] <= 0xffff;
+            }
+
+            int[] order = new int[count];
+            if (packable) {
+                // season, episode and row in a single long, sorting those needs no objects
+                long[] keys = new long[count];
+                for (int i = 0; i < count; i++) {
+                    keys[i] = (long) seasons[i] << 48 | (long) numbers[i] << 32 | i;
+                }
+                Arrays.sort(keys);
+                for (int i = 0; i < count; i++) {
+                    order[i] = (int) keys[i];
+                }
+                return order;
+            }
+
+            // e.g. episodes numbered by their date
+            Integer[] boxed = new Integer[count];
+            for (int i = 0; i < count; i++) {
+                boxed[i] = i;
+            }
+            // stable, so of two equal episodes the one added last ends up last
+            Arrays.sort(boxed, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer me, Integer other) {
+                    return SeasonEpisodes.compare(seasons[me], numbers[me], seasons[other], numbers[other]);
+                }
+            });
+            for (int i = 0; i < count; i++) {
+                order[i] = boxed[i];
+            }
+            return order;
+        }
+    }
+
+}
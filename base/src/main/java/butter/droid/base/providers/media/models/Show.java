@@ -20,8 +20,6 @@ package butter.droid.base.providers.media.models;
 import android.os.Parcel;
 import android.os.Parcelable;
 
-import java.util.LinkedList;
-
 import butter.droid.base.manager.provider.ProviderManager;
 
 public class Show extends Media implements Parcelable {
@@ -46,7 +44,9 @@ public class Show extends Media implements Parcelable {
     public String tvdbId = "";
     public String synopsis = "No synopsis available";
     public Integer seasons = 0;
-    public LinkedList<Episode> episodes = new LinkedList<>();
+    // when the server last changed the show, 0 if unknown
+    public long lastUpdated = 0;
+    public SeasonEpisodes episodes = SeasonEpisodes.empty(this);
     private String certification = "n/a";
 
     public Show() {
@@ -80,11 +80,8 @@ public class Show extends Media implements Parcelable {
         synopsis = in.readString();
         certification = in.readString();
         seasons = in.readInt();
-        int size = in.readInt();
-        for (int i = 0; i < size; i++) {
-            Episode episode = in.readParcelable(Episode.class.getClassLoader());
-            episodes.add(episode);
-        }
+        lastUpdated = in.readLong();
+        episodes = SeasonEpisodes.readFromParcel(in, this);
     }
 
     @Override
@@ -106,10 +103,8 @@ public class Show extends Media implements Parcelable {
         dest.writeString(synopsis);
         dest.writeString(certification);
         dest.writeInt(seasons == null ? 0 : seasons);
-        dest.writeInt(episodes.size());
-        for (Episode episode : episodes) {
-            dest.writeParcelable(episode, flags);
-        }
+        dest.writeLong(lastUpdated);
+        episodes.writeToParcel(dest);
     }
 
     public enum Status {CONTINUING, ENDED, CANCELED, NOT_AIRED_YET, UNKNOWN}
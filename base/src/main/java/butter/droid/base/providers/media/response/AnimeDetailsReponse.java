@@ -1,20 +1,19 @@
 package butter.droid.base.providers.media.response;
 
-import android.util.SparseArray;
-
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.Map;
 
 import butter.droid.base.providers.media.MediaProvider;
 import butter.droid.base.providers.media.models.Media;
 import butter.droid.base.providers.media.models.Movie;
+import butter.droid.base.providers.media.models.SeasonEpisodes;
 import butter.droid.base.providers.media.models.Show;
 import butter.droid.base.providers.media.response.models.DetailsResponse;
 import butter.droid.base.providers.media.response.models.anime.AnimeDetails;
 import butter.droid.base.providers.media.response.models.anime.Episode;
 import butter.droid.base.providers.media.response.models.common.Quality;
 import butter.droid.base.providers.subs.SubsProvider;
+import timber.log.Timber;
 
 public class AnimeDetailsReponse extends DetailsResponse<AnimeDetails> {
 
@@ -34,6 +33,7 @@ public class AnimeDetailsReponse extends DetailsResponse<AnimeDetails> {
             if (item.getType().equalsIgnoreCase("show")) {
                 Show show = new Show();
                 show.seasons = item.getNumSeasons();
+                show.lastUpdated = item.getLastUpdated();
                 show.runtime = item.getRuntime();
                 show.synopsis = item.getSynopsis();
                 if (item.getStatus() != null) {
@@ -47,40 +47,29 @@ public class AnimeDetailsReponse extends DetailsResponse<AnimeDetails> {
                     }
                 }
 
-                SparseArray<butter.droid.base.providers.media.models.Episode> episodeMap = new SparseArray<>();
+                // the episodes are mapped a season at a time when they are shown
+                SeasonEpisodes.Builder episodes = new SeasonEpisodes.Builder();
                 for (Episode episode : item.getEpisodes()) {
+                    int season;
+                    int number;
                     try {
-                        butter.droid.base.providers.media.models.Episode episodeObject = new butter.droid.base.providers.media.models.Episode();
+                        season = Integer.parseInt(episode.getSeason());
+                        number = Integer.parseInt(episode.getEpisode());
+                    } catch (NumberFormatException e) {
+                        Timber.w(e, "Skipping episode %s of season %s", episode.getEpisode(), episode.getSeason());
+                        continue;
+                    }
 
-                        if (episode.getTorrents() != null) {
-                            for (Map.Entry<String, Quality> entry : episode.getTorrents().getQualities().entrySet()) {
-                                if (!entry.getKey().equals("0")) {
-                                    Media.Torrent torrent = new Media.Torrent(entry.getValue().getUrl(), entry.getValue().getSeeds(), entry.getValue().getPeers());
-                                    episodeObject.torrents.put(entry.getKey(), torrent);
-                                }
+                    episodes.addEpisode(season, number, -1, false, episode.getTitle(), episode.getOverview());
+                    if (episode.getTorrents() != null && episode.getTorrents().getQualities() != null) {
+                        for (Map.Entry<String, Quality> entry : episode.getTorrents().getQualities().entrySet()) {
+                            if (!entry.getKey().equals("0") && entry.getValue() != null) {
+                                episodes.addTorrent(entry.getKey(), entry.getValue().getUrl(), entry.getValue().getSeeds(), entry.getValue().getPeers());
                             }
                         }
-
-                        episodeObject.showName = show.title;
-                        episodeObject.dateBased = false;
-                        episodeObject.aired = -1;
-                        episodeObject.title = episode.getTitle();
-                        episodeObject.overview = episode.getOverview();
-                        episodeObject.season = Integer.parseInt(episode.getSeason());
-                        episodeObject.episode = Integer.parseInt(episode.getEpisode());
-                        episodeObject.videoId = show.videoId + episodeObject.season + episodeObject.episode;
-                        episodeObject.imdbId = show.imdbId;
-                        episodeObject.image = episodeObject.fullImage = episodeObject.headerImage = show.headerImage;
-
-                        episodeMap.put(episodeObject.episode, episodeObject);
-                    } catch (Exception e) {
-                        e.printStackTrace();
                     }
                 }
-
-                show.episodes = new LinkedList<>();
-                for (int i = 0; i < episodeMap.size(); i++)
-                    show.episodes.add(episodeMap.valueAt(i));
+                show.episodes = episodes.build(show);
 
                 media = show;
             }
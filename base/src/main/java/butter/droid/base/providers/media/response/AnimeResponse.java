@@ -33,6 +33,7 @@ public class AnimeResponse extends Response<Anime> {
                 show.title = item.getTitle();
                 show.videoId = item.getId();
                 show.seasons = item.getNumSeasons();
+                show.lastUpdated = item.getLastUpdated();
                 // media.tvdbId = (String) item.get("tvdb_id");
                 show.year = item.getYear();
                 if (item.getImages().getPoster() != null && !item.getImages().getPoster().contains("images/posterholder.png")) {
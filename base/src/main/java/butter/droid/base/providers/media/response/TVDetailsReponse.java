@@ -5,6 +5,7 @@ import java.util.Map;
 
 import butter.droid.base.providers.media.MediaProvider;
 import butter.droid.base.providers.media.models.Media;
+import butter.droid.base.providers.media.models.SeasonEpisodes;
 import butter.droid.base.providers.media.response.models.DetailsResponse;
 import butter.droid.base.providers.media.response.models.common.Quality;
 import butter.droid.base.providers.media.response.models.shows.Episode;
@@ -27,6 +28,7 @@ public class TVDetailsReponse extends DetailsResponse<ShowDetails> {
             show.imdbId = item.getImdbId();
             show.tvdbId = item.getTvdbId();
             show.seasons = item.getNumSeasons();
+            show.lastUpdated = item.getLastUpdated();
             show.year = item.getYear();
 
             if (item.getImages().getPoster() != null && !item.getImages().getPoster().contains("images/posterholder.png")) {
@@ -68,35 +70,20 @@ public class TVDetailsReponse extends DetailsResponse<ShowDetails> {
             }
             show.genre = stringBuilder.toString();
 
+            // the episodes are mapped a season at a time when they are shown
+            SeasonEpisodes.Builder episodes = new SeasonEpisodes.Builder();
             for (Episode episode : item.getEpisodes()) {
-                try {
-                    butter.droid.base.providers.media.models.Episode episodeObject = new butter.droid.base.providers.media.models.Episode();
-
-                    if (episode.getTorrents() != null) {
-                        for (Map.Entry<String, Quality> entry : episode.getTorrents().getQualities().entrySet()) {
-                            if (!entry.getKey().equals("0")) {
-                                Media.Torrent torrent = new Media.Torrent(entry.getValue().getUrl(), entry.getValue().getSeeds(), entry.getValue().getPeers());
-                                episodeObject.torrents.put(entry.getKey(), torrent);
-                            }
+                episodes.addEpisode(episode.getSeason(), episode.getEpisode(), episode.getFirstAired(),
+                        episode.isDateBased(), episode.getTitle(), episode.getOverview());
+                if (episode.getTorrents() != null && episode.getTorrents().getQualities() != null) {
+                    for (Map.Entry<String, Quality> entry : episode.getTorrents().getQualities().entrySet()) {
+                        if (!entry.getKey().equals("0") && entry.getValue() != null) {
+                            episodes.addTorrent(entry.getKey(), entry.getValue().getUrl(), entry.getValue().getSeeds(), entry.getValue().getPeers());
                         }
                     }
-
-                    episodeObject.showName = show.title;
-                    episodeObject.dateBased = episode.isDateBased();
-                    episodeObject.aired = episode.getFirstAired();
-                    episodeObject.title = episode.getTitle();
-                    episodeObject.overview = episode.getOverview();
-                    episodeObject.season = episode.getSeason();
-                    episodeObject.episode = episode.getEpisode();
-                    episodeObject.videoId = show.videoId + episodeObject.season + episodeObject.episode;
-                    episodeObject.imdbId = show.imdbId;
-                    episodeObject.image = episodeObject.fullImage = episodeObject.headerImage = show.headerImage;
-
-                    show.episodes.add(episodeObject);
-                } catch (Exception e) {
-                    e.printStackTrace();
                 }
             }
+            show.episodes = episodes.build(show);
 
             list.add(show);
         } catch (Exception e) {
@@ -22,6 +22,7 @@ public class TVResponse extends Response<Show> {
             show.title = item.getTitle();
             show.videoId = item.getImdbId();
             show.seasons = item.getNumSeasons();
+            show.lastUpdated = item.getLastUpdated();
             show.tvdbId = item.getTvdbId();
             show.year = item.getYear();
             if (item.getImages().getPoster() != null && !item.getImages().getPoster().contains("images/posterholder.png")) {
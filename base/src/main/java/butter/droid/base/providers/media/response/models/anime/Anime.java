@@ -27,6 +27,8 @@ public class Anime extends ResponseItem {
     private String type;
     @JsonProperty("num_seasons")
     private int numSeasons;
+    @JsonProperty("last_updated")
+    private long lastUpdated;
     @JsonProperty("genres")
     private List<String> genres = new ArrayList<>();
     @JsonProperty("images")
@@ -147,6 +149,22 @@ public class Anime extends ResponseItem {
         this.numSeasons = numSeasons;
     }
 
+    /**
+     * @return The lastUpdated
+     */
+    @JsonProperty("last_updated")
+    public long getLastUpdated() {
+        return lastUpdated;
+    }
+
+    /**
+     * @param lastUpdated The last_updated
+     */
+    @JsonProperty("last_updated")
+    public void setLastUpdated(long lastUpdated) {
+        this.lastUpdated = lastUpdated;
+    }
+
     /**
      * @return The genres
      */
@@ -27,6 +27,8 @@ public class Show extends ResponseItem {
     private Rating rating;
     @JsonProperty("num_seasons")
     private int numSeasons;
+    @JsonProperty("last_updated")
+    private long lastUpdated;
     @JsonProperty("images")
     private Images images;
 
@@ -158,6 +160,22 @@ public class Show extends ResponseItem {
         this.numSeasons = numSeasons;
     }
 
+    /**
+     * @return The lastUpdated
+     */
+    @JsonProperty("last_updated")
+    public long getLastUpdated() {
+        return lastUpdated;
+    }
+
+    /**
+     * @param lastUpdated The last_updated
+     */
+    @JsonProperty("last_updated")
+    public void setLastUpdated(long lastUpdated) {
+        this.lastUpdated = lastUpdated;
+    }
+
     /**
      * @return The images
      */
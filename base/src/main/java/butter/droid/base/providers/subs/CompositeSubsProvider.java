@@ -0,0 +1,367 @@
+/*
+ * This file is part of Butter.
+ *
+ * Butter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Butter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Butter. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package butter.droid.base.providers.subs;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import butter.droid.base.providers.media.models.Episode;
+import butter.droid.base.providers.media.models.Movie;
+import okhttp3.OkHttpClient;
+import timber.log.Timber;
+
+/**
+ * Searches several subtitle providers at once and merges their results, so one slow or broken
+ * provider doesn't leave a movie without subtitles.
+ * <p/>
+ * Every provider gets {@link #SOURCE_DEADLINE_MS} to answer. The callback is called once every
+ * provider answered or missed its deadline, with the results of the ones that made it. For every
+ * language the best ranked subtitle of all providers is kept, see {@link RankedSubtitles}.
+ * <p/>
+ * A provider that fails or misses its deadline {@link #FAILURE_THRESHOLD} times in a row is skipped
+ * for {@link #OPEN_CIRCUIT_MS}, after that a single search tries whether it is back.
+ */
+public class CompositeSubsProvider extends SubsProvider {
+
+    static final long SOURCE_DEADLINE_MS = 10000;
+    static final int FAILURE_THRESHOLD = 3;
+    static final long OPEN_CIRCUIT_MS = 60 * 1000;
+
+    private final List<Source> sources = new ArrayList<>();
+    private final Set<FanOut<?>> ongoing = new HashSet<>();
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    public CompositeSubsProvider(Context context, OkHttpClient client, ObjectMapper mapper, SubsProvider... providers) {
+        super(context, client, mapper);
+        for (SubsProvider provider : providers) {
+            sources.add(new Source(provider));
+        }
+    }
+
+    @Override
+    public void getList(final Movie movie, final Callback callback) {
+        new ListFanOut(callback) {
+            @Override
+            void request(SubsProvider provider, Callback sourceCallback) {
+                provider.getList(movie, sourceCallback);
+            }
+        }.start();
+    }
+
+    @Override
+    public void getList(final Episode episode, final Callback callback) {
+        new ListFanOut(callback) {
+            @Override
+            void request(SubsProvider provider, Callback sourceCallback) {
+                provider.getList(episode, sourceCallback);
+            }
+        }.start();
+    }
+
+    @Override
+    public void getList(final String imdbId, final int season, final SeasonCallback callback) {
+        new FanOut<Map<Integer, Map<String, String>>>() {
+            private final Map<Integer, Map<String, String>> merged = new HashMap<>();
+
+            @Override
+            void request(SubsProvider provider, final SourceCallback<Map<Integer, Map<String, String>>> sourceCallback) {
+                provider.getList(imdbId, season, new SeasonCallback() {
+                    @Override
+                    public void onSuccess(Map<Integer, Map<String, String>> episodes) {
+                        sourceCallback.onSuccess(episodes);
+                    }
+
+                    @Override
+                    public void onFailure(Exception e) {
+                        sourceCallback.onFailure(e);
+                    }
+                });
+            }
+
+            @Override
+            void merge(Map<Integer, Map<String, String>> result) {
+                for (Map.Entry<Integer, Map<String, String>> entry : result.entrySet()) {
+                    RankedSubtitles subtitles = (RankedSubtitles) merged.get(entry.getKey());
+                    if (subtitles == null) {
+                        subtitles = new RankedSubtitles();
+                        merged.put(entry.getKey(), subtitles);
+                    }
+                    subtitles.addAll(entry.getValue());
+                }
+            }
+
+            @Override
+            void onSuccess() {
+                callback.onSuccess(merged);
+            }
+
+            @Override
+            void onFailure(Exception e) {
+                callback.onFailure(e);
+            }
+        }.start();
+    }
+
+    @Override
+    public void cancel() {
+        super.cancel();
+        synchronized (ongoing) {
+            for (FanOut<?> fanOut : ongoing) {
+                fanOut.cancel();
+            }
+            ongoing.clear();
+        }
+        for (Source source : sources) {
+            source.provider.cancel();
+        }
+    }
+
+    private interface SourceCallback<T> {
+        void onSuccess(T result);
+
+        void onFailure(Exception e);
+    }
+
+    /**
+     * One search, sent to every provider that isn't skipped.
+     */
+    private abstract class FanOut<T> {
+        private final List<Source> pending = new ArrayList<>();
+        private final List<Runnable> deadlines = new ArrayList<>();
+        private boolean answered;
+        private boolean done;
+        private Exception error;
+
+        abstract void request(SubsProvider provider, SourceCallback<T> sourceCallback);
+
+        // called with the lock held
+        abstract void merge(T result);
+
+        abstract void onSuccess();
+
+        abstract void onFailure(Exception e);
+
+        void start() {
+            List<Source> available = new ArrayList<>();
+            for (Source source : sources) {
+                if (source.allowRequest()) {
+                    available.add(source);
+                }
+            }
+            if (available.isEmpty()) {
+                onFailure(new IOException("No subtitle provider available"));
+                return;
+            }
+
+            synchronized (ongoing) {
+                ongoing.add(this);
+            }
+            synchronized (this) {
+                pending.addAll(available);
+            }
+
+            for (final Source source : available) {
+                final long start = SystemClock.elapsedRealtime();
+                Runnable deadline = new Runnable() {
+                    @Override
+                    public void run() {
+                        finish(source, start, null, new IOException("Deadline missed by " + source.getName()));
+                    }
+                };
+                synchronized (this) {
+                    deadlines.add(deadline);
+                }
+                handler.postDelayed(deadline, SOURCE_DEADLINE_MS);
+
+                request(source.provider, new SourceCallback<T>() {
+                    @Override
+                    public void onSuccess(T result) {
+                        finish(source, start, result, null);
+                    }
+
+                    @Override
+                    public void onFailure(Exception e) {
+                        finish(source, start, null, e);
+                    }
+                });
+            }
+        }
+
+        synchronized void cancel() {
+            done = true;
+            for (Source source : pending) {
+                source.release();
+            }
+            pending.clear();
+            for (Runnable deadline : deadlines) {
+                handler.removeCallbacks(deadline);
+            }
+        }
+
+        private void finish(Source source, long start, T result, Exception e) {
+            long latency = SystemClock.elapsedRealtime() - start;
+            boolean last;
+            synchronized (this) {
+                // late answers of providers that missed their deadline are dropped
+                if (done || !pending.remove(source)) {
+                    return;
+                }
+
+                if (result != null) {
+                    answered = true;
+                    merge(result);
+                } else {
+                    error = e;
+                }
+                last = pending.isEmpty();
+                if (last) {
+                    cancel();
+                }
+            }
+
+            source.record(result != null, e, latency);
+            if (!last) {
+                return;
+            }
+
+            synchronized (ongoing) {
+                ongoing.remove(this);
+            }
+            if (answered) {
+                onSuccess();
+            } else {
+                onFailure(error);
+            }
+        }
+    }
+
+    private abstract class ListFanOut extends FanOut<Map<String, String>> {
+        private final RankedSubtitles merged = new RankedSubtitles();
+        private final Callback callback;
+
+        ListFanOut(Callback callback) {
+            this.callback = callback;
+        }
+
+        abstract void request(SubsProvider provider, Callback sourceCallback);
+
+        @Override
+        void request(SubsProvider provider, final SourceCallback<Map<String, String>> sourceCallback) {
+            request(provider, new Callback() {
+                @Override
+                public void onSuccess(Map<String, String> items) {
+                    sourceCallback.onSuccess(items != null ? items : new HashMap<String, String>());
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    sourceCallback.onFailure(e);
+                }
+            });
+        }
+
+        @Override
+        void merge(Map<String, String> result) {
+            merged.addAll(result);
+        }
+
+        @Override
+        void onSuccess() {
+            callback.onSuccess(merged);
+        }
+
+        @Override
+        void onFailure(Exception e) {
+            callback.onFailure(e);
+        }
+    }
+
+    /**
+     * A provider with its circuit breaker and latency statistics.
+     */
+    private static class Source {
+        final SubsProvider provider;
+        private int consecutiveFailures;
+        private long openUntil;
+        private boolean probing;
+
+        private int requests;
+        private int failures;
+        private long totalLatency;
+        private long maxLatency;
+
+        Source(SubsProvider provider) {
+            this.provider = provider;
+        }
+
+        String getName() {
+            return provider.getClass().getSimpleName();
+        }
+
+        synchronized boolean allowRequest() {
+            if (consecutiveFailures < FAILURE_THRESHOLD) {
+                return true;
+            }
+            if (probing || SystemClock.elapsedRealtime() < openUntil) {
+                return false;
+            }
+            // half open, one search decides whether the provider is back
+            probing = true;
+            return true;
+        }
+
+        // the search was cancelled before the provider answered
+        synchronized void release() {
+            probing = false;
+        }
+
+        synchronized void record(boolean success, Exception e, long latency) {
+            probing = false;
+            if (success) {
+                consecutiveFailures = 0;
+            } else if (!(e instanceof UnsupportedOperationException)) {
+                failures++;
+                if (++consecutiveFailures >= FAILURE_THRESHOLD) {
+                    openUntil = SystemClock.elapsedRealtime() + OPEN_CIRCUIT_MS;
+                    Timber.w(e, "Skipping subtitle provider %s for %d ms after %d failures",
+                            getName(), OPEN_CIRCUIT_MS, consecutiveFailures);
+                }
+            }
+
+            requests++;
+            totalLatency += latency;
+            maxLatency = Math.max(maxLatency, latency);
+            Timber.d("Subtitle provider %s %s in %d ms (%d requests, %d failed, %d ms average, %d ms max)",
+                    getName(), success ? "answered" : "failed", latency, requests, failures,
+                    totalLatency / requests, maxLatency);
+        }
+    }
+
+}
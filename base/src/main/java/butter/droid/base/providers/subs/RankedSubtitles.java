@@ -0,0 +1,63 @@
+/*
+ * This file is part of Butter.
+ *
+ * Butter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Butter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Butter. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package butter.droid.base.providers.subs;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Subtitle url by language that only keeps the best ranked subtitle of every language: the highest
+ * score first, then the most downloads.
+ * <p/>
+ * It is a plain language to url map for everyone else, providers return it so the ranks survive
+ * when the results of several providers are merged.
+ */
+public class RankedSubtitles extends HashMap<String, String> {
+
+    private final Map<String, int[]> ranks = new HashMap<>();
+
+    /**
+     * @return true if the subtitle replaced the one of its language, or is the first of it
+     */
+    public boolean add(String language, String url, int score, int downloads) {
+        int[] rank = ranks.get(language);
+        if (rank != null && (score < rank[0] || (score == rank[0] && downloads <= rank[1]))) {
+            return false;
+        }
+
+        put(language, url);
+        ranks.put(language, new int[]{score, downloads});
+        return true;
+    }
+
+    /**
+     * Adds every subtitle of the map, subtitles of a map without ranks rank lowest.
+     */
+    public void addAll(Map<String, String> subtitles) {
+        RankedSubtitles ranked = subtitles instanceof RankedSubtitles ? (RankedSubtitles) subtitles : null;
+        for (Map.Entry<String, String> entry : subtitles.entrySet()) {
+            int[] rank = ranked != null ? ranked.ranks.get(entry.getKey()) : null;
+            if (rank != null) {
+                add(entry.getKey(), entry.getValue(), rank[0], rank[1]);
+            } else {
+                add(entry.getKey(), entry.getValue(), 0, 0);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,252 @@
+/*
+ * This file is part of Butter.
+ *
+ * Butter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Butter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Butter. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package butter.droid.base.providers.subs;
+
+import android.os.SystemClock;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import butter.droid.base.providers.media.models.Episode;
+import butter.droid.base.providers.media.models.Show;
+import timber.log.Timber;
+
+/**
+ * Subtitles of whole seasons, looked up in the background when the details of a show are opened.
+ * <p/>
+ * Every season is fetched with a single {@link SubsProvider#getList(String, int, SubsProvider.SeasonCallback)}
+ * and kept for {@link #TTL_MS}, so the subtitle languages of an episode are known by the time it is
+ * opened. Episodes the season lookup has nothing for, or that are opened before it finished and
+ * it fails, are still looked up on their own through the {@link SubtitleCache}.
+ */
+@Singleton
+public class SeasonSubtitleIndex {
+
+    static final long TTL_MS = 60 * 60 * 1000;
+    private static final int MAX_SEASONS = 32;
+
+    private static class Season {
+        // episodes of the show that are filled in once the season is loaded
+        final List<Episode> episodes = new ArrayList<>();
+        final List<Waiter> waiting = new ArrayList<>();
+        Map<Integer, Map<String, String>> subtitles;
+        long loadTime;
+
+        boolean isLoaded() {
+            return subtitles != null;
+        }
+
+        boolean isExpired() {
+            return isLoaded() && SystemClock.elapsedRealtime() - loadTime > TTL_MS;
+        }
+    }
+
+    private static class Waiter {
+        final Episode episode;
+        final SubsProvider.Callback callback;
+
+        Waiter(Episode episode, SubsProvider.Callback callback) {
+            this.episode = episode;
+            this.callback = callback;
+        }
+    }
+
+    private final Map<String, Season> seasons = new LinkedHashMap<String, Season>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Season> eldest) {
+            return size() > MAX_SEASONS;
+        }
+    };
+    // callbacks that have a lookup of their own running
+    private final Set<SubsProvider.Callback> direct = new HashSet<>();
+    private final SubtitleCache subtitleCache;
+    private int hits;
+    private int misses;
+
+    @Inject
+    public SeasonSubtitleIndex(SubtitleCache subtitleCache) {
+        this.subtitleCache = subtitleCache;
+    }
+
+    /**
+     * Starts loading the subtitles of every season of the show that isn't loaded yet, the
+     * subtitles of the mapped episodes of the show are filled in as their season arrives. Calling
+     * it again once more seasons are mapped fills those in too, without loading anything again.
+     */
+    public void prefetch(SubsProvider provider, Show show) {
+        if (show == null || show.episodes == null || show.imdbId == null) {
+            return;
+        }
+
+        Map<Integer, Season> toLoad = new LinkedHashMap<>();
+        synchronized (this) {
+            for (int number : show.episodes.getSeasonNumbers()) {
+                String key = getKey(show.imdbId, number);
+                Season season = seasons.get(key);
+                if (season == null || season.isExpired()) {
+                    season = new Season();
+                    seasons.put(key, season);
+                    toLoad.put(number, season);
+                }
+
+                // episodes that are mapped later find their season through getList
+                for (Episode episode : show.episodes.getMapped(number)) {
+                    if (season.isLoaded()) {
+                        fill(episode, season);
+                    } else if (!season.episodes.contains(episode)) {
+                        season.episodes.add(episode);
+                    }
+                }
+            }
+        }
+
+        for (Map.Entry<Integer, Season> entry : toLoad.entrySet()) {
+            load(provider, getKey(show.imdbId, entry.getKey()), entry.getValue(), show.imdbId, entry.getKey());
+        }
+    }
+
+    /**
+     * Gets the subtitles of the episode from its season if that is loaded or loading, otherwise
+     * from the {@link SubtitleCache}. A loaded season or cached episode calls back right away.
+     */
+    public void getList(SubsProvider provider, Episode episode, SubsProvider.Callback callback) {
+        Map<String, String> subtitles = null;
+        synchronized (this) {
+            Season season = episode.imdbId != null ? seasons.get(getKey(episode.imdbId, episode.season)) : null;
+            if (season != null && !season.isExpired()) {
+                if (!season.isLoaded()) {
+                    season.waiting.add(new Waiter(episode, callback));
+                    return;
+                }
+                subtitles = season.subtitles.get(episode.episode);
+            }
+
+            if (subtitles != null) {
+                hits++;
+            } else {
+                misses++;
+                direct.add(callback);
+            }
+        }
+
+        if (subtitles != null) {
+            callback.onSuccess(new HashMap<>(subtitles));
+        } else if (!subtitleCache.getList(provider, episode, callback)) {
+            synchronized (this) {
+                direct.remove(callback);
+            }
+        }
+    }
+
+    /**
+     * Stops calling back the callback. The provider is only cancelled if the callback has a lookup
+     * of its own running, which also cancels the seasons that are loading.
+     */
+    public void cancel(SubsProvider provider, SubsProvider.Callback callback) {
+        synchronized (this) {
+            for (Season season : seasons.values()) {
+                for (int i = season.waiting.size() - 1; i >= 0; i--) {
+                    if (season.waiting.get(i).callback == callback) {
+                        season.waiting.remove(i);
+                    }
+                }
+            }
+
+            if (!direct.remove(callback)) {
+                return;
+            }
+
+            // their results won't arrive anymore, load them again when they are asked for next
+            List<String> loading = new ArrayList<>();
+            for (Map.Entry<String, Season> entry : seasons.entrySet()) {
+                if (!entry.getValue().isLoaded()) {
+                    loading.add(entry.getKey());
+                }
+            }
+            for (String key : loading) {
+                seasons.remove(key);
+            }
+        }
+        provider.cancel();
+    }
+
+    private void load(final SubsProvider provider, final String key, final Season season, String imdbId, int number) {
+        provider.getList(imdbId, number, new SubsProvider.SeasonCallback() {
+            @Override
+            public void onSuccess(Map<Integer, Map<String, String>> episodes) {
+                List<Waiter> waiting;
+                synchronized (SeasonSubtitleIndex.this) {
+                    season.subtitles = episodes;
+                    season.loadTime = SystemClock.elapsedRealtime();
+                    for (Episode episode : season.episodes) {
+                        fill(episode, season);
+                        if (episode.subtitles != null) {
+                            subtitleCache.put(provider, episode, episode.subtitles);
+                        }
+                    }
+                    season.episodes.clear();
+                    waiting = new ArrayList<>(season.waiting);
+                    season.waiting.clear();
+                    Timber.d("Subtitles of %s loaded for %d episodes (%d hits, %d misses)", key, episodes.size(), hits, misses);
+                }
+
+                for (Waiter waiter : waiting) {
+                    getList(provider, waiter.episode, waiter.callback);
+                }
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                List<Waiter> waiting;
+                synchronized (SeasonSubtitleIndex.this) {
+                    if (seasons.get(key) == season) {
+                        seasons.remove(key);
+                    }
+                    waiting = new ArrayList<>(season.waiting);
+                    season.waiting.clear();
+                }
+                Timber.d(e, "Subtitles of %s not loaded", key);
+
+                for (Waiter waiter : waiting) {
+                    getList(provider, waiter.episode, waiter.callback);
+                }
+            }
+        });
+    }
+
+    // must hold the lock
+    private void fill(Episode episode, Season season) {
+        Map<String, String> subtitles = season.subtitles.get(episode.episode);
+        if (subtitles != null) {
+            episode.subtitles = new HashMap<>(subtitles);
+        }
+    }
+
+    private static String getKey(String imdbId, int season) {
+        return imdbId + ":" + season;
+    }
+
+}
@@ -225,9 +225,31 @@ public abstract class SubsProvider extends BaseProvider {
 
     public abstract void getList(Episode episode, Callback callback);
 
+    /**
+     * Looks up the subtitles of every episode of a season at once. Providers that can't do this
+     * fail, callers then fall back to {@link #getList(Episode, Callback)} per episode.
+     *
+     * @param imdbId   IMDb id of the show
+     * @param season   Season number
+     * @param callback Network callback
+     */
+    public void getList(String imdbId, int season, SeasonCallback callback) {
+        callback.onFailure(new UnsupportedOperationException("Season lookup not supported"));
+    }
+
     public interface Callback {
         void onSuccess(Map<String, String> items);
 
         void onFailure(Exception e);
     }
+
+    public interface SeasonCallback {
+        /**
+         * @param episodes Subtitles by language, by episode number. Episodes that are missing may
+         *                 still have subtitles the season lookup didn't return.
+         */
+        void onSuccess(Map<Integer, Map<String, String>> episodes);
+
+        void onFailure(Exception e);
+    }
 }
\ No newline at end of file
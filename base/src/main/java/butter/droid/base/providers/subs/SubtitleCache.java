@@ -0,0 +1,328 @@
+/*
+ * This file is part of Butter.
+ *
+ * Butter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Butter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Butter. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package butter.droid.base.providers.subs;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import butter.droid.base.providers.media.models.Episode;
+import butter.droid.base.providers.media.models.Movie;
+import timber.log.Timber;
+
+/**
+ * Subtitle search results that survive the process, so opening a movie or episode again doesn't
+ * repeat the search.
+ * <p/>
+ * Results are kept per provider and movie or episode. Within {@link #TTL_MS} they are used as they
+ * are, after that they are still shown right away but searched again in the background, and after
+ * {@link #MAX_AGE_MS} they are not used anymore. At most {@link #MAX_ENTRIES} results are kept,
+ * the oldest are dropped first.
+ * <p/>
+ * The stored results are read once on a background thread and kept parsed in memory, lookups and
+ * evictions only use the memory and the preferences are only written in the background.
+ */
+@Singleton
+public class SubtitleCache {
+
+    static final long TTL_MS = 24 * 60 * 60 * 1000;
+    static final long MAX_AGE_MS = 7 * TTL_MS;
+    static final int MAX_ENTRIES = 200;
+
+    private static final String PREFS_FILE = "subtitle_cache";
+    private static final String TIME = "time";
+    private static final String SUBTITLES = "subtitles";
+
+    private static class Entry {
+        final long time;
+        final Map<String, String> subtitles;
+
+        Entry(long time, Map<String, String> subtitles) {
+            this.time = time;
+            this.subtitles = subtitles;
+        }
+    }
+
+    private final Context context;
+    // oldest first, complete once loaded is set
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+    private final ExecutorService io = Executors.newSingleThreadExecutor();
+    private boolean loaded;
+    private int hits;
+    private int staleHits;
+    private int misses;
+
+    @Inject
+    public SubtitleCache(Context context) {
+        this.context = context;
+        io.execute(new Runnable() {
+            @Override
+            public void run() {
+                load();
+            }
+        });
+    }
+
+    /**
+     * Calls back with the cached subtitles of the movie, or searches them with the provider.
+     *
+     * @return true if the callback waits for the provider, false if it was called already
+     */
+    public boolean getList(final SubsProvider provider, final Movie movie, SubsProvider.Callback callback) {
+        return getList(getKey(provider, movie), callback, new Search() {
+            @Override
+            public void run(SubsProvider.Callback callback) {
+                provider.getList(movie, callback);
+            }
+        });
+    }
+
+    /**
+     * Calls back with the cached subtitles of the episode, or searches them with the provider.
+     *
+     * @return true if the callback waits for the provider, false if it was called already
+     */
+    public boolean getList(final SubsProvider provider, final Episode episode, SubsProvider.Callback callback) {
+        return getList(getKey(provider, episode), callback, new Search() {
+            @Override
+            public void run(SubsProvider.Callback callback) {
+                provider.getList(episode, callback);
+            }
+        });
+    }
+
+    /**
+     * Stores subtitles of the episode that were found another way, e.g. for its whole season.
+     */
+    public void put(SubsProvider provider, Episode episode, Map<String, String> subtitles) {
+        put(getKey(provider, episode), subtitles);
+    }
+
+    public synchronized int getHits() {
+        return hits;
+    }
+
+    public synchronized int getMisses() {
+        return misses;
+    }
+
+    private boolean getList(final String key, final SubsProvider.Callback callback, final Search search) {
+        Map<String, String> subtitles = null;
+        boolean stale;
+        synchronized (this) {
+            if (!loaded) {
+                // runs after the entries are loaded, on the same thread
+                io.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        getList(key, callback, search);
+                    }
+                });
+                return true;
+            }
+
+            Entry entry = entries.get(key);
+            long age = entry != null ? System.currentTimeMillis() - entry.time : 0;
+            if (entry != null && age >= 0 && age < MAX_AGE_MS) {
+                subtitles = new HashMap<>(entry.subtitles);
+            }
+
+            stale = subtitles != null && age > TTL_MS;
+            if (subtitles == null) {
+                misses++;
+            } else if (stale) {
+                staleHits++;
+            } else {
+                hits++;
+            }
+            Timber.d("Subtitle cache %s for %s (%d hits, %d stale, %d misses)",
+                    subtitles == null ? "miss" : stale ? "stale" : "hit", key, hits, staleHits, misses);
+        }
+
+        if (subtitles != null) {
+            callback.onSuccess(subtitles);
+            if (stale) {
+                // refresh for the next time, the callback already has its subtitles
+                search.run(new SubsProvider.Callback() {
+                    @Override
+                    public void onSuccess(Map<String, String> items) {
+                        put(key, items);
+                    }
+
+                    @Override
+                    public void onFailure(Exception e) {
+                        Timber.d(e, "Subtitle cache refresh of %s failed", key);
+                    }
+                });
+            }
+            return false;
+        }
+
+        search.run(new SubsProvider.Callback() {
+            @Override
+            public void onSuccess(Map<String, String> items) {
+                put(key, items);
+                callback.onSuccess(items);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                callback.onFailure(e);
+            }
+        });
+        return true;
+    }
+
+    private void put(final String key, Map<String, String> subtitles) {
+        // an empty result is more likely a hiccup of the provider than a final answer
+        if (subtitles == null || subtitles.isEmpty()) {
+            return;
+        }
+
+        final Entry entry = new Entry(System.currentTimeMillis(), new HashMap<>(subtitles));
+        final List<String> dropped;
+        synchronized (this) {
+            // the newest entry goes last
+            entries.remove(key);
+            entries.put(key, entry);
+            dropped = trim();
+        }
+
+        io.execute(new Runnable() {
+            @Override
+            public void run() {
+                write(key, entry, dropped);
+            }
+        });
+    }
+
+    private void load() {
+        Map<String, ?> all = getPrefs().getAll();
+        List<Map.Entry<String, Entry>> stored = new ArrayList<>(all.size());
+        List<String> broken = new ArrayList<>();
+        for (Map.Entry<String, ?> value : all.entrySet()) {
+            try {
+                JSONObject json = new JSONObject(String.valueOf(value.getValue()));
+                Entry entry = new Entry(json.getLong(TIME), toMap(json.getJSONObject(SUBTITLES)));
+                stored.add(new AbstractMap.SimpleEntry<>(value.getKey(), entry));
+            } catch (JSONException e) {
+                Timber.w(e, "Broken subtitle cache entry %s", value.getKey());
+                broken.add(value.getKey());
+            }
+        }
+        Collections.sort(stored, new Comparator<Map.Entry<String, Entry>>() {
+            @Override
+            public int compare(Map.Entry<String, Entry> entry, Map.Entry<String, Entry> other) {
+                long diff = entry.getValue().time - other.getValue().time;
+                return diff > 0 ? 1 : diff < 0 ? -1 : 0;
+            }
+        });
+
+        synchronized (this) {
+            // entries put while loading are newer than the stored ones
+            Map<String, Entry> added = new LinkedHashMap<>(entries);
+            entries.clear();
+            for (Map.Entry<String, Entry> entry : stored) {
+                if (!added.containsKey(entry.getKey())) {
+                    entries.put(entry.getKey(), entry.getValue());
+                }
+            }
+            entries.putAll(added);
+            broken.addAll(trim());
+            loaded = true;
+        }
+
+        if (!broken.isEmpty()) {
+            write(null, null, broken);
+        }
+    }
+
+    // must hold the lock, returns the keys of the oldest entries that don't fit anymore
+    private List<String> trim() {
+        List<String> dropped = new ArrayList<>();
+        Iterator<String> keys = entries.keySet().iterator();
+        while (entries.size() > MAX_ENTRIES && keys.hasNext()) {
+            dropped.add(keys.next());
+            keys.remove();
+        }
+        return dropped;
+    }
+
+    // only on the io thread
+    private void write(String key, Entry entry, List<String> dropped) {
+        SharedPreferences.Editor editor = getPrefs().edit();
+        for (String oldKey : dropped) {
+            editor.remove(oldKey);
+        }
+        if (key != null) {
+            try {
+                JSONObject json = new JSONObject();
+                json.put(TIME, entry.time);
+                json.put(SUBTITLES, new JSONObject(entry.subtitles));
+                editor.putString(key, json.toString());
+            } catch (JSONException e) {
+                Timber.w(e, "Could not cache subtitles of %s", key);
+            }
+        }
+        editor.apply();
+    }
+
+    private static Map<String, String> toMap(JSONObject json) throws JSONException {
+        Map<String, String> map = new HashMap<>();
+        Iterator<String> keys = json.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            map.put(key, json.getString(key));
+        }
+        return map;
+    }
+
+    private static String getKey(SubsProvider provider, Movie movie) {
+        return provider.getClass().getSimpleName() + "|" + movie.imdbId;
+    }
+
+    private static String getKey(SubsProvider provider, Episode episode) {
+        return provider.getClass().getSimpleName() + "|" + episode.imdbId + "|" + episode.season + "|" + episode.episode;
+    }
+
+    private SharedPreferences getPrefs() {
+        return context.getSharedPreferences(PREFS_FILE, Context.MODE_PRIVATE);
+    }
+
+    private interface Search {
+        void run(SubsProvider.Callback callback);
+    }
+
+}
@@ -21,18 +21,16 @@ import android.content.Context;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
 
 import butter.droid.base.providers.media.models.Episode;
 import butter.droid.base.providers.media.models.Movie;
+import butter.droid.base.providers.subs.RankedSubtitles;
 import butter.droid.base.providers.subs.SubsProvider;
-import de.timroes.axmlrpc.XMLRPCCallback;
 import de.timroes.axmlrpc.XMLRPCClient;
 import de.timroes.axmlrpc.XMLRPCException;
-import de.timroes.axmlrpc.XMLRPCServerException;
 import okhttp3.OkHttpClient;
 
 public class OpenSubsProvider extends SubsProvider {
@@ -40,196 +38,140 @@ public class OpenSubsProvider extends SubsProvider {
     static final String API_URL = "http://api.opensubtitles.org/xml-rpc";
     static final String USER_AGENT = "Popcorn Time NodeJS";//"Popcorn Time Android v1";
 
-    private final XMLRPCClient client;
-
-    private final ArrayList<Long> ongoingCalls = new ArrayList<>();
+    private final OpenSubsSession session;
 
     public OpenSubsProvider(Context context, OkHttpClient client, ObjectMapper mapper, XMLRPCClient xmlClient) {
         super(context, client, mapper);
-        this.client = xmlClient;
+        this.session = new OpenSubsSession(xmlClient, "en", USER_AGENT);
     }
 
     @Override
     public void getList(final Movie movie, final Callback callback) {
-        login(new XMLRPCCallback() {
+        search(movie, new OpenSubsSession.SearchCallback() {
             @Override
-            public void onResponse(long id, Object result) {
-                Map<String, Object> response = (Map<String, Object>) result;
-                String token = (String) response.get("token");
-
-                if (token != null && !token.isEmpty()) {
-                    search(movie, token, new XMLRPCCallback() {
-                        @Override
-                        public void onResponse(long id, Object result) {
-                            Map<String, Integer[]> scoreMap = new HashMap<>();
-                            Map<String, String> subsMap = new HashMap<>();
-                            Map<String, Object> subData = (Map<String, Object>) result;
-                            if (subData != null && subData.get("data") != null && subData.get("data") instanceof Object[]) {
-                                Object[] dataList = (Object[]) subData.get("data");
-                                for (Object dataItem : dataList) {
-                                    Map<String, String> item = (Map<String, String>) dataItem;
-                                    if (!item.get("SubFormat").equals("srt")) {
-                                        continue;
-                                    }
-
-                                    // imdb & year check
-                                    if (Integer.parseInt(item.get("IDMovieImdb")) != Integer.parseInt(movie.imdbId.replace("tt", ""))) {
-                                        continue;
-                                    }
-                                    if (!item.get("MovieYear").equals(movie.year)) {
-                                        continue;
-                                    }
-
-                                    String url = item.get("SubDownloadLink").replace(".gz", ".srt");
-                                    String lang = item.get("ISO639").replace("pb", "pt-br");
-                                    int downloads = Integer.parseInt(item.get("SubDownloadsCnt"));
-                                    int score = 0;
-
-                                    if (item.get("MatchedBy").equals("tag")) {
-                                        score += 50;
-                                    }
-                                    if (item.get("UserRank").equals("trusted")) {
-                                        score += 100;
-                                    }
-                                    if (!subsMap.containsKey(lang)) {
-                                        subsMap.put(lang, url);
-                                        scoreMap.put(lang, new Integer[]{score, downloads});
-                                    } else if (score > scoreMap.get(lang)[0] || (score == scoreMap.get(lang)[0] && downloads > scoreMap.get(lang)[1])) {
-                                        subsMap.put(lang, url);
-                                        scoreMap.put(lang, new Integer[]{score, downloads});
-                                    }
-                                }
-
-                                callback.onSuccess(subsMap);
-                            } else {
-                                callback.onFailure(new XMLRPCException("No subs found"));
-                                removeCall(id);
-                            }
+            public void onResponse(Map<String, Object> subData) {
+                RankedSubtitles subsMap = new RankedSubtitles();
+                if (subData != null && subData.get("data") != null && subData.get("data") instanceof Object[]) {
+                    Object[] dataList = (Object[]) subData.get("data");
+                    for (Object dataItem : dataList) {
+                        Map<String, String> item = (Map<String, String>) dataItem;
+                        if (!item.get("SubFormat").equals("srt")) {
+                            continue;
                         }
 
-                        @Override
-                        public void onError(long id, XMLRPCException error) {
-                            callback.onFailure(error);
-                            removeCall(id);
+                        // imdb & year check
+                        if (Integer.parseInt(item.get("IDMovieImdb")) != Integer.parseInt(movie.imdbId.replace("tt", ""))) {
+                            continue;
                         }
-
-                        @Override
-                        public void onServerError(long id, XMLRPCServerException error) {
-                            callback.onFailure(error);
-                            removeCall(id);
+                        if (!item.get("MovieYear").equals(movie.year)) {
+                            continue;
                         }
-                    });
+
+                        addIfBetter(subsMap, item);
+                    }
+
+                    callback.onSuccess(subsMap);
                 } else {
-                    callback.onFailure(new XMLRPCException("Token not correct"));
+                    callback.onFailure(new XMLRPCException("No subs found"));
                 }
             }
 
             @Override
-            public void onError(long id, XMLRPCException error) {
-                callback.onFailure(error);
-                removeCall(id);
-            }
-
-            @Override
-            public void onServerError(long id, XMLRPCServerException error) {
-                callback.onFailure(error);
-                removeCall(id);
+            public void onFailure(Exception e) {
+                callback.onFailure(e);
             }
         });
     }
 
     @Override
     public void getList(final Episode episode, final Callback callback) {
-        login(new XMLRPCCallback() {
+        final String episodeStr = Integer.toString(episode.episode);
+        final String seasonStr = Integer.toString(episode.season);
+
+        search(episode, new OpenSubsSession.SearchCallback() {
             @Override
-            public void onResponse(long id, Object result) {
-                Map<String, Object> response = (Map<String, Object>) result;
-                String token = (String) response.get("token");
+            public void onResponse(Map<String, Object> subData) {
+                Map<String, Map<String, String>> returnMap = new HashMap<>();
+                RankedSubtitles episodeMap = new RankedSubtitles();
+                if (subData != null && subData.get("data") != null && subData.get("data") instanceof Object[]) {
+                    Object[] dataList = (Object[]) subData.get("data");
+                    for (Object dataItem : dataList) {
+                        Map<String, String> item = (Map<String, String>) dataItem;
+                        if (!item.get("SubFormat").equals("srt")) {
+                            continue;
+                        }
 
-                final String episodeStr = Integer.toString(episode.episode);
-                final String seasonStr = Integer.toString(episode.season);
+                        // episode check
+                        if (Integer.parseInt(item.get("SeriesIMDBParent")) != Integer.parseInt(episode.imdbId.replace("tt", ""))) {
+                            continue;
+                        }
+                        if (!item.get("SeriesSeason").equals(seasonStr)) {
+                            continue;
+                        }
+                        if (!item.get("SeriesEpisode").equals(episodeStr)) {
+                            continue;
+                        }
 
-                if (token != null && !token.isEmpty()) {
-                    search(episode, token, new XMLRPCCallback() {
-                        @Override
-                        public void onResponse(long id, Object result) {
-                            Map<String, Map<String, String>> returnMap = new HashMap<>();
-                            Map<String, Integer[]> scoreMap = new HashMap<>();
-                            Map<String, String> episodeMap = new HashMap<>();
-                            Map<String, Object> subData = (Map<String, Object>) result;
-                            if (subData != null && subData.get("data") != null && subData.get("data") instanceof Object[]) {
-                                Object[] dataList = (Object[]) subData.get("data");
-                                for (Object dataItem : dataList) {
-                                    Map<String, String> item = (Map<String, String>) dataItem;
-                                    if (!item.get("SubFormat").equals("srt")) {
-                                        continue;
-                                    }
+                        addIfBetter(episodeMap, item);
+                    }
+                    returnMap.put(episode.videoId, episodeMap);
+                    callback.onSuccess(returnMap.get(episode.videoId));
+                } else {
+                    callback.onFailure(new XMLRPCException("No subs found"));
+                }
+            }
 
-                                    // episode check
-                                    if (Integer.parseInt(item.get("SeriesIMDBParent")) != Integer.parseInt(episode.imdbId.replace("tt", ""))) {
-                                        continue;
-                                    }
-                                    if (!item.get("SeriesSeason").equals(seasonStr)) {
-                                        continue;
-                                    }
-                                    if (!item.get("SeriesEpisode").equals(episodeStr)) {
-                                        continue;
-                                    }
+            @Override
+            public void onFailure(Exception e) {
+                callback.onFailure(e);
+            }
+        });
+    }
 
-                                    String url = item.get("SubDownloadLink").replace(".gz", ".srt");
-                                    String lang = item.get("ISO639").replace("pb", "pt-br");
-                                    int downloads = Integer.parseInt(item.get("SubDownloadsCnt"));
-                                    int score = 0;
+    @Override
+    public void getList(final String imdbId, final int season, final SeasonCallback callback) {
+        final String seasonStr = Integer.toString(season);
 
-                                    if (item.get("MatchedBy").equals("tag")) {
-                                        score += 50;
-                                    }
-                                    if (item.get("UserRank").equals("trusted")) {
-                                        score += 100;
-                                    }
-                                    if (!episodeMap.containsKey(lang)) {
-                                        episodeMap.put(lang, url);
-                                        scoreMap.put(lang, new Integer[]{score, downloads});
-                                    } else if (score > scoreMap.get(lang)[0] || (score == scoreMap.get(lang)[0] && downloads > scoreMap.get(lang)[1])) {
-                                        episodeMap.put(lang, url);
-                                        scoreMap.put(lang, new Integer[]{score, downloads});
-                                    }
-                                }
-                                returnMap.put(episode.videoId, episodeMap);
-                                callback.onSuccess(returnMap.get(episode.videoId));
-                            } else {
-                                callback.onFailure(new XMLRPCException("No subs found"));
-                                removeCall(id);
-                            }
+        search(imdbId, season, new OpenSubsSession.SearchCallback() {
+            @Override
+            public void onResponse(Map<String, Object> subData) {
+                Map<Integer, Map<String, String>> episodeMaps = new HashMap<>();
+                if (subData != null && subData.get("data") != null && subData.get("data") instanceof Object[]) {
+                    Object[] dataList = (Object[]) subData.get("data");
+                    for (Object dataItem : dataList) {
+                        Map<String, String> item = (Map<String, String>) dataItem;
+                        if (!item.get("SubFormat").equals("srt")) {
+                            continue;
                         }
 
-                        @Override
-                        public void onError(long id, XMLRPCException error) {
-                            callback.onFailure(error);
-                            removeCall(id);
+                        // season check
+                        if (Integer.parseInt(item.get("SeriesIMDBParent")) != Integer.parseInt(imdbId.replace("tt", ""))) {
+                            continue;
+                        }
+                        if (!item.get("SeriesSeason").equals(seasonStr)) {
+                            continue;
                         }
 
-                        @Override
-                        public void onServerError(long id, XMLRPCServerException error) {
-                            callback.onFailure(error);
-                            removeCall(id);
+                        Integer episode;
+                        try {
+                            episode = Integer.valueOf(item.get("SeriesEpisode"));
+                        } catch (NumberFormatException e) {
+                            continue;
+                        }
+                        if (!episodeMaps.containsKey(episode)) {
+                            episodeMaps.put(episode, new RankedSubtitles());
                         }
-                    });
+                        addIfBetter((RankedSubtitles) episodeMaps.get(episode), item);
+                    }
+                    callback.onSuccess(episodeMaps);
                 } else {
-                    callback.onFailure(new XMLRPCException("Token not correct"));
+                    callback.onFailure(new XMLRPCException("No subs found"));
                 }
             }
 
             @Override
-            public void onError(long id, XMLRPCException error) {
-                callback.onFailure(error);
-                removeCall(id);
-            }
-
-            @Override
-            public void onServerError(long id, XMLRPCServerException error) {
-                callback.onFailure(error);
-                removeCall(id);
+            public void onFailure(Exception e) {
+                callback.onFailure(e);
             }
         });
     }
@@ -237,63 +179,66 @@ public class OpenSubsProvider extends SubsProvider {
     @Override
     public void cancel() {
         super.cancel();
-
-        synchronized (ongoingCalls) {
-            for (Long ongoingCall : ongoingCalls) {
-                client.cancel(ongoingCall);
-            }
-            ongoingCalls.clear();
-        }
-    }
-
-    private void removeCall(long callId) {
-        synchronized (ongoingCalls) {
-            ongoingCalls.remove(callId);
-        }
-    }
-
-    /**
-     * Login to server and get token
-     *
-     * @param callback XML RPC callback
-     */
-    private void login(XMLRPCCallback callback) {
-        long callId = client.callAsync(callback, "LogIn", "", "", "en", USER_AGENT);
-        synchronized (ongoingCalls) {
-            ongoingCalls.add(callId);
-        }
+        session.cancel();
     }
 
     /**
      * @param episode  Episode
-     * @param token    Login token
-     * @param callback XML RPC callback callback
+     * @param callback Search callback
      */
-    private void search(Episode episode, String token, XMLRPCCallback callback) {
+    private void search(Episode episode, OpenSubsSession.SearchCallback callback) {
         Map<String, String> option = new HashMap<>();
         option.put("imdbid", episode.imdbId.replace("tt", ""));
         option.put("season", String.format(Locale.US, "%d", episode.season));
         option.put("episode", String.format(Locale.US, "%d", episode.episode));
         option.put("sublanguageid", "all");
-        long callId = client.callAsync(callback, "SearchSubtitles", token, new Object[]{option});
-        synchronized (ongoingCalls) {
-            ongoingCalls.add(callId);
-        }
+        session.search(option, callback);
+    }
+
+    /**
+     * @param imdbId   IMDb id of the show
+     * @param season   Season number
+     * @param callback Search callback
+     */
+    private void search(String imdbId, int season, OpenSubsSession.SearchCallback callback) {
+        Map<String, String> option = new HashMap<>();
+        option.put("imdbid", imdbId.replace("tt", ""));
+        option.put("season", String.format(Locale.US, "%d", season));
+        option.put("sublanguageid", "all");
+        session.search(option, callback);
     }
 
     /**
-     * @param movie  Movie
-     * @param token    Login token
-     * @param callback XML RPC callback callback
+     * @param movie    Movie
+     * @param callback Search callback
      */
-    private void search(Movie movie, String token, XMLRPCCallback callback) {
+    private void search(Movie movie, OpenSubsSession.SearchCallback callback) {
         Map<String, String> option = new HashMap<>();
         option.put("imdbid", movie.imdbId.replace("tt", ""));
         option.put("sublanguageid", "all");
-        long callId = client.callAsync(callback, "SearchSubtitles", token, new Object[]{option});
-        synchronized (ongoingCalls) {
-            ongoingCalls.add(callId);
+        session.search(option, callback);
+    }
+
+    /**
+     * Keeps the subtitle of the item for its language if it ranks higher than the one found so far,
+     * trusted uploaders and tag matches first, then the number of downloads.
+     *
+     * @param subsMap Best subtitle url by language
+     * @param item    Search result
+     */
+    private static void addIfBetter(RankedSubtitles subsMap, Map<String, String> item) {
+        String url = item.get("SubDownloadLink").replace(".gz", ".srt");
+        String lang = item.get("ISO639").replace("pb", "pt-br");
+        int downloads = Integer.parseInt(item.get("SubDownloadsCnt"));
+        int score = 0;
+
+        if (item.get("MatchedBy").equals("tag")) {
+            score += 50;
+        }
+        if (item.get("UserRank").equals("trusted")) {
+            score += 100;
         }
+        subsMap.add(lang, url, score, downloads);
     }
 
 }
@@ -0,0 +1,373 @@
+/*
+ * This file is part of Butter.
+ *
+ * Butter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Butter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Butter. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package butter.droid.base.providers.subs.open;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import de.timroes.axmlrpc.XMLRPCCallback;
+import de.timroes.axmlrpc.XMLRPCClient;
+import de.timroes.axmlrpc.XMLRPCException;
+import de.timroes.axmlrpc.XMLRPCServerException;
+import timber.log.Timber;
+
+/**
+ * Logged in session with the OpenSubtitles XML-RPC API.
+ * <p/>
+ * The token of LogIn is kept and reused for every search. The server lets it expire after
+ * {@link #TOKEN_TTL_MS} without requests, so {@link #REFRESH_MARGIN_MS} before that a new one is
+ * fetched in the background, as long as there were searches in the last {@link #TOKEN_TTL_MS}. A
+ * token the server refuses anyway is dropped and the search is repeated once with a new one.
+ * <p/>
+ * Searches issued within {@link #BATCH_WINDOW_MS} of each other, e.g. for several episodes, are
+ * sent together in a single system.multicall request.
+ */
+class OpenSubsSession {
+
+    static final long TOKEN_TTL_MS = 15 * 60 * 1000;
+    // log in again this long before the token would expire instead of risking a refused search
+    static final long REFRESH_MARGIN_MS = 60 * 1000;
+    static final long BATCH_WINDOW_MS = 50;
+    static final int MAX_BATCH_SIZE = 20;
+
+    private static final String STATUS_UNAUTHORIZED = "401";
+
+    interface SearchCallback {
+        void onResponse(Map<String, Object> result);
+
+        void onFailure(Exception e);
+    }
+
+    private static class Search {
+        final Map<String, String> query;
+        final SearchCallback callback;
+        boolean retried;
+
+        Search(Map<String, String> query, SearchCallback callback) {
+            this.query = query;
+            this.callback = callback;
+        }
+    }
+
+    private final XMLRPCClient client;
+    private final String language;
+    private final String userAgent;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    private final List<Search> pending = new ArrayList<>();
+    private final Set<Long> ongoingCalls = new HashSet<>();
+    private String token;
+    private long tokenExpiry;
+    private long lastSearch;
+    private boolean loggingIn;
+    private boolean flushScheduled;
+
+    private int requestCount;
+    private int loginCount;
+    private int searchCount;
+    private long totalLatency;
+
+    OpenSubsSession(XMLRPCClient client, String language, String userAgent) {
+        this.client = client;
+        this.language = language;
+        this.userAgent = userAgent;
+    }
+
+    /**
+     * Queues a SearchSubtitles call, the callback is called on the XML-RPC client's thread.
+     */
+    void search(Map<String, String> query, SearchCallback callback) {
+        enqueue(new Search(query, callback));
+    }
+
+    /**
+     * Drops queued searches and cancels the requests in flight, their callbacks are not called.
+     */
+    synchronized void cancel() {
+        pending.clear();
+        for (Long call : ongoingCalls) {
+            client.cancel(call);
+        }
+        ongoingCalls.clear();
+        loggingIn = false;
+    }
+
+    /**
+     * @return how many times the session logged in
+     */
+    synchronized int getLoginCount() {
+        return loginCount;
+    }
+
+    private synchronized void enqueue(Search search) {
+        lastSearch = SystemClock.elapsedRealtime();
+        pending.add(search);
+        if (pending.size() >= MAX_BATCH_SIZE) {
+            handler.removeCallbacks(flush);
+            flushScheduled = false;
+            flush.run();
+        } else if (!flushScheduled) {
+            flushScheduled = true;
+            handler.postDelayed(flush, BATCH_WINDOW_MS);
+        }
+    }
+
+    private final Runnable flush = new Runnable() {
+        @Override
+        public void run() {
+            List<Search> batch;
+            String batchToken;
+            synchronized (OpenSubsSession.this) {
+                flushScheduled = false;
+                if (pending.isEmpty()) {
+                    return;
+                }
+                if (token == null || SystemClock.elapsedRealtime() > tokenExpiry - REFRESH_MARGIN_MS) {
+                    token = null;
+                    if (!loggingIn) {
+                        login();
+                    }
+                    return;
+                }
+
+                int size = Math.min(MAX_BATCH_SIZE, pending.size());
+                batch = new ArrayList<>(pending.subList(0, size));
+                pending.subList(0, size).clear();
+                batchToken = token;
+                if (!pending.isEmpty()) {
+                    flushScheduled = true;
+                    handler.post(this);
+                }
+            }
+
+            send(batch, batchToken);
+        }
+    };
+
+    private final Runnable refresh = new Runnable() {
+        @Override
+        public void run() {
+            synchronized (OpenSubsSession.this) {
+                if (token == null || loggingIn) {
+                    return;
+                }
+                if (SystemClock.elapsedRealtime() - lastSearch > TOKEN_TTL_MS) {
+                    // not in use, the next search logs in again
+                    Timber.d("OpenSubtitles token left to expire");
+                    return;
+                }
+                login();
+            }
+        }
+    };
+
+    // must hold the lock
+    private void scheduleRefresh() {
+        handler.removeCallbacks(refresh);
+        handler.postDelayed(refresh, Math.max(0, tokenExpiry - REFRESH_MARGIN_MS - SystemClock.elapsedRealtime()));
+    }
+
+    // must hold the lock
+    private void login() {
+        loggingIn = true;
+        final long start = SystemClock.elapsedRealtime();
+        track(client.callAsync(new Callback(start, "LogIn", 0) {
+            @Override
+            void onResult(Object result) {
+                Object newToken = result instanceof Map ? ((Map) result).get("token") : null;
+                if (!(newToken instanceof String) || ((String) newToken).isEmpty()) {
+                    onFailure(new XMLRPCException("Token not correct"));
+                    return;
+                }
+
+                synchronized (OpenSubsSession.this) {
+                    loginCount++;
+                    loggingIn = false;
+                    token = (String) newToken;
+                    tokenExpiry = SystemClock.elapsedRealtime() + TOKEN_TTL_MS;
+                    scheduleRefresh();
+                }
+                flush.run();
+            }
+
+            @Override
+            void onFailure(Exception e) {
+                List<Search> failed;
+                synchronized (OpenSubsSession.this) {
+                    loggingIn = false;
+                    if (token != null) {
+                        // a refresh, searches keep using the current token until it expires
+                        Timber.w(e, "Could not refresh the OpenSubtitles token");
+                        return;
+                    }
+                    failed = new ArrayList<>(pending);
+                    pending.clear();
+                }
+                for (Search search : failed) {
+                    search.callback.onFailure(e);
+                }
+            }
+        }, "LogIn", "", "", language, userAgent));
+    }
+
+    // holds the lock while the call is started, so its callback can't run before it is tracked
+    private synchronized void send(final List<Search> batch, final String batchToken) {
+        final long start = SystemClock.elapsedRealtime();
+        if (batch.size() == 1) {
+            final Search search = batch.get(0);
+            track(client.callAsync(new Callback(start, "SearchSubtitles", 1) {
+                @Override
+                void onResult(Object result) {
+                    deliver(search, result, batchToken);
+                }
+
+                @Override
+                void onFailure(Exception e) {
+                    search.callback.onFailure(e);
+                }
+            }, "SearchSubtitles", batchToken, new Object[]{search.query}));
+            return;
+        }
+
+        Object[] calls = new Object[batch.size()];
+        for (int i = 0; i < calls.length; i++) {
+            Map<String, Object> call = new HashMap<>();
+            call.put("methodName", "SearchSubtitles");
+            call.put("params", new Object[]{batchToken, new Object[]{batch.get(i).query}});
+            calls[i] = call;
+        }
+
+        track(client.callAsync(new Callback(start, "system.multicall", batch.size()) {
+            @Override
+            void onResult(Object result) {
+                Object[] results = result instanceof Object[] ? (Object[]) result : new Object[0];
+                for (int i = 0; i < batch.size(); i++) {
+                    Search search = batch.get(i);
+                    Object item = i < results.length ? results[i] : null;
+                    if (item instanceof Object[] && ((Object[]) item).length > 0) {
+                        deliver(search, ((Object[]) item)[0], batchToken);
+                    } else if (item instanceof Map) {
+                        search.callback.onFailure(new XMLRPCException(String.valueOf(((Map) item).get("faultString"))));
+                    } else {
+                        search.callback.onFailure(new XMLRPCException("Missing multicall result"));
+                    }
+                }
+            }
+
+            @Override
+            void onFailure(Exception e) {
+                for (Search search : batch) {
+                    search.callback.onFailure(e);
+                }
+            }
+        }, "system.multicall", (Object) calls));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void deliver(Search search, Object result, String usedToken) {
+        Map<String, Object> response = result instanceof Map ? (Map<String, Object>) result : null;
+        Object status = response != null ? response.get("status") : null;
+        if (status instanceof String && ((String) status).startsWith(STATUS_UNAUTHORIZED) && !search.retried) {
+            synchronized (this) {
+                if (usedToken.equals(token)) {
+                    token = null;
+                }
+            }
+            search.retried = true;
+            enqueue(search);
+            return;
+        }
+
+        synchronized (this) {
+            if (usedToken.equals(token)) {
+                // every request keeps the token alive on the server
+                tokenExpiry = SystemClock.elapsedRealtime() + TOKEN_TTL_MS;
+                scheduleRefresh();
+            }
+        }
+        search.callback.onResponse(response);
+    }
+
+    // must hold the lock
+    private void track(long call) {
+        ongoingCalls.add(call);
+    }
+
+    private abstract class Callback implements XMLRPCCallback {
+        private final long start;
+        private final String method;
+        private final int searches;
+
+        Callback(long start, String method, int searches) {
+            this.start = start;
+            this.method = method;
+            this.searches = searches;
+        }
+
+        abstract void onResult(Object result);
+
+        abstract void onFailure(Exception e);
+
+        @Override
+        public void onResponse(long id, Object result) {
+            if (finish(id, true)) {
+                onResult(result);
+            }
+        }
+
+        @Override
+        public void onError(long id, XMLRPCException error) {
+            if (finish(id, false)) {
+                onFailure(error);
+            }
+        }
+
+        @Override
+        public void onServerError(long id, XMLRPCServerException error) {
+            if (finish(id, false)) {
+                onFailure(error);
+            }
+        }
+
+        private boolean finish(long id, boolean success) {
+            long latency = SystemClock.elapsedRealtime() - start;
+            synchronized (OpenSubsSession.this) {
+                if (!ongoingCalls.remove(id)) {
+                    // cancelled
+                    return false;
+                }
+                requestCount++;
+                searchCount += searches;
+                totalLatency += latency;
+                Timber.d("OpenSubtitles %s with %d searches %s in %d ms (%d requests for %d searches, %d logins, %d ms average)",
+                        method, searches, success ? "done" : "failed", latency, requestCount, searchCount, loginCount,
+                        totalLatency / requestCount);
+            }
+            return true;
+        }
+    }
+
+}
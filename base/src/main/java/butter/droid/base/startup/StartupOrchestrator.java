@@ -0,0 +1,375 @@
+/*
+ * This file is part of Butter.
+ *
+ * Butter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Butter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Butter. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package butter.droid.base.startup;
+
+import android.app.Activity;
+import android.app.Application;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.Process;
+import android.os.SystemClock;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import timber.log.Timber;
+
+/**
+ * Runs the initialisation of the application in phases, so only what the first screen needs
+ * delays it.
+ * <p/>
+ * {@link Phase#CRITICAL} tasks run during {@link #start}, {@link Phase#AFTER_FIRST_FRAME} tasks once
+ * the first activity has drawn, {@link Phase#IDLE} tasks when the main thread has nothing else to
+ * do after that and {@link Phase#ON_DEMAND} tasks only when {@link #require} asks for them. A task
+ * waits for the tasks it depends on, background tasks run on a low priority thread. How long every
+ * task took is logged and kept for {@link #getReport()}.
+ * <p/>
+ * How long a cold start takes until the first screen with content drew is measured with
+ * {@link #onContentDrawn}. {@link #setSequential} runs every task on the main thread during
+ * {@link #start} instead, the way the application started before it had phases, so both can be
+ * measured on the same device.
+ */
+public class StartupOrchestrator {
+
+    public enum Phase {
+        CRITICAL, AFTER_FIRST_FRAME, IDLE, ON_DEMAND
+    }
+
+    private static final int STATE_PENDING = 0;
+    private static final int STATE_REQUESTED = 1;
+    private static final int STATE_RUNNING = 2;
+    private static final int STATE_DONE = 3;
+
+    private static final int BACKGROUND_THREADS = 2;
+
+    private static class Task {
+        final String name;
+        final Phase phase;
+        final boolean background;
+        final Runnable work;
+        final List<String> dependencies;
+        int state = STATE_PENDING;
+        long queued;
+        long started;
+        long duration;
+
+        Task(String name, Phase phase, boolean background, Runnable work, String[] dependencies) {
+            this.name = name;
+            this.phase = phase;
+            this.background = background;
+            this.work = work;
+            this.dependencies = Arrays.asList(dependencies);
+        }
+    }
+
+    private final Map<String, Task> tasks = new LinkedHashMap<>();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService executor = Executors.newFixedThreadPool(BACKGROUND_THREADS, new ThreadFactory() {
+        private int count;
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            return new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }
+            }, "Startup " + ++count);
+        }
+    });
+    private boolean sequential;
+    private long startTime;
+    private long firstFrameTime = -1;
+    private long contentTime = -1;
+    private long processStartTime = -1;
+    private String contentScreen;
+
+    /**
+     * Adds a task, tasks have to be added before {@link #start}.
+     *
+     * @param name         Unique name of the task
+     * @param phase        Earliest phase the task runs in
+     * @param background   Whether the task runs off the main thread
+     * @param work         The task itself
+     * @param dependencies Names of the tasks that have to be done before this one starts
+     */
+    public StartupOrchestrator add(String name, Phase phase, boolean background, Runnable work, String... dependencies) {
+        tasks.put(name, new Task(name, phase, background, work, dependencies));
+        return this;
+    }
+
+    /**
+     * Runs all tasks on the main thread before {@link #start} returns, except on demand ones, to
+     * compare with the phased startup. Has to be called before {@link #start}.
+     */
+    public StartupOrchestrator setSequential(boolean sequential) {
+        this.sequential = sequential;
+        return this;
+    }
+
+    /**
+     * Runs the critical tasks, main thread ones before returning, and schedules the later phases.
+     */
+    public void start(final Application application) {
+        startTime = SystemClock.elapsedRealtime();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            processStartTime = Process.getStartElapsedRealtime();
+        }
+        for (Task task : tasks.values()) {
+            for (String dependency : task.dependencies) {
+                if (!tasks.containsKey(dependency)) {
+                    throw new IllegalStateException("Startup task " + task.name + " depends on unknown " + dependency);
+                }
+            }
+        }
+
+        application.registerActivityLifecycleCallbacks(new ActivityCallbacks() {
+            @Override
+            public void onActivityResumed(Activity activity) {
+                application.unregisterActivityLifecycleCallbacks(this);
+                // posted from onResume, runs after the first traversal of the window
+                activity.getWindow().getDecorView().post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onFirstFrame();
+                    }
+                });
+            }
+        });
+
+        if (sequential) {
+            synchronized (this) {
+                for (Task task : tasks.values()) {
+                    if (task.phase != Phase.ON_DEMAND) {
+                        request(task);
+                    }
+                }
+                schedule(true);
+            }
+        } else {
+            release(Phase.CRITICAL);
+        }
+    }
+
+    /**
+     * Records that the first screen with content drew, only the first call of a process counts.
+     * The time is logged, kept for {@link #getReport()} and reported as fully drawn to the system,
+     * so {@code adb shell am start -W} and the "Fully drawn" log line show it too.
+     *
+     * @param screen Name of the screen, for the log
+     */
+    public void onContentDrawn(Activity activity, String screen) {
+        synchronized (this) {
+            if (contentTime >= 0) {
+                return;
+            }
+            contentTime = SystemClock.elapsedRealtime();
+            contentScreen = screen;
+            Timber.i("%s drawn %d ms after the start of the application, %s ms after the start of the process (%s startup)",
+                    screen, contentTime - startTime, processStartTime >= 0 ? String.valueOf(contentTime - processStartTime) : "?",
+                    sequential ? "sequential" : "phased");
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            activity.reportFullyDrawn();
+        }
+    }
+
+    /**
+     * Runs an on demand task and the tasks it depends on, if it hasn't run yet. The task is run
+     * asynchronously even if it is called on the thread the task runs on.
+     */
+    public synchronized void require(String name) {
+        Task task = tasks.get(name);
+        if (task == null) {
+            throw new IllegalArgumentException("Unknown startup task " + name);
+        }
+        request(task);
+        schedule(false);
+    }
+
+    /**
+     * @return the timings of the tasks that ran so far, one line per task
+     */
+    public synchronized String getReport() {
+        StringBuilder report = new StringBuilder();
+        report.append(sequential ? "Sequential startup\n" : "Phased startup\n");
+        if (processStartTime >= 0) {
+            report.append(String.format(Locale.US, "Application created %d ms after the process started\n", startTime - processStartTime));
+        }
+        if (firstFrameTime >= 0) {
+            report.append(String.format(Locale.US, "First frame after %d ms\n", firstFrameTime - startTime));
+        }
+        if (contentTime >= 0) {
+            report.append(String.format(Locale.US, "%s drawn after %d ms\n", contentScreen, contentTime - startTime));
+        }
+        for (Task task : tasks.values()) {
+            if (task.state != STATE_DONE) {
+                report.append(String.format(Locale.US, "%s (%s): not run\n", task.name, getPhaseName(task.phase)));
+                continue;
+            }
+            report.append(String.format(Locale.US, "%s (%s, %s): %d ms, started at %d ms\n", task.name,
+                    getPhaseName(task.phase), task.background ? "background" : "main", task.duration,
+                    task.started - startTime));
+        }
+        return report.toString().trim();
+    }
+
+    private void onFirstFrame() {
+        synchronized (this) {
+            firstFrameTime = SystemClock.elapsedRealtime();
+            Timber.i("First frame %d ms after the start of the application", firstFrameTime - startTime);
+        }
+        release(Phase.AFTER_FIRST_FRAME);
+
+        Looper.myQueue().addIdleHandler(new MessageQueue.IdleHandler() {
+            @Override
+            public boolean queueIdle() {
+                release(Phase.IDLE);
+                return false;
+            }
+        });
+    }
+
+    private synchronized void release(Phase phase) {
+        for (Task task : tasks.values()) {
+            if (task.phase == phase) {
+                request(task);
+            }
+        }
+        // critical main thread tasks run before the application's onCreate returns
+        schedule(phase == Phase.CRITICAL);
+    }
+
+    // must hold the lock
+    private void request(Task task) {
+        if (task.state != STATE_PENDING) {
+            return;
+        }
+        task.state = STATE_REQUESTED;
+        task.queued = SystemClock.elapsedRealtime();
+        for (String dependency : task.dependencies) {
+            request(tasks.get(dependency));
+        }
+    }
+
+    // must hold the lock
+    private void schedule(boolean runInline) {
+        boolean ranInline;
+        do {
+            ranInline = false;
+            for (final Task task : tasks.values()) {
+                if (task.state != STATE_REQUESTED || !isReady(task)) {
+                    continue;
+                }
+
+                task.state = STATE_RUNNING;
+                if ((!task.background || sequential) && runInline && Looper.myLooper() == Looper.getMainLooper()) {
+                    // tasks that become ready are picked up by the next pass
+                    execute(task, false);
+                    ranInline = true;
+                    continue;
+                }
+
+                Runnable runnable = new Runnable() {
+                    @Override
+                    public void run() {
+                        execute(task, true);
+                    }
+                };
+                if (task.background) {
+                    executor.execute(runnable);
+                } else {
+                    mainHandler.post(runnable);
+                }
+            }
+        } while (ranInline);
+    }
+
+    // must hold the lock
+    private boolean isReady(Task task) {
+        for (String dependency : task.dependencies) {
+            if (tasks.get(dependency).state != STATE_DONE) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void execute(Task task, boolean reschedule) {
+        long started = SystemClock.elapsedRealtime();
+        try {
+            task.work.run();
+        } catch (RuntimeException e) {
+            Timber.e(e, "Startup task %s failed", task.name);
+        }
+        long duration = SystemClock.elapsedRealtime() - started;
+
+        synchronized (this) {
+            task.started = started;
+            task.duration = duration;
+            task.state = STATE_DONE;
+            Timber.i("Startup task %s (%s, %s) took %d ms, waited %d ms, done %d ms after start",
+                    task.name, getPhaseName(task.phase), task.background ? "background" : "main",
+                    duration, started - task.queued, started + duration - startTime);
+            if (reschedule) {
+                schedule(false);
+            }
+        }
+    }
+
+    private static String getPhaseName(Phase phase) {
+        return phase.name().toLowerCase(Locale.US);
+    }
+
+    private abstract static class ActivityCallbacks implements Application.ActivityLifecycleCallbacks {
+        @Override
+        public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+        }
+
+        @Override
+        public void onActivityStarted(Activity activity) {
+        }
+
+        @Override
+        public void onActivityPaused(Activity activity) {
+        }
+
+        @Override
+        public void onActivityStopped(Activity activity) {
+        }
+
+        @Override
+        public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+        }
+
+        @Override
+        public void onActivityDestroyed(Activity activity) {
+        }
+    }
+
+}
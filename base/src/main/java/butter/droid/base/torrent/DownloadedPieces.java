@@ -0,0 +1,80 @@
+/*
+ * This file is part of Butter.
+ *
+ * Butter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Butter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Butter. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package butter.droid.base.torrent;
+
+import com.frostwire.jlibtorrent.FileStorage;
+import com.frostwire.jlibtorrent.TorrentHandle;
+import com.frostwire.jlibtorrent.TorrentInfo;
+
+import java.io.File;
+
+/**
+ * The downloaded pieces of the video file of a torrent. The file is allocated up front, so the
+ * bytes of pieces that aren't downloaded yet read as zeros.
+ */
+public class DownloadedPieces implements SeekThumbnailStrip.DownloadedBytes {
+
+    private final TorrentHandle mHandle;
+    private final long mFileOffset;
+    private final long mFileLength;
+    private final long mPieceLength;
+
+    /**
+     * @param videoFile the file of the torrent the bytes are asked for
+     */
+    public DownloadedPieces(TorrentHandle handle, File videoFile) {
+        mHandle = handle;
+
+        TorrentInfo info = handle.torrentFile();
+        FileStorage files = info.files();
+        long fileOffset = -1;
+        long fileLength = 0;
+        for (int i = 0; i < files.numFiles(); i++) {
+            if (videoFile.getAbsolutePath().endsWith(files.filePath(i))) {
+                fileOffset = files.fileOffset(i);
+                fileLength = files.fileSize(i);
+                break;
+            }
+        }
+        mFileOffset = fileOffset;
+        mFileLength = fileLength;
+        mPieceLength = info.pieceLength();
+    }
+
+    @Override
+    public long getLength() {
+        return mFileLength;
+    }
+
+    @Override
+    public boolean has(long offset, long length) {
+        if (mFileOffset < 0 || !mHandle.isValid()) {
+            return false;
+        }
+
+        int first = (int) ((mFileOffset + offset) / mPieceLength);
+        int last = (int) ((mFileOffset + offset + Math.max(1, length) - 1) / mPieceLength);
+        for (int piece = first; piece <= last; piece++) {
+            if (!mHandle.havePiece(piece)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
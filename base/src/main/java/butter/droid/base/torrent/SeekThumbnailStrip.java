@@ -0,0 +1,501 @@
+/*
+ * This file is part of Butter.
+ *
+ * Butter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Butter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Butter. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package butter.droid.base.torrent;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.media.MediaMetadataRetriever;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.util.LruCache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import butter.droid.base.utils.ThreadUtils;
+import timber.log.Timber;
+
+/**
+ * Preview frames for the seek bar of a torrent stream, one every {@link #INTERVAL_MS}.
+ * <p/>
+ * Frames are taken from the part of the video that is already downloaded, at the key frame closest
+ * to each point so only a single frame has to be decoded, and scaled down right away. A frame is
+ * only extracted once the pieces around its point and the container's header and index are
+ * downloaded, never from the zeros of pieces that are still missing. They are
+ * appended as JPEGs to a sprite file per torrent in the cache directory, so a stream that is played
+ * again has its previews at once, and the most recently shown ones are kept in memory.
+ * <p/>
+ * Everything runs on a single thread of the lowest priority, with a pause between two frames, so
+ * the extraction never takes time away from playback.
+ */
+public class SeekThumbnailStrip {
+
+    public static final long INTERVAL_MS = 10000;
+
+    private static final String CACHE_DIR = "thumbnails";
+    private static final int MAX_CACHED_STRIPS = 20;
+    private static final int THUMBNAIL_SIZE = 192;
+    private static final int JPEG_QUALITY = 60;
+    private static final int MEMORY_CACHE_SIZE = 4 * 1024 * 1024;
+    private static final long FRAME_DELAY_MS = 250;
+    // the container can often only be read once its index is downloaded
+    private static final long RETRY_DELAY_MS = 10000;
+    // slot number and length in front of every frame of the sprite file
+    private static final int RECORD_HEADER_SIZE = 8;
+    // the closest key frame can be seconds away from the point and the bitrate isn't constant
+    private static final long FRAME_WINDOW_MS = INTERVAL_MS / 2;
+    private static final double FRAME_WINDOW_MARGIN = 0.01;
+    // header and index of the container, at the start or the end of the file
+    private static final long INDEX_SIZE = 1024 * 1024;
+
+    public interface Listener {
+        /**
+         * Called on the UI thread when the frame for a time asked for with {@link #get(long)} is
+         * available.
+         */
+        void onThumbnailLoaded(long time);
+    }
+
+    /**
+     * Tells which bytes of the video file are downloaded.
+     */
+    public interface DownloadedBytes {
+        long getLength();
+
+        boolean has(long offset, long length);
+    }
+
+    private final String mVideoPath;
+    private final DownloadedBytes mDownloaded;
+    private final long mDuration;
+    private final int mSlots;
+    private final Handler mHandler;
+    private final LruCache<Integer, Bitmap> mMemoryCache = new LruCache<Integer, Bitmap>(MEMORY_CACHE_SIZE) {
+        @Override
+        protected int sizeOf(Integer key, Bitmap value) {
+            return value.getByteCount();
+        }
+    };
+
+    // only used on the strip's thread
+    private final long[] mOffsets;
+    private final int[] mLengths;
+    private final boolean[] mFailed;
+    private RandomAccessFile mSprite;
+    private MediaMetadataRetriever mRetriever;
+    private boolean mWaitingForPieces;
+
+    private volatile long mAvailableUntil;
+    private volatile long mPosition;
+    private volatile int mWantedSlot = -1;
+    private volatile boolean mClosed;
+    private Listener mListener;
+
+    /**
+     * @param key identifies the video in the cache, e.g. the info hash of the torrent
+     * @param videoFile the file the torrent downloads the video to
+     * @param downloaded the downloaded bytes of the video file
+     * @param duration duration of the video in ms
+     */
+    public SeekThumbnailStrip(Context context, String key, File videoFile, DownloadedBytes downloaded, long duration) {
+        mVideoPath = videoFile.getAbsolutePath();
+        mDownloaded = downloaded;
+        mDuration = duration;
+        mSlots = (int) (duration / INTERVAL_MS) + 1;
+        mOffsets = new long[mSlots];
+        mLengths = new int[mSlots];
+        mFailed = new boolean[mSlots];
+        Arrays.fill(mOffsets, -1);
+
+        final File dir = new File(context.getCacheDir(), CACHE_DIR);
+        final File file = new File(dir, key + "_" + Integer.toHexString(videoFile.getName().hashCode()));
+
+        HandlerThread thread = new HandlerThread("SeekThumbnailStrip", Process.THREAD_PRIORITY_LOWEST);
+        thread.start();
+        mHandler = new Handler(thread.getLooper());
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                open(dir, file);
+            }
+        });
+    }
+
+    public void setListener(Listener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * @param time everything up to this time in ms is downloaded
+     */
+    public void setAvailableUntil(long time) {
+        if (time > mAvailableUntil) {
+            mAvailableUntil = time;
+            scheduleGenerate(0);
+        }
+    }
+
+    /**
+     * Frames around the playback position are extracted first.
+     */
+    public void setPosition(long time) {
+        mPosition = time;
+    }
+
+    /**
+     * @return the frame for the time if it is in memory, otherwise null, and the listener is
+     * called once it is read from disk or extracted
+     */
+    public Bitmap get(long time) {
+        int slot = getSlot(time);
+        Bitmap bitmap = mMemoryCache.get(slot);
+        if (bitmap == null && !mClosed && slot != mWantedSlot) {
+            mWantedSlot = slot;
+            mHandler.removeCallbacks(mLoad);
+            mHandler.postAtFrontOfQueue(mLoad);
+        }
+        return bitmap;
+    }
+
+    /**
+     * Stops the extraction and closes the sprite file, the strip can't be used afterwards.
+     */
+    public void close() {
+        mClosed = true;
+        mListener = null;
+        mHandler.removeCallbacksAndMessages(null);
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (mRetriever != null) {
+                    mRetriever.release();
+                    mRetriever = null;
+                }
+                if (mSprite != null) {
+                    try {
+                        mSprite.close();
+                    } catch (IOException e) {
+                        Timber.w(e, "Could not close thumbnail strip");
+                    }
+                    mSprite = null;
+                }
+                Looper.myLooper().quit();
+            }
+        });
+        mMemoryCache.evictAll();
+    }
+
+    private int getSlot(long time) {
+        return (int) Math.max(0, Math.min(mSlots - 1, (time + INTERVAL_MS / 2) / INTERVAL_MS));
+    }
+
+    private void scheduleGenerate(long delay) {
+        if (!mClosed) {
+            mHandler.removeCallbacks(mGenerate);
+            mHandler.postDelayed(mGenerate, delay);
+        }
+    }
+
+    private void open(File dir, File file) {
+        if (!dir.exists() && !dir.mkdirs()) {
+            Timber.w("Could not create thumbnail directory %s", dir);
+            return;
+        }
+        trimCache(dir, file);
+
+        try {
+            mSprite = new RandomAccessFile(file, "rw");
+            readIndex();
+        } catch (IOException e) {
+            Timber.w(e, "Could not open thumbnail strip %s", file);
+            mSprite = null;
+        }
+    }
+
+    private void readIndex() throws IOException {
+        long length = mSprite.length();
+        long position = 0;
+        int count = 0;
+        while (position + RECORD_HEADER_SIZE <= length) {
+            mSprite.seek(position);
+            int slot = mSprite.readInt();
+            int size = mSprite.readInt();
+            if (size <= 0 || position + RECORD_HEADER_SIZE + size > length) {
+                break;
+            }
+            if (slot >= 0 && slot < mSlots) {
+                mOffsets[slot] = position + RECORD_HEADER_SIZE;
+                mLengths[slot] = size;
+                count++;
+            }
+            position += RECORD_HEADER_SIZE + size;
+        }
+
+        if (position < length) {
+            // the last frame was not written completely
+            mSprite.setLength(position);
+        }
+        Timber.d("Thumbnail strip has %d of %d frames", count, mSlots);
+    }
+
+    private static void trimCache(File dir, File keep) {
+        File[] files = dir.listFiles();
+        if (files == null || files.length <= MAX_CACHED_STRIPS) {
+            return;
+        }
+
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File lhs, File rhs) {
+                long diff = rhs.lastModified() - lhs.lastModified();
+                return diff > 0 ? 1 : diff < 0 ? -1 : 0;
+            }
+        });
+        for (int i = MAX_CACHED_STRIPS; i < files.length; i++) {
+            if (!files[i].equals(keep) && !files[i].delete()) {
+                Timber.w("Could not delete thumbnail strip %s", files[i]);
+            }
+        }
+    }
+
+    private final Runnable mLoad = new Runnable() {
+        @Override
+        public void run() {
+            int slot = mWantedSlot;
+            if (slot < 0 || mMemoryCache.get(slot) != null) {
+                return;
+            }
+
+            Bitmap bitmap = read(slot);
+            if (bitmap != null) {
+                mMemoryCache.put(slot, bitmap);
+                notifyLoaded(slot);
+                clearWantedSlot(slot);
+            } else {
+                // not extracted yet, let the extraction start there
+                scheduleGenerate(0);
+            }
+        }
+    };
+
+    private final Runnable mGenerate = new Runnable() {
+        @Override
+        public void run() {
+            if (mSprite == null) {
+                return;
+            }
+
+            int slot = nextMissingSlot();
+            if (slot < 0) {
+                // setAvailableUntil schedules the extraction again once more is downloaded, pieces
+                // that are missing in the middle are checked again later
+                if (mWaitingForPieces) {
+                    scheduleGenerate(RETRY_DELAY_MS);
+                }
+                return;
+            }
+
+            Bitmap bitmap = extract(slot);
+            if (bitmap == null) {
+                // a frame that can't be decoded is skipped, an unreadable video is tried again later
+                scheduleGenerate(mFailed[slot] ? FRAME_DELAY_MS : RETRY_DELAY_MS);
+                return;
+            }
+
+            write(slot, bitmap);
+            mMemoryCache.put(slot, bitmap);
+            if (slot == mWantedSlot) {
+                notifyLoaded(slot);
+                clearWantedSlot(slot);
+            }
+            scheduleGenerate(FRAME_DELAY_MS);
+        }
+    };
+
+    private int nextMissingSlot() {
+        mWaitingForPieces = false;
+        int last = Math.min(mSlots - 1, (int) (mAvailableUntil / INTERVAL_MS));
+        int wanted = mWantedSlot;
+        if (wanted >= 0 && wanted <= last && isExtractable(wanted)) {
+            return wanted;
+        }
+
+        int start = Math.min(last, getSlot(mPosition));
+        for (int slot = start; slot <= last; slot++) {
+            if (isExtractable(slot)) {
+                return slot;
+            }
+        }
+        for (int slot = 0; slot < start; slot++) {
+            if (isExtractable(slot)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private boolean isExtractable(int slot) {
+        if (!isMissing(slot)) {
+            return false;
+        }
+        if (!isDownloaded(slot)) {
+            mWaitingForPieces = true;
+            return false;
+        }
+        return true;
+    }
+
+    private void clearWantedSlot(int slot) {
+        if (mWantedSlot == slot) {
+            mWantedSlot = -1;
+        }
+    }
+
+    private boolean isMissing(int slot) {
+        return mOffsets[slot] < 0 && !mFailed[slot];
+    }
+
+    /**
+     * @return whether the bytes around the point of the slot are downloaded, guessed from its time
+     */
+    private boolean isDownloaded(int slot) {
+        long length = mDownloaded.getLength();
+        if (length <= 0 || mDuration <= 0) {
+            return false;
+        }
+
+        long time = slot * INTERVAL_MS;
+        long margin = (long) (length * FRAME_WINDOW_MARGIN);
+        long start = Math.max(0, getByte(time - FRAME_WINDOW_MS, length) - margin);
+        long end = Math.min(length, getByte(time + FRAME_WINDOW_MS, length) + margin);
+        return mDownloaded.has(start, end - start);
+    }
+
+    private long getByte(long time, long length) {
+        return (long) ((double) Math.max(0, Math.min(mDuration, time)) / mDuration * length);
+    }
+
+    private boolean isIndexDownloaded() {
+        long length = mDownloaded.getLength();
+        long size = Math.min(INDEX_SIZE, length);
+        return length > 0 && mDownloaded.has(0, size) && mDownloaded.has(length - size, size);
+    }
+
+    private Bitmap extract(int slot) {
+        if (mRetriever == null) {
+            if (!isIndexDownloaded()) {
+                return null;
+            }
+            MediaMetadataRetriever retriever = new MediaMetadataRetriever();
+            try {
+                retriever.setDataSource(mVideoPath);
+            } catch (RuntimeException e) {
+                Timber.d("Video can't be read for thumbnails yet: %s", e.getMessage());
+                retriever.release();
+                return null;
+            }
+            mRetriever = retriever;
+        }
+
+        long timeUs = slot * INTERVAL_MS * 1000;
+        Bitmap frame = null;
+        try {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O_MR1) {
+                frame = mRetriever.getScaledFrameAtTime(timeUs, MediaMetadataRetriever.OPTION_CLOSEST_SYNC, THUMBNAIL_SIZE, THUMBNAIL_SIZE);
+            } else {
+                frame = scale(mRetriever.getFrameAtTime(timeUs, MediaMetadataRetriever.OPTION_CLOSEST_SYNC));
+            }
+        } catch (RuntimeException e) {
+            Timber.d("Could not extract thumbnail at %d ms: %s", slot * INTERVAL_MS, e.getMessage());
+        }
+
+        if (frame == null) {
+            mFailed[slot] = true;
+        }
+        return frame;
+    }
+
+    private static Bitmap scale(Bitmap frame) {
+        if (frame == null) {
+            return null;
+        }
+
+        float factor = (float) THUMBNAIL_SIZE / Math.max(frame.getWidth(), frame.getHeight());
+        if (factor >= 1) {
+            return frame;
+        }
+        Bitmap scaled = Bitmap.createScaledBitmap(frame, Math.round(frame.getWidth() * factor), Math.round(frame.getHeight() * factor), true);
+        frame.recycle();
+        return scaled;
+    }
+
+    private void write(int slot, Bitmap bitmap) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        bitmap.compress(Bitmap.CompressFormat.JPEG, JPEG_QUALITY, out);
+        byte[] data = out.toByteArray();
+
+        try {
+            long position = mSprite.length();
+            mSprite.seek(position);
+            mSprite.writeInt(slot);
+            mSprite.writeInt(data.length);
+            mSprite.write(data);
+            mOffsets[slot] = position + RECORD_HEADER_SIZE;
+            mLengths[slot] = data.length;
+        } catch (IOException e) {
+            Timber.w(e, "Could not write thumbnail");
+        }
+    }
+
+    private Bitmap read(int slot) {
+        if (mSprite == null || mOffsets[slot] < 0) {
+            return null;
+        }
+
+        try {
+            byte[] data = new byte[mLengths[slot]];
+            mSprite.seek(mOffsets[slot]);
+            mSprite.readFully(data);
+            return BitmapFactory.decodeByteArray(data, 0, data.length);
+        } catch (IOException e) {
+            Timber.w(e, "Could not read thumbnail");
+            return null;
+        }
+    }
+
+    private void notifyLoaded(final int slot) {
+        ThreadUtils.runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                Listener listener = mListener;
+                if (listener != null && !mClosed) {
+                    listener.onThumbnailLoaded(slot * INTERVAL_MS);
+                }
+            }
+        });
+    }
+
+}
@@ -65,7 +65,9 @@ public class TorrentService extends Service implements TorrentServerListener {
     private String mCurrentStreamUrl;
     private StreamStatus mStreamStatus;
 
-    private boolean mInForeground = false, mIsReady = false, mStopped = false;
+    private boolean mInForeground = false, mIsReady = false, mStopped = false, mSessionStarted = false;
+    // asked for before the session started, streamed once it has
+    private String mPendingTorrentUrl;
 
     private IBinder mBinder = new ServiceBinder();
     private List<TorrentServerListener> mListener = new ArrayList<>();
@@ -99,7 +101,7 @@ public class TorrentService extends Service implements TorrentServerListener {
         mTorrentStreamServer.setServerHost(NetworkUtils.getWifiIPAddress());
         mTorrentStreamServer.setServerPort(Constants.SERVER_PORT);
         mTorrentStreamServer.setTorrentOptions(getTorrentOptions());
-        mTorrentStreamServer.startTorrentStream();
+        // binding only creates the service, the session starts with the startup task, see start()
     }
 
     @Override
@@ -108,15 +110,34 @@ public class TorrentService extends Service implements TorrentServerListener {
         Timber.d("onDestroy");
         if (mWakeLock != null && mWakeLock.isHeld())
             mWakeLock.release();
-        mTorrentStreamServer.stopTorrentStream();
+        if (mSessionStarted) {
+            mTorrentStreamServer.stopTorrentStream();
+        }
     }
 
     @Override
     public int onStartCommand(Intent intent, int flags, int startId) {
         Timber.d("onStartCommand");
+        // from start(), or a restart of the sticky service
+        startSession();
         return START_STICKY;
     }
 
+    private void startSession() {
+        if (mSessionStarted) {
+            return;
+        }
+        mSessionStarted = true;
+        Timber.d("Starting torrent session");
+        mTorrentStreamServer.startTorrentStream();
+
+        if (mPendingTorrentUrl != null) {
+            String torrentUrl = mPendingTorrentUrl;
+            mPendingTorrentUrl = null;
+            streamTorrent(torrentUrl);
+        }
+    }
+
     @Override
     public IBinder onBind(Intent intent) {
         Timber.d("onBind");
@@ -209,6 +230,13 @@ public class TorrentService extends Service implements TorrentServerListener {
         Timber.d("streamTorrent");
         mStopped = false;
 
+        if (!mSessionStarted) {
+            // the startup task starts the session once the cache is cleaned, it must not run on it before
+            mPendingTorrentUrl = torrentUrl;
+            ButterApplication.getAppContext().getStartup().require(ButterApplication.TASK_TORRENT_SERVICE);
+            return;
+        }
+
         if (mTorrentStreamServer.isStreaming()) return;
 
         Timber.d("Starting streaming");
@@ -225,6 +253,7 @@ public class TorrentService extends Service implements TorrentServerListener {
         mTorrentStreamServer.setTorrentOptions(getTorrentOptions());
 
         mIsReady = false;
+        mStreamStatus = null;
         mTorrentStreamServer.addListener(this);
         try {
             mTorrentStreamServer.startStream(torrentUrl);
@@ -235,12 +264,13 @@ public class TorrentService extends Service implements TorrentServerListener {
 
     public void stopStreaming() {
         mStopped = true;
+        mPendingTorrentUrl = null;
         mTorrentStreamServer.removeListener(this);
 
         if (mWakeLock != null && mWakeLock.isHeld())
             mWakeLock.release();
 
-        if(!mTorrentStreamServer.isStreaming())
+        if(!isStreaming())
             return;
 
         stopForeground();
@@ -252,7 +282,7 @@ public class TorrentService extends Service implements TorrentServerListener {
     }
 
     public boolean isStreaming() {
-        return mTorrentStreamServer.isStreaming();
+        return mSessionStarted && mTorrentStreamServer.isStreaming();
     }
 
     public boolean isReady() {
@@ -280,6 +310,9 @@ public class TorrentService extends Service implements TorrentServerListener {
         context.bindService(torrentServiceIntent, serviceConnection, Context.BIND_AUTO_CREATE);
     }
 
+    /**
+     * Starts the service and its torrent session. Binding to the service doesn't start the session.
+     */
     public static void start(Context context) {
         Intent torrentServiceIntent = new Intent(context, TorrentService.class);
         context.startService(torrentServiceIntent);
@@ -292,6 +325,9 @@ public class TorrentService extends Service implements TorrentServerListener {
     private Foreground.Listener mForegroundListener = new Foreground.Listener() {
         @Override
         public void onBecameForeground() {
+            if (!mSessionStarted) {
+                return;
+            }
             if (!mTorrentStreamServer.isStreaming()) {
                 mTorrentStreamServer.resumeSession();
             } else {
@@ -302,6 +338,9 @@ public class TorrentService extends Service implements TorrentServerListener {
 
         @Override
         public void onBecameBackground() {
+            if (!mSessionStarted) {
+                return;
+            }
             if (!mTorrentStreamServer.isStreaming()) {
                 mTorrentStreamServer.pauseSession();
             } else {
@@ -315,6 +354,13 @@ public class TorrentService extends Service implements TorrentServerListener {
         return mCurrentTorrent;
     }
 
+    /**
+     * @return the latest progress of the current stream, or null before the first update
+     */
+    public StreamStatus getStreamStatus() {
+        return mStreamStatus;
+    }
+
     public String getCurrentTorrentUrl() {
         return mTorrentStreamServer.getCurrentTorrentUrl();
     }
@@ -363,9 +409,7 @@ public class TorrentService extends Service implements TorrentServerListener {
             }
         }
 
-        if(mInForeground) {
-            mStreamStatus = streamStatus;
-        }
+        mStreamStatus = streamStatus;
     }
 
     @Override
@@ -0,0 +1,226 @@
+/*
+ * This file is part of Butter.
+ *
+ * Butter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Butter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Butter. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package butter.droid.base.vlc;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Build;
+
+import org.videolan.libvlc.Media;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import timber.log.Timber;
+
+/**
+ * Codec and resolution combinations the hardware decoder of this device failed on.
+ * <p/>
+ * Entries are persisted so the next video with the same codec and resolution class starts with
+ * software decoding right away. They are dropped when the system build changes, since an OS update
+ * may fix the decoder. The number of fallbacks is also counted per device model.
+ * <p/>
+ * The tracks of a video are only known once it plays, so the key of every video location is
+ * remembered for its next play, and a key is guessed from the quality and the file name for videos
+ * that didn't play before. That way the decoder is chosen before the video starts.
+ */
+public class HWDecoderBlacklist {
+
+    private static final String PREFS_FILE = "vlc_hw_blacklist";
+    private static final String FINGERPRINT = "fingerprint";
+    private static final String BLACKLIST_PREFIX = "blacklist|";
+    private static final String FALLBACKS_PREFIX = "fallbacks|";
+    private static final String STREAM_PREFIX = "stream|";
+    private static final int MAX_STREAMS = 50;
+
+    private HWDecoderBlacklist() {
+    }
+
+    /**
+     * @return a key describing the first video track of the media, e.g. "h264@1080", or null if
+     * the tracks are not known yet
+     */
+    public static String getKey(Media media) {
+        if (media == null) {
+            return null;
+        }
+
+        for (int i = 0; i < media.getTrackCount(); i++) {
+            Media.Track track = media.getTrack(i);
+            if (track instanceof Media.VideoTrack && track.codec != null) {
+                return track.codec.trim().toLowerCase(Locale.US) + "@" + getResolutionClass(((Media.VideoTrack) track).height);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param location Location of the video, the file or url it is played from
+     * @param quality  Quality of the stream, e.g. "1080p", or null
+     * @return the key the video at the location had before, or else one guessed from the quality
+     * and the codec in the file name, e.g. "x265" and "1080p" give "hevc@1080". Null if neither is
+     * known.
+     */
+    public static String predictKey(Context context, String location, String quality) {
+        if (location == null) {
+            return null;
+        }
+
+        String remembered = getPrefs(context).getString(STREAM_PREFIX + location, null);
+        if (remembered != null) {
+            return remembered.substring(remembered.indexOf('|') + 1);
+        }
+
+        String name = location.substring(location.lastIndexOf('/') + 1).toLowerCase(Locale.US);
+        String codec;
+        if (name.contains("x265") || name.contains("h265") || name.contains("h.265") || name.contains("hevc")) {
+            codec = "hevc";
+        } else if (name.contains("x264") || name.contains("h264") || name.contains("h.264") || name.contains("avc")) {
+            codec = "h264";
+        } else {
+            return null;
+        }
+
+        int height = getHeight(quality);
+        if (height <= 0) {
+            height = getHeight(name);
+        }
+        return height > 0 ? codec + "@" + getResolutionClass(height) : null;
+    }
+
+    /**
+     * Remembers the key of the video at the location for {@link #predictKey}.
+     */
+    public static void rememberKey(Context context, String location, String key) {
+        if (location == null || key == null) {
+            return;
+        }
+
+        SharedPreferences prefs = getPrefs(context);
+        SharedPreferences.Editor editor = prefs.edit()
+                .putString(STREAM_PREFIX + location, System.currentTimeMillis() + "|" + key);
+
+        // drop the location played longest ago
+        int streams = 0;
+        String oldest = null;
+        long oldestTime = Long.MAX_VALUE;
+        for (Map.Entry<String, ?> entry : prefs.getAll().entrySet()) {
+            if (!entry.getKey().startsWith(STREAM_PREFIX) || entry.getKey().equals(STREAM_PREFIX + location)) {
+                continue;
+            }
+            streams++;
+            String value = String.valueOf(entry.getValue());
+            long time;
+            try {
+                time = Long.parseLong(value.substring(0, Math.max(0, value.indexOf('|'))));
+            } catch (NumberFormatException e) {
+                time = 0;
+            }
+            if (time < oldestTime) {
+                oldestTime = time;
+                oldest = entry.getKey();
+            }
+        }
+        if (streams >= MAX_STREAMS && oldest != null) {
+            editor.remove(oldest);
+        }
+        editor.apply();
+    }
+
+    public static boolean isBlacklisted(Context context, String key) {
+        return key != null && getPrefs(context).getBoolean(BLACKLIST_PREFIX + key, false);
+    }
+
+    /**
+     * Blacklists the hardware decoder for the key and counts a fallback for this device model.
+     */
+    public static void recordFallback(Context context, String key) {
+        SharedPreferences prefs = getPrefs(context);
+        String model = getDeviceModel();
+        SharedPreferences.Editor editor = prefs.edit()
+                .putInt(FALLBACKS_PREFIX + model, prefs.getInt(FALLBACKS_PREFIX + model, 0) + 1);
+        if (key != null) {
+            editor.putBoolean(BLACKLIST_PREFIX + key, true);
+        }
+        editor.apply();
+
+        Timber.i("Hardware decoding failed for %s on %s, falling back to software", key, model);
+    }
+
+    /**
+     * @return number of hardware decoder fallbacks, by device model
+     */
+    public static Map<String, Integer> getFallbackCounts(Context context) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (Map.Entry<String, ?> entry : getPrefs(context).getAll().entrySet()) {
+            if (entry.getKey().startsWith(FALLBACKS_PREFIX) && entry.getValue() instanceof Integer) {
+                counts.put(entry.getKey().substring(FALLBACKS_PREFIX.length()), (Integer) entry.getValue());
+            }
+        }
+        return counts;
+    }
+
+    // e.g. 1080 for "1080p", 2160 for "4k", 0 if there is no resolution in it
+    private static int getHeight(String text) {
+        if (text == null) {
+            return 0;
+        }
+        String lower = text.toLowerCase(Locale.US);
+        if (lower.contains("2160p") || lower.contains("4k") || lower.contains("uhd")) {
+            return 2160;
+        }
+        for (int height : new int[]{1080, 720, 576, 480, 360}) {
+            if (lower.contains(height + "p")) {
+                return height;
+            }
+        }
+        return 0;
+    }
+
+    private static String getResolutionClass(int height) {
+        if (height > 1088) {
+            return "2160";
+        } else if (height > 720) {
+            return "1080";
+        } else if (height > 576) {
+            return "720";
+        }
+        return "sd";
+    }
+
+    private static String getDeviceModel() {
+        return Build.MANUFACTURER + " " + Build.MODEL;
+    }
+
+    private static SharedPreferences getPrefs(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_FILE, Context.MODE_PRIVATE);
+        if (!Build.FINGERPRINT.equals(prefs.getString(FINGERPRINT, null))) {
+            // keep the counters, forget the verdicts of the previous system build
+            SharedPreferences.Editor editor = prefs.edit();
+            for (String key : prefs.getAll().keySet()) {
+                if (key.startsWith(BLACKLIST_PREFIX)) {
+                    editor.remove(key);
+                }
+            }
+            editor.putString(FINGERPRINT, Build.FINGERPRINT).apply();
+        }
+        return prefs;
+    }
+
+}
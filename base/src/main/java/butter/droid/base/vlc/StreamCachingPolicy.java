@@ -0,0 +1,213 @@
+/*
+ * This file is part of Butter.
+ *
+ * Butter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Butter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Butter. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package butter.droid.base.vlc;
+
+import android.os.SystemClock;
+
+import com.github.se_bastiaan.torrentstream.StreamStatus;
+
+import org.videolan.libvlc.Media;
+
+import timber.log.Timber;
+
+/**
+ * Chooses the network caching of a torrent stream from the state of the swarm.
+ * <p/>
+ * The global --network-caching of {@link VLCOptions#getLibOptions} is a single value for every
+ * stream, which either makes fast swarms wait for a cache they don't need or lets slow swarms
+ * run dry. This policy compares the download rate of the torrent with the bitrate of the video and
+ * sets a per media :network-caching, smaller when the swarm is well ahead of playback and larger
+ * when it can't keep up. Every stall during playback doubles the caching used for the next media
+ * of the same stream, since LibVLC can't change the caching of a media that is already playing.
+ * <p/>
+ * Stalls are found from the playback time: while playing, LibVLC reports the time several times a
+ * second, a gap of {@link #STALL_GAP_MS} between two advancing times means the cache ran empty.
+ * The Buffering event is used as well where the native library delivers it.
+ */
+public class StreamCachingPolicy {
+
+    public static final int MIN_CACHING_MS = 1000;
+    public static final int MAX_CACHING_MS = 60000;
+
+    // assumed when the duration is not known yet, about a 1080p stream
+    private static final long DEFAULT_BITRATE = 1024 * 1024;
+    // anything shorter is a placeholder of the player, not the length of the video
+    private static final long MIN_DURATION_MS = 60000;
+    private static final int FAST_CACHING_MS = MIN_CACHING_MS;
+    private static final int NORMAL_CACHING_MS = 3000;
+    private static final int SLOW_CACHING_MS = 10000;
+    private static final int MAX_STALL_BOOST = 4;
+    // playback that doesn't advance for this long while playing has stalled
+    private static final long STALL_GAP_MS = 2000;
+
+    // written by the torrent callbacks
+    private volatile int mDownloadSpeed = -1;
+    private volatile float mProgress;
+    private int mCaching;
+    private int mStalls;
+    private boolean mFilled;
+    private boolean mStalled;
+    private boolean mPlaying;
+    private long mLastTime = -1;
+    private long mLastAdvance;
+    private long mLastStall;
+
+    /**
+     * Remembers the latest state of the torrent, call it for every stream progress update.
+     */
+    public void update(StreamStatus status) {
+        update(status.downloadSpeed, status.progress);
+    }
+
+    void update(int downloadSpeed, float progress) {
+        mDownloadSpeed = downloadSpeed;
+        mProgress = progress;
+    }
+
+    /**
+     * Adds the network caching for the current state of the torrent to the media.
+     *
+     * @param fileSize size of the video file in bytes, 0 if unknown
+     * @param duration duration of the video in ms, 0 or less if unknown
+     * @param position current playback position in ms
+     * @return the chosen caching in ms
+     */
+    public int apply(Media media, long fileSize, long duration, long position) {
+        mCaching = getCaching(fileSize, duration, position);
+        mFilled = false;
+        mStalled = false;
+        mLastTime = -1;
+        mLastAdvance = 0;
+        media.addOption(":network-caching=" + mCaching);
+        return mCaching;
+    }
+
+    int getCaching(long fileSize, long duration, long position) {
+        boolean knownDuration = duration >= MIN_DURATION_MS;
+        long bitrate = fileSize > 0 && knownDuration ? fileSize * 1000 / duration : DEFAULT_BITRATE;
+        long bytesAhead = 0;
+        if (fileSize > 0) {
+            long downloaded = (long) (fileSize * (mProgress / 100));
+            long played = knownDuration ? fileSize * Math.max(0, position) / duration : 0;
+            bytesAhead = Math.max(0, downloaded - played);
+        }
+
+        int caching;
+        if (mDownloadSpeed < 0) {
+            // no stream progress yet, nothing to go by
+            caching = NORMAL_CACHING_MS;
+        } else if (mDownloadSpeed >= bitrate * 3 / 2) {
+            caching = FAST_CACHING_MS;
+        } else if (mDownloadSpeed >= bitrate) {
+            caching = NORMAL_CACHING_MS;
+        } else {
+            // the swarm is slower than playback, the cache has to cover the difference
+            float ratio = Math.max(0.1f, (float) mDownloadSpeed / bitrate);
+            caching = (int) Math.min(MAX_CACHING_MS, SLOW_CACHING_MS / ratio);
+        }
+
+        // what is already downloaded ahead of the position plays without waiting for the swarm
+        long aheadMs = bytesAhead * 1000 / bitrate;
+        if (aheadMs >= SLOW_CACHING_MS && mDownloadSpeed >= bitrate) {
+            caching = FAST_CACHING_MS;
+        }
+
+        caching = caching << Math.min(mStalls, MAX_STALL_BOOST);
+        caching = Math.max(MIN_CACHING_MS, Math.min(MAX_CACHING_MS, caching));
+
+        Timber.i("Network caching %d ms (download %d B/s, bitrate %d B/s, %d ms ahead, %d stalls)",
+                caching, mDownloadSpeed, bitrate, aheadMs, mStalls);
+        return caching;
+    }
+
+    /**
+     * Feeds the buffering state of the player. Only a cache that runs empty after it was filled
+     * counts as a stall, not the initial fill or the one after a seek.
+     *
+     * @param cache lowest fill level of the cache in percent since the last call, as reported by
+     *              {@link org.videolan.libvlc.MediaPlayer.Event#getBuffering()}
+     */
+    public void onBuffering(float cache) {
+        if (cache >= 100f) {
+            mFilled = true;
+            mStalled = false;
+        } else if (mFilled && !mStalled) {
+            mStalled = true;
+            onStall(SystemClock.elapsedRealtime(), "cache at " + (int) cache + "%");
+        }
+    }
+
+    /**
+     * Feeds the playback time, call it for every TimeChanged event. Playback counts as started once
+     * the time advanced twice in a row, so the initial fill and the one after a seek are not stalls.
+     */
+    public void onTimeChanged(long time) {
+        onTimeChanged(time, SystemClock.elapsedRealtime());
+    }
+
+    void onTimeChanged(long time, long now) {
+        if (time == mLastTime) {
+            return;
+        }
+
+        // a stall the Buffering event reported already isn't counted again
+        boolean stalled = mPlaying && mFilled && mLastAdvance > 0 && now - mLastAdvance > STALL_GAP_MS
+                && mLastStall < mLastAdvance;
+        if (mPlaying && mLastAdvance > 0) {
+            mFilled = true;
+        }
+        long gap = now - mLastAdvance;
+        mLastTime = time;
+        mLastAdvance = now;
+        if (stalled) {
+            onStall(now, "no progress for " + gap + " ms");
+        }
+    }
+
+    public void onPlaying() {
+        mPlaying = true;
+        // the time doesn't advance while paused
+        mLastAdvance = 0;
+    }
+
+    public void onPaused() {
+        mPlaying = false;
+    }
+
+    public void onSeek() {
+        mFilled = false;
+        mStalled = false;
+        mLastAdvance = 0;
+    }
+
+    private void onStall(long now, String reason) {
+        mStalls++;
+        mLastStall = now;
+        Timber.i("Stream stalled at %d ms network caching, %s (%d stalls, download %d B/s)",
+                mCaching, reason, mStalls, mDownloadSpeed);
+    }
+
+    public int getStalls() {
+        return mStalls;
+    }
+
+    public int getCaching() {
+        return mCaching;
+    }
+
+}
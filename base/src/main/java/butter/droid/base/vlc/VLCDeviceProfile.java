@@ -0,0 +1,187 @@
+/*
+ * This file is part of Butter.
+ *
+ * Butter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Butter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Butter. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package butter.droid.base.vlc;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.pm.PackageManager;
+import android.os.Build;
+import android.os.SystemClock;
+
+import org.videolan.libvlc.util.HWDecoderUtil;
+import org.videolan.libvlc.util.VLCUtil;
+
+import timber.log.Timber;
+
+/**
+ * What LibVLC needs to know about the device before it can start: whether the bundled native
+ * library runs on this CPU, the CPU features used for the decoding defaults, and the hardware
+ * decoder and audio output verdicts of {@link HWDecoderUtil}.
+ * <p/>
+ * Probing reads the ELF header of libvlcjni.so, /proc/cpuinfo and a handful of system properties,
+ * so the result is persisted and reused until the app is updated or the system build changes.
+ */
+public class VLCDeviceProfile {
+
+    private static final String PREFS_FILE = "vlc_device_profile";
+    private static final String KEY = "key";
+    private static final String COMPATIBLE = "compatible";
+    private static final String ERROR = "error";
+    private static final String HAS_SPECS = "has_specs";
+    private static final String NEON = "neon";
+    private static final String FPU = "fpu";
+    private static final String ARMV6 = "armv6";
+    private static final String ARMV7 = "armv7";
+    private static final String MIPS = "mips";
+    private static final String X86 = "x86";
+    private static final String BITS64 = "64bits";
+    private static final String BOGOMIPS = "bogomips";
+    private static final String PROCESSORS = "processors";
+    private static final String FREQUENCY = "frequency";
+    private static final String DECODER = "decoder";
+    private static final String AUDIO_OUTPUT = "audio_output";
+
+    private static VLCDeviceProfile sProfile;
+
+    private boolean mCompatible;
+    private String mErrorMsg;
+    private VLCUtil.MachineSpecs mMachineSpecs;
+    private HWDecoderUtil.Decoder mDecoder;
+    private HWDecoderUtil.AudioOutput mAudioOutput;
+
+    private VLCDeviceProfile() {
+    }
+
+    public static synchronized VLCDeviceProfile get(Context context) {
+        if (sProfile == null) {
+            SharedPreferences prefs = context.getSharedPreferences(PREFS_FILE, Context.MODE_PRIVATE);
+            String key = getProfileKey(context);
+
+            sProfile = load(prefs, key);
+            if (sProfile == null) {
+                long start = SystemClock.elapsedRealtime();
+                sProfile = probe(context);
+                sProfile.save(prefs, key);
+                Timber.d("Probed VLC device profile in %d ms", SystemClock.elapsedRealtime() - start);
+            }
+        }
+        return sProfile;
+    }
+
+    public boolean isCompatible() {
+        return mCompatible;
+    }
+
+    public String getErrorMsg() {
+        return mErrorMsg;
+    }
+
+    /**
+     * @return the CPU features, or null if they could not be read
+     */
+    public VLCUtil.MachineSpecs getMachineSpecs() {
+        return mMachineSpecs;
+    }
+
+    public HWDecoderUtil.Decoder getDecoder() {
+        return mDecoder;
+    }
+
+    public HWDecoderUtil.AudioOutput getAudioOutput() {
+        return mAudioOutput;
+    }
+
+    private static String getProfileKey(Context context) {
+        int versionCode = 0;
+        try {
+            versionCode = context.getPackageManager().getPackageInfo(context.getPackageName(), 0).versionCode;
+        } catch (PackageManager.NameNotFoundException e) {
+            Timber.e(e, "Couldn't get the version code");
+        }
+        return versionCode + "|" + Build.FINGERPRINT;
+    }
+
+    private static VLCDeviceProfile probe(Context context) {
+        VLCDeviceProfile profile = new VLCDeviceProfile();
+        profile.mCompatible = VLCUtil.hasCompatibleCPU(context);
+        profile.mErrorMsg = VLCUtil.getErrorMsg();
+        profile.mMachineSpecs = VLCUtil.getMachineSpecs();
+        profile.mDecoder = HWDecoderUtil.getDecoderFromDevice();
+        profile.mAudioOutput = HWDecoderUtil.getAudioOutputFromDevice();
+        return profile;
+    }
+
+    private static VLCDeviceProfile load(SharedPreferences prefs, String key) {
+        if (!key.equals(prefs.getString(KEY, null))) {
+            return null;
+        }
+
+        VLCDeviceProfile profile = new VLCDeviceProfile();
+        try {
+            profile.mCompatible = prefs.getBoolean(COMPATIBLE, false);
+            profile.mErrorMsg = prefs.getString(ERROR, null);
+            profile.mDecoder = HWDecoderUtil.Decoder.valueOf(prefs.getString(DECODER, null));
+            profile.mAudioOutput = HWDecoderUtil.AudioOutput.valueOf(prefs.getString(AUDIO_OUTPUT, null));
+        } catch (RuntimeException e) {
+            Timber.w(e, "Discarding unreadable VLC device profile");
+            return null;
+        }
+
+        if (prefs.getBoolean(HAS_SPECS, false)) {
+            VLCUtil.MachineSpecs specs = new VLCUtil.MachineSpecs();
+            specs.hasNeon = prefs.getBoolean(NEON, false);
+            specs.hasFpu = prefs.getBoolean(FPU, false);
+            specs.hasArmV6 = prefs.getBoolean(ARMV6, false);
+            specs.hasArmV7 = prefs.getBoolean(ARMV7, false);
+            specs.hasMips = prefs.getBoolean(MIPS, false);
+            specs.hasX86 = prefs.getBoolean(X86, false);
+            specs.is64bits = prefs.getBoolean(BITS64, false);
+            specs.bogoMIPS = prefs.getFloat(BOGOMIPS, -1);
+            specs.processors = prefs.getInt(PROCESSORS, 1);
+            specs.frequency = prefs.getFloat(FREQUENCY, -1);
+            profile.mMachineSpecs = specs;
+        }
+        return profile;
+    }
+
+    private void save(SharedPreferences prefs, String key) {
+        SharedPreferences.Editor editor = prefs.edit()
+                .clear()
+                .putString(KEY, key)
+                .putBoolean(COMPATIBLE, mCompatible)
+                .putString(ERROR, mErrorMsg)
+                .putString(DECODER, mDecoder.name())
+                .putString(AUDIO_OUTPUT, mAudioOutput.name())
+                .putBoolean(HAS_SPECS, mMachineSpecs != null);
+
+        if (mMachineSpecs != null) {
+            editor.putBoolean(NEON, mMachineSpecs.hasNeon)
+                    .putBoolean(FPU, mMachineSpecs.hasFpu)
+                    .putBoolean(ARMV6, mMachineSpecs.hasArmV6)
+                    .putBoolean(ARMV7, mMachineSpecs.hasArmV7)
+                    .putBoolean(MIPS, mMachineSpecs.hasMips)
+                    .putBoolean(X86, mMachineSpecs.hasX86)
+                    .putBoolean(BITS64, mMachineSpecs.is64bits)
+                    .putFloat(BOGOMIPS, mMachineSpecs.bogoMIPS)
+                    .putInt(PROCESSORS, mMachineSpecs.processors)
+                    .putFloat(FREQUENCY, mMachineSpecs.frequency);
+        }
+        editor.apply();
+    }
+
+}
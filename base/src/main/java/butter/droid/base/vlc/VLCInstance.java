@@ -21,9 +21,12 @@
 package butter.droid.base.vlc;
 
 import android.content.Context;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.Process;
+import android.os.SystemClock;
 
 import org.videolan.libvlc.LibVLC;
-import org.videolan.libvlc.util.VLCUtil;
 
 import butter.droid.base.BuildConfig;
 import butter.droid.base.content.preferences.Prefs;
@@ -36,18 +39,49 @@ public class VLCInstance {
 
     /** A set of utility functions for the VLC application */
     public synchronized static LibVLC get(Context context) throws IllegalStateException {
-        if (sLibVLC == null) {
-            if(!VLCUtil.hasCompatibleCPU(context)) {
-                Timber.e(VLCUtil.getErrorMsg());
-                throw new IllegalStateException("LibVLC initialisation failed: " + VLCUtil.getErrorMsg());
+        if (sLibVLC == null || sLibVLC.isReleased()) {
+            VLCDeviceProfile profile = VLCDeviceProfile.get(context);
+            if (!profile.isCompatible()) {
+                Timber.e(profile.getErrorMsg());
+                throw new IllegalStateException("LibVLC initialisation failed: " + profile.getErrorMsg());
             }
 
+            long start = SystemClock.elapsedRealtime();
             String chroma = PrefUtils.get(context, Prefs.PIXEL_FORMAT, "");
             sLibVLC = new LibVLC(VLCOptions.getLibOptions(context, true, "UTF-8", true, chroma, BuildConfig.DEBUG));
+            Timber.d("LibVLC created in %d ms", SystemClock.elapsedRealtime() - start);
         }
         return sLibVLC;
     }
 
+    /**
+     * Once the calling thread's looper is idle, creates the LibVLC instance on a background thread
+     * so the first playback doesn't have to. Must be called from a thread with a looper.
+     */
+    public static void prewarm(final Context context) {
+        final Context appContext = context.getApplicationContext();
+        Looper.myQueue().addIdleHandler(new MessageQueue.IdleHandler() {
+            @Override
+            public boolean queueIdle() {
+                Thread thread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                        try {
+                            get(appContext);
+                        } catch (IllegalStateException e) {
+                            Timber.w(e, "LibVLC pre-warm failed");
+                        } catch (UnsatisfiedLinkError e) {
+                            Timber.w(e, "LibVLC pre-warm failed");
+                        }
+                    }
+                }, "LibVLC pre-warm");
+                thread.start();
+                return false;
+            }
+        });
+    }
+
     public static synchronized void restart(Context context) throws IllegalStateException {
         if (sLibVLC != null) {
             sLibVLC.release();
@@ -57,7 +91,7 @@ public class VLCInstance {
     }
 
     public static synchronized boolean hasCompatibleCPU(Context context) {
-        return !(sLibVLC == null && !VLCUtil.hasCompatibleCPU(context));
+        return !(sLibVLC == null && !VLCDeviceProfile.get(context).isCompatible());
     }
 
-}
\ No newline at end of file
+}
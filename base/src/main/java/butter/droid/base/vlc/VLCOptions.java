@@ -57,7 +57,8 @@ public class VLCOptions {
 
         ArrayList<String> options = new ArrayList<>(50);
 
-        int deblocking = getDeblocking(-1);
+        final VLCDeviceProfile profile = VLCDeviceProfile.get(context);
+        int deblocking = getDeblocking(profile.getMachineSpecs(), -1);
 
         int networkCaching = pref.getInt("network_caching_value", 0);
         if (networkCaching > 60000)
@@ -82,6 +83,9 @@ public class VLCOptions {
         options.add("--androidwindow-chroma");
         options.add(chroma != null && chroma.length() > 0 ? chroma : "RV32");
 
+        /* same choice LibVLC makes, without reading the system properties again */
+        options.add(profile.getAudioOutput() == HWDecoderUtil.AudioOutput.OPENSLES ? "--aout=opensles" : "--aout=android_audiotrack");
+
         options.add(verboseMode ? "-vvv" : "-vv");
         return options;
     }
@@ -98,7 +102,7 @@ public class VLCOptions {
         return aout == AOUT_OPENSLES ? "opensles_android" : "android_audiotrack";
     }
 
-    private static int getDeblocking(int deblocking) {
+    private static int getDeblocking(VLCUtil.MachineSpecs m, int deblocking) {
         int ret = deblocking;
         if (deblocking < 0) {
             /**
@@ -108,7 +112,6 @@ public class VLCOptions {
              * Skip non-ref (1) for all armv7 more than 1.2 Ghz and more than 2 cores
              * Skip non-key (3) for all devices that don't meet anything above
              */
-            VLCUtil.MachineSpecs m = VLCUtil.getMachineSpecs();
             if (m == null)
                 return ret;
             if ((m.hasArmV6 && !(m.hasArmV7)) || m.hasMips)
@@ -0,0 +1,199 @@
+/*
+ * This file is part of Butter.
+ *
+ * Butter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Butter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Butter. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package butter.droid.base.providers.media;
+
+import android.os.Bundle;
+import android.os.Parcel;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Random;
+
+import butter.droid.base.providers.media.models.Media;
+import butter.droid.base.providers.media.models.SeasonEpisodes;
+import butter.droid.base.providers.media.models.Show;
+import timber.log.Timber;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * What handing a show with three thousand episodes to the next screen costs, parcelled into the
+ * extras of the Intent like before, and as the key of the {@link MediaRepository}. A transition is
+ * the extras written to a Parcel and read back, as the system does between two activities.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, emulateSdk = 18)
+public class MediaRepositoryBenchmarkTest {
+
+    private static final String EXTRA = "media";
+    private static final int SEASONS = 30;
+    private static final int EPISODES = 100;
+    private static final int RUNS = 30;
+    // wait for the background write and read
+    private static final long TIMEOUT_MS = 10000;
+
+    private MediaRepository repository;
+    private Show show;
+
+    @Before
+    public void setUp() {
+        Robolectric.getUiThreadScheduler().pause();
+        repository = new MediaRepository(Robolectric.application);
+        show = createShow();
+    }
+
+    @Test
+    public void transitionWithALargeShow() throws InterruptedException {
+        long[] parcelled = new long[RUNS];
+        long[] byKey = new long[RUNS];
+        int parcelledBytes = 0;
+        int keyBytes = 0;
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            Bundle extras = new Bundle();
+            extras.putParcelable(EXTRA, show);
+            byte[] data = marshall(extras);
+            Show received = unmarshall(data).getParcelable(EXTRA);
+            parcelled[i] = System.nanoTime() - start;
+            parcelledBytes = data.length;
+            assertEquals(show.episodes.size(), received.episodes.size());
+
+            start = System.nanoTime();
+            extras = new Bundle();
+            extras.putString(EXTRA, repository.put(show));
+            data = marshall(extras);
+            Show[] fromRepository = new Show[1];
+            get(repository, unmarshall(data).getString(EXTRA), fromRepository);
+            byKey[i] = System.nanoTime() - start;
+            keyBytes = data.length;
+            assertTrue(show == fromRepository[0]);
+        }
+
+        // a screen recreated after the process died reads the show from disk, in the background
+        String key = repository.put(show);
+        awaitFile(key);
+        MediaRepository recreated = new MediaRepository(Robolectric.application);
+        long start = System.nanoTime();
+        Show[] fromDisk = new Show[1];
+        get(recreated, key, fromDisk);
+        long restored = System.nanoTime() - start;
+        assertNotNull(fromDisk[0]);
+        assertEquals(show.episodes.size(), fromDisk[0].episodes.size());
+
+        String stats = String.format("%d episodes: parcelled %d KB in %.2f ms, by key %d bytes in %.3f ms, "
+                        + "restored from disk in %.2f ms",
+                show.episodes.size(), parcelledBytes / 1024, median(parcelled), keyBytes, median(byKey),
+                restored / 1e6);
+        Timber.i(stats);
+
+        assertTrue(stats, keyBytes < 1024);
+        assertTrue(stats, parcelledBytes > 100 * keyBytes);
+        assertTrue(stats, median(byKey) * 10 < median(parcelled));
+    }
+
+    private static <T extends Media> void get(MediaRepository repository, String key, final T[] result)
+            throws InterruptedException {
+        final boolean[] done = new boolean[1];
+        repository.get(key, new MediaRepository.Callback<T>() {
+            @Override
+            public void onMedia(T media) {
+                result[0] = media;
+                done[0] = true;
+            }
+        });
+
+        // the callback of a read from disk is posted to the main looper
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (!done[0]) {
+            assertTrue("Read timed out", System.currentTimeMillis() < deadline);
+            Thread.sleep(1);
+            Robolectric.getUiThreadScheduler().advanceBy(0);
+        }
+    }
+
+    private static void awaitFile(String key) throws InterruptedException {
+        File file = new File(new File(Robolectric.application.getCacheDir(), "media"), key);
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (!file.exists()) {
+            assertTrue("Write timed out", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private static byte[] marshall(Bundle extras) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            parcel.writeBundle(extras);
+            return parcel.marshall();
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    private static Bundle unmarshall(byte[] data) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            parcel.unmarshall(data, 0, data.length);
+            parcel.setDataPosition(0);
+            Bundle extras = parcel.readBundle(Show.class.getClassLoader());
+            extras.setClassLoader(Show.class.getClassLoader());
+            return extras;
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    private static Show createShow() {
+        Random random = new Random(42);
+        Show show = new Show();
+        show.title = "Show";
+        show.videoId = show.imdbId = "tt0123456";
+        show.headerImage = show.image = "http://image/fanart.jpg";
+        SeasonEpisodes.Builder builder = new SeasonEpisodes.Builder();
+        for (int season = 1; season <= SEASONS; season++) {
+            for (int episode = 1; episode <= EPISODES; episode++) {
+                builder.addEpisode(season, episode, 1400000000 + random.nextInt(1000000), false,
+                        "Episode title number " + episode,
+                        "An overview of the episode that is a couple of sentences long, " + season + "x" + episode
+                                + " and so on and so forth.");
+                for (String quality : new String[]{"480p", "720p", "1080p"}) {
+                    builder.addTorrent(quality, "magnet:?xt=urn:btih:" + Long.toHexString(random.nextLong())
+                            + Long.toHexString(random.nextLong()), random.nextInt(500), random.nextInt(500));
+                }
+            }
+        }
+        show.episodes = builder.build(show);
+        return show;
+    }
+
+    private static double median(long[] times) {
+        long[] sorted = times.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2] / 1e6;
+    }
+
+}
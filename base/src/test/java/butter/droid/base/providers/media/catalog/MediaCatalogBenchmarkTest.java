@@ -0,0 +1,136 @@
+/*
+ * This file is part of Butter.
+ *
+ * Butter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Butter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Butter. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package butter.droid.base.providers.media.catalog;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import butter.droid.base.providers.media.MediaProvider;
+import butter.droid.base.providers.media.models.Media;
+import timber.log.Timber;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Query latency of {@link MediaCatalog#search} and A-Z {@link MediaCatalog#list} over a full catalog
+ * of synthetic titles. The latencies are logged, the assertions only catch a catalog that got
+ * slower by an order of magnitude.
+ */
+public class MediaCatalogBenchmarkTest {
+
+    private static final String[] QUERIES = {
+            "s", "st", "star", "star w", "dark kni", "lo", "the", "ghost 1", "2001", "xyz", "e", "king ring 19"
+    };
+    private static final long MAX_SEARCH_US = 50000;
+    private static final long MAX_LIST_US = 5000;
+    private static final long MAX_ADD_US = 500000;
+
+    private MediaCatalog catalog;
+    private MediaProvider provider;
+    private List<List<Media>> pages;
+
+    @Before
+    public void setUp() {
+        catalog = new MediaCatalog(null, false);
+        provider = new MediaCatalogTest.TestProvider();
+        pages = MediaCatalogTest.createPages(MediaCatalog.MAX_ITEMS, new Random(1));
+        MediaCatalogTest.addAll(catalog, provider, pages);
+    }
+
+    @Test
+    public void searchLatency() {
+        for (int i = 0; i < 200; i++) {
+            for (String query : QUERIES) {
+                catalog.search(provider, query, null, 50);
+            }
+        }
+
+        for (String query : QUERIES) {
+            long[] latencies = new long[500];
+            int results = 0;
+            for (int i = 0; i < latencies.length; i++) {
+                long start = System.nanoTime();
+                results = catalog.search(provider, query, null, 50).size();
+                latencies[i] = System.nanoTime() - start;
+            }
+            String stats = String.format("search '%s', %d results, %s", query, results, percentiles(latencies));
+            Timber.d(stats);
+            assertTrue(stats, percentile(latencies, 99) < MAX_SEARCH_US);
+        }
+        assertEquals(MediaCatalog.MAX_ITEMS, catalog.size());
+    }
+
+    @Test
+    public void reAddingPagesLatency() {
+        long start = System.nanoTime();
+        for (int i = 0; i < 5; i++) {
+            MediaCatalogTest.addAll(catalog, provider, pages);
+        }
+        long elapsed = (System.nanoTime() - start) / 1000000;
+        String stats = String.format("re-added %d items 5 times in %d ms", catalog.size(), elapsed);
+        Timber.d(stats);
+        assertTrue(stats, elapsed < 5 * MAX_ADD_US * pages.size() / 1000000);
+    }
+
+    @Test
+    public void alphabetListLatencyWhilePagesComeIn() {
+        MediaProvider.Filters filters = new MediaProvider.Filters();
+        filters.setSort(MediaProvider.Filters.Sort.ALPHABET);
+        List<List<Media>> newPages = MediaCatalogTest.createPages(MediaCatalog.MAX_ITEMS / 4, new Random(2));
+        for (List<Media> page : newPages) {
+            for (Media item : page) {
+                item.videoId = "new" + item.videoId;
+            }
+        }
+
+        long[] addLatencies = new long[newPages.size()];
+        long[] listLatencies = new long[newPages.size()];
+        for (int i = 0; i < newPages.size(); i++) {
+            long start = System.nanoTime();
+            catalog.add(provider, newPages.get(i), new MediaProvider.Filters(), i * MediaCatalogTest.PAGE_SIZE);
+            addLatencies[i] = System.nanoTime() - start;
+
+            // every page used to throw the title order away and the next A-Z list sorted 20k rows again
+            start = System.nanoTime();
+            catalog.list(provider, filters, 50);
+            listLatencies[i] = System.nanoTime() - start;
+        }
+
+        String stats = String.format("add page %s, A-Z list %s", percentiles(addLatencies), percentiles(listLatencies));
+        Timber.d(stats);
+        // a page that fills the catalog drops its oldest quarter
+        assertTrue(stats, percentile(addLatencies, 99) < MAX_ADD_US);
+        assertTrue(stats, percentile(listLatencies, 99) < MAX_LIST_US);
+    }
+
+    private static String percentiles(long[] latencies) {
+        return String.format("p50 %d us, p99 %d us", percentile(latencies, 50), percentile(latencies, 99));
+    }
+
+    private static long percentile(long[] latencies, int percentile) {
+        long[] sorted = latencies.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length * percentile / 100] / 1000;
+    }
+
+}
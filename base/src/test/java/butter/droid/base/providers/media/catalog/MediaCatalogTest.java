@@ -0,0 +1,257 @@
+/*
+ * This file is part of Butter.
+ *
+ * Butter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Butter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Butter. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package butter.droid.base.providers.media.catalog;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import butter.droid.base.providers.media.MediaProvider;
+import butter.droid.base.providers.media.models.Media;
+import butter.droid.base.providers.media.models.Movie;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The orders and filters {@link MediaCatalog#list} lists the items of a provider in, and how the
+ * catalog keeps up with items that come in again, are renamed or dropped.
+ */
+public class MediaCatalogTest {
+
+    static final int PAGE_SIZE = 50;
+    private static final String[] WORDS = ("the of a and star wars love night dark knight king ring lord man "
+            + "woman city blue red house story life dead world last first great little big war return rise "
+            + "fall empire game home secret lost found day time black white girl boy ghost shadow moon sun "
+            + "fire ice").split(" ");
+
+    private final Map<String, Movie> movies = new HashMap<>();
+    private MediaCatalog catalog;
+    private MediaProvider provider;
+
+    @Before
+    public void setUp() {
+        catalog = new MediaCatalog(null, false);
+        provider = new TestProvider();
+        // pages of a search or a genre don't tell the popularity order
+        MediaProvider.Filters search = new MediaProvider.Filters();
+        search.setKeywords("any");
+        catalog.add(provider, Arrays.<Media>asList(
+                movie("a", "Alpha", "2001", "7.5", "Action, Comedy"),
+                movie("b", "Bravo", "1999", "9.1", "Drama"),
+                movie("c", "Charlie", "2010", "3.0", "comedy"),
+                movie("d", "Delta", "1985", "6.2", "Horror")), search, 0);
+    }
+
+    @Test
+    public void testListsByYear() {
+        assertEquals("c a b d", list(MediaProvider.Filters.Sort.YEAR, MediaProvider.Filters.Order.DESC, null));
+        assertEquals("d b a c", list(MediaProvider.Filters.Sort.YEAR, MediaProvider.Filters.Order.ASC, null));
+    }
+
+    @Test
+    public void testListsByRating() {
+        assertEquals("b a d c", list(MediaProvider.Filters.Sort.RATING, MediaProvider.Filters.Order.DESC, null));
+        assertEquals("c d a b", list(MediaProvider.Filters.Sort.RATING, MediaProvider.Filters.Order.ASC, null));
+    }
+
+    @Test
+    public void testListsAlphabeticallyInEitherOrder() {
+        assertEquals("a b c d", list(MediaProvider.Filters.Sort.ALPHABET, MediaProvider.Filters.Order.DESC, null));
+        assertEquals("a b c d", list(MediaProvider.Filters.Sort.ALPHABET, MediaProvider.Filters.Order.ASC, null));
+    }
+
+    @Test
+    public void testListsInTheOrderTheProviderListedThem() {
+        // nothing was listed by popularity yet
+        assertEquals("", list(MediaProvider.Filters.Sort.POPULARITY, MediaProvider.Filters.Order.DESC, null));
+
+        MediaProvider.Filters popular = new MediaProvider.Filters();
+        catalog.add(provider, Arrays.<Media>asList(movies.get("c"), movies.get("a")), popular, 0);
+        catalog.add(provider, Arrays.<Media>asList(movies.get("d")), popular, 2);
+        assertEquals("c a d", list(MediaProvider.Filters.Sort.POPULARITY, MediaProvider.Filters.Order.DESC, null));
+        assertEquals("d a c", list(MediaProvider.Filters.Sort.POPULARITY, MediaProvider.Filters.Order.ASC, null));
+        // every listed order keeps positions of its own
+        assertEquals("", list(MediaProvider.Filters.Sort.TRENDING, MediaProvider.Filters.Order.DESC, null));
+
+        // the first page starts the list over
+        catalog.add(provider, Arrays.<Media>asList(movies.get("b")), popular, 0);
+        assertEquals("b", list(MediaProvider.Filters.Sort.POPULARITY, MediaProvider.Filters.Order.DESC, null));
+    }
+
+    @Test
+    public void testFiltersByGenre() {
+        assertEquals("c a", list(MediaProvider.Filters.Sort.YEAR, MediaProvider.Filters.Order.DESC, "Comedy"));
+        assertEquals("a c", list(MediaProvider.Filters.Sort.ALPHABET, MediaProvider.Filters.Order.DESC, "comedy"));
+        assertEquals("b", list(MediaProvider.Filters.Sort.RATING, MediaProvider.Filters.Order.DESC, "drama"));
+        assertEquals("", list(MediaProvider.Filters.Sort.YEAR, MediaProvider.Filters.Order.DESC, "western"));
+    }
+
+    @Test
+    public void testListsOnlyTheItemsOfTheProvider() {
+        MediaProvider other = new OtherProvider();
+        catalog.add(other, Arrays.<Media>asList(movie("e", "Echo", "2020", "8.0", "Comedy")),
+                new MediaProvider.Filters(), 0);
+
+        assertEquals("c a b d", list(MediaProvider.Filters.Sort.YEAR, MediaProvider.Filters.Order.DESC, null));
+        MediaProvider.Filters filters = new MediaProvider.Filters();
+        filters.setSort(MediaProvider.Filters.Sort.YEAR);
+        assertEquals("e", ids(catalog.list(other, filters, 10)));
+    }
+
+    @Test
+    public void testListsAtMostTheLimit() {
+        MediaProvider.Filters filters = new MediaProvider.Filters();
+        filters.setSort(MediaProvider.Filters.Sort.RATING);
+        assertEquals("b a", ids(catalog.list(provider, filters, 2)));
+        assertTrue(catalog.list(provider, filters, 0).isEmpty());
+    }
+
+    @Test
+    public void testAddingTheSamePagesAgainKeepsTheIndexSize() {
+        List<List<Media>> pages = createPages(1000, new Random(1));
+        addAll(catalog, provider, pages);
+        int postings = catalog.getIndex().getPostingCount();
+        int words = catalog.getIndex().getWordCount();
+
+        addAll(catalog, provider, pages);
+        assertEquals(postings, catalog.getIndex().getPostingCount());
+        assertEquals(words, catalog.getIndex().getWordCount());
+    }
+
+    @Test
+    public void testFindsRenamedItemsOnlyByTheirNewTitle() {
+        Movie renamed = movie("a", "Zyzzyva Unique", "2001", "7.5", "Action");
+        catalog.add(provider, Arrays.<Media>asList(renamed), new MediaProvider.Filters(), 0);
+
+        assertEquals("a", ids(catalog.search(provider, "zyzzyva", null, 10)));
+        assertEquals("", ids(catalog.search(provider, "alpha", null, 10)));
+    }
+
+    @Test
+    public void testDropsTheOldestItemsWhenFull() {
+        Random random = new Random(3);
+        List<List<Media>> pages = createPages(MediaCatalog.MAX_ITEMS - catalog.size(), random);
+        for (int i = 0; i < 100; i++) {
+            Media item = pages.get(random.nextInt(pages.size())).get(random.nextInt(PAGE_SIZE));
+            item.title = "renamed " + random.nextInt(1000);
+        }
+        Media kept = pages.get(pages.size() - 1).get(0);
+        kept.title = "Kept Unique";
+        addAll(catalog, provider, pages);
+        // a full catalog drops its oldest quarter to make room
+        catalog.add(provider, Arrays.<Media>asList(movie("e", "Echo", "2020", "8.0", "Comedy")),
+                new MediaProvider.Filters(), 0);
+
+        assertEquals(MediaCatalog.MAX_ITEMS - MediaCatalog.MAX_ITEMS / 4 + 1, catalog.size());
+        assertEquals("", ids(catalog.search(provider, "alpha", null, 10)));
+        assertEquals("e", ids(catalog.search(provider, "echo", null, 10)));
+        assertEquals(kept.videoId, ids(catalog.search(provider, "kept unique", null, 10)));
+        // the page of the new item starts the popularity list over
+        assertEquals("e", ids(catalog.list(provider, new MediaProvider.Filters(), 10)));
+
+        MediaProvider.Filters filters = new MediaProvider.Filters();
+        filters.setSort(MediaProvider.Filters.Sort.ALPHABET);
+        List<Media> listed = catalog.list(provider, filters, MediaCatalog.MAX_ITEMS);
+        assertEquals(catalog.size(), listed.size());
+        for (int i = 1; i < listed.size(); i++) {
+            String previous = MediaSearchIndex.normalize(listed.get(i - 1).title);
+            assertFalse(previous.compareTo(MediaSearchIndex.normalize(listed.get(i).title)) > 0);
+        }
+    }
+
+    static List<List<Media>> createPages(int count, Random random) {
+        List<List<Media>> pages = new ArrayList<>();
+        List<Media> page = null;
+        for (int i = 0; i < count; i++) {
+            if (i % PAGE_SIZE == 0) {
+                page = new ArrayList<>();
+                pages.add(page);
+            }
+
+            StringBuilder title = new StringBuilder();
+            int words = 1 + random.nextInt(4);
+            for (int j = 0; j < words; j++) {
+                title.append(WORDS[random.nextInt(WORDS.length)]).append(j == 0 && random.nextBoolean() ? "\u00e9 " : " ");
+            }
+            title.append(i);
+
+            Movie movie = new Movie();
+            movie.videoId = "tt" + i;
+            movie.title = title.toString();
+            movie.year = String.valueOf(1950 + random.nextInt(70));
+            movie.rating = String.valueOf(random.nextInt(100) / 10.0);
+            movie.genre = WORDS[random.nextInt(8)];
+            page.add(movie);
+        }
+        return pages;
+    }
+
+    static void addAll(MediaCatalog catalog, MediaProvider provider, List<List<Media>> pages) {
+        for (int i = 0; i < pages.size(); i++) {
+            catalog.add(provider, pages.get(i), new MediaProvider.Filters(), i * PAGE_SIZE);
+        }
+    }
+
+    private String list(MediaProvider.Filters.Sort sort, MediaProvider.Filters.Order order, String genre) {
+        MediaProvider.Filters filters = new MediaProvider.Filters();
+        filters.setSort(sort);
+        filters.setOrder(order);
+        filters.setGenre(genre);
+        return ids(catalog.list(provider, filters, 10));
+    }
+
+    private static String ids(List<Media> items) {
+        StringBuilder ids = new StringBuilder();
+        for (Media item : items) {
+            ids.append(ids.length() > 0 ? " " : "").append(item.videoId);
+        }
+        return ids.toString();
+    }
+
+    private Movie movie(String id, String title, String year, String rating, String genre) {
+        Movie movie = new Movie();
+        movie.videoId = id;
+        movie.title = title;
+        movie.year = year;
+        movie.rating = rating;
+        movie.genre = genre;
+        movies.put(id, movie);
+        return movie;
+    }
+
+    static class TestProvider extends MediaProvider {
+        TestProvider() {
+            super(null, null, null, null, null, new String[0], "", "", 0);
+        }
+    }
+
+    private static class OtherProvider extends MediaProvider {
+        OtherProvider() {
+            super(null, null, null, null, null, new String[0], "", "", 0);
+        }
+    }
+
+}
@@ -0,0 +1,228 @@
+/*
+ * This file is part of Butter.
+ *
+ * Butter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Butter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Butter. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package butter.droid.base.providers.media.models;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import timber.log.Timber;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Time until the latest season of a show with over a thousand episodes is ready for display, and
+ * the memory a show keeps, with {@link SeasonEpisodes} and with mapping every episode up front
+ * like the details responses did before. The numbers are logged, the assertions only check that
+ * mapping lazily is the faster and smaller of the two.
+ */
+public class SeasonEpisodesBenchmarkTest {
+
+    // seasons, episodes per season
+    private static final int[][] SHAPES = {{20, 50}, {40, 50}, {30, 100}};
+    private static final int RUNS = 200;
+    private static final int RETAINED_SHOWS = 50;
+
+    @Test
+    public void firstSeasonLatencyAndRetainedMemory() {
+        for (int[] shape : SHAPES) {
+            List<RawEpisode> response = createResponse(shape[0], shape[1]);
+            long[] eager = new long[RUNS];
+            long[] lazy = new long[RUNS];
+            long[] rest = new long[RUNS];
+            for (int i = 0; i < RUNS; i++) {
+                long start = System.nanoTime();
+                List<Episode> eagerSeason = mapEagerly(createShow(), new LinkedList<Episode>(), response);
+                eager[i] = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                Show show = createShow();
+                List<Episode> lazySeason = mapLazily(show, response);
+                lazy[i] = System.nanoTime() - start;
+
+                assertEquals(eagerSeason.size(), lazySeason.size());
+                assertEquals(eagerSeason.get(3).videoId, lazySeason.get(3).videoId);
+
+                // what the other rows cost once they are all bound
+                start = System.nanoTime();
+                show.episodes.getAll();
+                rest[i] = System.nanoTime() - start;
+            }
+
+            Object[] held = new Object[RETAINED_SHOWS];
+            long before = usedMemory();
+            for (int i = 0; i < held.length; i++) {
+                LinkedList<Episode> episodes = new LinkedList<>();
+                mapEagerly(createShow(), episodes, response);
+                held[i] = episodes;
+            }
+            long eagerBytes = (usedMemory() - before) / held.length;
+            Arrays.fill(held, null);
+
+            before = usedMemory();
+            for (int i = 0; i < held.length; i++) {
+                Show show = createShow();
+                mapLazily(show, response);
+                held[i] = show;
+            }
+            long lazyBytes = (usedMemory() - before) / held.length;
+            before = usedMemory();
+            for (Object show : held) {
+                ((Show) show).episodes.getAll();
+            }
+            long allMappedBytes = lazyBytes + (usedMemory() - before) / held.length;
+            Arrays.fill(held, null);
+
+            String stats = String.format("%d episodes in %d seasons: first season eager %.2f ms, lazy %.2f ms, "
+                            + "the rest %.2f ms; retained eager %d KB, lazy %d KB, all mapped %d KB",
+                    shape[0] * shape[1], shape[0], median(eager), median(lazy), median(rest),
+                    eagerBytes / 1024, lazyBytes / 1024, allMappedBytes / 1024);
+            Timber.d(stats);
+            assertTrue(stats, median(lazy) < median(eager));
+            assertTrue(stats, lazyBytes < eagerBytes);
+        }
+    }
+
+    private static class RawEpisode {
+        int season;
+        int episode;
+        int aired;
+        String title;
+        String overview;
+        final Map<String, Media.Torrent> torrents = new LinkedHashMap<>();
+    }
+
+    private static List<RawEpisode> createResponse(int seasons, int perSeason) {
+        Random random = new Random(42);
+        List<RawEpisode> response = new ArrayList<>();
+        for (int season = 1; season <= seasons; season++) {
+            for (int number = 1; number <= perSeason; number++) {
+                RawEpisode episode = new RawEpisode();
+                episode.season = season;
+                episode.episode = number;
+                episode.aired = 1400000000 + random.nextInt(1000000);
+                episode.title = "Episode title number " + number;
+                episode.overview = "An overview of the episode that is a couple of sentences long, " + season + "x" + number
+                        + " and so on and so forth.";
+                for (String quality : new String[]{"0", "480p", "720p", "1080p"}) {
+                    episode.torrents.put(quality, new Media.Torrent("magnet:?xt=urn:btih:" + Long.toHexString(random.nextLong())
+                            + Long.toHexString(random.nextLong()), random.nextInt(500), random.nextInt(500)));
+                }
+                response.add(episode);
+            }
+        }
+        Collections.shuffle(response, new Random(7));
+        return response;
+    }
+
+    private static Show createShow() {
+        Show show = new Show();
+        show.title = "Show";
+        show.videoId = show.imdbId = "tt0123456";
+        show.headerImage = "http://image/fanart.jpg";
+        return show;
+    }
+
+    /**
+     * Every episode mapped, then grouped by season and sorted for the details screen.
+     */
+    private static List<Episode> mapEagerly(Show show, LinkedList<Episode> all, List<RawEpisode> response) {
+        for (RawEpisode raw : response) {
+            Episode episode = new Episode();
+            for (Map.Entry<String, Media.Torrent> entry : raw.torrents.entrySet()) {
+                if (!entry.getKey().equals("0")) {
+                    Media.Torrent torrent = entry.getValue();
+                    episode.torrents.put(entry.getKey(), new Media.Torrent(torrent.getUrl(), torrent.getSeeds(), torrent.getPeers()));
+                }
+            }
+            episode.showName = show.title;
+            episode.aired = raw.aired;
+            episode.title = raw.title;
+            episode.overview = raw.overview;
+            episode.season = raw.season;
+            episode.episode = raw.episode;
+            episode.videoId = show.videoId + episode.season + episode.episode;
+            episode.imdbId = show.imdbId;
+            episode.image = episode.fullImage = episode.headerImage = show.headerImage;
+            all.add(episode);
+        }
+
+        TreeMap<Integer, List<Episode>> seasons = new TreeMap<>();
+        for (Episode episode : all) {
+            if (!seasons.containsKey(episode.season)) {
+                seasons.put(episode.season, new ArrayList<Episode>());
+            }
+            seasons.get(episode.season).add(episode);
+        }
+        for (List<Episode> season : seasons.values()) {
+            Collections.sort(season, new Comparator<Episode>() {
+                @Override
+                public int compare(Episode episode, Episode other) {
+                    return episode.episode < other.episode ? -1 : (episode.episode == other.episode ? 0 : 1);
+                }
+            });
+        }
+        return seasons.lastEntry().getValue();
+    }
+
+    private static List<Episode> mapLazily(Show show, List<RawEpisode> response) {
+        SeasonEpisodes.Builder builder = new SeasonEpisodes.Builder();
+        for (RawEpisode raw : response) {
+            builder.addEpisode(raw.season, raw.episode, raw.aired, false, raw.title, raw.overview);
+            for (Map.Entry<String, Media.Torrent> entry : raw.torrents.entrySet()) {
+                if (!entry.getKey().equals("0")) {
+                    Media.Torrent torrent = entry.getValue();
+                    builder.addTorrent(entry.getKey(), torrent.getUrl(), torrent.getSeeds(), torrent.getPeers());
+                }
+            }
+        }
+        show.episodes = builder.build(show);
+        int[] seasons = show.episodes.getSeasonNumbers();
+        return show.episodes.get(seasons[seasons.length - 1]);
+    }
+
+    private static long usedMemory() {
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+            try {
+                Thread.sleep(30);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static double median(long[] times) {
+        long[] sorted = times.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2] / 1e6;
+    }
+
+}
@@ -0,0 +1,74 @@
+/*
+ * This file is part of Butter.
+ *
+ * Butter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Butter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Butter. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package butter.droid.base.providers.media.models;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * How {@link SeasonEpisodes} orders, deduplicates and finds the episodes of a show.
+ */
+public class SeasonEpisodesTest {
+
+    @Test
+    public void testSortsDeduplicatesAndFindsAdjacentEpisodes() {
+        // date numbered episodes don't fit the packed sort keys
+        for (int base : new int[]{0, 20200000}) {
+            Show show = createShow();
+            SeasonEpisodes.Builder builder = new SeasonEpisodes.Builder();
+            builder.addEpisode(2, base + 3, 0, false, "old", null).addTorrent("720p", "u1", 1, 1);
+            builder.addEpisode(1, base + 2, 0, false, "a", null);
+            builder.addEpisode(2, base + 1, 0, false, "b", null).addTorrent("480p", "u2", 1, 1).addTorrent("720p", "u3", 1, 1);
+            builder.addEpisode(2, base + 3, 0, false, "new", null);
+            builder.addEpisode(1, base + 1, 0, false, "c", null);
+            show.episodes = builder.build(show);
+            SeasonEpisodes episodes = show.episodes;
+
+            assertEquals(4, episodes.size());
+            assertEquals("[1, 2]", Arrays.toString(episodes.getSeasonNumbers()));
+            assertEquals(2, episodes.getSize(2));
+            assertEquals(0, episodes.getSize(3));
+            assertEquals(0, episodes.getMapped(1).size());
+
+            List<Episode> first = episodes.get(1);
+            assertEquals("c", first.get(0).title);
+            assertEquals("a", first.get(1).title);
+            assertSame(first, episodes.getMapped(1));
+            assertEquals("new", episodes.getLatest().title);
+            assertEquals(0, episodes.getLatest().torrents.size());
+            assertEquals(2, episodes.get(2).get(0).torrents.size());
+
+            assertSame(episodes.get(2).get(0), episodes.getAdjacent(first.get(1), true));
+            assertNull(episodes.getAdjacent(first.get(0), false));
+        }
+    }
+
+    private static Show createShow() {
+        Show show = new Show();
+        show.title = "Show";
+        show.videoId = show.imdbId = "tt0123456";
+        return show;
+    }
+
+}
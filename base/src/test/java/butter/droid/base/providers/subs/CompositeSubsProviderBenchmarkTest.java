@@ -0,0 +1,169 @@
+/*
+ * This file is part of Butter.
+ *
+ * Butter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Butter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Butter. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package butter.droid.base.providers.subs;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import butter.droid.base.providers.media.models.Episode;
+import butter.droid.base.providers.media.models.Movie;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tail latency of {@link CompositeSubsProvider} searches with two fake providers that answer
+ * quickly and one that is too slow for the deadline. The fakes answer through the main looper, so
+ * the latencies are in the scheduler time of the test and come out the same on every run.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, emulateSdk = 18)
+public class CompositeSubsProviderBenchmarkTest {
+
+    private static final int SEARCHES = 300;
+    // time between two searches
+    private static final long INTERVAL_MS = 1000;
+    private static final long STEP_MS = 5;
+
+    private static final long FAST_MS = 40;
+    private static final long SLOWER_MS = 150;
+    private static final long SLOW_MS = 3 * CompositeSubsProvider.SOURCE_DEADLINE_MS;
+
+    private FakeProvider slow;
+    private CompositeSubsProvider provider;
+
+    @Before
+    public void setUp() {
+        Robolectric.getUiThreadScheduler().pause();
+        slow = new FakeProvider(SLOW_MS, "slow", 10);
+        provider = new CompositeSubsProvider(null, null, null,
+                new FakeProvider(FAST_MS, "fast", 8), new FakeProvider(SLOWER_MS, "slower", 5), slow);
+    }
+
+    @Test
+    public void tailLatencyWithOneSlowProvider() {
+        long[] latencies = new long[SEARCHES];
+        for (int i = 0; i < SEARCHES; i++) {
+            long start = SystemClock.elapsedRealtime();
+            Map<String, String> result = search();
+            latencies[i] = SystemClock.elapsedRealtime() - start;
+
+            // the best ranked of the providers that made the deadline, the slow one never does
+            assertEquals("languages of search " + i, 4, result.size());
+            assertEquals("fast-en", result.get("en"));
+            assertEquals("slower-nl", result.get("nl"));
+
+            Robolectric.getUiThreadScheduler().advanceBy(INTERVAL_MS);
+        }
+
+        long[] sorted = latencies.clone();
+        Arrays.sort(sorted);
+        long p50 = sorted[sorted.length / 2];
+        long p90 = sorted[sorted.length * 90 / 100];
+        long p99 = sorted[sorted.length * 99 / 100];
+        long max = sorted[sorted.length - 1];
+        int deadlineMisses = 0;
+        for (long latency : latencies) {
+            if (latency >= CompositeSubsProvider.SOURCE_DEADLINE_MS) {
+                deadlineMisses++;
+            }
+        }
+        String stats = String.format("p50 %d ms, p90 %d ms, p99 %d ms, max %d ms, %d of %d searches waited for the deadline",
+                p50, p90, p99, max, deadlineMisses, SEARCHES);
+
+        // without the deadline every search would wait for the slow provider
+        assertTrue(stats, max <= CompositeSubsProvider.SOURCE_DEADLINE_MS + STEP_MS);
+        // once the circuit opens only the single probe per open period waits for it
+        long elapsed = SEARCHES * INTERVAL_MS + deadlineMisses * CompositeSubsProvider.SOURCE_DEADLINE_MS;
+        assertTrue(stats, deadlineMisses <= CompositeSubsProvider.FAILURE_THRESHOLD
+                + elapsed / CompositeSubsProvider.OPEN_CIRCUIT_MS + 1);
+        assertTrue(stats, p90 <= SLOWER_MS + STEP_MS);
+        assertEquals(stats, slow.requests, deadlineMisses);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, String> search() {
+        final Map<String, String>[] result = new Map[1];
+        provider.getList(new Movie(), new SubsProvider.Callback() {
+            @Override
+            public void onSuccess(Map<String, String> items) {
+                result[0] = items;
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                throw new AssertionError(e);
+            }
+        });
+        while (result[0] == null) {
+            Robolectric.getUiThreadScheduler().advanceBy(STEP_MS);
+        }
+        return result[0];
+    }
+
+    /**
+     * Answers every search after a fixed delay with an English, a Dutch and a subtitle in a language
+     * named after the provider, ranked by its score.
+     */
+    private static class FakeProvider extends SubsProvider {
+        private final Handler handler = new Handler(Looper.getMainLooper());
+        private final long latency;
+        private final String name;
+        private final int score;
+        int requests;
+
+        FakeProvider(long latency, String name, int score) {
+            super(null, null, null);
+            this.latency = latency;
+            this.name = name;
+            this.score = score;
+        }
+
+        @Override
+        public void getList(Movie movie, final Callback callback) {
+            requests++;
+            handler.postDelayed(new Runnable() {
+                @Override
+                public void run() {
+                    RankedSubtitles subtitles = new RankedSubtitles();
+                    subtitles.add("en", name + "-en", score, 0);
+                    subtitles.add("nl", name + "-nl", 20 - score, 0);
+                    subtitles.add(name, name + "-" + name, score, 0);
+                    callback.onSuccess(subtitles);
+                }
+            }, latency);
+        }
+
+        @Override
+        public void getList(Episode episode, Callback callback) {
+            getList((Movie) null, callback);
+        }
+    }
+
+}
@@ -0,0 +1,327 @@
+/*
+ * This file is part of Butter.
+ *
+ * Butter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Butter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Butter. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package butter.droid.base.providers.subs.open;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import de.timroes.axmlrpc.XMLRPCClient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs {@link OpenSubsSession} against a local stand-in for the OpenSubtitles XML-RPC API, which
+ * hands out tokens, forgets them on request and records the calls it gets.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, emulateSdk = 18)
+public class OpenSubsSessionTest {
+
+    private static final long TIMEOUT_S = 10;
+
+    private StandInServer server;
+    private OpenSubsSession session;
+
+    @Before
+    public void setUp() throws IOException {
+        Robolectric.getUiThreadScheduler().pause();
+        server = new StandInServer();
+        server.start();
+        session = new OpenSubsSession(new XMLRPCClient(new URL("http://127.0.0.1:" + server.getPort() + "/xml-rpc")),
+                "en", "test");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.stop();
+    }
+
+    @Test
+    public void testReusesTheTokenAndBatchesSearches() throws Exception {
+        search(1);
+        search(3);
+
+        assertEquals(1, server.getCount("LogIn"));
+        assertEquals(1, server.getCount("SearchSubtitles"));
+        assertEquals(1, server.getCount("system.multicall"));
+        assertEquals(4, server.getSearchCount());
+    }
+
+    @Test
+    public void testRefreshesTheTokenBeforeItExpires() throws Exception {
+        search(1);
+        String first = server.getLastToken();
+
+        // the token is renewed before the server lets it expire
+        advance(OpenSubsSession.TOKEN_TTL_MS - OpenSubsSession.REFRESH_MARGIN_MS);
+        awaitLogins(2);
+        server.expire(first);
+
+        // so the next search doesn't wait for LogIn, nor gets refused
+        search(1);
+        assertEquals(2, server.getCount("LogIn"));
+        assertEquals(0, server.getRefusedCount());
+        assertNotEquals(first, server.getLastToken());
+    }
+
+    @Test
+    public void testStopsRefreshingWhenNotSearching() throws Exception {
+        search(1);
+
+        advance(OpenSubsSession.TOKEN_TTL_MS - OpenSubsSession.REFRESH_MARGIN_MS);
+        awaitLogins(2);
+        advance(4 * OpenSubsSession.TOKEN_TTL_MS);
+
+        assertEquals(2, server.getCount("LogIn"));
+    }
+
+    @Test
+    public void testLogsInAgainWhenTheTokenIsRefused() throws Exception {
+        search(1);
+        server.expire(server.getLastToken());
+
+        search(1);
+        assertEquals(2, server.getCount("LogIn"));
+        assertEquals(1, server.getRefusedCount());
+    }
+
+    /**
+     * Starts searches within one batch window and waits for all their results.
+     */
+    private void search(int count) throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(count);
+        final List<Object> failures = Collections.synchronizedList(new ArrayList<>());
+        for (int i = 0; i < count; i++) {
+            Map<String, String> query = new HashMap<>();
+            query.put("imdbid", String.valueOf(i));
+            session.search(query, new OpenSubsSession.SearchCallback() {
+                @Override
+                public void onResponse(Map<String, Object> result) {
+                    if (result == null || !"200 OK".equals(result.get("status"))) {
+                        failures.add(result);
+                    }
+                    done.countDown();
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    failures.add(e);
+                    done.countDown();
+                }
+            });
+        }
+
+        // the XML-RPC threads post to the main looper as well, run it until every search is done
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TIMEOUT_S);
+        while (!done.await(10, TimeUnit.MILLISECONDS)) {
+            assertTrue("Searches timed out", System.currentTimeMillis() < deadline);
+            advance(OpenSubsSession.BATCH_WINDOW_MS);
+        }
+        assertEquals(Collections.emptyList(), failures);
+    }
+
+    /**
+     * Waits until the session has the token of the given LogIn.
+     */
+    private void awaitLogins(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TIMEOUT_S);
+        while (session.getLoginCount() < count) {
+            assertTrue("LogIn timed out", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private static void advance(long ms) {
+        Robolectric.getUiThreadScheduler().advanceBy(ms);
+    }
+
+    /**
+     * Answers LogIn, SearchSubtitles and system.multicall, one connection per request.
+     */
+    private static class StandInServer implements Runnable {
+
+        private static final Pattern METHOD = Pattern.compile("<methodName>([^<]*)</methodName>");
+        private static final Pattern FIRST_STRING = Pattern.compile("<param>\\s*<value>\\s*<string>([^<]*)</string>");
+        // the token of each call of a system.multicall
+        private static final Pattern TOKEN = Pattern.compile("<name>params</name>\\s*<value>\\s*<array>\\s*<data>\\s*"
+                + "<value>\\s*<string>([^<]*)</string>");
+
+        private final ServerSocket socket;
+        private final List<String> methods = new ArrayList<>();
+        private final Set<String> tokens = new HashSet<>();
+        private String lastToken;
+        private int searchCount;
+        private int refusedCount;
+        private volatile boolean running = true;
+
+        StandInServer() throws IOException {
+            socket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+        }
+
+        void start() {
+            new Thread(this, "XML-RPC stand-in").start();
+        }
+
+        void stop() throws IOException {
+            running = false;
+            socket.close();
+        }
+
+        int getPort() {
+            return socket.getLocalPort();
+        }
+
+        synchronized int getCount(String method) {
+            return Collections.frequency(methods, method);
+        }
+
+        synchronized String getLastToken() {
+            return lastToken;
+        }
+
+        synchronized int getSearchCount() {
+            return searchCount;
+        }
+
+        synchronized int getRefusedCount() {
+            return refusedCount;
+        }
+
+        synchronized void expire(String token) {
+            tokens.remove(token);
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                try {
+                    Socket client = socket.accept();
+                    try {
+                        String request = readRequest(client.getInputStream());
+                        byte[] body = respond(request).getBytes("UTF-8");
+                        OutputStream out = client.getOutputStream();
+                        out.write(("HTTP/1.1 200 OK\r\nContent-Type: text/xml\r\nContent-Length: " + body.length
+                                + "\r\nConnection: close\r\n\r\n").getBytes("UTF-8"));
+                        out.write(body);
+                        out.flush();
+                    } finally {
+                        client.close();
+                    }
+                } catch (IOException e) {
+                    // closed by stop
+                }
+            }
+        }
+
+        private synchronized String respond(String request) {
+            Matcher method = METHOD.matcher(request);
+            method.find();
+            String name = method.group(1);
+            methods.add(name);
+
+            if (name.equals("LogIn")) {
+                lastToken = "token" + methods.size();
+                tokens.add(lastToken);
+                return "<methodResponse><params><param><value><struct>" + member("token", lastToken)
+                        + member("status", "200 OK") + "</struct></value></param></params></methodResponse>";
+            }
+
+            if (name.equals("SearchSubtitles")) {
+                Matcher token = FIRST_STRING.matcher(request);
+                token.find();
+                return "<methodResponse><params><param><value>" + search(token.group(1))
+                        + "</value></param></params></methodResponse>";
+            }
+
+            StringBuilder results = new StringBuilder();
+            Matcher token = TOKEN.matcher(request);
+            while (token.find()) {
+                results.append("<value><array><data><value>").append(search(token.group(1)))
+                        .append("</value></data></array></value>");
+            }
+            return "<methodResponse><params><param><value><array><data>" + results
+                    + "</data></array></value></param></params></methodResponse>";
+        }
+
+        // must hold the lock
+        private String search(String token) {
+            searchCount++;
+            if (!tokens.contains(token)) {
+                refusedCount++;
+                return "<struct>" + member("status", "401 Unauthorized") + "</struct>";
+            }
+            return "<struct>" + member("status", "200 OK") + "<member><name>data</name><value><array><data>"
+                    + "</data></array></value></member></struct>";
+        }
+
+        private static String member(String name, String value) {
+            return "<member><name>" + name + "</name><value><string>" + value + "</string></value></member>";
+        }
+
+        private static String readRequest(InputStream in) throws IOException {
+            ByteArrayOutputStream request = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int length = -1;
+            int count;
+            while ((count = in.read(buffer)) > 0) {
+                request.write(buffer, 0, count);
+                String read = request.toString("UTF-8");
+                int headerEnd = read.indexOf("\r\n\r\n");
+                if (headerEnd < 0) {
+                    continue;
+                }
+                if (length < 0) {
+                    Matcher contentLength = Pattern.compile("(?i)content-length:\\s*(\\d+)").matcher(read);
+                    length = contentLength.find() ? Integer.parseInt(contentLength.group(1)) : 0;
+                }
+                if (request.size() >= headerEnd + 4 + length) {
+                    return read.substring(headerEnd + 4);
+                }
+            }
+            return request.toString("UTF-8");
+        }
+    }
+
+}
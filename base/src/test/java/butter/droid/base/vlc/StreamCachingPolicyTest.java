@@ -0,0 +1,156 @@
+/*
+ * This file is part of Butter.
+ *
+ * Butter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Butter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Butter. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package butter.droid.base.vlc;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * The network caching {@link StreamCachingPolicy} chooses for a two hour video of 100 KB/s, and
+ * which gaps in the playback time and drops of the cache it counts as stalls.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, emulateSdk = 18)
+public class StreamCachingPolicyTest {
+
+    private static final long DURATION_MS = 2 * 60 * 60 * 1000;
+    private static final long FILE_SIZE = DURATION_MS * 100;
+    private static final int BITRATE = 100000;
+
+    private StreamCachingPolicy policy;
+
+    @Before
+    public void setUp() {
+        policy = new StreamCachingPolicy();
+    }
+
+    @Test
+    public void testNormalCachingWithoutStreamProgress() {
+        assertEquals(3000, policy.getCaching(FILE_SIZE, DURATION_MS, 0));
+    }
+
+    @Test
+    public void testCachingFollowsTheDownloadSpeed() {
+        policy.update(BITRATE * 3 / 2, 0);
+        assertEquals(StreamCachingPolicy.MIN_CACHING_MS, policy.getCaching(FILE_SIZE, DURATION_MS, 0));
+
+        policy.update(BITRATE, 0);
+        assertEquals(3000, policy.getCaching(FILE_SIZE, DURATION_MS, 0));
+
+        policy.update(BITRATE / 2, 0);
+        assertEquals(20000, policy.getCaching(FILE_SIZE, DURATION_MS, 0));
+
+        policy.update(BITRATE / 100, 0);
+        assertEquals(StreamCachingPolicy.MAX_CACHING_MS, policy.getCaching(FILE_SIZE, DURATION_MS, 0));
+    }
+
+    @Test
+    public void testAssumesABitrateWhileTheDurationIsUnknown() {
+        policy.update(2 * 1024 * 1024, 0);
+        assertEquals(StreamCachingPolicy.MIN_CACHING_MS, policy.getCaching(FILE_SIZE, 0, 0));
+        // a placeholder duration is as good as none
+        policy.update(BITRATE * 3 / 2, 0);
+        assertEquals(StreamCachingPolicy.MAX_CACHING_MS, policy.getCaching(FILE_SIZE, 1000, 0));
+    }
+
+    @Test
+    public void testSmallCachingWhenDownloadedAheadOfPlayback() {
+        policy.update(BITRATE, 50);
+        assertEquals(StreamCachingPolicy.MIN_CACHING_MS, policy.getCaching(FILE_SIZE, DURATION_MS, 0));
+        // played up to what is downloaded
+        assertEquals(3000, policy.getCaching(FILE_SIZE, DURATION_MS, DURATION_MS / 2));
+    }
+
+    @Test
+    public void testEveryStallDoublesTheCaching() {
+        policy.onPlaying();
+        play(0, 1000, 4);
+        stall(1000, 5000);
+        assertEquals(1, policy.getStalls());
+        assertEquals(6000, policy.getCaching(FILE_SIZE, DURATION_MS, 0));
+
+        for (int i = 0; i < 5; i++) {
+            stall(2000 + i * 1000, 10000 + i * 5000);
+        }
+        assertEquals(6, policy.getStalls());
+        assertEquals(48000, policy.getCaching(FILE_SIZE, DURATION_MS, 0));
+        policy.update(BITRATE / 2, 0);
+        assertEquals(StreamCachingPolicy.MAX_CACHING_MS, policy.getCaching(FILE_SIZE, DURATION_MS, 0));
+    }
+
+    @Test
+    public void testInitialFillAndSeekAreNoStalls() {
+        policy.onPlaying();
+        // the first time comes in once the cache is filled
+        play(0, 5000, 1);
+        play(250, 8000, 4);
+        assertEquals(0, policy.getStalls());
+
+        policy.onSeek();
+        play(600000, 20000, 1);
+        play(600250, 24000, 4);
+        assertEquals(0, policy.getStalls());
+    }
+
+    @Test
+    public void testPausingIsNoStall() {
+        policy.onPlaying();
+        play(0, 1000, 4);
+        policy.onPaused();
+        policy.onPlaying();
+        play(1000, 60000, 4);
+        assertEquals(0, policy.getStalls());
+    }
+
+    @Test
+    public void testCountsACacheThatRunsEmptyOnce() {
+        policy.onBuffering(50);
+        assertEquals(0, policy.getStalls());
+
+        policy.onBuffering(100);
+        policy.onBuffering(40);
+        policy.onBuffering(10);
+        assertEquals(1, policy.getStalls());
+
+        policy.onBuffering(100);
+        policy.onBuffering(60);
+        assertEquals(2, policy.getStalls());
+    }
+
+    /**
+     * Advances the playback time in steps of 250 ms, starting at the given time and clock.
+     */
+    private void play(long time, long now, int steps) {
+        for (int i = 0; i < steps; i++) {
+            policy.onTimeChanged(time + i * 250, now + i * 250);
+        }
+    }
+
+    /**
+     * Advances the playback time after a gap, and once more right after it.
+     */
+    private void stall(long time, long now) {
+        play(time, now, 2);
+    }
+
+}
@@ -214,10 +214,26 @@ public class ZeroconfDiscoveryProvider implements DiscoveryProvider {
         }
 
         if (jmdns != null) {
+            final JmDNS closing = jmdns;
+            jmdns = null;
+
             for (DiscoveryFilter searchTarget : serviceFilters) {
                 String filter = searchTarget.getServiceFilter();
-                jmdns.removeServiceListener(filter, jmdnsListener);
+                closing.removeServiceListener(filter, jmdnsListener);
             }
+
+            // close the multicast socket and JmDNS threads, closing blocks while it says goodbye
+            Util.runInBackground(new Runnable() {
+
+                @Override
+                public void run() {
+                    try {
+                        closing.close();
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                }
+            });
         }
     }
 
@@ -242,6 +258,12 @@ public class ZeroconfDiscoveryProvider implements DiscoveryProvider {
             }
             jmdns = createJmDNS();
 
+            if (jmdns != null && !isRunning) {
+                // stopped while the scan task was creating it
+                jmdns.close();
+                jmdns = null;
+            }
+
             if (jmdns != null) {
                 for (DiscoveryFilter searchTarget : serviceFilters) {
                     String filter = searchTarget.getServiceFilter();
@@ -21,25 +21,45 @@ package com.connectsdk.etc.helper;
 
 import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.io.UnsupportedEncodingException;
 import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
 import java.net.ProtocolException;
 import java.net.Socket;
 import java.net.URI;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.Locale;
 import java.util.Map;
 
 /**
  * HTTP connection implementation based on this article
  * http://android-developers.blogspot.com/2011/09/androids-http-clients.html
  * Also DefaultHttpClient has been deprecated since Android 5.1
+ *
+ * Connections created by {@link #newInstance(URI)} are returned to the platform keep-alive pool
+ * after the response has been read, so consecutive commands to the same device reuse the socket.
+ * Every request is timed and recorded in {@link HttpLatencyStats} under the connection's tag.
  */
 public abstract class HttpConnection {
 
+    public static final int DEFAULT_CONNECT_TIMEOUT = 5000;
+    public static final int DEFAULT_READ_TIMEOUT = 15000;
+
+    private static volatile int defaultConnectTimeout = DEFAULT_CONNECT_TIMEOUT;
+    private static volatile int defaultReadTimeout = DEFAULT_READ_TIMEOUT;
+
+    protected int connectTimeout = defaultConnectTimeout;
+    protected int readTimeout = defaultReadTimeout;
+    protected String tag;
+
     public static HttpConnection newInstance(URI uri) throws IOException {
         return new HttpURLConnectionClient(uri);
     }
@@ -48,6 +68,27 @@ public abstract class HttpConnection {
         return new CustomConnectionClient(uri);
     }
 
+    /**
+     * Timeouts used by connections created after this call, in milliseconds. 0 means no timeout.
+     */
+    public static void setDefaultTimeouts(int connectTimeout, int readTimeout) {
+        defaultConnectTimeout = connectTimeout;
+        defaultReadTimeout = readTimeout;
+    }
+
+    public void setTimeouts(int connectTimeout, int readTimeout) {
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+    }
+
+    /**
+     * Name under which this connection's latency is recorded, usually the service id. Defaults to
+     * the target host.
+     */
+    public void setTag(String tag) {
+        this.tag = tag;
+    }
+
     public abstract void setMethod(Method method) throws ProtocolException;
 
     public abstract int getResponseCode() throws IOException;
@@ -73,15 +114,50 @@ public abstract class HttpConnection {
         UNSUBSCRIBE
     }
 
+    static String readCharset(String contentType) {
+        if (contentType != null) {
+            for (String param : contentType.split(";")) {
+                param = param.trim();
+                if (param.toLowerCase(Locale.US).startsWith("charset=")) {
+                    return param.substring("charset=".length()).replace("\"", "").trim();
+                }
+            }
+        }
+        return "UTF-8";
+    }
+
+    static String decode(byte[] body, String contentType) {
+        if (body == null) {
+            return null;
+        }
+        try {
+            return new String(body, readCharset(contentType));
+        } catch (UnsupportedEncodingException e) {
+            return new String(body);
+        }
+    }
+
+    static byte[] readFully(InputStream stream) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = stream.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
     private static class HttpURLConnectionClient extends HttpConnection {
 
         private final HttpURLConnection connection;
         private byte[] payload;
+        private byte[] responseBody;
         private String response;
         private int responseCode;
 
         private HttpURLConnectionClient(URI uri) throws IOException {
             this.connection = (HttpURLConnection) uri.toURL().openConnection();
+            this.tag = uri.getHost();
         }
 
         @Override
@@ -96,36 +172,51 @@ public abstract class HttpConnection {
 
         @Override
         public String getResponseString() throws IOException {
+            if (response == null && responseBody != null) {
+                response = decode(responseBody, connection.getContentType());
+            }
             return response;
         }
 
         @Override
         public void execute() throws IOException {
+            long start = System.nanoTime();
+            boolean reusable = false;
             try {
+                connection.setConnectTimeout(connectTimeout);
+                connection.setReadTimeout(readTimeout);
+
                 if (payload != null) {
-                    BufferedOutputStream writer =
-                            new BufferedOutputStream(connection.getOutputStream());
+                    connection.setFixedLengthStreamingMode(payload.length);
+                    OutputStream writer = new BufferedOutputStream(connection.getOutputStream());
                     writer.write(payload);
                     writer.flush();
                     writer.close();
                 }
+
+                responseCode = connection.getResponseCode();
+
+                // the body (or error body) has to be consumed and closed for the socket to go
+                // back to the keep-alive pool, disconnect() would close it instead
+                InputStream stream;
                 try {
-                    BufferedReader reader =
-                            new BufferedReader(new InputStreamReader(connection.getInputStream()));
-                    String line;
-                    StringBuilder sb = new StringBuilder();
-                    while (null != (line = reader.readLine())) {
-                        sb.append(line);
-                        sb.append("\r\n");
+                    stream = connection.getInputStream();
+                } catch (IOException e) {
+                    stream = connection.getErrorStream();
+                }
+                if (stream != null) {
+                    try {
+                        responseBody = readFully(stream);
+                    } finally {
+                        stream.close();
                     }
-                    reader.close();
-                    this.response = sb.toString();
-                } catch (Exception e) {
-                    // it's OK, we have a response code
                 }
-                responseCode = connection.getResponseCode();
+                reusable = true;
             } finally {
-                connection.disconnect();
+                if (!reusable) {
+                    connection.disconnect();
+                }
+                HttpLatencyStats.record(tag, (System.nanoTime() - start) / 1000000, !reusable);
             }
         }
 
@@ -164,6 +255,7 @@ public abstract class HttpConnection {
 
         private CustomConnectionClient(URI uri) {
             this.uri = uri;
+            this.tag = uri.getHost();
         }
 
         @Override
@@ -183,8 +275,29 @@ public abstract class HttpConnection {
 
         @Override
         public void execute() throws IOException {
+            long start = System.nanoTime();
+            boolean success = false;
+            try {
+                executeRequest();
+                success = true;
+            } finally {
+                HttpLatencyStats.record(tag, (System.nanoTime() - start) / 1000000, !success);
+            }
+        }
+
+        private void executeRequest() throws IOException {
             int port = uri.getPort() > 0 ? uri.getPort() : 80;
-            Socket socket = new Socket(uri.getHost(), port);
+            Socket socket = new Socket();
+            socket.connect(new InetSocketAddress(uri.getHost(), port), connectTimeout);
+            socket.setSoTimeout(readTimeout);
+            try {
+                exchange(socket, port);
+            } finally {
+                socket.close();
+            }
+        }
+
+        private void exchange(Socket socket, int port) throws IOException {
             PrintWriter writer =
                     new PrintWriter(new OutputStreamWriter(socket.getOutputStream()), true);
             BufferedReader reader =
@@ -237,12 +350,34 @@ public abstract class HttpConnection {
                 }
             }
 
-            while (null != (line = reader.readLine())) {
-                sb.append(line);
-                sb.append("\r\n");
+            String contentLength = null;
+            for (Map.Entry<String, String> header : responseHeaders.entrySet()) {
+                if (header.getKey().equalsIgnoreCase("Content-Length")) {
+                    contentLength = header.getValue();
+                }
+            }
+
+            if (contentLength != null) {
+                // the device may keep the connection open, so don't wait for EOF
+                int remaining;
+                try {
+                    remaining = Integer.parseInt(contentLength);
+                } catch (NumberFormatException e) {
+                    remaining = 0;
+                }
+                char[] buffer = new char[1024];
+                int read;
+                while (remaining > 0 && (read = reader.read(buffer, 0, Math.min(buffer.length, remaining))) != -1) {
+                    sb.append(buffer, 0, read);
+                    remaining -= read;
+                }
+            } else {
+                while (null != (line = reader.readLine())) {
+                    sb.append(line);
+                    sb.append("\r\n");
+                }
             }
             response = sb.toString();
-            socket.close();
         }
 
         @Override
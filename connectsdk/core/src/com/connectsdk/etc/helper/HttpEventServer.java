@@ -0,0 +1,734 @@
+/*
+ * HttpEventServer
+ * Connect SDK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.connectsdk.etc.helper;
+
+import android.util.Log;
+
+import com.connectsdk.core.Util;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Small single-threaded NIO HTTP server used to receive event callbacks (GENA NOTIFY, UDAP events)
+ * from devices. All sockets are served from one selector thread; request headers are parsed
+ * incrementally as bytes arrive, connections are kept alive when the client asks for it, and the
+ * number of simultaneously open connections is bounded.
+ *
+ * Every complete request is answered with an empty 200 response right away and then handed to the
+ * {@link RequestHandler} on a single dispatch thread, so handlers see requests in arrival order and
+ * only block the socket loop once too many requests are waiting to be handled.
+ */
+public class HttpEventServer {
+    private static final int MAX_CONNECTIONS = 16;
+    private static final int MAX_REQUEST_SIZE = 512 * 1024;
+    private static final int MAX_PENDING_REQUESTS = 64;
+    private static final int INITIAL_BUFFER_SIZE = 4 * 1024;
+    private static final long IDLE_TIMEOUT = 30 * 1000;
+    private static final long SELECT_TIMEOUT = 5 * 1000;
+    // how long stop waits for the selector thread to close the sockets
+    private static final long STOP_TIMEOUT = 1000;
+
+    private static final byte[] HEADER_END = {'\r', '\n', '\r', '\n'};
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    public interface RequestHandler {
+        /**
+         * Called on the dispatch thread for every complete request.
+         */
+        void onRequest(Request request);
+    }
+
+    public static class Request {
+        private final String method;
+        private final String path;
+        private final Map<String, String> headers;
+        private final byte[] body;
+
+        Request(String method, String path, Map<String, String> headers, byte[] body) {
+            this.method = method;
+            this.path = path;
+            this.headers = headers;
+            this.body = body;
+        }
+
+        public String getMethod() {
+            return method;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        /**
+         * @param name header name, case insensitive
+         */
+        public String getHeader(String name) {
+            return headers.get(name.toLowerCase(Locale.US));
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+
+        public String getBodyString() {
+            try {
+                return new String(body, "UTF-8");
+            } catch (UnsupportedEncodingException e) {
+                return new String(body);
+            }
+        }
+    }
+
+    private final int port;
+    private final RequestHandler handler;
+    private final Map<String, String> responseHeaders = new LinkedHashMap<String, String>();
+    private byte[] bodyTerminator;
+
+    // the loop of the current start, null while stopped
+    private final AtomicReference<EventLoop> loop = new AtomicReference<EventLoop>();
+
+    public HttpEventServer(int port, RequestHandler handler) {
+        this.port = port;
+        this.handler = handler;
+    }
+
+    /**
+     * Some devices send event bodies without a Content-Length header and keep the socket open.
+     * For those requests the body is considered complete once this terminator has been received.
+     */
+    public void setBodyTerminator(String terminator) {
+        try {
+            this.bodyTerminator = terminator == null ? null : terminator.getBytes("UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            this.bodyTerminator = terminator.getBytes();
+        }
+    }
+
+    /**
+     * Adds a header sent with every response, in addition to Date, Content-Length and Connection.
+     */
+    public void addResponseHeader(String name, String value) {
+        responseHeaders.put(name, value);
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public boolean isRunning() {
+        return loop.get() != null;
+    }
+
+    /**
+     * Binds the listening socket and starts the selector thread. Returns immediately.
+     *
+     * @throws IOException if the port cannot be bound
+     */
+    public synchronized void start() throws IOException {
+        if (loop.get() != null) {
+            return;
+        }
+
+        Selector selector = Selector.open();
+        ServerSocketChannel serverChannel = null;
+        SelectionKey serverKey;
+        try {
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.socket().setReuseAddress(true);
+            serverChannel.socket().bind(new InetSocketAddress(port));
+            serverChannel.configureBlocking(false);
+            serverKey = serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException ex) {
+            closeQuietly(selector, serverChannel);
+            throw ex;
+        }
+
+        ThreadPoolExecutor dispatcher = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(MAX_PENDING_REQUESTS), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread th = new Thread(r);
+                th.setName("HttpEventServer dispatch " + port);
+                return th;
+            }
+        }, new RejectedExecutionHandler() {
+            @Override
+            public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+                // handlers fell behind, block the selector thread so no new requests are read
+                // until the queue drains, without dropping or reordering events
+                if (executor.isShutdown()) {
+                    return;
+                }
+                try {
+                    executor.getQueue().put(r);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+
+        EventLoop started = new EventLoop(selector, serverChannel, serverKey, dispatcher);
+        loop.set(started);
+        started.thread.start();
+    }
+
+    /**
+     * Stops the selector thread and waits for it to close the sockets, so the port can be bound
+     * again right away.
+     */
+    public synchronized void stop() {
+        EventLoop stopping = loop.getAndSet(null);
+        if (stopping != null) {
+            stopping.stop();
+        }
+    }
+
+    private static void closeQuietly(Selector selector, ServerSocketChannel serverChannel) {
+        if (selector != null) {
+            for (SelectionKey key : selector.keys()) {
+                try {
+                    key.channel().close();
+                } catch (IOException ignored) {
+                }
+            }
+            try {
+                selector.close();
+            } catch (IOException ignored) {
+            }
+        }
+        if (serverChannel != null) {
+            try {
+                serverChannel.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private static int indexOf(byte[] data, int from, int to, byte[] pattern) {
+        outer:
+        for (int i = Math.max(from, 0); i <= to - pattern.length; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (data[i + j] != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    /**
+     * The selector thread of one start, with everything it touches, so a loop that is still
+     * winding down after a stop never shares state with the loop of the next start.
+     */
+    private class EventLoop implements Runnable {
+        private final Selector selector;
+        private final ServerSocketChannel serverChannel;
+        private final SelectionKey serverKey;
+        private final ThreadPoolExecutor dispatcher;
+        private final Thread thread;
+        private volatile boolean stopped;
+
+        // only touched from the selector thread
+        private int openConnections;
+        private final SimpleDateFormat dateFormat;
+
+        EventLoop(Selector selector, ServerSocketChannel serverChannel, SelectionKey serverKey,
+                ThreadPoolExecutor dispatcher) {
+            this.selector = selector;
+            this.serverChannel = serverChannel;
+            this.serverKey = serverKey;
+            this.dispatcher = dispatcher;
+
+            thread = new Thread(this);
+            thread.setName("HttpEventServer " + port);
+            thread.setDaemon(true);
+
+            dateFormat = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss z", Locale.US);
+            dateFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
+        }
+
+        void stop() {
+            stopped = true;
+            selector.wakeup();
+            dispatcher.shutdown();
+
+            if (Thread.currentThread() != thread) {
+                try {
+                    thread.join(STOP_TIMEOUT);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            long lastSweep = System.currentTimeMillis();
+
+            try {
+                while (!stopped) {
+                    selector.select(SELECT_TIMEOUT);
+
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+
+                        if (!key.isValid()) {
+                            continue;
+                        }
+
+                        try {
+                            if (key.isAcceptable()) {
+                                accept();
+                            } else {
+                                Connection connection = (Connection) key.attachment();
+                                if (key.isReadable()) {
+                                    connection.onReadable();
+                                }
+                                if (key.isValid() && key.isWritable()) {
+                                    connection.onWritable();
+                                }
+                            }
+                        } catch (IOException ex) {
+                            if (key.attachment() != null) {
+                                ((Connection) key.attachment()).close();
+                            }
+                        }
+                    }
+
+                    long now = System.currentTimeMillis();
+                    if (now - lastSweep > SELECT_TIMEOUT) {
+                        closeIdleConnections(now);
+                        lastSweep = now;
+                    }
+                }
+            } catch (IOException ex) {
+                Log.w(Util.T, "HttpEventServer on port " + port + " stopped", ex);
+                stopped = true;
+                dispatcher.shutdown();
+                loop.compareAndSet(this, null);
+            } finally {
+                closeQuietly(selector, serverChannel);
+            }
+        }
+
+        private void accept() throws IOException {
+            SocketChannel channel;
+            while ((channel = serverChannel.accept()) != null) {
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+                SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+                key.attach(new Connection(this, channel, key));
+
+                if (++openConnections >= MAX_CONNECTIONS) {
+                    // stop accepting until a slot frees up, pending clients wait in the backlog
+                    serverKey.interestOps(0);
+                    break;
+                }
+            }
+        }
+
+        void onConnectionClosed() {
+            openConnections--;
+            if (serverKey.isValid() && openConnections < MAX_CONNECTIONS) {
+                serverKey.interestOps(SelectionKey.OP_ACCEPT);
+            }
+        }
+
+        private void closeIdleConnections(long now) {
+            for (SelectionKey key : selector.keys()) {
+                Object attachment = key.attachment();
+                if (attachment instanceof Connection) {
+                    Connection connection = (Connection) attachment;
+                    if (now - connection.lastActivity > IDLE_TIMEOUT) {
+                        connection.close();
+                    }
+                }
+            }
+        }
+
+        void dispatch(final Request request) {
+            if (dispatcher.isShutdown()) {
+                return;
+            }
+
+            dispatcher.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        handler.onRequest(request);
+                    } catch (RuntimeException ex) {
+                        Log.w(Util.T, "HttpEventServer handler failed", ex);
+                    }
+                }
+            });
+        }
+
+        byte[] buildResponse(int code, String reason, boolean keepAlive) {
+            StringBuilder sb = new StringBuilder(256);
+            sb.append("HTTP/1.1 ").append(code).append(' ').append(reason).append("\r\n");
+            for (Map.Entry<String, String> header : responseHeaders.entrySet()) {
+                sb.append(header.getKey()).append(": ").append(header.getValue()).append("\r\n");
+            }
+            sb.append("Date: ").append(dateFormat.format(Calendar.getInstance().getTime())).append("\r\n");
+            sb.append("Connection: ").append(keepAlive ? "Keep-Alive" : "Close").append("\r\n");
+            sb.append("Content-Length: 0\r\n\r\n");
+
+            try {
+                return sb.toString().getBytes("ISO-8859-1");
+            } catch (UnsupportedEncodingException e) {
+                return sb.toString().getBytes();
+            }
+        }
+    }
+
+    private class Connection {
+        private final EventLoop loop;
+        private final SocketChannel channel;
+        private final SelectionKey key;
+
+        private ByteBuffer in = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+        private ByteBuffer out;
+
+        // offset up to which the buffer has been searched for the end of headers / body
+        private int scanPosition;
+        private int bodyStart = -1;
+        private String method;
+        private String path;
+        private Map<String, String> headers;
+        private int contentLength;
+        private boolean chunked;
+        private boolean keepAlive;
+        private boolean closeAfterWrite;
+        private boolean inputClosed;
+
+        long lastActivity = System.currentTimeMillis();
+        private boolean closed;
+
+        Connection(EventLoop loop, SocketChannel channel, SelectionKey key) {
+            this.loop = loop;
+            this.channel = channel;
+            this.key = key;
+        }
+
+        void onReadable() throws IOException {
+            lastActivity = System.currentTimeMillis();
+
+            if (!in.hasRemaining()) {
+                if (in.capacity() >= MAX_REQUEST_SIZE) {
+                    fail(413, "Request Entity Too Large");
+                    return;
+                }
+                ByteBuffer larger = ByteBuffer.allocate(Math.min(in.capacity() * 2, MAX_REQUEST_SIZE));
+                in.flip();
+                larger.put(in);
+                in = larger;
+            }
+
+            int read = channel.read(in);
+            if (read < 0) {
+                inputClosed = true;
+                key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+            }
+
+            parse();
+        }
+
+        void onWritable() throws IOException {
+            lastActivity = System.currentTimeMillis();
+            channel.write(out);
+            if (out.hasRemaining()) {
+                return;
+            }
+
+            out = null;
+            if (closeAfterWrite) {
+                close();
+                return;
+            }
+
+            key.interestOps(SelectionKey.OP_READ);
+            // a pipelined request may already be buffered
+            parse();
+        }
+
+        private void parse() throws IOException {
+            // answer requests one at a time, the next one is parsed once the response is written
+            while (out == null && !closed && parseRequest()) {
+                // keep going while complete requests are buffered
+            }
+        }
+
+        /**
+         * @return true if a complete request was consumed from the buffer
+         */
+        private boolean parseRequest() throws IOException {
+            byte[] data = in.array();
+            int length = in.position();
+
+            if (bodyStart < 0) {
+                int headerEnd = indexOf(data, scanPosition - (HEADER_END.length - 1), length, HEADER_END);
+                if (headerEnd < 0) {
+                    scanPosition = length;
+                    if (inputClosed) {
+                        close();
+                    }
+                    return false;
+                }
+
+                if (!parseHeaders(data, headerEnd)) {
+                    fail(400, "Bad Request");
+                    return false;
+                }
+                bodyStart = headerEnd + HEADER_END.length;
+                scanPosition = bodyStart;
+            }
+
+            byte[] body;
+            int requestEnd;
+
+            if (contentLength >= 0) {
+                if (contentLength > MAX_REQUEST_SIZE) {
+                    fail(413, "Request Entity Too Large");
+                    return false;
+                }
+                if (length - bodyStart < contentLength) {
+                    if (inputClosed) {
+                        close();
+                    }
+                    return false;
+                }
+                requestEnd = bodyStart + contentLength;
+                body = new byte[contentLength];
+                System.arraycopy(data, bodyStart, body, 0, contentLength);
+            } else if (chunked) {
+                ByteBuffer decoded = ByteBuffer.allocate(length - bodyStart);
+                requestEnd = decodeChunked(data, bodyStart, length, decoded);
+                if (requestEnd < 0) {
+                    if (requestEnd == -2 || inputClosed) {
+                        fail(400, "Bad Request");
+                    }
+                    return false;
+                }
+                body = new byte[decoded.position()];
+                System.arraycopy(decoded.array(), 0, body, 0, body.length);
+            } else if (bodyTerminator != null && !"GET".equals(method)) {
+                int end = indexOf(data, scanPosition - (bodyTerminator.length - 1), length, bodyTerminator);
+                if (end >= 0) {
+                    requestEnd = end + bodyTerminator.length;
+                } else if (inputClosed) {
+                    requestEnd = length;
+                } else {
+                    scanPosition = length;
+                    return false;
+                }
+                body = new byte[requestEnd - bodyStart];
+                System.arraycopy(data, bodyStart, body, 0, body.length);
+                // without a length there is no reliable way to find the next request
+                keepAlive = false;
+            } else {
+                requestEnd = bodyStart;
+                body = new byte[0];
+            }
+
+            Request request = new Request(method, path, headers, body);
+
+            // keep whatever follows this request for the next one
+            int remaining = length - requestEnd;
+            System.arraycopy(data, requestEnd, data, 0, remaining);
+            in.position(remaining);
+            scanPosition = 0;
+            bodyStart = -1;
+
+            loop.dispatch(request);
+            closeAfterWrite = !keepAlive || inputClosed;
+            respond(loop.buildResponse(200, "OK", !closeAfterWrite));
+            return true;
+        }
+
+        private boolean parseHeaders(byte[] data, int headerEnd) {
+            String head;
+            try {
+                head = new String(data, 0, headerEnd, "ISO-8859-1");
+            } catch (UnsupportedEncodingException e) {
+                return false;
+            }
+
+            String[] lines = head.split("\r\n");
+            int first = 0;
+            // tolerate empty lines preceding the request line
+            while (first < lines.length && lines[first].isEmpty()) {
+                first++;
+            }
+            if (first >= lines.length) {
+                return false;
+            }
+
+            String[] requestLine = lines[first].split(" ");
+            if (requestLine.length < 2) {
+                return false;
+            }
+
+            method = requestLine[0].toUpperCase(Locale.US);
+            path = requestLine[1];
+            String version = requestLine.length > 2 ? requestLine[2] : "HTTP/1.0";
+
+            headers = new HashMap<String, String>();
+            for (int i = first + 1; i < lines.length; i++) {
+                int colon = lines[i].indexOf(':');
+                if (colon > 0) {
+                    headers.put(lines[i].substring(0, colon).trim().toLowerCase(Locale.US),
+                            lines[i].substring(colon + 1).trim());
+                }
+            }
+
+            contentLength = -1;
+            String lengthHeader = headers.get("content-length");
+            if (lengthHeader != null) {
+                try {
+                    contentLength = Integer.parseInt(lengthHeader);
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+                if (contentLength < 0) {
+                    return false;
+                }
+            }
+
+            String transferEncoding = headers.get("transfer-encoding");
+            chunked = contentLength < 0 && transferEncoding != null
+                    && transferEncoding.toLowerCase(Locale.US).contains("chunked");
+
+            String connection = headers.get("connection");
+            if (connection != null) {
+                keepAlive = !connection.equalsIgnoreCase("close");
+            } else {
+                keepAlive = version.equalsIgnoreCase("HTTP/1.1");
+            }
+
+            return true;
+        }
+
+        /**
+         * @return the offset right after the last chunk, -1 if more data is needed, -2 if the data
+         * is malformed
+         */
+        private int decodeChunked(byte[] data, int offset, int length, ByteBuffer decoded) {
+            int position = offset;
+            while (true) {
+                int lineEnd = indexOf(data, position, length, CRLF);
+                if (lineEnd < 0) {
+                    return -1;
+                }
+
+                String sizeLine = new String(data, position, lineEnd - position);
+                int extension = sizeLine.indexOf(';');
+                if (extension >= 0) {
+                    sizeLine = sizeLine.substring(0, extension);
+                }
+
+                int size;
+                try {
+                    size = Integer.parseInt(sizeLine.trim(), 16);
+                } catch (NumberFormatException e) {
+                    return -2;
+                }
+                if (size < 0 || size > MAX_REQUEST_SIZE) {
+                    return -2;
+                }
+
+                position = lineEnd + 2;
+                if (size == 0) {
+                    // skip optional trailers up to the terminating empty line
+                    while (true) {
+                        int trailerEnd = indexOf(data, position, length, CRLF);
+                        if (trailerEnd < 0) {
+                            return -1;
+                        }
+                        boolean empty = trailerEnd == position;
+                        position = trailerEnd + 2;
+                        if (empty) {
+                            return position;
+                        }
+                    }
+                }
+
+                if (length - position < size + 2) {
+                    return -1;
+                }
+                decoded.put(data, position, size);
+                position += size + 2;
+            }
+        }
+
+        private void respond(byte[] response) throws IOException {
+            out = ByteBuffer.wrap(response);
+            channel.write(out);
+            if (out.hasRemaining()) {
+                key.interestOps(SelectionKey.OP_WRITE);
+                return;
+            }
+
+            out = null;
+            if (closeAfterWrite) {
+                close();
+            }
+        }
+
+        private void fail(int code, String reason) throws IOException {
+            closeAfterWrite = true;
+            respond(loop.buildResponse(code, reason, false));
+        }
+
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+            loop.onConnectionClosed();
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * HttpLatencyStats
+ * Connect SDK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.connectsdk.etc.helper;
+
+import android.util.Log;
+
+import com.connectsdk.core.Util;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Request latency histograms per service, fed by {@link HttpConnection}.
+ */
+public final class HttpLatencyStats {
+    /**
+     * Upper bounds in milliseconds of the histogram buckets, the last bucket is unbounded.
+     */
+    static final long[] BUCKET_BOUNDS = {10, 25, 50, 100, 250, 500, 1000, 2500, 5000};
+
+    private static final String UNKNOWN = "unknown";
+    private static final ConcurrentHashMap<String, Histogram> histograms = new ConcurrentHashMap<String, Histogram>();
+
+    private HttpLatencyStats() {
+    }
+
+    public static void record(String tag, long millis, boolean failed) {
+        String key = tag == null ? UNKNOWN : tag;
+        Histogram histogram = histograms.get(key);
+        if (histogram == null) {
+            Histogram created = new Histogram(key);
+            histogram = histograms.putIfAbsent(key, created);
+            if (histogram == null) {
+                histogram = created;
+            }
+        }
+        histogram.record(millis, failed);
+    }
+
+    public static Histogram get(String tag) {
+        return histograms.get(tag);
+    }
+
+    public static Map<String, Histogram> getAll() {
+        return Collections.unmodifiableMap(new HashMap<String, Histogram>(histograms));
+    }
+
+    public static void reset() {
+        histograms.clear();
+    }
+
+    public static void log() {
+        for (Histogram histogram : histograms.values()) {
+            Log.d(Util.T, histogram.toString());
+        }
+    }
+
+    public static class Histogram {
+        private final String tag;
+        private final long[] buckets = new long[BUCKET_BOUNDS.length + 1];
+        private long count;
+        private long failures;
+        private long total;
+        private long max;
+
+        Histogram(String tag) {
+            this.tag = tag;
+        }
+
+        synchronized void record(long millis, boolean failed) {
+            int bucket = 0;
+            while (bucket < BUCKET_BOUNDS.length && millis > BUCKET_BOUNDS[bucket]) {
+                bucket++;
+            }
+            buckets[bucket]++;
+            count++;
+            total += millis;
+            if (millis > max) {
+                max = millis;
+            }
+            if (failed) {
+                failures++;
+            }
+        }
+
+        public String getTag() {
+            return tag;
+        }
+
+        public synchronized long getCount() {
+            return count;
+        }
+
+        public synchronized long getFailures() {
+            return failures;
+        }
+
+        public synchronized long getMax() {
+            return max;
+        }
+
+        public synchronized long getMean() {
+            return count == 0 ? 0 : total / count;
+        }
+
+        /**
+         * @return the bucket upper bound below which the given fraction of requests completed, or
+         * the maximum if it falls into the last bucket
+         */
+        public synchronized long getPercentile(double fraction) {
+            if (count == 0) {
+                return 0;
+            }
+            long target = (long) Math.ceil(count * fraction);
+            long seen = 0;
+            for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+                seen += buckets[i];
+                if (seen >= target) {
+                    return Math.min(BUCKET_BOUNDS[i], max);
+                }
+            }
+            return max;
+        }
+
+        public synchronized long[] getBuckets() {
+            return buckets.clone();
+        }
+
+        @Override
+        public synchronized String toString() {
+            return tag + ": n=" + count + " failed=" + failures + " mean=" + getMean() + "ms p50<="
+                    + getPercentile(0.5) + "ms p95<=" + getPercentile(0.95) + "ms max=" + max + "ms";
+        }
+    }
+}
@@ -0,0 +1,311 @@
+/*
+ * InputChannel
+ * Connect SDK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.connectsdk.etc.helper;
+
+import com.connectsdk.core.Util;
+import com.connectsdk.service.capability.listeners.ResponseListener;
+import com.connectsdk.service.command.ServiceCommandError;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ordered remote control input for a single device.
+ *
+ * Pointer moves and scrolls are merged with the previous pending one of the same kind and written
+ * at most once per frame, so a drag produces one frame per display refresh instead of one per
+ * touch event. While the transport reports it is still busy with earlier input, nothing is written
+ * and new motion keeps merging into the pending event, which drops the stale intermediate
+ * positions. Key presses are never merged; they are written one after another on the channel's
+ * own thread, in order with the motion around them. The time from the first event to the write is
+ * recorded in {@link HttpLatencyStats} under the channel's tag.
+ *
+ * If the transport stays busy for longer than the connect timeout, e.g. because its connection
+ * could not be opened, the pending input is dropped, key listeners get an error and further input
+ * is refused until {@link #resume()} is called for a new connection attempt.
+ */
+public class InputChannel {
+
+    public static final long DEFAULT_FRAME_INTERVAL_MS = 16;
+    public static final int MAX_PENDING_KEYS = 32;
+    public static final long DEFAULT_CONNECT_TIMEOUT_MS = 10000;
+
+    public interface Sink {
+        void move(double dx, double dy, boolean drag) throws IOException;
+
+        void scroll(double dx, double dy) throws IOException;
+
+        void key(String key) throws IOException;
+
+        /**
+         * @return true while earlier input has not been written out yet
+         */
+        boolean isBusy();
+    }
+
+    private static final int MOVE = 0;
+    private static final int SCROLL = 1;
+    private static final int KEY = 2;
+
+    private static class Event {
+        final int type;
+        final long time;
+        double dx;
+        double dy;
+        boolean drag;
+        String key;
+        ResponseListener<Object> listener;
+
+        Event(int type) {
+            this.type = type;
+            this.time = System.nanoTime();
+        }
+    }
+
+    private final Sink sink;
+    private final String tag;
+    private final long frameInterval;
+    private final long connectTimeout;
+    private final ScheduledExecutorService executor;
+
+    private final ArrayDeque<Event> queue = new ArrayDeque<Event>();
+    private int pendingKeys;
+    private boolean flushScheduled;
+    private long lastMotionTime;
+    // when the sink was first seen busy with input waiting, 0 while it isn't
+    private long busySince;
+    private boolean stalled;
+    private boolean closed;
+
+    public InputChannel(Sink sink, String tag) {
+        this(sink, tag, DEFAULT_FRAME_INTERVAL_MS);
+    }
+
+    public InputChannel(Sink sink, String tag, long frameInterval) {
+        this(sink, tag, frameInterval, DEFAULT_CONNECT_TIMEOUT_MS);
+    }
+
+    public InputChannel(Sink sink, final String tag, long frameInterval, long connectTimeout) {
+        this.sink = sink;
+        this.tag = tag;
+        this.frameInterval = frameInterval;
+        this.connectTimeout = connectTimeout;
+        this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread th = new Thread(r);
+                th.setName("input " + tag);
+                th.setDaemon(true);
+                return th;
+            }
+        });
+    }
+
+    public void move(double dx, double dy, boolean drag) {
+        addMotion(MOVE, dx, dy, drag);
+    }
+
+    public void scroll(double dx, double dy) {
+        addMotion(SCROLL, dx, dy, false);
+    }
+
+    public void key(String key, ResponseListener<Object> listener) {
+        String reason;
+        synchronized (this) {
+            if (!closed && !stalled && pendingKeys < MAX_PENDING_KEYS) {
+                Event event = new Event(KEY);
+                event.key = key;
+                event.listener = listener;
+                queue.add(event);
+                pendingKeys++;
+                scheduleFlush(0);
+                return;
+            }
+            reason = closed ? "closed" : stalled ? "not connected" : "full";
+        }
+
+        Util.postError(listener, new ServiceCommandError(0, "input channel is " + reason, null));
+    }
+
+    /**
+     * Accepts input again after the connect timeout passed, call it when a new connection is
+     * being opened. The timeout starts over.
+     */
+    public synchronized void resume() {
+        stalled = false;
+        busySince = 0;
+    }
+
+    /**
+     * @return true if input is refused because the connect timeout passed, until {@link #resume()}
+     */
+    public synchronized boolean isStalled() {
+        return stalled;
+    }
+
+    /**
+     * Drops pending input and stops the channel's thread. Pending key listeners get an error.
+     */
+    public void close() {
+        ArrayDeque<Event> dropped;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            dropped = new ArrayDeque<Event>(queue);
+            queue.clear();
+            pendingKeys = 0;
+        }
+
+        executor.shutdown();
+        for (Event event : dropped) {
+            if (event.type == KEY) {
+                Util.postError(event.listener, new ServiceCommandError(0, "input channel is closed", null));
+            }
+        }
+    }
+
+    private synchronized void addMotion(int type, double dx, double dy, boolean drag) {
+        if (closed || stalled) {
+            return;
+        }
+
+        Event last = queue.peekLast();
+        if (last != null && last.type == type && last.drag == drag) {
+            last.dx += dx;
+            last.dy += dy;
+            return;
+        }
+
+        Event event = new Event(type);
+        event.dx = dx;
+        event.dy = dy;
+        event.drag = drag;
+        queue.add(event);
+
+        long sinceLast = (System.nanoTime() - lastMotionTime) / 1000000;
+        scheduleFlush(Math.max(0, frameInterval - sinceLast));
+    }
+
+    // must hold the lock
+    private void scheduleFlush(long delay) {
+        if (flushScheduled || closed || stalled) {
+            return;
+        }
+
+        try {
+            executor.schedule(flush, delay, TimeUnit.MILLISECONDS);
+            flushScheduled = true;
+        } catch (RejectedExecutionException e) {
+            // closed concurrently
+        }
+    }
+
+    private final Runnable flush = new Runnable() {
+        @Override
+        public void run() {
+            while (true) {
+                Event event;
+                synchronized (InputChannel.this) {
+                    flushScheduled = false;
+                    if (queue.isEmpty()) {
+                        return;
+                    }
+                    if (sink.isBusy()) {
+                        long now = System.nanoTime();
+                        if (busySince == 0) {
+                            busySince = now;
+                        }
+                        if ((now - busySince) / 1000000 >= connectTimeout) {
+                            stall();
+                        } else {
+                            scheduleFlush(frameInterval);
+                        }
+                        return;
+                    }
+
+                    busySince = 0;
+                    event = queue.poll();
+                    if (event.type == KEY) {
+                        pendingKeys--;
+                    } else {
+                        lastMotionTime = System.nanoTime();
+                    }
+                }
+
+                write(event);
+
+                if (event.type != KEY) {
+                    // motion is paced to one frame per interval, anything behind it waits too
+                    synchronized (InputChannel.this) {
+                        if (!queue.isEmpty()) {
+                            scheduleFlush(frameInterval);
+                        }
+                    }
+                    return;
+                }
+            }
+        }
+    };
+
+    // must hold the lock, no more flushes are scheduled until resume()
+    private void stall() {
+        stalled = true;
+        busySince = 0;
+        ServiceCommandError error = new ServiceCommandError(0, "input channel did not connect in " + connectTimeout + " ms", null);
+        for (Event event : queue) {
+            if (event.type == KEY) {
+                Util.postError(event.listener, error);
+            }
+            HttpLatencyStats.record(tag, (System.nanoTime() - event.time) / 1000000, true);
+        }
+        queue.clear();
+        pendingKeys = 0;
+    }
+
+    private void write(Event event) {
+        boolean failed = false;
+        try {
+            switch (event.type) {
+                case MOVE:
+                    sink.move(event.dx, event.dy, event.drag);
+                    break;
+                case SCROLL:
+                    sink.scroll(event.dx, event.dy);
+                    break;
+                default:
+                    sink.key(event.key);
+                    Util.postSuccess(event.listener, null);
+                    break;
+            }
+        } catch (Exception e) {
+            failed = true;
+            if (event.type == KEY) {
+                Util.postError(event.listener, new ServiceCommandError(0, e.getMessage(), null));
+            }
+        }
+
+        HttpLatencyStats.record(tag, (System.nanoTime() - event.time) / 1000000, failed);
+    }
+}
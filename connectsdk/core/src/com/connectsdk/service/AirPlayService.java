@@ -36,6 +36,7 @@ import com.connectsdk.service.airplay.PListParser;
 import com.connectsdk.service.capability.CapabilityMethods;
 import com.connectsdk.service.capability.MediaControl;
 import com.connectsdk.service.capability.MediaPlayer;
+import com.connectsdk.service.capability.PlaybackInfoControl;
 import com.connectsdk.service.capability.listeners.ResponseListener;
 import com.connectsdk.service.command.ServiceCommand;
 import com.connectsdk.service.command.ServiceCommandError;
@@ -66,8 +67,9 @@ import java.util.StringTokenizer;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
 
-public class AirPlayService extends DeviceService implements MediaPlayer, MediaControl {
+public class AirPlayService extends DeviceService implements MediaPlayer, MediaControl, PlaybackInfoControl {
     public static final String X_APPLE_SESSION_ID = "X-Apple-Session-ID";
     public static final String ID = "AirPlay";
     public static final String PLAY_STATE = "PlayState";
@@ -81,7 +83,9 @@ public class AirPlayService extends DeviceService implements MediaPlayer, MediaC
 
     private Timer timer, updateTimer;
 
-    private List<URLServiceSubscription<?>> mSubscriptions = new ArrayList<>();
+    private List<URLServiceSubscription<?>> mSubscriptions = new CopyOnWriteArrayList<>();
+    // last play state delivered to subscribers, only changes are posted
+    private volatile PlayStateStatus mLastPlayState;
 
     ServiceCommand pendingCommand = null;
     String authenticate = null;
@@ -324,6 +328,46 @@ public class AirPlayService extends DeviceService implements MediaPlayer, MediaC
         request.send();
     }
 
+    @Override
+    public void getPlaybackInfo(final PlaybackInfoListener listener) {
+        getPlaybackInfo(new ResponseListener<Object>() {
+
+            @Override
+            public void onSuccess(Object object) {
+                try {
+                    JSONObject response = new PListParser().parse(object.toString());
+                    long position = (long) (response.optDouble("position", 0) * 1000);
+                    long duration = (long) (response.optDouble("duration", 0) * 1000);
+
+                    PlayStateStatus playState = PlayStateStatus.Unknown;
+                    if (response.length() > 0) {
+                        if (!response.optBoolean("readyToPlay", true)) {
+                            playState = PlayStateStatus.Buffering;
+                        } else if (!response.has("rate")) {
+                            playState = PlayStateStatus.Finished;
+                        } else {
+                            double rate = response.optDouble("rate", -1);
+                            if (rate == 0) {
+                                playState = PlayStateStatus.Paused;
+                            } else if (rate == 1) {
+                                playState = PlayStateStatus.Playing;
+                            }
+                        }
+                    }
+
+                    Util.postSuccess(listener, new PlaybackInfo(position, duration, playState));
+                } catch (Exception e) {
+                    Util.postError(listener, new ServiceCommandError(500, e.getMessage(), null));
+                }
+            }
+
+            @Override
+            public void onError(ServiceCommandError error) {
+                Util.postError(listener, error);
+            }
+        });
+    }
+
     @Override
     public ServiceSubscription<PlayStateListener> subscribePlayState(
             PlayStateListener listener) {
@@ -536,6 +580,7 @@ public class AirPlayService extends DeviceService implements MediaPlayer, MediaC
                     sb.append(serviceCommand.getTarget());
 
                     HttpConnection connection = HttpConnection.newInstance(URI.create(sb.toString()));
+                    connection.setTag(ID);
                     connection.setHeader(HTTP.USER_AGENT, "ConnectSDK MediaControl/1.0");
                     connection.setHeader(X_APPLE_SESSION_ID, mSessionId);
                     if (password != null) {
@@ -783,6 +828,10 @@ public class AirPlayService extends DeviceService implements MediaPlayer, MediaC
         updateTimer.scheduleAtFixedRate(new TimerTask() {
             @Override
             public void run() {
+                if (!hasPlayStateSubscription()) {
+                    return;
+                }
+
                 getPlaybackInfo(new ResponseListener<Object>() {
                     @Override
                     public void onSuccess(Object object) {
@@ -810,6 +859,11 @@ public class AirPlayService extends DeviceService implements MediaPlayer, MediaC
                                     }
                                 }
 
+                                if (playState == mLastPlayState) {
+                                    return;
+                                }
+                                mLastPlayState = playState;
+
                                 if (mSubscriptions.size() > 0) {
                                     for (URLServiceSubscription<?> subscription : mSubscriptions) {
                                         if (subscription.getTarget().equalsIgnoreCase(PLAY_STATE)) {
@@ -847,6 +901,17 @@ public class AirPlayService extends DeviceService implements MediaPlayer, MediaC
 
     private void addSubscription(URLServiceSubscription<?> subscription) {
         mSubscriptions.add(subscription);
+        // make sure the new subscriber gets the current state
+        mLastPlayState = null;
+    }
+
+    private boolean hasPlayStateSubscription() {
+        for (URLServiceSubscription<?> subscription : mSubscriptions) {
+            if (subscription.getTarget().equalsIgnoreCase(PLAY_STATE)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     @Override
@@ -859,7 +924,7 @@ public class AirPlayService extends DeviceService implements MediaPlayer, MediaC
     }
 
     public void setSubscriptions(List<URLServiceSubscription<?>> subscriptions) {
-        this.mSubscriptions = subscriptions;
+        this.mSubscriptions = new CopyOnWriteArrayList<>(subscriptions);
     }
 
 }
@@ -420,7 +420,9 @@ public class DIALService extends DeviceService implements Launcher {
     }
 
     HttpConnection createHttpConnection(String target) throws IOException {
-        return HttpConnection.newInstance(URI.create(target));
+        HttpConnection connection = HttpConnection.newInstance(URI.create(target));
+        connection.setTag(ID);
+        return connection;
     }
 
     private String requestURL(String appName) {
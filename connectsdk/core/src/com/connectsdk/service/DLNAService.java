@@ -23,7 +23,6 @@ package com.connectsdk.service;
 import android.content.Context;
 import android.text.Html;
 import android.util.Log;
-import android.util.Xml;
 
 import com.connectsdk.core.ImageInfo;
 import com.connectsdk.core.MediaInfo;
@@ -49,16 +48,15 @@ import com.connectsdk.service.sessions.LaunchSession;
 import com.connectsdk.service.sessions.LaunchSession.LaunchSessionType;
 import com.connectsdk.service.upnp.DLNAHttpServer;
 import com.connectsdk.service.upnp.DLNAMediaInfoParser;
+import com.connectsdk.service.upnp.DLNAResponseDecoder;
 
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
-import org.xmlpull.v1.XmlPullParser;
 
 import java.io.IOException;
-import java.io.StringReader;
 import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
 import java.net.MalformedURLException;
@@ -553,9 +551,10 @@ public class DLNAService extends DeviceService implements PlaylistControl, Media
 
             @Override
             public void onGetPositionInfoSuccess(String positionInfoXml) {
-                String strDuration = parseData(positionInfoXml, "TrackDuration");
+                String[] values = parseData(positionInfoXml, "TrackDuration", "TrackMetaData");
+                String strDuration = values[0];
+                String trackMetaData = values[1];
 
-                String trackMetaData = parseData(positionInfoXml, "TrackMetaData");
                 MediaInfo info = DLNAMediaInfoParser.getMediaInfo(trackMetaData);
                 // Check if duration we get not equals 0 or media is image, otherwise wait 1 second and try again
                 if ((!strDuration.equals("0:00:00")) || (info.getMimeType().contains("image"))) {
@@ -822,7 +821,9 @@ public class DLNAService extends DeviceService implements PlaylistControl, Media
     }
 
     HttpConnection createHttpConnection(String targetURL) throws IOException {
-        return HttpConnection.newInstance(URI.create(targetURL));
+        HttpConnection connection = HttpConnection.newInstance(URI.create(targetURL));
+        connection.setTag(ID);
+        return connection;
     }
 
     @Override
@@ -893,26 +894,20 @@ public class DLNAService extends DeviceService implements PlaylistControl, Media
         if (isXmlEncoded(response)) {
             response = Html.fromHtml(response).toString();
         }
-        XmlPullParser parser = Xml.newPullParser();
-        try {
-            parser.setInput(new StringReader(response));
-            int event;
-            boolean isFound = false;
-            do {
-                event = parser.next();
-                if (event == XmlPullParser.START_TAG) {
-                    String tag = parser.getName();
-                    if (key.equals(tag)) {
-                        isFound = true;
-                    }
-                } else if (event == XmlPullParser.TEXT && isFound) {
-                    return parser.getText();
-                }
-            } while (event != XmlPullParser.END_DOCUMENT);
-        } catch (Exception e) {
-            e.printStackTrace();
+        return DLNAResponseDecoder.decode(response, key);
+    }
+
+    String[] parseData(String response, String... keys) {
+        if (isXmlEncoded(response)) {
+            response = Html.fromHtml(response).toString();
+        }
+        String[] values = DLNAResponseDecoder.decode(response, keys);
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == null) {
+                values[i] = "";
+            }
         }
-        return "";
+        return values;
     }
 
     long convertStrTimeFormatToLong(String strTime) {
@@ -1122,6 +1117,7 @@ public class DLNAService extends DeviceService implements PlaylistControl, Media
                         try {
                             HttpConnection connection = HttpConnection.newSubscriptionInstance(
                                     new URI("http", "", serviceDescription.getIpAddress(), serviceDescription.getPort(), eventSubURL, "", ""));
+                            connection.setTag(ID);
                             connection.setMethod(HttpConnection.Method.SUBSCRIBE);
                             connection.setHeader("CALLBACK", "<http://" + myIpAddress + ":" + httpServer.getPort() + eventSubURL + ">");
                             connection.setHeader("NT", "upnp:event");
@@ -1168,6 +1164,7 @@ public class DLNAService extends DeviceService implements PlaylistControl, Media
                                 try {
                                     HttpConnection connection = HttpConnection.newSubscriptionInstance(
                                             new URI("http", "", serviceDescription.getIpAddress(), serviceDescription.getPort(), eventSubURL, "", ""));
+                                    connection.setTag(ID);
                                     connection.setMethod(HttpConnection.Method.SUBSCRIBE);
                                     connection.setHeader("TIMEOUT", "Second-" + TIMEOUT);
                                     connection.setHeader("SID", SID);
@@ -1205,6 +1202,7 @@ public class DLNAService extends DeviceService implements PlaylistControl, Media
                         try {
                             HttpConnection connection = HttpConnection.newSubscriptionInstance(
                                     new URI("http", "", serviceDescription.getIpAddress(), serviceDescription.getPort(), eventSubURL, "", ""));
+                            connection.setTag(ID);
                             connection.setMethod(HttpConnection.Method.UNSUBSCRIBE);
                             connection.setHeader("SID", sid);
                             connection.execute();
@@ -2291,6 +2291,7 @@ public class NetcastTVService extends DeviceService implements Launcher, MediaCo
 
                 try {
                     HttpConnection connection = HttpConnection.newInstance(URI.create(command.getTarget()));
+                    connection.setTag(ID);
                     connection.setHeader(HttpMessage.USER_AGENT, HttpMessage.UDAP_USER_AGENT);
                     connection.setHeader(HttpMessage.CONTENT_TYPE_HEADER, HttpMessage.CONTENT_TYPE_TEXT_XML);
                     if (payload != null && command.getHttpMethod().equalsIgnoreCase(ServiceCommand.TYPE_POST)) {
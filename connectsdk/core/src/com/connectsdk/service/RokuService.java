@@ -33,6 +33,7 @@ import com.connectsdk.discovery.DiscoveryManager;
 import com.connectsdk.etc.helper.DeviceServiceReachability;
 import com.connectsdk.etc.helper.HttpConnection;
 import com.connectsdk.etc.helper.HttpMessage;
+import com.connectsdk.etc.helper.InputChannel;
 import com.connectsdk.service.capability.CapabilityMethods;
 import com.connectsdk.service.capability.KeyControl;
 import com.connectsdk.service.capability.Launcher;
@@ -76,6 +77,8 @@ public class RokuService extends DeviceService implements Launcher, MediaPlayer,
 
     DIALService dialService;
 
+    InputChannel keyInput;
+
     static {
         registeredApps.add("YouTube");
         registeredApps.add("Netflix");
@@ -473,86 +476,37 @@ public class RokuService extends DeviceService implements Launcher, MediaPlayer,
 
     @Override
     public void up(ResponseListener<Object> listener) {
-        String action = "keypress";
-        String param = "Up";
-
-        String uri = requestURL(action, param);
-
-        ServiceCommand<ResponseListener<Object>> request = new ServiceCommand<ResponseListener<Object>>(
-                this, uri, null, listener);
-        request.send();
+        sendKeyPress("Up", listener);
     }
 
     @Override
     public void down(final ResponseListener<Object> listener) {
-        String action = "keypress";
-        String param = "Down";
-
-        String uri = requestURL(action, param);
-
-        ServiceCommand<ResponseListener<Object>> request = new ServiceCommand<ResponseListener<Object>>(
-                this, uri, null, listener);
-        request.send();
+        sendKeyPress("Down", listener);
     }
 
     @Override
     public void left(ResponseListener<Object> listener) {
-        String action = "keypress";
-        String param = "Left";
-
-        String uri = requestURL(action, param);
-
-        ServiceCommand<ResponseListener<Object>> request = new ServiceCommand<ResponseListener<Object>>(
-                this, uri, null, listener);
-        request.send();
+        sendKeyPress("Left", listener);
     }
 
     @Override
     public void right(ResponseListener<Object> listener) {
-        String action = "keypress";
-        String param = "Right";
-
-        String uri = requestURL(action, param);
-
-        ServiceCommand<ResponseListener<Object>> request = new ServiceCommand<ResponseListener<Object>>(
-                this, uri, null, listener);
-        request.send();
+        sendKeyPress("Right", listener);
     }
 
     @Override
     public void ok(final ResponseListener<Object> listener) {
-        String action = "keypress";
-        String param = "Select";
-
-        String uri = requestURL(action, param);
-
-        ServiceCommand<ResponseListener<Object>> request = new ServiceCommand<ResponseListener<Object>>(
-                this, uri, null, listener);
-        request.send();
+        sendKeyPress("Select", listener);
     }
 
     @Override
     public void back(ResponseListener<Object> listener) {
-        String action = "keypress";
-        String param = "Back";
-
-        String uri = requestURL(action, param);
-
-        ServiceCommand<ResponseListener<Object>> request = new ServiceCommand<ResponseListener<Object>>(
-                this, uri, null, listener);
-        request.send();
+        sendKeyPress("Back", listener);
     }
 
     @Override
     public void home(ResponseListener<Object> listener) {
-        String action = "keypress";
-        String param = "Home";
-
-        String uri = requestURL(action, param);
-
-        ServiceCommand<ResponseListener<Object>> request = new ServiceCommand<ResponseListener<Object>>(
-                this, uri, null, listener);
-        request.send();
+        sendKeyPress("Home", listener);
     }
 
     @Override
@@ -567,26 +521,12 @@ public class RokuService extends DeviceService implements Launcher, MediaPlayer,
 
     @Override
     public void play(ResponseListener<Object> listener) {
-        String action = "keypress";
-        String param = "Play";
-
-        String uri = requestURL(action, param);
-
-        ServiceCommand<ResponseListener<Object>> request = new ServiceCommand<ResponseListener<Object>>(
-                this, uri, null, listener);
-        request.send();
+        sendKeyPress("Play", listener);
     }
 
     @Override
     public void pause(ResponseListener<Object> listener) {
-        String action = "keypress";
-        String param = "Play";
-
-        String uri = requestURL(action, param);
-
-        ServiceCommand<ResponseListener<Object>> request = new ServiceCommand<ResponseListener<Object>>(
-                this, uri, null, listener);
-        request.send();
+        sendKeyPress("Play", listener);
     }
 
     @Override
@@ -603,26 +543,12 @@ public class RokuService extends DeviceService implements Launcher, MediaPlayer,
 
     @Override
     public void rewind(ResponseListener<Object> listener) {
-        String action = "keypress";
-        String param = "Rev";
-
-        String uri = requestURL(action, param);
-
-        ServiceCommand<ResponseListener<Object>> request = new ServiceCommand<ResponseListener<Object>>(
-                this, uri, null, listener);
-        request.send();
+        sendKeyPress("Rev", listener);
     }
 
     @Override
     public void fastForward(ResponseListener<Object> listener) {
-        String action = "keypress";
-        String param = "Fwd";
-
-        String uri = requestURL(action, param);
-
-        ServiceCommand<ResponseListener<Object>> request = new ServiceCommand<ResponseListener<Object>>(
-                this, uri, null, listener);
-        request.send();
+        sendKeyPress("Fwd", listener);
     }
 
     @Override
@@ -834,7 +760,6 @@ public class RokuService extends DeviceService implements Launcher, MediaPlayer,
             }
         };
 
-        String action = "keypress";
         String param = null;
         try {
             param = "Lit_" + URLEncoder.encode(input, "UTF-8");
@@ -843,13 +768,9 @@ public class RokuService extends DeviceService implements Launcher, MediaPlayer,
             e.printStackTrace();
         }
 
-        String uri = requestURL(action, param);
-
-        Log.d(Util.T, "RokuService::send() | uri = " + uri);
+        Log.d(Util.T, "RokuService::send() | param = " + param);
 
-        ServiceCommand<ResponseListener<Object>> request = new ServiceCommand<ResponseListener<Object>>(
-                this, uri, null, listener);
-        request.send();
+        sendKeyPress(param, listener);
     }
 
     @Override
@@ -874,14 +795,7 @@ public class RokuService extends DeviceService implements Launcher, MediaPlayer,
             }
         };
 
-        String action = "keypress";
-        String param = "Enter";
-
-        String uri = requestURL(action, param);
-
-        ServiceCommand<ResponseListener<Object>> request = new ServiceCommand<ResponseListener<Object>>(
-                this, uri, null, listener);
-        request.send();
+        sendKeyPress("Enter", listener);
     }
 
     @Override
@@ -901,14 +815,7 @@ public class RokuService extends DeviceService implements Launcher, MediaPlayer,
             }
         };
 
-        String action = "keypress";
-        String param = "Backspace";
-
-        String uri = requestURL(action, param);
-
-        ServiceCommand<ResponseListener<Object>> request = new ServiceCommand<ResponseListener<Object>>(
-                this, uri, null, listener);
-        request.send();
+        sendKeyPress("Backspace", listener);
     }
 
     @Override
@@ -928,6 +835,7 @@ public class RokuService extends DeviceService implements Launcher, MediaPlayer,
                 try {
                     Log.d("", "RESP " + command.getTarget());
                     HttpConnection connection = HttpConnection.newInstance(URI.create(command.getTarget()));
+                    connection.setTag(ID);
                     if (command.getHttpMethod().equalsIgnoreCase(ServiceCommand.TYPE_POST)) {
                         connection.setMethod(HttpConnection.Method.POST);
                         if (payload != null) {
@@ -951,6 +859,48 @@ public class RokuService extends DeviceService implements Launcher, MediaPlayer,
         });
     }
 
+    /**
+     * Key presses are sent one after another from a single thread, so a quick sequence of buttons
+     * or typed characters reaches the device in order and over the same keep-alive connection.
+     */
+    private void sendKeyPress(String key, ResponseListener<Object> listener) {
+        InputChannel channel;
+        synchronized (this) {
+            if (keyInput == null) {
+                keyInput = new InputChannel(new InputChannel.Sink() {
+                    @Override
+                    public void move(double dx, double dy, boolean drag) throws IOException {
+                        throw new IOException("pointer input is not supported");
+                    }
+
+                    @Override
+                    public void scroll(double dx, double dy) throws IOException {
+                        throw new IOException("pointer input is not supported");
+                    }
+
+                    @Override
+                    public void key(String name) throws IOException {
+                        HttpConnection connection = HttpConnection.newInstance(URI.create(requestURL("keypress", name)));
+                        connection.setTag(ID);
+                        connection.setMethod(HttpConnection.Method.POST);
+                        connection.execute();
+                        int code = connection.getResponseCode();
+                        if (code != 200 && code != 201) {
+                            throw new IOException("keypress " + name + " failed: " + code);
+                        }
+                    }
+
+                    @Override
+                    public boolean isBusy() {
+                        return false;
+                    }
+                }, ID + " input");
+            }
+            channel = keyInput;
+        }
+        channel.key(key, listener);
+    }
+
     private String requestURL(String action, String parameter) {
         StringBuilder sb = new StringBuilder();
 
@@ -1072,6 +1022,13 @@ public class RokuService extends DeviceService implements Launcher, MediaPlayer,
     public void disconnect() {
         connected = false;
 
+        synchronized (this) {
+            if (keyInput != null) {
+                keyInput.close();
+                keyInput = null;
+            }
+        }
+
         if (mServiceReachability != null)
             mServiceReachability.stop();
 
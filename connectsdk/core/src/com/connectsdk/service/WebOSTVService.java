@@ -21,6 +21,7 @@
 package com.connectsdk.service;
 
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Enumeration;
@@ -42,6 +43,7 @@ import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
 import android.util.Base64;
 import android.util.Log;
+import android.view.WindowManager;
 
 import com.connectsdk.core.AppInfo;
 import com.connectsdk.core.ChannelInfo;
@@ -55,6 +57,7 @@ import com.connectsdk.device.ConnectableDevice;
 import com.connectsdk.discovery.DiscoveryFilter;
 import com.connectsdk.discovery.DiscoveryManager;
 import com.connectsdk.discovery.DiscoveryManager.PairingLevel;
+import com.connectsdk.etc.helper.InputChannel;
 import com.connectsdk.service.capability.CapabilityMethods;
 import com.connectsdk.service.capability.ExternalInputControl;
 import com.connectsdk.service.capability.KeyControl;
@@ -202,6 +205,8 @@ public class WebOSTVService extends DeviceService implements Launcher, MediaCont
     static final String CLOSE_WEBAPP_URI = "ssap://webapp/closeWebApp";
 
     WebOSTVMouseSocketConnection mouseSocket;
+    boolean mouseSocketPending;
+    InputChannel mouseInput;
 
     WebOSTVKeyboardInput keyboardInput;
 
@@ -1896,6 +1901,11 @@ public class WebOSTVService extends DeviceService implements Launcher, MediaCont
 
     @Override
     public void disconnectMouse() {
+        if (mouseInput != null) {
+            mouseInput.close();
+            mouseInput = null;
+        }
+
         if (mouseSocket == null)
             return;
 
@@ -1904,15 +1914,26 @@ public class WebOSTVService extends DeviceService implements Launcher, MediaCont
     }
 
     private void connectMouse(final WebOSTVMouseSocketConnection.WebOSTVMouseSocketListener successHandler) {
-        if (mouseSocket != null)
+        if (mouseSocket != null && mouseInput != null && mouseInput.isStalled()) {
+            // the socket never opened in time, try a new one
+            mouseSocket.disconnect();
+            mouseSocket = null;
+        }
+
+        if (mouseSocket != null || mouseSocketPending)
             return;
 
+        mouseSocketPending = true;
+        if (mouseInput != null)
+            mouseInput.resume();
+
         String uri = "ssap://com.webos.service.networkinput/getPointerInputSocket";
 
         ResponseListener<Object> listener = new ResponseListener<Object>() {
 
             @Override
             public void onSuccess(Object response) {
+                mouseSocketPending = false;
                 try {
                     JSONObject jsonObj = (JSONObject)response;
                     String socketPath = (String) jsonObj.get("socketPath");
@@ -1924,6 +1945,7 @@ public class WebOSTVService extends DeviceService implements Launcher, MediaCont
 
             @Override
             public void onError(ServiceCommandError error) {
+                mouseSocketPending = false;
                 Log.w(Util.T, "Connect mouse error: " + error.getMessage());
             }
         };
@@ -1932,34 +1954,67 @@ public class WebOSTVService extends DeviceService implements Launcher, MediaCont
         request.send();
     }
 
-    @Override
-    public void click() {
-        if (mouseSocket != null) {
-            mouseSocket.click();
-        }
-        else {
-            connectMouse(new WebOSTVMouseSocketConnection.WebOSTVMouseSocketListener() {
+    /**
+     * Pointer and button input goes through one channel so touchpad drags are coalesced to the
+     * display refresh rate and stay in order with key presses. Input sent before the pointer socket
+     * is open waits in the channel until it is.
+     */
+    private InputChannel getMouseInput() {
+        connectMouse();
+
+        if (mouseInput == null) {
+            mouseInput = new InputChannel(new InputChannel.Sink() {
                 @Override
-                public void onConnected() {
-                    mouseSocket.click();
+                public void move(double dx, double dy, boolean drag) throws IOException {
+                    getMouseSocket().move(dx, dy, drag);
                 }
-            });
+
+                @Override
+                public void scroll(double dx, double dy) throws IOException {
+                    getMouseSocket().scroll(dx, dy);
+                }
+
+                @Override
+                public void key(String key) throws IOException {
+                    getMouseSocket().key(key);
+                }
+
+                @Override
+                public boolean isBusy() {
+                    WebOSTVMouseSocketConnection socket = mouseSocket;
+                    return socket == null || socket.isBusy();
+                }
+            }, ID + " input", getFrameInterval());
         }
+        return mouseInput;
+    }
+
+    private WebOSTVMouseSocketConnection getMouseSocket() throws IOException {
+        WebOSTVMouseSocketConnection socket = mouseSocket;
+        if (socket == null)
+            throw new IOException("pointer socket is not connected");
+        return socket;
+    }
+
+    private long getFrameInterval() {
+        Context context = DiscoveryManager.getInstance().getContext();
+        if (context != null) {
+            WindowManager wm = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
+            float refreshRate = wm.getDefaultDisplay().getRefreshRate();
+            if (refreshRate > 0)
+                return (long) (1000 / refreshRate);
+        }
+        return InputChannel.DEFAULT_FRAME_INTERVAL_MS;
+    }
+
+    @Override
+    public void click() {
+        getMouseInput().key(WebOSTVMouseSocketConnection.CLICK, null);
     }
 
     @Override
     public void move(final double dx, final double dy) {
-        if (mouseSocket != null) {
-            mouseSocket.move(dx, dy);
-        }
-        else {
-            connectMouse(new WebOSTVMouseSocketConnection.WebOSTVMouseSocketListener() {
-                @Override
-                public void onConnected() {
-                    mouseSocket.move(dx, dy);
-                }
-            });
-        }
+        getMouseInput().move(dx, dy, false);
     }
 
     @Override
@@ -1969,17 +2024,7 @@ public class WebOSTVService extends DeviceService implements Launcher, MediaCont
 
     @Override
     public void scroll(final double dx, final double dy) {
-        if (mouseSocket != null) {
-            mouseSocket.scroll(dx, dy);
-        }
-        else {
-            connectMouse(new WebOSTVMouseSocketConnection.WebOSTVMouseSocketListener() {
-                @Override
-                public void onConnected() {
-                    mouseSocket.scroll(dx, dy);
-                }
-            });
-        }
+        getMouseInput().scroll(dx, dy);
     }
 
     @Override
@@ -2108,19 +2153,7 @@ public class WebOSTVService extends DeviceService implements Launcher, MediaCont
     }
 
     private void sendSpecialKey(final String key, final ResponseListener<Object> listener) {
-        if (mouseSocket != null) {
-            mouseSocket.button(key);
-            Util.postSuccess(listener, null);
-        }
-        else {
-            connectMouse(new WebOSTVMouseSocketConnection.WebOSTVMouseSocketListener() {
-                @Override
-                public void onConnected() {
-                    mouseSocket.button(key);
-                    Util.postSuccess(listener, null);
-                }
-            });
-        }
+        getMouseInput().key(key, listener);
     }
 
     @Override
@@ -2145,19 +2178,7 @@ public class WebOSTVService extends DeviceService implements Launcher, MediaCont
 
     @Override
     public void ok(final ResponseListener<Object> listener) {
-        if (mouseSocket != null) {
-            mouseSocket.click();
-            Util.postSuccess(listener, null);
-        }
-        else {
-            connectMouse(new WebOSTVMouseSocketConnection.WebOSTVMouseSocketListener() {
-                @Override
-                public void onConnected() {
-                    mouseSocket.click();
-                    Util.postSuccess(listener, null);
-                }
-            });
-        }
+        getMouseInput().key(WebOSTVMouseSocketConnection.CLICK, listener);
     }
 
     @Override
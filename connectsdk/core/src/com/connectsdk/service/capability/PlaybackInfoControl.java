@@ -0,0 +1,51 @@
+/*
+ * PlaybackInfoControl
+ * Connect SDK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.connectsdk.service.capability;
+
+import com.connectsdk.service.capability.MediaControl.PlayStateStatus;
+import com.connectsdk.service.capability.listeners.ResponseListener;
+
+/**
+ * Implemented by media controls that have no native play state events and emulate
+ * {@link MediaControl#subscribePlayState(MediaControl.PlayStateListener)} by polling the device.
+ * Callers that poll anyway should use {@link #getPlaybackInfo(PlaybackInfoListener)}, which
+ * returns position, duration and play state from a single request, instead of subscribing.
+ */
+public interface PlaybackInfoControl {
+
+    public void getPlaybackInfo(PlaybackInfoListener listener);
+
+    public static class PlaybackInfo {
+        public final long position;
+        public final long duration;
+        public final PlayStateStatus playState;
+
+        public PlaybackInfo(long position, long duration, PlayStateStatus playState) {
+            this.position = position;
+            this.duration = duration;
+            this.playState = playState;
+        }
+    }
+
+    /**
+     * Success block that is called upon successfully getting the playback info.
+     *
+     * Passes a PlaybackInfo with position and duration in milliseconds
+     */
+    public static interface PlaybackInfoListener extends ResponseListener<PlaybackInfo> { }
+}
@@ -20,21 +20,11 @@
 
 package com.connectsdk.service.netcast;
 
-import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
-import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
 import java.io.UnsupportedEncodingException;
-import java.net.ServerSocket;
-import java.net.Socket;
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
 import java.util.List;
-import java.util.Locale;
-import java.util.TimeZone;
 
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
@@ -49,6 +39,7 @@ import android.util.Log;
 import com.connectsdk.core.ChannelInfo;
 import com.connectsdk.core.TextInputStatusInfo;
 import com.connectsdk.core.Util;
+import com.connectsdk.etc.helper.HttpEventServer;
 import com.connectsdk.service.NetcastTVService;
 import com.connectsdk.service.capability.listeners.ResponseListener;
 import com.connectsdk.service.command.URLServiceSubscription;
@@ -57,7 +48,7 @@ public class NetcastHttpServer {
     static final String UDAP_PATH_EVENT = "/udap/api/event";
 
     NetcastTVService service;
-    ServerSocket welcomeSocket;
+    HttpEventServer eventServer;
     ResponseListener<String> textChangedListener;
 
     int port = -1;
@@ -72,211 +63,143 @@ public class NetcastHttpServer {
         this.textChangedListener = textChangedListener;
     }
 
-    public void start() {
-        //TODO: this method is too complex and should be refactored
+    public synchronized void start() {
         if (running)
             return;
 
-        running = true;
+        HttpEventServer server = new HttpEventServer(port, new HttpEventServer.RequestHandler() {
+            @Override
+            public void onRequest(HttpEventServer.Request request) {
+                handleMessage(request.getBodyString());
+            }
+        });
+        server.setBodyTerminator("</envelope>");
+        server.addResponseHeader("Server", "Android/" + android.os.Build.VERSION.RELEASE + " UDAP/2.0 ConnectSDK/1.2.1");
+        server.addResponseHeader("Cache-Control", "no-store, no-cache, must-revalidate");
 
         try {
-            welcomeSocket = new ServerSocket(this.port);
+            server.start();
         } catch (IOException ex) {
             ex.printStackTrace();
+            return;
         }
 
-        while (running) {
-            if (welcomeSocket == null || welcomeSocket.isClosed()) {
-                stop();
-                break;
-            }
+        eventServer = server;
+        running = true;
+    }
 
-            Socket connectionSocket = null;
-            BufferedReader inFromClient = null;
-            DataOutputStream outToClient = null;
+    private void handleMessage(String body) {
+        Log.d(Util.T, "got message body: " + body);
 
-            try {
-                connectionSocket = welcomeSocket.accept();
-            } catch (IOException ex) {
-                ex.printStackTrace();
-                // this socket may have been closed, so we'll stop
-                stop();
-                return;
-            }
+        SAXParserFactory saxParserFactory = SAXParserFactory.newInstance();
+        InputStream stream = null;
 
-            String str = null;
-            int c;
-            StringBuilder sb = new StringBuilder();
+        try {
+            stream = new ByteArrayInputStream(body.getBytes("UTF-8"));
+        } catch (UnsupportedEncodingException ex) {
+            ex.printStackTrace();
+            return;
+        }
 
-            try {
-                inFromClient = new BufferedReader(new InputStreamReader(connectionSocket.getInputStream()));
+        NetcastPOSTRequestParser handler = new NetcastPOSTRequestParser();
 
-                while ((str = inFromClient.readLine()) != null) {
-                    if (str.equals("")) {
-                        break;
-                    }
-                }
+        SAXParser saxParser;
+        try {
+            saxParser = saxParserFactory.newSAXParser();
+            saxParser.parse(stream, handler);
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        } catch (ParserConfigurationException e) {
+            e.printStackTrace();
+        } catch (SAXException e) {
+            e.printStackTrace();
+        }
 
-                while ((c = inFromClient.read()) != -1) {
-                    sb.append((char)c);
-                    String temp = sb.toString();
+        if (body.contains("ChannelChanged")) {
+            ChannelInfo channel = NetcastChannelParser.parseRawChannelData(handler.getJSONObject());
 
-                    if (temp.endsWith("</envelope>"))
-                        break;
+            Log.d(Util.T, "Channel Changed: " + channel.getNumber());
+
+            for (URLServiceSubscription<?> sub: subscriptions) {
+                if (sub.getTarget().equalsIgnoreCase("ChannelChanged")) {
+                    for (int i = 0; i < sub.getListeners().size(); i++) {
+                        @SuppressWarnings("unchecked")
+                        ResponseListener<Object> listener = (ResponseListener<Object>) sub.getListeners().get(i);
+                        Util.postSuccess(listener, channel);
+                    }
                 }
-            } catch (IOException ex) {
-                ex.printStackTrace();
             }
+        }
+        else if (body.contains("KeyboardVisible")) {
+            boolean focused = false;
 
-            String body = sb.toString();
-
-            Log.d(Util.T, "got message body: " + body);
-
-            Calendar calendar = Calendar.getInstance();
-            SimpleDateFormat dateFormat = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss z", Locale.US);
-            dateFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
-            String date = dateFormat.format(calendar.getTime());
-            String androidOSVersion = android.os.Build.VERSION.RELEASE;
-
-            PrintWriter out = null;
+            TextInputStatusInfo keyboard = new TextInputStatusInfo();
+            keyboard.setRawData(handler.getJSONObject());
 
             try {
-                outToClient = new DataOutputStream(connectionSocket.getOutputStream());
-                out = new PrintWriter(outToClient);
-                out.println("HTTP/1.1 200 OK");
-                out.println("Server: Android/" + androidOSVersion + " UDAP/2.0 ConnectSDK/1.2.1");
-                out.println("Cache-Control: no-store, no-cache, must-revalidate");
-                out.println("Date: " + date);
-                out.println("Connection: Close");
-                out.println("Content-Length: 0");
-                out.println();
-                out.flush();
-            } catch (IOException ex) {
-                ex.printStackTrace();
-            } finally {
-                try {
-                    inFromClient.close();
-                    out.close();
-                    outToClient.close();
-                    connectionSocket.close();
-                } catch (IOException ex) {
-                    ex.printStackTrace();
-                }
+                JSONObject currentWidget = (JSONObject) handler.getJSONObject().get("currentWidget");
+                focused = (Boolean) currentWidget.get("focus");
+                keyboard.setFocused(focused);
+            } catch (JSONException e) {
+                e.printStackTrace();
             }
 
-            SAXParserFactory saxParserFactory = SAXParserFactory.newInstance();
-            InputStream stream = null;
+            Log.d(Util.T, "KeyboardFocused?: " + focused);
 
-            try {
-                stream = new ByteArrayInputStream(body.getBytes("UTF-8"));
-            } catch (UnsupportedEncodingException ex) {
-                ex.printStackTrace();
+            for (URLServiceSubscription<?> sub: subscriptions) {
+                if (sub.getTarget().equalsIgnoreCase("KeyboardVisible")) {
+                    for (int i = 0; i < sub.getListeners().size(); i++) {
+                        @SuppressWarnings("unchecked")
+                        ResponseListener<Object> listener = (ResponseListener<Object>) sub.getListeners().get(i);
+                        Util.postSuccess(listener, keyboard);
+                    }
+                }
             }
+        }
+        else if (body.contains("TextEdited")) {
+            System.out.println("TextEdited");
 
-            NetcastPOSTRequestParser handler = new NetcastPOSTRequestParser();
+            String newValue = "";
 
-            SAXParser saxParser;
             try {
-                saxParser = saxParserFactory.newSAXParser();
-                saxParser.parse(stream, handler);
-            } catch (IOException ex) {
+                newValue = handler.getJSONObject().getString("value");
+            } catch (JSONException ex) {
                 ex.printStackTrace();
-            } catch (ParserConfigurationException e) {
-                e.printStackTrace();
-            } catch (SAXException e) {
-                e.printStackTrace();
             }
 
-            if (body.contains("ChannelChanged")) {
-                ChannelInfo channel = NetcastChannelParser.parseRawChannelData(handler.getJSONObject());
-
-                Log.d(Util.T, "Channel Changed: " + channel.getNumber());
-
-                for (URLServiceSubscription<?> sub: subscriptions) {
-                    if (sub.getTarget().equalsIgnoreCase("ChannelChanged")) {
-                        for (int i = 0; i < sub.getListeners().size(); i++) {
-                            @SuppressWarnings("unchecked")
-                            ResponseListener<Object> listener = (ResponseListener<Object>) sub.getListeners().get(i);
-                            Util.postSuccess(listener, channel);
-                        }
-                    }
-                }
-            }
-            else if (body.contains("KeyboardVisible")) {
-                boolean focused = false;
-
-                TextInputStatusInfo keyboard = new TextInputStatusInfo();
-                keyboard.setRawData(handler.getJSONObject());
-
-                try {
-                    JSONObject currentWidget = (JSONObject) handler.getJSONObject().get("currentWidget");
-                    focused = (Boolean) currentWidget.get("focus");
-                    keyboard.setFocused(focused);
-                } catch (JSONException e) {
-                    e.printStackTrace();
-                }
+            Util.postSuccess(textChangedListener, newValue);
+        }
+        else if (body.contains("3DMode")) {
+            try {
+                String enabled = (String) handler.getJSONObject().get("value");
+                boolean bEnabled;
 
-                Log.d(Util.T, "KeyboardFocused?: " + focused);
+                bEnabled = enabled.equalsIgnoreCase("true");
 
                 for (URLServiceSubscription<?> sub: subscriptions) {
-                    if (sub.getTarget().equalsIgnoreCase("KeyboardVisible")) {
+                    if (sub.getTarget().equalsIgnoreCase("3DMode")) {
                         for (int i = 0; i < sub.getListeners().size(); i++) {
                             @SuppressWarnings("unchecked")
                             ResponseListener<Object> listener = (ResponseListener<Object>) sub.getListeners().get(i);
-                            Util.postSuccess(listener, keyboard);
+                            Util.postSuccess(listener, bEnabled);
                         }
                     }
                 }
-            }
-            else if (body.contains("TextEdited")) {
-                System.out.println("TextEdited");
-
-                String newValue = "";
-
-                try {
-                    newValue = handler.getJSONObject().getString("value");
-                } catch (JSONException ex) {
-                    ex.printStackTrace();
-                }
-
-                Util.postSuccess(textChangedListener, newValue);
-            }
-            else if (body.contains("3DMode")) {
-                try {
-                    String enabled = (String) handler.getJSONObject().get("value");
-                    boolean bEnabled;
-
-                    bEnabled = enabled.equalsIgnoreCase("true");
-
-                    for (URLServiceSubscription<?> sub: subscriptions) {
-                        if (sub.getTarget().equalsIgnoreCase("3DMode")) {
-                            for (int i = 0; i < sub.getListeners().size(); i++) {
-                                @SuppressWarnings("unchecked")
-                                ResponseListener<Object> listener = (ResponseListener<Object>) sub.getListeners().get(i);
-                                Util.postSuccess(listener, bEnabled);
-                            }
-                        }
-                    }
-                } catch (JSONException e) {
-                    e.printStackTrace();
-                }
+            } catch (JSONException e) {
+                e.printStackTrace();
             }
         }
     }
 
-    public void stop() {
+    public synchronized void stop() {
         if (!running)
             return;
 
-        if (welcomeSocket != null && !welcomeSocket.isClosed()) {
-            try {
-                welcomeSocket.close();
-            } catch (IOException ex) {
-                ex.printStackTrace();
-            }
+        if (eventServer != null) {
+            eventServer.stop();
         }
 
-        welcomeSocket = null;
+        eventServer = null;
         running = false;
     }
 
@@ -2,6 +2,7 @@ package com.connectsdk.service.upnp;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.StringReader;
 
 import org.json.JSONArray;
 import org.json.JSONException;
@@ -9,15 +10,12 @@ import org.json.JSONObject;
 import org.xmlpull.v1.XmlPullParser;
 import org.xmlpull.v1.XmlPullParserException;
 
-import android.util.Xml;
-
 public class DLNAEventParser {
     private static final String ns = null;
 
     public JSONObject parse(InputStream in) throws XmlPullParserException, IOException, JSONException {
         try {
-            XmlPullParser parser = Xml.newPullParser();
-            parser.setFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES, false);
+            XmlPullParser parser = DLNAResponseDecoder.obtainParser();
             parser.setInput(in, null);
             parser.nextTag();
             return readEvent(parser);
@@ -26,6 +24,13 @@ public class DLNAEventParser {
         }
     }
 
+    public JSONObject parse(String event) throws XmlPullParserException, IOException, JSONException {
+        XmlPullParser parser = DLNAResponseDecoder.obtainParser();
+        parser.setInput(new StringReader(event));
+        parser.nextTag();
+        return readEvent(parser);
+    }
+
     private JSONObject readEvent(XmlPullParser parser) throws IOException, XmlPullParserException, JSONException {
         JSONObject event = new JSONObject();
 
@@ -2,6 +2,7 @@ package com.connectsdk.service.upnp;
 
 import com.connectsdk.core.MediaInfo;
 import com.connectsdk.core.Util;
+import com.connectsdk.etc.helper.HttpEventServer;
 import com.connectsdk.service.capability.MediaControl.PlayStateStatus;
 import com.connectsdk.service.capability.listeners.ResponseListener;
 import com.connectsdk.service.command.URLServiceSubscription;
@@ -11,23 +12,16 @@ import org.json.JSONException;
 import org.json.JSONObject;
 import org.xmlpull.v1.XmlPullParserException;
 
-import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
-import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
-import java.io.UnsupportedEncodingException;
-import java.net.ServerSocket;
-import java.net.Socket;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 public class DLNAHttpServer {
     private static final int port = 49291;
 
-    volatile ServerSocket welcomeSocket;
+    volatile HttpEventServer eventServer;
 
     volatile boolean running = false;
 
@@ -42,21 +36,24 @@ public class DLNAHttpServer {
             return;
         }
 
-        running = true;
+        HttpEventServer server = new HttpEventServer(port, new HttpEventServer.RequestHandler() {
+            @Override
+            public void onRequest(HttpEventServer.Request request) {
+                handleNotify(request.getBody());
+            }
+        });
+        // some renderers omit Content-Length on NOTIFY
+        server.setBodyTerminator("</e:propertyset>");
 
         try {
-            welcomeSocket = new ServerSocket(this.port);
+            server.start();
         } catch (IOException ex) {
             ex.printStackTrace();
             return;
         }
 
-        Util.runInBackground(new Runnable() {
-            @Override
-            public void run() {
-                processRequests();
-            }
-        }, true);
+        eventServer = server;
+        running = true;
     }
 
     public synchronized void stop() {
@@ -69,121 +66,40 @@ public class DLNAHttpServer {
         }
         subscriptions.clear();
 
-        if (welcomeSocket != null && !welcomeSocket.isClosed()) {
-            try {
-                welcomeSocket.close();
-            } catch (IOException ex) {
-                ex.printStackTrace();
-            }
+        if (eventServer != null) {
+            eventServer.stop();
         }
 
-        welcomeSocket = null;
+        eventServer = null;
         running = false;
     }
 
-    private void processRequests() {
-        while (running) {
-            if (welcomeSocket == null || welcomeSocket.isClosed()) {
-                break;
-            }
-
-            Socket connectionSocket = null;
-            BufferedReader inFromClient = null;
-            DataOutputStream outToClient = null;
-
-            try {
-                connectionSocket = welcomeSocket.accept();
-            } catch (IOException ex) {
-                ex.printStackTrace();
-                // this socket may have been closed, so we'll stop
-                break;
-            }
-
-            int c = 0;
-
-            String body = null;
-
-            try {
-                inFromClient = new BufferedReader(new InputStreamReader(connectionSocket.getInputStream()));
-
-                StringBuilder sb = new StringBuilder();
-
-                while ((c = inFromClient.read()) != -1) {
-                    sb.append((char)c);
-
-                    if (sb.toString().endsWith("\r\n\r\n"))
-                        break;
-                }
-                sb = new StringBuilder();
-
-                while ((c = inFromClient.read()) != -1) {
-                    sb.append((char)c);
-                    body = sb.toString();
-
-                    if (body.endsWith("</e:propertyset>"))
-                        break;
-                }
-            } catch (IOException ex) {
-                ex.printStackTrace();
-            }
-
-            PrintWriter out = null;
-
-            try {
-                outToClient = new DataOutputStream(connectionSocket.getOutputStream());
-                out = new PrintWriter(outToClient);
-                out.println("HTTP/1.1 200 OK");
-                out.println("Connection: Close");
-                out.println("Content-Length: 0");
-                out.println();
-                out.flush();
-            } catch (IOException ex) {
-                ex.printStackTrace();
-            } finally {
-                try {
-                    inFromClient.close();
-                    out.close();
-                    outToClient.close();
-                    connectionSocket.close();
-                } catch (IOException ex) {
-                    ex.printStackTrace();
-                } catch (NullPointerException ex) {
-                    ex.printStackTrace();
-                }
-            }
-
-            if (body == null)
-                continue;
+    private void handleNotify(byte[] body) {
+        if (body == null || body.length == 0)
+            return;
 
-            InputStream stream = null;
+        InputStream stream = new ByteArrayInputStream(body);
 
-            try {
-                stream = new ByteArrayInputStream(body.getBytes("UTF-8"));
-            } catch (UnsupportedEncodingException ex) {
-                ex.printStackTrace();
-            }
+        JSONArray propertySet;
+        DLNANotifyParser parser = new DLNANotifyParser();
 
-            JSONArray propertySet;
-            DLNANotifyParser parser = new DLNANotifyParser();
-
-            try {
-                propertySet = parser.parse(stream);
+        try {
+            propertySet = parser.parse(stream);
 
-                for (int i = 0; i < propertySet.length(); i++) {
-                    JSONObject property = propertySet.getJSONObject(i);
+            for (int i = 0; i < propertySet.length(); i++) {
+                JSONObject property = propertySet.getJSONObject(i);
 
-                    if (property.has("LastChange")) {
-                        JSONObject lastChange = property.getJSONObject("LastChange");
-                        handleLastChange(lastChange);
-                    }
+                if (property.has("LastChange")) {
+                    JSONObject lastChange = property.getJSONObject("LastChange");
+                    handleLastChange(lastChange);
                 }
-            } catch (XmlPullParserException e) {
-                e.printStackTrace();
-            } catch (IOException e) {
-                e.printStackTrace();
-            } catch (JSONException e) {
-                e.printStackTrace();
             }
+        } catch (XmlPullParserException e) {
+            e.printStackTrace();
+        } catch (IOException e) {
+            e.printStackTrace();
+        } catch (JSONException e) {
+            e.printStackTrace();
         }
     }
 
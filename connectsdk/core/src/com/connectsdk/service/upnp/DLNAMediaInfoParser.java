@@ -1,15 +1,8 @@
 package com.connectsdk.service.upnp;
 
-import android.util.Xml;
-
 import com.connectsdk.core.ImageInfo;
 import com.connectsdk.core.MediaInfo;
 
-import org.xmlpull.v1.XmlPullParser;
-import org.xmlpull.v1.XmlPullParserException;
-
-import java.io.IOException;
-import java.io.StringReader;
 import java.net.URL;
 import java.util.ArrayList;
 
@@ -27,50 +20,44 @@ public class DLNAMediaInfoParser {
     private static final String RADIOTITLE = "r:streamContent";
 
     private static String getData(String str, String data) {
-        if (str.contains(toEndTag(data))) {
-            int startInd = str.indexOf(toStartTag(data))
-                    + toStartTag(data).length();
-            int endInd = str.indexOf(toEndTag(data));
-            return (toString(str.substring(startInd, endInd)));
-        }
-
-        if (str.contains(LT)) return "";
-
-        XmlPullParser parser = Xml.newPullParser();
+        return getData(str, new String[] {data})[0];
+    }
 
-        try {
-            parser.setFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES, false);
-            parser.setInput(new StringReader(str));
-
-            int eventType = parser.nextTag();
-            while (eventType != XmlPullParser.END_DOCUMENT) {
-                if (eventType == XmlPullParser.START_TAG) {
-                    String name = parser.getName();
-                    if (name.equals(data)) {
-                        eventType = parser.next();
-                        if (eventType == XmlPullParser.TEXT)
-                            return parser.getText();
-                    }
+    /**
+     * Reads several elements at once so the metadata is parsed only once, not once per field.
+     */
+    private static String[] getData(String str, String... keys) {
+        String[] values = new String[keys.length];
+
+        if (str.contains(LT)) {
+            // escaped metadata is not parsed, only the plain tags can be cut out of it
+            for (int i = 0; i < keys.length; i++) {
+                values[i] = "";
+                if (str.contains(toEndTag(keys[i]))) {
+                    int startInd = str.indexOf(toStartTag(keys[i]))
+                            + toStartTag(keys[i]).length();
+                    int endInd = str.indexOf(toEndTag(keys[i]));
+                    values[i] = toString(str.substring(startInd, endInd));
                 }
-                eventType = parser.next();
             }
-        } catch (XmlPullParserException e) {
-            e.printStackTrace();
-        } catch (IOException e) {
-            e.printStackTrace();
+            return values;
         }
 
-        return "";
+        String[] decoded = DLNAResponseDecoder.decode(str, keys);
+        for (int i = 0; i < keys.length; i++) {
+            values[i] = decoded[i] == null ? "" : decoded[i];
+        }
+        return values;
     }
 
     public static MediaInfo getMediaInfo(String str) {
+        String[] data = getData(str, RADIOTITLE, TITLE, CREATOR, ALBUM, THUMBNAIL, "res");
 
-        String url = DLNAMediaInfoParser.getURL(str);
-        String title = DLNAMediaInfoParser.getTitle(str);
+        String url = getURL(str, data[5]);
+        String title = !data[0].equals("") ? data[0] : data[1];
         String mimeType = DLNAMediaInfoParser.getMimeType(str);
-        String description =  DLNAMediaInfoParser.getArtist(str) + "\n" + 
-                DLNAMediaInfoParser.getAlbum(str);
-        String iconUrl = DLNAMediaInfoParser.getThumbnail(str);
+        String description = data[2] + "\n" + data[3];
+        String iconUrl = decodeThumbnail(data[4]);
 
         ArrayList<ImageInfo> list = new ArrayList<ImageInfo>();
         list.add(new ImageInfo(iconUrl));
@@ -78,12 +65,8 @@ public class DLNAMediaInfoParser {
     }
 
     public static MediaInfo getMediaInfo(String str, String baseUrl) {
-        String url = DLNAMediaInfoParser.getURL(str);
-        String title = DLNAMediaInfoParser.getTitle(str);
-        String mimeType = DLNAMediaInfoParser.getMimeType(str);
-        String description =  DLNAMediaInfoParser.getArtist(str) + "\n" +
-                DLNAMediaInfoParser.getAlbum(str);
-        String iconUrl = DLNAMediaInfoParser.getThumbnail(str);
+        MediaInfo info = getMediaInfo(str);
+        String iconUrl = info.getImages().get(0).getUrl();
 
         try {
             new URL(iconUrl).openConnection().connect();
@@ -93,7 +76,7 @@ public class DLNAMediaInfoParser {
 
         ArrayList<ImageInfo> list = new ArrayList<ImageInfo>();
         list.add(new ImageInfo(iconUrl));
-        return new MediaInfo(url, mimeType, title, description, list);
+        return new MediaInfo(info.getUrl(), info.getMimeType(), info.getTitle(), info.getDescription(), list);
     }
 
     public static String getTitle(String str) {
@@ -113,11 +96,13 @@ public class DLNAMediaInfoParser {
         return getData(str, GENRE);
     }
 
-    @SuppressWarnings("deprecation")
     public static String getThumbnail(String str) {
-        String res = getData(str, THUMBNAIL);
-        res = java.net.URLDecoder.decode(res);
-        return res;
+        return decodeThumbnail(getData(str, THUMBNAIL));
+    }
+
+    @SuppressWarnings("deprecation")
+    private static String decodeThumbnail(String res) {
+        return java.net.URLDecoder.decode(res);
     }
 
     public static String getMimeType(String str) {
@@ -129,8 +114,15 @@ public class DLNAMediaInfoParser {
         return "";
     }
 
-    @SuppressWarnings("deprecation")
     public static String getURL(String str) {
+        return getURL(str, null);
+    }
+
+    /**
+     * @param res the already extracted "res" element of unescaped metadata, or null
+     */
+    @SuppressWarnings("deprecation")
+    private static String getURL(String str, String res) {
         if (str.contains(LT)){
             if (str.contains(toEndTag("res"))) {
                 int startInd = str.substring(str.indexOf(LT + "res")).indexOf(GT)
@@ -140,7 +132,7 @@ public class DLNAMediaInfoParser {
             }
             return "";
         }
-        else return getData(str, "res");
+        else return res != null ? res : getData(str, "res");
     }
 
     private static String toStartTag(String str) {
@@ -1,9 +1,7 @@
 package com.connectsdk.service.upnp;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.UnsupportedEncodingException;
 
 import org.json.JSONArray;
 import org.json.JSONException;
@@ -11,21 +9,31 @@ import org.json.JSONObject;
 import org.xmlpull.v1.XmlPullParser;
 import org.xmlpull.v1.XmlPullParserException;
 
-import android.util.Xml;
-
 public class DLNANotifyParser {
     private static final String ns = null;
 
     public JSONArray parse(InputStream in) throws XmlPullParserException, IOException, JSONException {
+        JSONArray propertySet;
         try {
-            XmlPullParser parser = Xml.newPullParser();
-            parser.setFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES, false);
+            XmlPullParser parser = DLNAResponseDecoder.obtainParser();
             parser.setInput(in, null);
             parser.nextTag();
-            return readPropertySet(parser);
+            propertySet = readPropertySet(parser);
         } finally {
             in.close();
         }
+
+        // LastChange carries an escaped event document, it is parsed once the outer document is
+        // done so the same cached parser can be reused for it
+        DLNAEventParser eventParser = new DLNAEventParser();
+        for (int i = 0; i < propertySet.length(); i++) {
+            JSONObject property = propertySet.getJSONObject(i);
+            Object lastChange = property.opt("LastChange");
+            if (lastChange instanceof String) {
+                property.put("LastChange", eventParser.parse((String) lastChange));
+            }
+        }
+        return propertySet;
     }
 
     private JSONArray readPropertySet(XmlPullParser parser) throws IOException, XmlPullParserException, JSONException {
@@ -57,21 +65,7 @@ public class DLNANotifyParser {
             }
             String name = parser.getName();
             if (name.equals("LastChange")) {
-                String eventStr = readText(parser);
-
-                JSONObject event;
-                InputStream stream = null;
-
-                try {
-                    stream = new ByteArrayInputStream(eventStr.getBytes("UTF-8"));
-                } catch (UnsupportedEncodingException ex) {
-                    ex.printStackTrace();
-                }
-
-                DLNAEventParser eventParser = new DLNAEventParser();
-
-                event = eventParser.parse(stream);
-                property.put("LastChange", event);
+                property.put("LastChange", readText(parser));
             }
             else {
                 property = readPropertyData(name, parser);
@@ -0,0 +1,102 @@
+package com.connectsdk.service.upnp;
+
+import android.util.Xml;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+/**
+ * Extracts the text of a few named elements from SOAP responses and event XML in a single
+ * forward pass, stopping as soon as every requested element has been seen. Pull parser instances
+ * are cached per thread and reused between calls.
+ */
+public final class DLNAResponseDecoder {
+
+    private static final ThreadLocal<XmlPullParser> parsers = new ThreadLocal<XmlPullParser>() {
+        @Override
+        protected XmlPullParser initialValue() {
+            return Xml.newPullParser();
+        }
+    };
+
+    private DLNAResponseDecoder() {
+    }
+
+    /**
+     * @return this thread's parser with namespace processing disabled. It must not be used again
+     * on the same thread until the caller is done with it.
+     */
+    static XmlPullParser obtainParser() throws XmlPullParserException {
+        XmlPullParser parser = parsers.get();
+        parser.setFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES, false);
+        return parser;
+    }
+
+    /**
+     * @return the text of the first element named {@code key}, or "" if there is none
+     */
+    public static String decode(String xml, String key) {
+        String[] values = decode(xml, new String[] {key});
+        return values[0] == null ? "" : values[0];
+    }
+
+    /**
+     * @return the text of the first element with each of the given names, in the same order as
+     * {@code keys}. Entries are null for elements that were not found.
+     */
+    public static String[] decode(String xml, String... keys) {
+        String[] values = new String[keys.length];
+        if (xml == null || xml.isEmpty()) {
+            return values;
+        }
+
+        int remaining = keys.length;
+        try {
+            XmlPullParser parser = obtainParser();
+            parser.setInput(new StringReader(xml));
+
+            int event = parser.getEventType();
+            while (event != XmlPullParser.END_DOCUMENT && remaining > 0) {
+                if (event == XmlPullParser.START_TAG) {
+                    int index = indexOf(keys, parser.getName());
+                    if (index >= 0 && values[index] == null) {
+                        values[index] = readText(parser);
+                        remaining--;
+                        event = parser.getEventType();
+                        continue;
+                    }
+                }
+                event = parser.next();
+            }
+        } catch (XmlPullParserException e) {
+            e.printStackTrace();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return values;
+    }
+
+    private static int indexOf(String[] keys, String name) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Reads the text content of the current start tag, leaving the parser on the following event.
+     */
+    private static String readText(XmlPullParser parser) throws IOException, XmlPullParserException {
+        String text = "";
+        if (parser.next() == XmlPullParser.TEXT) {
+            text = parser.getText();
+            parser.next();
+        }
+        return text;
+    }
+}
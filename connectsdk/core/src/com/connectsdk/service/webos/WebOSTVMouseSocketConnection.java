@@ -20,6 +20,7 @@
 
 package com.connectsdk.service.webos;
 
+import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 
@@ -29,7 +30,11 @@ import org.java_websocket.handshake.ServerHandshake;
 
 import android.util.Log;
 
-public class WebOSTVMouseSocketConnection {
+import com.connectsdk.etc.helper.InputChannel;
+
+public class WebOSTVMouseSocketConnection implements InputChannel.Sink {
+    public static final String CLICK = "click";
+
     public interface WebOSTVMouseSocketListener {
         void onConnected();
     }
@@ -38,6 +43,9 @@ public class WebOSTVMouseSocketConnection {
     String socketPath;
     WebOSTVMouseSocketListener listener;
 
+    // reused for every pointer frame, guarded by this
+    private final StringBuilder frame = new StringBuilder(64);
+
     public enum ButtonType {
         HOME,
         BACK,
@@ -115,6 +123,13 @@ public class WebOSTVMouseSocketConnection {
         return (ws != null) && (ws.getReadyState() == READYSTATE.OPEN);
     }
 
+    @Override
+    public boolean isBusy() {
+        WebSocketClient client = ws;
+        return client == null || client.getReadyState() != READYSTATE.OPEN
+                || client.getConnection().hasBufferedData();
+    }
+
     public void click() {
         if (isConnected()) {
             ws.send("type:click\n" + "\n");
@@ -157,21 +172,45 @@ public class WebOSTVMouseSocketConnection {
         }
     }
 
+    /**
+     * Sends a button press, or a click for {@link #CLICK}.
+     */
+    @Override
+    public void key(String key) throws IOException {
+        checkConnected();
+        if (CLICK.equals(key)) {
+            click();
+        } else {
+            button(key);
+        }
+    }
+
     public void move(double dx, double dy) {
+        move(dx, dy, false);
+    }
+
+    @Override
+    public synchronized void move(double dx, double dy, boolean drag) {
         if (isConnected()) {
-            ws.send("type:move\n" + "dx:" + dx + "\n" + "dy:" + dy + "\n" + "down:0\n" + "\n");
+            frame.setLength(0);
+            frame.append("type:move\ndx:").append(dx).append("\ndy:").append(dy)
+                    .append("\ndown:").append(drag ? 1 : 0).append("\n\n");
+            ws.send(frame.toString());
         }
     }
 
-    public void move(double dx, double dy, boolean drag) {
+    @Override
+    public synchronized void scroll(double dx, double dy) {
         if (isConnected()) {
-            ws.send("type:move\n" + "dx:" + dx + "\n" + "dy:" + dy + "\n" + "down:" + (drag ? 1 : 0) + "\n" + "\n");
+            frame.setLength(0);
+            frame.append("type:scroll\ndx:").append(dx).append("\ndy:").append(dy).append("\n\n");
+            ws.send(frame.toString());
         }
     }
 
-    public void scroll(double dx, double dy) {
-        if (isConnected()) {
-            ws.send("type:scroll\n" + "dx:" + dx + "\n" + "dy:" + dy + "\n" + "\n");
+    private void checkConnected() throws IOException {
+        if (ws == null || ws.getReadyState() != READYSTATE.OPEN) {
+            throw new IOException("pointer socket is not connected");
         }
     }
 }
@@ -0,0 +1,207 @@
+/*
+ * WebOSTVRequestRegistry
+ * Connect SDK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.connectsdk.service.webos;
+
+import com.connectsdk.service.command.ServiceCommand;
+import com.connectsdk.service.command.URLServiceSubscription;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread-safe table of webOS socket requests, keyed by request id.
+ *
+ * Ids are handed out atomically. A one-shot request is registered as soon as it is issued but its
+ * deadline only starts once it is written to the socket, so commands queued while the TV is
+ * connecting or waiting for the pairing prompt don't time out early. The number of started one-shot
+ * requests is bounded, {@link #tryStart(int)} refuses to start more so the socket client can hold
+ * new commands back until the TV catches up. Subscriptions never expire and are not counted.
+ */
+class WebOSTVRequestRegistry {
+
+    static final long DEFAULT_TIMEOUT_MS = 15000;
+    static final int MAX_IN_FLIGHT_REQUESTS = 32;
+
+    private static final ScheduledExecutorService timeoutScheduler = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread th = new Thread(r);
+            th.setName("webOS request timeouts");
+            th.setDaemon(true);
+            return th;
+        }
+    });
+
+    interface TimeoutListener {
+        void onRequestTimedOut(ServiceCommand<?> command);
+    }
+
+    private static class Entry {
+        final ServiceCommand<?> command;
+        final boolean subscription;
+        boolean started;
+        boolean removed;
+        Future<?> timeout;
+
+        Entry(ServiceCommand<?> command) {
+            this.command = command;
+            this.subscription = isSubscription(command);
+        }
+    }
+
+    private final ConcurrentHashMap<Integer, Entry> entries = new ConcurrentHashMap<Integer, Entry>();
+    private final AtomicInteger nextRequestId = new AtomicInteger(1);
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final long timeout;
+    private volatile TimeoutListener timeoutListener;
+
+    WebOSTVRequestRegistry() {
+        this(DEFAULT_TIMEOUT_MS);
+    }
+
+    /**
+     * @param timeout deadline of one-shot requests in milliseconds, 0 to wait indefinitely
+     */
+    WebOSTVRequestRegistry(long timeout) {
+        this.timeout = timeout;
+    }
+
+    void setTimeoutListener(TimeoutListener timeoutListener) {
+        this.timeoutListener = timeoutListener;
+    }
+
+    int nextId() {
+        return nextRequestId.getAndIncrement();
+    }
+
+    static boolean isSubscription(ServiceCommand<?> command) {
+        return command instanceof URLServiceSubscription
+                || ServiceCommand.TYPE_SUB.equals(command.getHttpMethod());
+    }
+
+    void put(int id, ServiceCommand<?> command) {
+        Entry previous = entries.put(id, new Entry(command));
+        if (previous != null) {
+            release(previous);
+        }
+    }
+
+    /**
+     * Marks a registered request as written to the socket and starts its deadline. Unknown ids and
+     * subscriptions always succeed.
+     *
+     * @return false if the request could not be started because too many are already in flight
+     */
+    boolean tryStart(final int id) {
+        final Entry entry = entries.get(id);
+        if (entry == null || entry.subscription) {
+            return true;
+        }
+
+        synchronized (entry) {
+            if (entry.removed || entry.started) {
+                return true;
+            }
+
+            int current;
+            do {
+                current = inFlight.get();
+                if (current >= MAX_IN_FLIGHT_REQUESTS) {
+                    return false;
+                }
+            } while (!inFlight.compareAndSet(current, current + 1));
+            entry.started = true;
+
+            if (timeout > 0) {
+                entry.timeout = timeoutScheduler.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (entries.remove(id, entry)) {
+                            release(entry);
+                            TimeoutListener listener = timeoutListener;
+                            if (listener != null) {
+                                listener.onRequestTimedOut(entry.command);
+                            }
+                        }
+                    }
+                }, timeout, TimeUnit.MILLISECONDS);
+            }
+        }
+        return true;
+    }
+
+    ServiceCommand<?> get(int id) {
+        Entry entry = entries.get(id);
+        return entry == null ? null : entry.command;
+    }
+
+    boolean contains(int id) {
+        return entries.containsKey(id);
+    }
+
+    ServiceCommand<?> remove(int id) {
+        Entry entry = entries.remove(id);
+        if (entry == null) {
+            return null;
+        }
+        release(entry);
+        return entry.command;
+    }
+
+    /**
+     * Removes every request and returns them, e.g. to fail them once the connection is lost.
+     */
+    List<ServiceCommand<?>> clear() {
+        List<ServiceCommand<?>> commands = new ArrayList<ServiceCommand<?>>();
+        for (Integer id : entries.keySet()) {
+            ServiceCommand<?> command = remove(id);
+            if (command != null) {
+                commands.add(command);
+            }
+        }
+        return commands;
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    int getInFlightCount() {
+        return inFlight.get();
+    }
+
+    private void release(Entry entry) {
+        synchronized (entry) {
+            entry.removed = true;
+            if (entry.timeout != null) {
+                entry.timeout.cancel(false);
+            }
+            if (entry.started) {
+                entry.started = false;
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+}
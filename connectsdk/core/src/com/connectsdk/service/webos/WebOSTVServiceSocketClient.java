@@ -10,6 +10,7 @@ import java.security.cert.CertificateEncodingException;
 import java.security.cert.CertificateException;
 import java.security.cert.CertificateFactory;
 import java.security.cert.X509Certificate;
+import java.util.ArrayDeque;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
@@ -35,7 +36,6 @@ import android.content.pm.PackageManager.NameNotFoundException;
 import android.os.Build;
 import android.util.Base64;
 import android.util.Log;
-import android.util.SparseArray;
 import android.view.Display;
 import android.view.WindowManager;
 
@@ -65,8 +65,6 @@ public class WebOSTVServiceSocketClient extends WebSocketClient implements Servi
     WebOSTVServiceSocketClientListener mListener;
     WebOSTVService mService;
 
-    int nextRequestId = 1;
-
     TrustManager customTrustManager;
     State state = State.INITIAL;
 
@@ -77,7 +75,10 @@ public class WebOSTVServiceSocketClient extends WebSocketClient implements Servi
     // Queue of commands that should be sent once register is complete
     LinkedHashSet<ServiceCommand<ResponseListener<Object>>> commandQueue = new LinkedHashSet<ServiceCommand<ResponseListener<Object>>>();
 
-    public SparseArray<ServiceCommand<? extends Object>> requests = new SparseArray<ServiceCommand<? extends Object>>();
+    final WebOSTVRequestRegistry requests = new WebOSTVRequestRegistry();
+
+    // Commands held back while too many requests are waiting for a response, in send order
+    final ArrayDeque<ServiceCommand<?>> backlog = new ArrayDeque<ServiceCommand<?>>();
 
     boolean mConnectSucceeded = false;
     Boolean mConnected;
@@ -89,6 +90,17 @@ public class WebOSTVServiceSocketClient extends WebSocketClient implements Servi
         state = State.INITIAL;
 
         setDefaultManifest();
+
+        requests.setTimeoutListener(new WebOSTVRequestRegistry.TimeoutListener() {
+            @SuppressWarnings("unchecked")
+            @Override
+            public void onRequestTimedOut(ServiceCommand<?> command) {
+                Log.w(Util.T, "webOS request timed out: " + command.getTarget());
+                Util.postError(((ServiceCommand<ResponseListener<Object>>) command).getResponseListener(),
+                        new ServiceCommandError(0, "request timed out", null));
+                sendBacklog();
+            }
+        });
     }
 
     public static URI getURI(WebOSTVService service) {
@@ -212,6 +224,16 @@ public class WebOSTVServiceSocketClient extends WebSocketClient implements Servi
     }
 
     protected void handleMessage(String data) {
+        // Responses and errors are only useful to a pending request, so look at the id before
+        // paying for a full parse. Late answers to timed out requests are dropped here.
+        String[] header = peekHeader(data);
+        String type = header[0];
+        if (("response".equals(type) || "error".equals(type)) && isInteger(header[1])
+                && !requests.contains(Integer.parseInt(header[1]))) {
+            Log.d(Util.T, "no matching request id: " + header[1]);
+            return;
+        }
+
         try {
             JSONObject obj = new JSONObject(data);
 
@@ -264,8 +286,10 @@ public class WebOSTVServiceSocketClient extends WebSocketClient implements Servi
                 }
 
                 if (!(request instanceof URLServiceSubscription)) {
-                    if (!(payload instanceof JSONObject && ((JSONObject) payload).has("pairingType")))
+                    if (!(payload instanceof JSONObject && ((JSONObject) payload).has("pairingType"))) {
                         requests.remove(id);
+                        sendBacklog();
+                    }
                 }
             } else {
                 System.err.println("no matching request id: " + strId + ", payload: " + payload.toString());
@@ -314,8 +338,10 @@ public class WebOSTVServiceSocketClient extends WebSocketClient implements Servi
                 if (request != null) {
                     Util.postError(request.getResponseListener(), new ServiceCommandError(errorCode, errorDesc, payload));
 
-                    if (!(request instanceof URLServiceSubscription)) 
+                    if (!(request instanceof URLServiceSubscription)) {
                         requests.remove(id);
+                        sendBacklog();
+                    }
 
                 }
             }
@@ -398,7 +424,7 @@ public class WebOSTVServiceSocketClient extends WebSocketClient implements Servi
             e.printStackTrace();
         }
 
-        int dataId = this.nextRequestId++;
+        int dataId = requests.nextId();
 
         JSONObject sendData = new JSONObject();
         try {
@@ -445,7 +471,7 @@ public class WebOSTVServiceSocketClient extends WebSocketClient implements Servi
             }
         };
 
-        int dataId = this.nextRequestId++;
+        int dataId = requests.nextId();
 
         ServiceCommand<ResponseListener<Object>> command = new ServiceCommand<ResponseListener<Object>>(this, null, null, listener);
         command.setRequestId(dataId);
@@ -498,7 +524,7 @@ public class WebOSTVServiceSocketClient extends WebSocketClient implements Servi
         
         String uri = "ssap://pairing/setPin";
 
-        int dataId = this.nextRequestId++;
+        int dataId = requests.nextId();
         
         ServiceCommand<ResponseListener<Object>> command = new ServiceCommand<ResponseListener<Object>>(this, null, null, listener);
         command.setRequestId(dataId);
@@ -517,6 +543,7 @@ public class WebOSTVServiceSocketClient extends WebSocketClient implements Servi
         }
 
         requests.put(dataId, command);
+        requests.tryStart(dataId);
         
         sendMessage(headers, payload);
     }
@@ -553,7 +580,7 @@ public class WebOSTVServiceSocketClient extends WebSocketClient implements Servi
     public void sendCommand(ServiceCommand<?> command) {
         Integer requestId;
         if (command.getRequestId() == -1) {
-            requestId = this.nextRequestId++;
+            requestId = requests.nextId();
             command.setRequestId(requestId);
         }
         else {
@@ -597,6 +624,33 @@ public class WebOSTVServiceSocketClient extends WebSocketClient implements Servi
     public void unsubscribe(ServiceSubscription<?> subscription) { }
 
     protected void sendCommandImmediately(ServiceCommand<?> command) {
+        synchronized (backlog) {
+            if (!backlog.isEmpty() || !requests.tryStart(command.getRequestId())) {
+                backlog.add(command);
+                return;
+            }
+
+            writeCommand(command);
+        }
+    }
+
+    /**
+     * Sends held back commands, oldest first, for as long as there is room for them.
+     */
+    protected void sendBacklog() {
+        synchronized (backlog) {
+            ServiceCommand<?> command;
+            while ((command = backlog.peek()) != null && requests.tryStart(command.getRequestId())) {
+                backlog.poll();
+
+                if (requests.contains(command.getRequestId())) {
+                    writeCommand(command);
+                }
+            }
+        }
+    }
+
+    private void writeCommand(ServiceCommand<?> command) {
         JSONObject headers = new JSONObject();
         JSONObject payload = (JSONObject) command.getPayload();
         String payloadType = "";
@@ -709,14 +763,13 @@ public class WebOSTVServiceSocketClient extends WebSocketClient implements Servi
         if (mListener != null)
             mListener.onCloseWithError(error);
 
-        for (int i = 0; i < requests.size(); i++) {
-            ServiceCommand<ResponseListener<Object>> request = (ServiceCommand<ResponseListener<Object>>) requests.get(requests.keyAt(i));
-
-            if (request != null)
-                Util.postError(request.getResponseListener(), new ServiceCommandError(0, "connection lost", null));
+        synchronized (backlog) {
+            backlog.clear();
         }
 
-        requests.clear();
+        for (ServiceCommand<?> request : requests.clear()) {
+            Util.postError(((ServiceCommand<ResponseListener<Object>>) request).getResponseListener(), new ServiceCommandError(0, "connection lost", null));
+        }
     }
 
     public void setServerCertificate(X509Certificate cert) {
@@ -776,6 +829,89 @@ public class WebOSTVServiceSocketClient extends WebSocketClient implements Servi
         }
     }
 
+    /**
+     * Reads the top level "type" and "id" of a frame without building the whole JSON tree.
+     *
+     * @return {type, id}, entries are null when the field is missing
+     */
+    static String[] peekHeader(String data) {
+        String[] header = new String[2];
+        int depth = 0;
+        int found = 0;
+        int length = data.length();
+
+        for (int i = 0; i < length && found < 2; i++) {
+            char c = data.charAt(i);
+
+            if (c == '"') {
+                int end = skipString(data, i);
+                if (depth == 1) {
+                    int colon = skipWhitespace(data, end + 1);
+                    if (colon < length && data.charAt(colon) == ':') {
+                        String key = data.substring(i + 1, end);
+                        int index = "type".equals(key) ? 0 : "id".equals(key) ? 1 : -1;
+                        int valueStart = skipWhitespace(data, colon + 1);
+
+                        if (index >= 0 && valueStart < length && header[index] == null) {
+                            int valueEnd;
+                            if (data.charAt(valueStart) == '"') {
+                                valueEnd = skipString(data, valueStart);
+                                header[index] = data.substring(valueStart + 1, valueEnd);
+                            } else {
+                                valueEnd = valueStart;
+                                while (valueEnd < length && ",}] \t\r\n".indexOf(data.charAt(valueEnd)) < 0) {
+                                    valueEnd++;
+                                }
+                                header[index] = data.substring(valueStart, valueEnd);
+                                valueEnd--;
+                            }
+                            found++;
+                            i = valueEnd;
+                            continue;
+                        }
+                        i = colon;
+                        continue;
+                    }
+                }
+                i = end;
+            } else if (c == '{' || c == '[') {
+                depth++;
+            } else if (c == '}' || c == ']') {
+                if (--depth == 0) {
+                    break;
+                }
+            }
+        }
+        return header;
+    }
+
+    /**
+     * @return the index of the quote closing the string that starts at {@code start}
+     */
+    private static int skipString(String data, int start) {
+        int i = start + 1;
+        while (i < data.length()) {
+            char c = data.charAt(i);
+            if (c == '\\') {
+                i += 2;
+                continue;
+            }
+            if (c == '"') {
+                return i;
+            }
+            i++;
+        }
+        return data.length();
+    }
+
+    private static int skipWhitespace(String data, int start) {
+        int i = start;
+        while (i < data.length() && Character.isWhitespace(data.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
     public static boolean isInteger(String s) {
         try { 
             Integer.parseInt(s); 
@@ -0,0 +1,207 @@
+/*
+ * HttpEventServerTest
+ * Connect SDK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.connectsdk.etc.helper;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fires concurrent GENA NOTIFY requests from local clients at the {@link HttpEventServer}, more
+ * clients than it keeps connections open, and checks every event arrives intact. The throughput
+ * is printed, not asserted.
+ */
+public class HttpEventServerTest {
+
+    private static final String TERMINATOR = "</e:propertyset>";
+    private static final String BODY = "<e:propertyset xmlns:e=\"urn:schemas-upnp-org:event-1-0\">"
+            + "<e:property><LastChange>&lt;Event/&gt;</LastChange></e:property>" + TERMINATOR;
+
+    private static final int CLIENTS = 32;
+    private static final int REQUESTS_PER_CLIENT = 100;
+
+    private HttpEventServer server;
+    private final List<String> bodies = Collections.synchronizedList(new ArrayList<String>());
+    private CountDownLatch received;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new HttpEventServer(findFreePort(), new HttpEventServer.RequestHandler() {
+            @Override
+            public void onRequest(HttpEventServer.Request request) {
+                bodies.add(request.getBodyString());
+                received.countDown();
+            }
+        });
+        server.setBodyTerminator(TERMINATOR);
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    public void testConcurrentNotifyRequests() throws Exception {
+        received = new CountDownLatch(CLIENTS * REQUESTS_PER_CLIENT);
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        List<Future<Void>> results = new ArrayList<Future<Void>>();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < CLIENTS; i++) {
+            results.add(clients.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    Socket socket = new Socket("127.0.0.1", server.getPort());
+                    try {
+                        OutputStream out = socket.getOutputStream();
+                        BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), "UTF-8"));
+                        // keep-alive, every request waits for its response
+                        for (int j = 0; j < REQUESTS_PER_CLIENT; j++) {
+                            out.write(notifyRequest("Content-Length: " + BODY.length() + "\r\n", BODY).getBytes("UTF-8"));
+                            out.flush();
+                            Assert.assertEquals("HTTP/1.1 200 OK", readResponse(in));
+                        }
+                    } finally {
+                        socket.close();
+                    }
+                    return null;
+                }
+            }));
+        }
+        for (Future<Void> result : results) {
+            result.get(60, TimeUnit.SECONDS);
+        }
+        Assert.assertTrue(received.await(10, TimeUnit.SECONDS));
+        long elapsed = System.nanoTime() - start;
+        clients.shutdown();
+
+        System.out.printf("%d NOTIFY requests from %d clients in %d ms, %.0f requests/s%n", bodies.size(), CLIENTS,
+                elapsed / 1000000, bodies.size() * 1e9 / elapsed);
+        Assert.assertEquals(CLIENTS * REQUESTS_PER_CLIENT, bodies.size());
+        for (String body : bodies) {
+            Assert.assertEquals(BODY, body);
+        }
+    }
+
+    @Test
+    public void testPipelinedChunkedAndTerminatedBodies() throws Exception {
+        received = new CountDownLatch(3);
+        String chunked = Integer.toHexString(5) + "\r\n" + BODY.substring(0, 5) + "\r\n"
+                + Integer.toHexString(BODY.length() - 5) + "\r\n" + BODY.substring(5) + "\r\n0\r\n\r\n";
+
+        Socket socket = new Socket("127.0.0.1", server.getPort());
+        try {
+            OutputStream out = socket.getOutputStream();
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), "UTF-8"));
+            // three requests in one write, the last one without a length, ended by the terminator
+            out.write((notifyRequest("Content-Length: " + BODY.length() + "\r\n", BODY)
+                    + notifyRequest("Transfer-Encoding: chunked\r\n", chunked)
+                    + notifyRequest("", BODY)).getBytes("UTF-8"));
+            out.flush();
+
+            for (int i = 0; i < 3; i++) {
+                Assert.assertEquals("HTTP/1.1 200 OK", readResponse(in));
+            }
+        } finally {
+            socket.close();
+        }
+
+        Assert.assertTrue(received.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(3, bodies.size());
+        for (String body : bodies) {
+            Assert.assertEquals(BODY, body);
+        }
+    }
+
+    @Test
+    public void testRestartsOnTheSamePort() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            server.stop();
+            Assert.assertFalse(server.isRunning());
+            server.start();
+            Assert.assertTrue(server.isRunning());
+        }
+
+        received = new CountDownLatch(1);
+        Socket socket = new Socket("127.0.0.1", server.getPort());
+        try {
+            OutputStream out = socket.getOutputStream();
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), "UTF-8"));
+            out.write(notifyRequest("Content-Length: " + BODY.length() + "\r\n", BODY).getBytes("UTF-8"));
+            out.flush();
+            Assert.assertEquals("HTTP/1.1 200 OK", readResponse(in));
+        } finally {
+            socket.close();
+        }
+
+        Assert.assertTrue(received.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(1, bodies.size());
+    }
+
+    private static String notifyRequest(String headers, String body) {
+        return "NOTIFY /callback HTTP/1.1\r\n"
+                + "HOST: 127.0.0.1\r\n"
+                + "CONTENT-TYPE: text/xml; charset=\"utf-8\"\r\n"
+                + "NT: upnp:event\r\n"
+                + "NTS: upnp:propchange\r\n"
+                + "SEQ: 0\r\n"
+                + headers
+                + "\r\n"
+                + body;
+    }
+
+    /**
+     * @return the status line, after reading the headers of the empty response
+     */
+    private static String readResponse(BufferedReader in) throws IOException {
+        String status = in.readLine();
+        String line;
+        while ((line = in.readLine()) != null && !line.isEmpty()) {
+            // skip headers
+        }
+        return status;
+    }
+
+    private static int findFreePort() throws IOException {
+        ServerSocket socket = new ServerSocket(0);
+        try {
+            return socket.getLocalPort();
+        } finally {
+            socket.close();
+        }
+    }
+}
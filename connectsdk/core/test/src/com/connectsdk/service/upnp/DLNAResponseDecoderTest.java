@@ -0,0 +1,193 @@
+/*
+ * DLNAResponseDecoderTest
+ * Connect SDK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.connectsdk.service.upnp;
+
+import com.connectsdk.core.MediaInfo;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.w3c.dom.Document;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.util.Arrays;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+/**
+ * Decodes SOAP responses and events in the formats several renderers answer with, and compares
+ * the time per response with parsing a full DOM, which DLNAService did before. The latencies are
+ * printed, not asserted.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class DLNAResponseDecoderTest {
+
+    private static final String ENVELOPE_START = "<?xml version=\"1.0\" encoding=\"utf-8\"?>"
+            + "<s:Envelope xmlns:s=\"http://schemas.xmlsoap.org/soap/envelope/\" "
+            + "s:encodingStyle=\"http://schemas.xmlsoap.org/soap/encoding/\"><s:Body>";
+    private static final String ENVELOPE_END = "</s:Body></s:Envelope>";
+
+    private static final String DIDL = "&lt;DIDL-Lite xmlns=&quot;urn:schemas-upnp-org:metadata-1-0/DIDL-Lite/&quot; "
+            + "xmlns:dc=&quot;http://purl.org/dc/elements/1.1/&quot; "
+            + "xmlns:upnp=&quot;urn:schemas-upnp-org:metadata-1-0/upnp/&quot;&gt;"
+            + "&lt;item id=&quot;1000&quot; parentID=&quot;0&quot; restricted=&quot;0&quot;&gt;"
+            + "&lt;dc:title&gt;Big Buck Bunny&lt;/dc:title&gt;"
+            + "&lt;dc:creator&gt;Blender Foundation&lt;/dc:creator&gt;"
+            + "&lt;upnp:albumArtURI&gt;http://192.168.1.20:8080/poster.jpg&lt;/upnp:albumArtURI&gt;"
+            + "&lt;upnp:class&gt;object.item.videoItem&lt;/upnp:class&gt;"
+            + "&lt;res protocolInfo=&quot;http-get:*:video/mp4:DLNA.ORG_OP=01&quot;&gt;"
+            + "http://192.168.1.20:8080/video.mp4&lt;/res&gt;"
+            + "&lt;/item&gt;&lt;/DIDL-Lite&gt;";
+
+    // GetPositionInfo as a Samsung TV answers it, metadata escaped
+    private static final String SAMSUNG_POSITION = ENVELOPE_START
+            + "<u:GetPositionInfoResponse xmlns:u=\"urn:schemas-upnp-org:service:AVTransport:1\">"
+            + "<Track>1</Track><TrackDuration>00:09:56</TrackDuration>"
+            + "<TrackMetaData>" + DIDL + "</TrackMetaData>"
+            + "<TrackURI>http://192.168.1.20:8080/video.mp4</TrackURI>"
+            + "<RelTime>00:01:23</RelTime><AbsTime>00:01:23</AbsTime>"
+            + "<RelCount>2147483647</RelCount><AbsCount>2147483647</AbsCount>"
+            + "</u:GetPositionInfoResponse>" + ENVELOPE_END;
+
+    // GetPositionInfo as an LG TV answers it, without metadata and with a different prefix
+    private static final String LG_POSITION = "<?xml version=\"1.0\"?>"
+            + "<SOAP-ENV:Envelope xmlns:SOAP-ENV=\"http://schemas.xmlsoap.org/soap/envelope/\" "
+            + "SOAP-ENV:encodingStyle=\"http://schemas.xmlsoap.org/soap/encoding/\"><SOAP-ENV:Body>"
+            + "<m:GetPositionInfoResponse xmlns:m=\"urn:schemas-upnp-org:service:AVTransport:1\">"
+            + "<Track xmlns:dt=\"urn:schemas-microsoft-com:datatypes\" dt:dt=\"ui4\">0</Track>"
+            + "<TrackDuration xmlns:dt=\"urn:schemas-microsoft-com:datatypes\" dt:dt=\"string\">1:42:07</TrackDuration>"
+            + "<TrackMetaData xmlns:dt=\"urn:schemas-microsoft-com:datatypes\" dt:dt=\"string\"></TrackMetaData>"
+            + "<TrackURI xmlns:dt=\"urn:schemas-microsoft-com:datatypes\" dt:dt=\"string\"></TrackURI>"
+            + "<RelTime xmlns:dt=\"urn:schemas-microsoft-com:datatypes\" dt:dt=\"string\">0:12:01</RelTime>"
+            + "<AbsTime xmlns:dt=\"urn:schemas-microsoft-com:datatypes\" dt:dt=\"string\">NOT_IMPLEMENTED</AbsTime>"
+            + "<RelCount xmlns:dt=\"urn:schemas-microsoft-com:datatypes\" dt:dt=\"i4\">2147483647</RelCount>"
+            + "<AbsCount xmlns:dt=\"urn:schemas-microsoft-com:datatypes\" dt:dt=\"i4\">2147483647</AbsCount>"
+            + "</m:GetPositionInfoResponse></SOAP-ENV:Body></SOAP-ENV:Envelope>";
+
+    // GetTransportInfo as a Sony Bravia answers it
+    private static final String SONY_TRANSPORT = ENVELOPE_START
+            + "<u:GetTransportInfoResponse xmlns:u=\"urn:schemas-upnp-org:service:AVTransport:1\">"
+            + "<CurrentTransportState>PAUSED_PLAYBACK</CurrentTransportState>"
+            + "<CurrentTransportStatus>OK</CurrentTransportStatus>"
+            + "<CurrentSpeed>1</CurrentSpeed>"
+            + "</u:GetTransportInfoResponse>" + ENVELOPE_END;
+
+    // GetVolume as Kodi answers it
+    private static final String KODI_VOLUME = ENVELOPE_START
+            + "<u:GetVolumeResponse xmlns:u=\"urn:schemas-upnp-org:service:RenderingControl:1\">"
+            + "<CurrentVolume>37</CurrentVolume>"
+            + "</u:GetVolumeResponse>" + ENVELOPE_END;
+
+    // LastChange NOTIFY of an AVTransport service
+    private static final String LAST_CHANGE_NOTIFY = "<e:propertyset xmlns:e=\"urn:schemas-upnp-org:event-1-0\">"
+            + "<e:property><LastChange>"
+            + "&lt;Event xmlns=&quot;urn:schemas-upnp-org:metadata-1-0/AVT/&quot;&gt;"
+            + "&lt;InstanceID val=&quot;0&quot;&gt;"
+            + "&lt;TransportState val=&quot;PLAYING&quot;/&gt;"
+            + "&lt;CurrentTrackDuration val=&quot;00:09:56&quot;/&gt;"
+            + "&lt;/InstanceID&gt;&lt;/Event&gt;"
+            + "</LastChange></e:property></e:propertyset>";
+
+    private static final String[][] RESPONSES = {
+            {"samsung position", SAMSUNG_POSITION, "RelTime"},
+            {"lg position", LG_POSITION, "RelTime"},
+            {"sony transport", SONY_TRANSPORT, "CurrentTransportState"},
+            {"kodi volume", KODI_VOLUME, "CurrentVolume"},
+    };
+
+    @Test
+    public void testDecodesRendererResponses() {
+        Assert.assertEquals("00:01:23", DLNAResponseDecoder.decode(SAMSUNG_POSITION, "RelTime"));
+        Assert.assertEquals("0:12:01", DLNAResponseDecoder.decode(LG_POSITION, "RelTime"));
+        Assert.assertEquals("PAUSED_PLAYBACK", DLNAResponseDecoder.decode(SONY_TRANSPORT, "CurrentTransportState"));
+        Assert.assertEquals("37", DLNAResponseDecoder.decode(KODI_VOLUME, "CurrentVolume"));
+        Assert.assertEquals("", DLNAResponseDecoder.decode(KODI_VOLUME, "CurrentMute"));
+
+        String[] values = DLNAResponseDecoder.decode(LG_POSITION, "TrackDuration", "TrackMetaData", "Missing");
+        Assert.assertEquals("1:42:07", values[0]);
+        Assert.assertEquals("", values[1]);
+        Assert.assertNull(values[2]);
+    }
+
+    @Test
+    public void testDecodesTrackMetaData() {
+        String metaData = DLNAResponseDecoder.decode(SAMSUNG_POSITION, "TrackMetaData");
+        MediaInfo info = DLNAMediaInfoParser.getMediaInfo(metaData);
+
+        Assert.assertEquals("Big Buck Bunny", info.getTitle());
+        Assert.assertEquals("http://192.168.1.20:8080/video.mp4", info.getUrl());
+        Assert.assertEquals("http://192.168.1.20:8080/poster.jpg", info.getImages().get(0).getUrl());
+    }
+
+    @Test
+    public void testParsesLastChangeEvents() throws Exception {
+        JSONArray properties = new DLNANotifyParser().parse(new ByteArrayInputStream(LAST_CHANGE_NOTIFY.getBytes("UTF-8")));
+
+        JSONObject lastChange = properties.getJSONObject(0).getJSONObject("LastChange");
+        JSONArray instance = lastChange.getJSONArray("InstanceID").getJSONArray(0);
+        Assert.assertEquals("0", instance.getJSONObject(0).getString("value"));
+        Assert.assertEquals("PLAYING", instance.getJSONObject(1).getString("TransportState"));
+    }
+
+    @Test
+    public void testDecodeLatency() throws Exception {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        for (String[] response : RESPONSES) {
+            for (int i = 0; i < 1000; i++) {
+                DLNAResponseDecoder.decode(response[1], response[2]);
+                decodeWithDom(factory, response[1], response[2]);
+            }
+
+            long[] decoder = new long[2000];
+            long[] dom = new long[decoder.length];
+            for (int i = 0; i < decoder.length; i++) {
+                long start = System.nanoTime();
+                String decoded = DLNAResponseDecoder.decode(response[1], response[2]);
+                decoder[i] = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                String parsed = decodeWithDom(factory, response[1], response[2]);
+                dom[i] = System.nanoTime() - start;
+
+                Assert.assertEquals(parsed, decoded);
+            }
+            Arrays.sort(decoder);
+            Arrays.sort(dom);
+            System.out.printf("%-17s decoder p50 %4d us p99 %4d us   dom p50 %4d us p99 %4d us%n", response[0],
+                    decoder[decoder.length / 2] / 1000, decoder[decoder.length * 99 / 100] / 1000,
+                    dom[dom.length / 2] / 1000, dom[dom.length * 99 / 100] / 1000);
+        }
+    }
+
+    /**
+     * What DLNAService did before the decoder, a new document builder and DOM per response.
+     */
+    private static String decodeWithDom(DocumentBuilderFactory factory, String xml, String key) throws Exception {
+        Document document = factory.newDocumentBuilder().parse(new InputSource(new StringReader(xml)));
+        NodeList nodes = document.getElementsByTagName(key);
+        return nodes.getLength() == 0 ? "" : nodes.item(0).getTextContent();
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * WebOSTVServiceSocketClientTest
+ * Connect SDK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.connectsdk.service.webos;
+
+import com.connectsdk.discovery.DiscoveryManager;
+import com.connectsdk.service.WebOSTVService;
+import com.connectsdk.service.command.ServiceCommand;
+import com.connectsdk.service.command.ServiceCommandError;
+import com.connectsdk.service.capability.listeners.ResponseListener;
+import com.connectsdk.service.config.ServiceDescription;
+import com.connectsdk.service.config.WebOSTVServiceConfig;
+
+import org.java_websocket.WebSocket;
+import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.server.WebSocketServer;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load test of the socket client against a local websocket server standing in for the TV. The
+ * stand-in answers every request after a random delay, so responses come back out of order, and
+ * records how many requests were waiting for an answer at once. The throughput is printed, not
+ * asserted.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class WebOSTVServiceSocketClientTest {
+
+    private static final int COMMANDS = 5000;
+    private static final int SENDERS = 8;
+
+    private TVStandIn tv;
+    private TestSocketClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        tv = new TVStandIn(findFreePort());
+        tv.start();
+
+        DiscoveryManager.init(Robolectric.application);
+        WebOSTVService service = new WebOSTVService(new ServiceDescription(), new WebOSTVServiceConfig("test"));
+        service.setPermissions(Collections.<String>emptyList());
+        client = new TestSocketClient(service, new URI("ws://127.0.0.1:" + tv.getPort()));
+        tv.awaitListening();
+        client.connect();
+        Assert.assertTrue(client.registered.await(5, TimeUnit.SECONDS));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        client.close();
+        tv.stop();
+    }
+
+    @Test
+    public void testThousandsOfCommands() throws Exception {
+        final CountDownLatch answered = new CountDownLatch(COMMANDS);
+        final AtomicInteger succeeded = new AtomicInteger();
+        final ResponseListener<Object> listener = new ResponseListener<Object>() {
+            @Override
+            public void onSuccess(Object object) {
+                succeeded.incrementAndGet();
+                answered.countDown();
+            }
+
+            @Override
+            public void onError(ServiceCommandError error) {
+                answered.countDown();
+            }
+        };
+
+        long start = System.nanoTime();
+        Thread[] senders = new Thread[SENDERS];
+        for (int i = 0; i < SENDERS; i++) {
+            senders[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < COMMANDS / SENDERS; j++) {
+                        client.sendCommand(new ServiceCommand<ResponseListener<Object>>(client,
+                                "ssap://audio/getVolume", null, true, listener));
+                    }
+                }
+            });
+            senders[i].start();
+        }
+        for (Thread sender : senders) {
+            sender.join();
+        }
+
+        // listeners are called on the main looper, which only runs when the test thread runs it
+        long deadline = System.currentTimeMillis() + 60000;
+        while (answered.getCount() > 0 && System.currentTimeMillis() < deadline) {
+            Robolectric.runUiThreadTasks();
+            answered.await(1, TimeUnit.MILLISECONDS);
+        }
+        Assert.assertEquals(0, answered.getCount());
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("%d commands from %d threads in %d ms, %.0f commands/s, at most %d in flight%n",
+                COMMANDS, SENDERS, elapsed / 1000000, COMMANDS * 1e9 / elapsed, tv.maxOutstanding.get());
+
+        Assert.assertEquals(COMMANDS, succeeded.get());
+        Assert.assertEquals(COMMANDS, tv.received.get());
+        Assert.assertTrue(tv.maxOutstanding.get() <= WebOSTVRequestRegistry.MAX_IN_FLIGHT_REQUESTS);
+        Assert.assertEquals(0, client.requests.size());
+        Assert.assertEquals(0, client.requests.getInFlightCount());
+    }
+
+    @Test
+    public void testLateResponsesAreDropped() throws Exception {
+        // answers to ids that were never issued or already answered are ignored without a parse
+        client.onMessage("{\"type\":\"response\",\"id\":\"999999\",\"payload\":{\"returnValue\":true}}");
+        Assert.assertEquals(0, client.requests.size());
+
+        String[] header = WebOSTVServiceSocketClient.peekHeader(
+                "{\"payload\":{\"type\":\"inner\",\"id\":1},\"id\":\"42\", \"type\" : \"response\"}");
+        Assert.assertEquals("response", header[0]);
+        Assert.assertEquals("42", header[1]);
+    }
+
+    /**
+     * Skips TLS and the hello and pairing handshake, the stand-in only answers requests.
+     */
+    private static class TestSocketClient extends WebOSTVServiceSocketClient {
+        final CountDownLatch registered = new CountDownLatch(1);
+
+        TestSocketClient(WebOSTVService service, URI uri) {
+            super(service, uri);
+        }
+
+        @Override
+        protected void setupSSL() {
+        }
+
+        @Override
+        protected void handleConnected() {
+            state = State.REGISTERED;
+            registered.countDown();
+        }
+    }
+
+    /**
+     * Answers every request with a response to its id, after a random delay of up to 2 ms.
+     */
+    private static class TVStandIn extends WebSocketServer {
+        final AtomicInteger received = new AtomicInteger();
+        final AtomicInteger outstanding = new AtomicInteger();
+        final AtomicInteger maxOutstanding = new AtomicInteger();
+        private final ScheduledExecutorService responder = Executors.newScheduledThreadPool(4);
+        private final Random random = new Random(1);
+
+        TVStandIn(int port) {
+            super(new InetSocketAddress("127.0.0.1", port));
+        }
+
+        /**
+         * The server binds its port on its own thread once started.
+         */
+        void awaitListening() throws InterruptedException {
+            for (int i = 0; i < 50; i++) {
+                try {
+                    new Socket("127.0.0.1", getPort()).close();
+                    return;
+                } catch (IOException e) {
+                    Thread.sleep(100);
+                }
+            }
+        }
+
+        @Override
+        public void onOpen(WebSocket conn, ClientHandshake handshake) {
+        }
+
+        @Override
+        public void onClose(WebSocket conn, int code, String reason, boolean remote) {
+        }
+
+        @Override
+        public void onMessage(final WebSocket conn, String message) {
+            received.incrementAndGet();
+            int current = outstanding.incrementAndGet();
+            int max;
+            while (current > (max = maxOutstanding.get()) && !maxOutstanding.compareAndSet(max, current)) {
+                // retry
+            }
+
+            final String id;
+            try {
+                id = new JSONObject(message).getString("id");
+            } catch (Exception e) {
+                throw new AssertionError(e);
+            }
+
+            long delay;
+            synchronized (random) {
+                delay = random.nextInt(2000);
+            }
+            responder.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    outstanding.decrementAndGet();
+                    conn.send("{\"type\":\"response\",\"id\":\"" + id + "\",\"payload\":{\"returnValue\":true,\"volume\":12}}");
+                }
+            }, delay, TimeUnit.MICROSECONDS);
+        }
+
+        @Override
+        public void onError(WebSocket conn, Exception ex) {
+            ex.printStackTrace();
+        }
+
+        @Override
+        public void stop() throws IOException, InterruptedException {
+            responder.shutdownNow();
+            super.stop();
+        }
+    }
+
+    private static int findFreePort() throws IOException {
+        ServerSocket socket = new ServerSocket(0);
+        try {
+            return socket.getLocalPort();
+        } finally {
+            socket.close();
+        }
+    }
+}
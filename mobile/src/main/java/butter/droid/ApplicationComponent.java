@@ -19,6 +19,7 @@ package butter.droid;
 
 import javax.inject.Singleton;
 
+import butter.droid.base.providers.media.MediaRepository;
 import butter.droid.activities.AboutActivity;
 import butter.droid.activities.BeamPlayerActivity;
 import butter.droid.activities.MainActivity;
@@ -34,6 +35,7 @@ import butter.droid.fragments.MediaGenreSelectionFragment;
 import butter.droid.fragments.MediaListFragment;
 import butter.droid.fragments.MovieDetailFragment;
 import butter.droid.fragments.NavigationDrawerFragment;
+import butter.droid.fragments.ShowDetailFragment;
 import butter.droid.fragments.StreamLoadingFragment;
 import butter.droid.fragments.VideoPlayerFragment;
 import butter.droid.fragments.dialog.EpisodeDialogFragment;
@@ -84,6 +86,10 @@ public interface ApplicationComponent {
 
     void inject(MovieDetailFragment fragment);
 
+    void inject(ShowDetailFragment fragment);
+
     void inject(VideoPlayerFragment fragment);
 
+    MediaRepository mediaRepository();
+
 }
@@ -21,11 +21,14 @@ import android.widget.TextView;
 import com.squareup.picasso.Callback;
 import com.squareup.picasso.Picasso;
 
+import javax.inject.Inject;
+
 import butter.droid.MobileButterApplication;
 import butter.droid.R;
 import butter.droid.activities.base.ButterBaseActivity;
 import butter.droid.base.beaming.BeamPlayerNotificationService;
 import butter.droid.base.content.preferences.Prefs;
+import butter.droid.base.providers.media.MediaRepository;
 import butter.droid.base.providers.media.models.Media;
 import butter.droid.base.providers.media.models.Movie;
 import butter.droid.base.providers.media.models.Show;
@@ -46,10 +49,15 @@ import timber.log.Timber;
 
 public class MediaDetailActivity extends ButterBaseActivity implements BaseDetailFragment.FragmentListener {
 
+    private static final String EXTRA_MEDIA = "media";
+
     private static Media sMedia;
     private Integer mHeaderHeight = 0, mToolbarHeight = 0, mTopHeight;
     private Boolean mTransparentBar = true, mIsTablet = false;
 
+    @Inject
+    MediaRepository mediaRepository;
+
     @BindView(R.id.toolbar)
     Toolbar mToolbar;
     TextView mToolbarTitle;
@@ -70,8 +78,14 @@ public class MediaDetailActivity extends ButterBaseActivity implements BaseDetai
 
     public static void startActivity(Context context, Media media) {
         Intent intent = new Intent(context, MediaDetailActivity.class);
-        if (media != null)
+        if (media != null) {
             sMedia = media;
+            // only the key, so the activity can get the media back when the process was killed
+            intent.putExtra(EXTRA_MEDIA, MobileButterApplication.getAppContext()
+                    .getComponent()
+                    .mediaRepository()
+                    .put(media));
+        }
         context.startActivity(intent);
     }
 
@@ -105,11 +119,27 @@ public class MediaDetailActivity extends ButterBaseActivity implements BaseDetai
         // mParallaxLayout doesn't exist? Then this is a tablet or big screen device
         mIsTablet = mParallaxLayout == null;
 
-        if(sMedia == null) {
-            finish();
-            return;
-        }
+        mediaRepository.get(getIntent().getStringExtra(EXTRA_MEDIA), new MediaRepository.Callback<Media>() {
+            @Override
+            public void onMedia(Media media) {
+                if (getSupportFragmentManager().isDestroyed()) {
+                    // closed while the media was read
+                    return;
+                }
+                if (media != null) {
+                    sMedia = media;
+                }
+
+                if (sMedia == null) {
+                    finish();
+                } else {
+                    showMedia();
+                }
+            }
+        });
+    }
 
+    private void showMedia() {
         getSupportActionBar().setTitle(sMedia.title);
 
         mScrollView.setListener(mOnScrollListener);
@@ -140,7 +170,7 @@ public class MediaDetailActivity extends ButterBaseActivity implements BaseDetai
 
         if (fragment != null) {
             FragmentManager fragmentManager = getSupportFragmentManager();
-            fragmentManager.beginTransaction().replace(R.id.content, fragment).commit();
+            fragmentManager.beginTransaction().replace(R.id.content, fragment).commitAllowingStateLoss();
         }
 
         String imageUrl = sMedia.image;
@@ -94,6 +94,8 @@ public class SearchActivity extends ButterBaseActivity {
         public boolean onQueryTextChange(String s) {
             if (s.equals("")) {
                 onQueryTextSubmit(s);
+            } else if (null != mFragment) {
+                mFragment.showLocalResults(s);
             }
             return false;
         }
@@ -82,7 +82,11 @@ public class ButterBaseActivity extends TorrentBaseActivity implements BeamManag
         String language = PrefUtils.get(this, Prefs.LOCALE, ButterApplication.getSystemLanguage());
         LocaleUtils.setCurrent(this, LocaleUtils.toLocale(language));
         super.onResume();
-        BeamManager.getInstance(this).addListener(this);
+        BeamManager beamManager = BeamManager.getInstance(this);
+        beamManager.addListener(this);
+        if (mShowCasting) {
+            beamManager.requestDiscovery();
+        }
     }
 
     @Override
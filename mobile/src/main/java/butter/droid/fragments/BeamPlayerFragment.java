@@ -48,16 +48,13 @@ import com.sothree.slidinguppanel.SlidingUpPanelLayout;
 import com.squareup.picasso.Callback;
 import com.squareup.picasso.Picasso;
 
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
-
 import butter.droid.R;
 import butter.droid.activities.BeamPlayerActivity;
 import butter.droid.activities.VideoPlayerActivity;
 import butter.droid.base.beaming.BeamDeviceListener;
 import butter.droid.base.beaming.BeamManager;
 import butter.droid.base.beaming.BeamPlayerNotificationService;
+import butter.droid.base.beaming.BeamPositionTracker;
 import butter.droid.base.torrent.StreamInfo;
 import butter.droid.base.utils.AnimUtils;
 import butter.droid.base.utils.FragmentUtil;
@@ -73,8 +70,6 @@ import timber.log.Timber;
 
 public class BeamPlayerFragment extends Fragment implements TorrentServerListener {
 
-    public static final int REFRESH_INTERVAL_MS = (int) TimeUnit.SECONDS.toMillis(1);
-
     private StreamInfo mStreamInfo;
     private Long mResumePosition;
     private BeamPlayerActivity mActivity;
@@ -86,8 +81,7 @@ public class BeamPlayerFragment extends Fragment implements TorrentServerListene
     private long mTotalTimeDuration = 0;
     private Float mDownloadProgress = 0f;
     private LoadingBeamingDialogFragment mLoadingDialog;
-    private ScheduledThreadPoolExecutor mExecutor = new ScheduledThreadPoolExecutor(2);
-    private ScheduledFuture mTask;
+    private BeamPositionTracker mPositionTracker;
 
     View mRootView;
     @BindView(R.id.toolbar)
@@ -249,6 +243,8 @@ public class BeamPlayerFragment extends Fragment implements TorrentServerListene
     public void onDestroy() {
         super.onDestroy();
 
+        stopUpdating();
+
         Intent intent = new Intent( getActivity(), BeamPlayerNotificationService.class );
         getActivity().stopService(intent);
     }
@@ -259,7 +255,10 @@ public class BeamPlayerFragment extends Fragment implements TorrentServerListene
             public void onSuccess(MediaPlayer.MediaLaunchObject object) {
                 mMediaControl = object.mediaControl;
 
-                mMediaControl.subscribePlayState(mPlayStateListener);
+                if (!mHasSeekControl || BeamPositionTracker.hasNativePlayState(mMediaControl)) {
+                    // otherwise the position tracker reports play state from its own poll
+                    mMediaControl.subscribePlayState(mPlayStateListener);
+                }
                 mMediaControl.getPlayState(mPlayStateListener);
 
                 if (mHasVolumeControl) {
@@ -270,11 +269,13 @@ public class BeamPlayerFragment extends Fragment implements TorrentServerListene
 
                 if (mHasSeekControl) {
                     startUpdating();
-                    mMediaControl.getDuration(mDurationListener);
                 }
 
                 if(mResumePosition > 0) {
                     mMediaControl.seek(mResumePosition, null);
+                    if (mPositionTracker != null) {
+                        mPositionTracker.onSeek(mResumePosition);
+                    }
                 }
             }
 
@@ -339,28 +340,33 @@ public class BeamPlayerFragment extends Fragment implements TorrentServerListene
     public void forwardClick(View v) {
         int newProgress = mButterSeekBar.getProgress() + 10000;
         if (newProgress > mTotalTimeDuration) newProgress = (int) mTotalTimeDuration;
-        mMediaControl.seek(newProgress, null);
+        seek(newProgress, null);
     }
 
     @OnClick(R.id.backward_button)
     public void backwardClick(View v) {
         int newProgress = mButterSeekBar.getProgress() - 10000;
         if (newProgress < 0) newProgress = 0;
-        mMediaControl.seek(newProgress, null);
+        seek(newProgress, null);
+    }
+
+    private void seek(long position, ResponseListener<Object> listener) {
+        mMediaControl.seek(position, listener);
+        if (mPositionTracker != null) {
+            mPositionTracker.onSeek(position);
+        }
     }
 
     private void startUpdating() {
-        mTask = mExecutor.scheduleAtFixedRate(mPositionRunnable, 0, REFRESH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        if (mPositionTracker == null) {
+            mPositionTracker = new BeamPositionTracker(mMediaControl);
+        }
+        mPositionTracker.start(mPositionListener);
     }
 
     private void stopUpdating() {
-        if (mTask != null) {
-            mTask.cancel(false);
-        }
-        if (mExecutor != null) {
-            for (Runnable r : mExecutor.getQueue()) {
-                mExecutor.remove(r);
-            }
+        if (mPositionTracker != null) {
+            mPositionTracker.stop();
         }
     }
 
@@ -387,8 +393,8 @@ public class BeamPlayerFragment extends Fragment implements TorrentServerListene
                 mLoadingDialog.dismiss();
             }
 
-            if (mIsPlaying) {
-                mMediaControl.getDuration(mDurationListener);
+            if (mPositionTracker != null) {
+                mPositionTracker.updatePlayState(state);
             }
         }
 
@@ -416,20 +422,6 @@ public class BeamPlayerFragment extends Fragment implements TorrentServerListene
         }
     };
 
-    private MediaControl.DurationListener mDurationListener = new MediaControl.DurationListener() {
-        @Override
-        public void onError(ServiceCommandError error) {
-        }
-
-        @Override
-        public void onSuccess(Long duration) {
-            if(mTotalTimeDuration != duration) {
-                mTotalTimeDuration = duration;
-                mButterSeekBar.setMax(duration.intValue());
-            }
-            //durationTextView.setText(formatTime(duration.intValue()));
-        }
-    };
 
     private VolumeControl.VolumeListener mVolumeListener = new VolumeControl.VolumeListener() {
         @Override
@@ -442,28 +434,32 @@ public class BeamPlayerFragment extends Fragment implements TorrentServerListene
         }
     };
 
-    private Runnable mPositionRunnable = new Runnable() {
+    private BeamPositionTracker.Listener mPositionListener = new BeamPositionTracker.Listener() {
         @Override
-        public void run() {
-            mMediaControl.getPosition(new MediaControl.PositionListener() {
-                @Override
-                public void onSuccess(Long position) {
-                    if (!mIsUserSeeking) {
-                        mButterSeekBar.setProgress(position.intValue());
-                        mButterSeekBar.setSecondaryProgress(0); // hack to make the secondary progress appear on Android 5.0
-                        mButterSeekBar.setSecondaryProgress(mDownloadProgress.intValue());
-                    }
+        public void onPositionUpdate(long position, long duration) {
+            if(FragmentUtil.isNotAdded(BeamPlayerFragment.this)) {
+                return;
+            }
 
-                    if (mLoadingDialog.isVisible() && !getActivity().isFinishing() && position > 0) {
-                        mLoadingDialog.dismiss();
-                    }
-                }
+            if (duration > 0 && mTotalTimeDuration != duration) {
+                mTotalTimeDuration = duration;
+                mButterSeekBar.setMax((int) duration);
+            }
 
-                @Override
-                public void onError(ServiceCommandError error) {
+            if (!mIsUserSeeking && !mProcessingSeeking) {
+                mButterSeekBar.setProgress((int) position);
+                mButterSeekBar.setSecondaryProgress(0); // hack to make the secondary progress appear on Android 5.0
+                mButterSeekBar.setSecondaryProgress(mDownloadProgress.intValue());
+            }
 
-                }
-            });
+            if (mLoadingDialog.isVisible() && !getActivity().isFinishing() && position > 0) {
+                mLoadingDialog.dismiss();
+            }
+        }
+
+        @Override
+        public void onPlayStateChanged(MediaControl.PlayStateStatus state) {
+            mPlayStateListener.onSuccess(state);
         }
     };
 
@@ -477,17 +473,15 @@ public class BeamPlayerFragment extends Fragment implements TorrentServerListene
                     mButterSeekBar.setSecondaryProgress(mDownloadProgress.intValue());
 
                     mProcessingSeeking = true;
-                    mMediaControl.seek(mButterSeekBar.getProgress(), new ResponseListener<Object>() {
+                    seek(mButterSeekBar.getProgress(), new ResponseListener<Object>() {
                         @Override
                         public void onSuccess(Object response) {
                             mProcessingSeeking = false;
-                            startUpdating();
                         }
 
                         @Override
                         public void onError(ServiceCommandError error) {
                             mProcessingSeeking = false;
-                            startUpdating();
                         }
                     });
                 } else {
@@ -501,7 +495,6 @@ public class BeamPlayerFragment extends Fragment implements TorrentServerListene
         @Override
         public void onStartTrackingTouch(android.widget.SeekBar seekBar) {
             mIsUserSeeking = true;
-            stopUpdating();
         }
 
         @Override
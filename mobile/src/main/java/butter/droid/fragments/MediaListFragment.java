@@ -21,6 +21,7 @@ import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.drawable.BitmapDrawable;
 import android.os.Bundle;
+import android.text.TextUtils;
 import androidx.annotation.Nullable;
 import com.google.android.material.snackbar.Snackbar;
 import androidx.fragment.app.Fragment;
@@ -37,6 +38,10 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
 
 import javax.inject.Inject;
 
@@ -81,6 +86,8 @@ public class MediaListFragment extends Fragment implements LoadingDetailDialogFr
     public static final String EXTRA_MODE = "extra_mode";
     public static final String DIALOG_LOADING_DETAIL = "DIALOG_LOADING_DETAIL";
     public static final int LOADING_DIALOG_FRAGMENT = 1;
+    private static final int LOCAL_RESULTS = 30;
+    private static final int LOCAL_LIST = 90;
     @Inject
     ProviderManager providerManager;
     @Inject
@@ -103,6 +110,8 @@ public class MediaListFragment extends Fragment implements LoadingDetailDialogFr
     private State mState = State.UNINITIALISED;
     private Mode mMode = Mode.NORMAL;
     private ArrayList<Media> mItems = new ArrayList<>();
+    //whether the items are from the catalog, until the first page arrives
+    private boolean mShowingLocalList = false;
     private boolean mEndOfListReached = false;
     private int mTotalItemCount = 0, mLoadingTreshold = mColumns * 3, mPreviousTotal = 0;
     private int mPage = 1;
@@ -111,8 +120,18 @@ public class MediaListFragment extends Fragment implements LoadingDetailDialogFr
         @Override
         @DebugLog
         public void onSuccess(MediaProvider.Filters filters, final ArrayList<Media> items) {
+            if (!TextUtils.equals(filters.getKeywords(), mFilters.getKeywords())) {
+                // a page of a search the user typed past, the local results are shown instead
+                return;
+            }
+            if (mShowingLocalList) {
+                mShowingLocalList = false;
+                mItems.clear();
+            }
             items.removeAll(mItems);
             mEndOfListReached = items.size() == 0;
+            // the local results of a search are other instances of the same items
+            removeShown(items);
             if (!mEndOfListReached) {
                 mItems.addAll(items);
                 if (isAdded()) {
@@ -132,7 +151,7 @@ public class MediaListFragment extends Fragment implements LoadingDetailDialogFr
         @Override
         @DebugLog
         public void onFailure(Exception e) {
-            if (!isDetached() || !e.getMessage().equals("Canceled")) {
+            if (!isDetached() && !"Canceled".equals(e.getMessage())) {
                 e.printStackTrace();
                 ThreadUtils.runOnUiThread(new Runnable() {
                     @Override
@@ -253,6 +272,16 @@ public class MediaListFragment extends Fragment implements LoadingDetailDialogFr
         mAdapter = new MediaGridAdapter(mContext, mItems, mColumns);
         mAdapter.setOnItemClickListener(mOnItemClickListener);
         mRecyclerView.setAdapter(mAdapter);
+
+        // the first list drawn ends a cold start
+        view.post(new Runnable() {
+            @Override
+            public void run() {
+                if (getActivity() != null) {
+                    ButterApplication.getAppContext().getStartup().onContentDrawn(getActivity(), "MediaListFragment");
+                }
+            }
+        });
     }
 
     @Override
@@ -270,6 +299,7 @@ public class MediaListFragment extends Fragment implements LoadingDetailDialogFr
             mFilters.setGenre(genre);
             mFilters.setPage(1);
 
+            showLocalList();
             setState(State.LOADING);
             providerManager.getCurrentMediaProvider()
                     .getList(new MediaProvider.Filters(mFilters), mCallback);
@@ -312,6 +342,7 @@ public class MediaListFragment extends Fragment implements LoadingDetailDialogFr
         if (mMode == Mode.SEARCH) {
             mEmptyView.setText(getString(R.string.no_search_results));
         } else if (mAdapter.getItemCount() == 0) { //don't load initial data in search mode
+            showLocalList();
             setState(State.LOADING);
             providerManager.getCurrentMediaProvider().getList(new MediaProvider.Filters(mFilters), mCallback);/* fetch new items */
         } else {
@@ -334,6 +365,10 @@ public class MediaListFragment extends Fragment implements LoadingDetailDialogFr
                         break;
                     case SEARCHING:
                         mLoadingMessage = R.string.searching;
+                        if (mItems.size() > 0) {
+                            mEmptyView.setVisibility(View.GONE);
+                            mRecyclerView.setVisibility(View.VISIBLE);
+                        }
                         break;
                     case LOADING:
                         if (mAdapter.isLoading()) mAdapter.removeLoading();
@@ -374,6 +409,36 @@ public class MediaListFragment extends Fragment implements LoadingDetailDialogFr
         loadingFragment.show(getFragmentManager(), DIALOG_LOADING_DETAIL);
     }
 
+    /**
+     * Shows the items of the list pages loaded before the way the server would list them, while the
+     * first page loads.
+     */
+    private void showLocalList() {
+        mItems.addAll(providerManager.getCurrentMediaProvider().getLocalList(mFilters, LOCAL_LIST));
+        mShowingLocalList = !mItems.isEmpty();
+        mAdapter.setItems(mItems);
+    }
+
+    /**
+     * Shows the items of the list pages loaded before that match the query, without asking the server.
+     */
+    public void showLocalResults(String searchQuery) {
+        if (!isAdded()) return;
+        if (null == mAdapter) return;
+
+        // the server is only asked when the search is submitted, a search running already is
+        // only canceled by the next one
+        mEndOfListReached = true;
+        mFilters.setKeywords(searchQuery);
+
+        mItems.clear();
+        mItems.addAll(providerManager.getCurrentMediaProvider().searchLocal(searchQuery, mFilters.getGenre(), LOCAL_RESULTS));
+        mAdapter.setItems(mItems);
+
+        mState = State.LOADED;
+        updateUI();
+    }
+
     public void triggerSearch(String searchQuery) {
         if (!isAdded()) return;
         if (null == mAdapter) return;
@@ -394,6 +459,10 @@ public class MediaListFragment extends Fragment implements LoadingDetailDialogFr
             return; //don't do a search for empty queries
         }
 
+        // shown until the server answers, its results are added after them
+        mItems.addAll(providerManager.getCurrentMediaProvider().searchLocal(searchQuery, mFilters.getGenre(), LOCAL_RESULTS));
+        mAdapter.setItems(mItems);
+
         setState(State.SEARCHING);
         mPage = 1;
         mFilters.setPage(mPage);
@@ -402,6 +471,18 @@ public class MediaListFragment extends Fragment implements LoadingDetailDialogFr
         providerManager.getCurrentMediaProvider().getList(new MediaProvider.Filters(mFilters), mCallback);
     }
 
+    private void removeShown(List<Media> items) {
+        Set<String> shown = new HashSet<>();
+        for (Media item : mItems) {
+            shown.add(item.videoId);
+        }
+        for (Iterator<Media> iterator = items.iterator(); iterator.hasNext(); ) {
+            if (shown.contains(iterator.next().videoId)) {
+                iterator.remove();
+            }
+        }
+    }
+
     /**
      * Called when loading media details fails
      */
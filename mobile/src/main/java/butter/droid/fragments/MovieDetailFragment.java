@@ -38,6 +38,7 @@ import butter.droid.base.manager.provider.ProviderManager;
 import butter.droid.base.manager.youtube.YouTubeManager;
 import butter.droid.base.providers.media.models.Movie;
 import butter.droid.base.providers.subs.SubsProvider;
+import butter.droid.base.providers.subs.SubtitleCache;
 import butter.droid.base.torrent.Magnet;
 import butter.droid.base.torrent.StreamInfo;
 import butter.droid.base.torrent.TorrentHealth;
@@ -61,6 +62,8 @@ public class MovieDetailFragment extends BaseDetailFragment {
     ProviderManager providerManager;
     @Inject
     YouTubeManager youTubeManager;
+    @Inject
+    SubtitleCache subtitleCache;
 
     private static Movie sMovie;
     private String mSelectedSubtitleLanguage, mSelectedQuality;
@@ -180,7 +183,7 @@ public class MovieDetailFragment extends BaseDetailFragment {
             mSubtitles.setClickable(false);
 
             if (providerManager.hasCurrentSubsProvider()) {
-                providerManager.getCurrentSubsProvider().getList(sMovie, new SubsProvider.Callback() {
+                subtitleCache.getList(providerManager.getCurrentSubsProvider(), sMovie, new SubsProvider.Callback() {
                     @Override
                     public void onSuccess(Map<String, String> subtitles) {
                         if (!mAttached) return;
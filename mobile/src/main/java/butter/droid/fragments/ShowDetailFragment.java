@@ -22,14 +22,17 @@ import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 
+import javax.inject.Inject;
+
+import butter.droid.MobileButterApplication;
 import butter.droid.R;
 import butter.droid.adapters.ShowDetailPagerAdapter;
 import butter.droid.base.fragments.dialog.StringArraySelectorDialogFragment;
-import butter.droid.base.providers.media.models.Episode;
+import butter.droid.base.manager.provider.ProviderManager;
 import butter.droid.base.providers.media.models.Show;
+import butter.droid.base.providers.subs.SeasonSubtitleIndex;
 import butter.droid.base.utils.PixelUtils;
 import butter.droid.base.utils.VersionUtils;
 import butter.droid.fragments.base.BaseDetailFragment;
@@ -43,6 +46,11 @@ import butterknife.Optional;
 
 public class ShowDetailFragment extends BaseDetailFragment {
 
+    @Inject
+    ProviderManager providerManager;
+    @Inject
+    SeasonSubtitleIndex seasonSubtitleIndex;
+
     private static Show sShow;
     private Boolean mIsTablet = false;
 
@@ -83,6 +91,14 @@ public class ShowDetailFragment extends BaseDetailFragment {
     @Override
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        MobileButterApplication.getAppContext()
+                .getComponent()
+                .inject(this);
+
+        // the subtitles of the episodes are ready by the time one is opened
+        if (sShow != null && providerManager.hasCurrentSubsProvider()) {
+            seasonSubtitleIndex.prefetch(providerManager.getCurrentSubsProvider(), sShow);
+        }
     }
 
     @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
@@ -184,12 +200,9 @@ public class ShowDetailFragment extends BaseDetailFragment {
         }
 
         final ArrayList<Integer> availableSeasons = new ArrayList<>();
-        for (Episode episode : sShow.episodes) {
-            if (!availableSeasons.contains(episode.season)) {
-                availableSeasons.add(episode.season);
-            }
+        for (int season : sShow.episodes.getSeasonNumbers()) {
+            availableSeasons.add(season);
         }
-        Collections.sort(availableSeasons);
 
         boolean hasSpecial = availableSeasons.indexOf(0) > -1;
         if (hasSpecial)
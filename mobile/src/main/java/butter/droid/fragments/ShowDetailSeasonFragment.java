@@ -9,8 +9,6 @@ import android.view.View;
 import android.view.ViewGroup;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
 
 import butter.droid.R;
@@ -46,23 +44,8 @@ public class ShowDetailSeasonFragment extends BaseDetailFragment {
 
         if(sShow == null) return;
 
-        for (Episode episode : sShow.episodes) {
-            if (episode.season == season) {
-                mEpisodes.add(episode);
-            }
-        }
-
-        Collections.sort(mEpisodes, new Comparator<Episode>() {
-            @Override
-            public int compare(Episode lhs, Episode rhs) {
-                if (lhs.episode < rhs.episode) {
-                    return -1;
-                } else if (lhs.episode > rhs.episode) {
-                    return 1;
-                }
-                return 0;
-            }
-        });
+        // maps the episodes of this season only, sorted already
+        mEpisodes.addAll(sShow.episodes.get(season));
     }
 
     public int getSeasonNumber() {
@@ -21,6 +21,7 @@ import android.annotation.TargetApi;
 import android.app.AlertDialog;
 import android.content.Context;
 import android.content.DialogInterface;
+import android.graphics.Bitmap;
 import android.graphics.Color;
 import android.graphics.PorterDuff;
 import android.graphics.drawable.Drawable;
@@ -51,6 +52,7 @@ import android.view.WindowManager;
 import android.view.animation.Animation;
 import android.view.animation.AnimationUtils;
 import android.widget.ImageButton;
+import android.widget.ImageView;
 import android.widget.ProgressBar;
 import android.widget.RelativeLayout;
 import android.widget.SeekBar;
@@ -105,6 +107,8 @@ public class VideoPlayerFragment extends BaseVideoPlayerFragment implements View
     TextView mCurrentTimeTextView;
     @BindView(R.id.length_time)
     TextView lengthTime;
+    @BindView(R.id.seek_thumbnail)
+    ImageView mSeekThumbnail;
     View mDecorView;
 
     private AudioManager mAudioManager;
@@ -131,6 +135,9 @@ public class VideoPlayerFragment extends BaseVideoPlayerFragment implements View
     private int mAudioMax;
     private float mVol;
 
+    // time of the preview shown while dragging the seek bar, -1 if none is shown
+    private long mSeekThumbnailTime = -1;
+
     private boolean mIsFirstBrightnessGesture = true;
     private float mRestoreAutoBrightness = -1f;
 
@@ -593,10 +600,14 @@ public class VideoPlayerFragment extends BaseVideoPlayerFragment implements View
         @Override
         public void onStopTrackingTouch(SeekBar seekBar) {
             setSeeking(false);
+            hideSeekThumbnail();
         }
 
         @Override
         public void onProgressChanged(SeekBar seekBar, int progress, boolean fromUser) {
+            if (fromUser && isSeeking()) {
+                showSeekThumbnail(progress);
+            }
             if (fromUser && isSeeking() && progress <= (getDuration() / 100 * seekBar.getSecondaryProgress())) {
                 setLastSubtitleCaption(null);
                 setCurrentTime(progress);
@@ -679,6 +690,46 @@ public class VideoPlayerFragment extends BaseVideoPlayerFragment implements View
         mProgressIndicator.setVisibility(visible ? View.VISIBLE : View.GONE);
     }
 
+    @Override
+    protected void onSeekThumbnailLoaded(long time) {
+        if (mSeekThumbnailTime >= 0) {
+            showSeekThumbnail(mSeekThumbnailTime);
+        }
+    }
+
+    /**
+     * Shows the preview of the time above the thumb of the seek bar. The previous preview stays
+     * until the new one is available.
+     */
+    private void showSeekThumbnail(long time) {
+        mSeekThumbnailTime = time;
+        Bitmap thumbnail = getSeekThumbnail(time);
+        if (thumbnail == null) {
+            return;
+        }
+
+        View parent = (View) mSeekThumbnail.getParent();
+        int[] barLocation = new int[2];
+        int[] parentLocation = new int[2];
+        mControlBar.getLocationInWindow(barLocation);
+        parent.getLocationInWindow(parentLocation);
+
+        int trackWidth = mControlBar.getWidth() - mControlBar.getPaddingLeft() - mControlBar.getPaddingRight();
+        float thumbX = barLocation[0] - parentLocation[0] + mControlBar.getPaddingLeft()
+                + trackWidth * ((float) time / Math.max(1, mControlBar.getMax()));
+        int width = mSeekThumbnail.getLayoutParams().width;
+        mSeekThumbnail.setTranslationX(Math.max(0, Math.min(parent.getWidth() - width, thumbX - width / 2f)));
+
+        mSeekThumbnail.setImageBitmap(thumbnail);
+        mSeekThumbnail.setVisibility(View.VISIBLE);
+    }
+
+    private void hideSeekThumbnail() {
+        mSeekThumbnailTime = -1;
+        mSeekThumbnail.setVisibility(View.GONE);
+        mSeekThumbnail.setImageDrawable(null);
+    }
+
     /**
      * Updates the overlay when the media playback progress has changed
      *
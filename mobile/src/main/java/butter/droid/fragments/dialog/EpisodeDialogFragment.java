@@ -54,9 +54,11 @@ import butter.droid.activities.MediaDetailActivity;
 import butter.droid.base.content.preferences.DefaultQuality;
 import butter.droid.base.content.preferences.Prefs;
 import butter.droid.base.manager.provider.ProviderManager;
+import butter.droid.base.providers.media.MediaRepository;
 import butter.droid.base.providers.media.models.Episode;
 import butter.droid.base.providers.media.models.Media;
 import butter.droid.base.providers.media.models.Show;
+import butter.droid.base.providers.subs.SeasonSubtitleIndex;
 import butter.droid.base.providers.subs.SubsProvider;
 import butter.droid.base.torrent.Magnet;
 import butter.droid.base.torrent.StreamInfo;
@@ -78,6 +80,10 @@ public class EpisodeDialogFragment extends DialogFragment {
 
     @Inject
     ProviderManager providerManager;
+    @Inject
+    SeasonSubtitleIndex seasonSubtitleIndex;
+    @Inject
+    MediaRepository mediaRepository;
 
     public static final String EXTRA_EPISODE = "episode";
     public static final String EXTRA_SHOW = "show";
@@ -91,6 +97,7 @@ public class EpisodeDialogFragment extends DialogFragment {
     private Episode mEpisode;
     private Show mShow;
     private Magnet mMagnet;
+    private SubsProvider.Callback mSubsCallback;
 
     @BindView(R.id.scrollview)
     BottomSheetScrollView mScrollView;
@@ -119,7 +126,11 @@ public class EpisodeDialogFragment extends DialogFragment {
     public static EpisodeDialogFragment newInstance(Show show, Episode episode) {
         EpisodeDialogFragment frag = new EpisodeDialogFragment();
         Bundle args = new Bundle();
-        args.putParcelable(EXTRA_SHOW, show);
+        // the key of the show, a show with all of its episodes is too large for the arguments
+        args.putString(EXTRA_SHOW, MobileButterApplication.getAppContext()
+                .getComponent()
+                .mediaRepository()
+                .put(show));
         args.putParcelable(EXTRA_EPISODE, episode);
         frag.setArguments(args);
         return frag;
@@ -131,10 +142,8 @@ public class EpisodeDialogFragment extends DialogFragment {
         View v = LayoutInflater.from(new ContextThemeWrapper(getActivity(), R.style.Theme_Butter)).inflate(R.layout.fragment_dialog_episode, container, false);
         ButterKnife.bind(this, v);
 
-        if (!VersionUtils.isJellyBean()) {
-            mPlayButton.setBackground(PixelUtils.changeDrawableColor(mPlayButton.getContext(), R.drawable.play_button_circle, mShow.color));
-        } else {
-            mPlayButton.setBackground(PixelUtils.changeDrawableColor(mPlayButton.getContext(), R.drawable.play_button_circle, mShow.color));
+        if (mShow != null) {
+            setShowColor();
         }
 
         LinearLayout.LayoutParams layoutParams = (LinearLayout.LayoutParams) mPlaceholder.getLayoutParams();
@@ -158,8 +167,31 @@ public class EpisodeDialogFragment extends DialogFragment {
         mActivity = getActivity();
         mThreshold = PixelUtils.getPixelsFromDp(mActivity, 220);
         mBottom = PixelUtils.getPixelsFromDp(mActivity, 33);
-        mShow = getArguments().getParcelable(EXTRA_SHOW);
         mEpisode = getArguments().getParcelable(EXTRA_EPISODE);
+        mediaRepository.get(getArguments().getString(EXTRA_SHOW), new MediaRepository.Callback<Show>() {
+            @Override
+            public void onMedia(Show show) {
+                mShow = show;
+                if (!isAdded()) {
+                    return;
+                }
+                if (show == null) {
+                    // the show left the repository, like after the process was killed
+                    dismissAllowingStateLoss();
+                } else if (mPlayButton != null) {
+                    setShowColor();
+                }
+            }
+        });
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private void setShowColor() {
+        if (!VersionUtils.isJellyBean()) {
+            mPlayButton.setBackground(PixelUtils.changeDrawableColor(mPlayButton.getContext(), R.drawable.play_button_circle, mShow.color));
+        } else {
+            mPlayButton.setBackground(PixelUtils.changeDrawableColor(mPlayButton.getContext(), R.drawable.play_button_circle, mShow.color));
+        }
     }
 
     @NonNull
@@ -202,8 +234,8 @@ public class EpisodeDialogFragment extends DialogFragment {
     @Override
     public void onDismiss(DialogInterface dialog) {
         super.onDismiss(dialog);
-        if (providerManager.hasCurrentSubsProvider())
-            providerManager.getCurrentSubsProvider().cancel();
+        if (providerManager.hasCurrentSubsProvider() && mSubsCallback != null)
+            seasonSubtitleIndex.cancel(providerManager.getCurrentSubsProvider(), mSubsCallback);
     }
 
     @Override
@@ -283,7 +315,7 @@ public class EpisodeDialogFragment extends DialogFragment {
         mSubtitles.setText(R.string.loading_subs);
         mSubtitles.setClickable(false);
         if (providerManager.hasCurrentSubsProvider()) {
-            providerManager.getCurrentSubsProvider().getList(mEpisode, new SubsProvider.Callback() {
+            mSubsCallback = new SubsProvider.Callback() {
                 @Override
                 public void onSuccess(Map<String, String> subtitles) {
                     if (FragmentUtil.isNotAdded(EpisodeDialogFragment.this)) return;
@@ -336,7 +368,8 @@ public class EpisodeDialogFragment extends DialogFragment {
                     mSubtitles.setData(new String[0]);
                     mSubtitles.setClickable(true);
                 }
-            });
+            };
+            seasonSubtitleIndex.getList(providerManager.getCurrentSubsProvider(), mEpisode, mSubsCallback);
         } else {
             mSubtitles.setText(R.string.no_subs_available);
         }
@@ -403,6 +436,10 @@ public class EpisodeDialogFragment extends DialogFragment {
 
     @OnClick(R.id.play_button)
     public void playClick() {
+        if (mShow == null) {
+            // still being read from disk
+            return;
+        }
         smoothDismiss();
         Media.Torrent torrent = mEpisode.torrents.get(mSelectedQuality);
         StreamInfo streamInfo = new StreamInfo(mEpisode, mShow, torrent.getUrl(), mSelectedSubtitleLanguage, mSelectedQuality);
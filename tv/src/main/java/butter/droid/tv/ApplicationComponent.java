@@ -19,6 +19,7 @@ package butter.droid.tv;
 
 import javax.inject.Singleton;
 
+import butter.droid.base.providers.media.MediaRepository;
 import butter.droid.tv.activities.TVMainActivity;
 import butter.droid.tv.activities.TVMediaDetailActivity;
 import butter.droid.tv.activities.TVMediaGridActivity;
@@ -89,4 +90,6 @@ public interface ApplicationComponent {
 
     void inject(RecommendationContentProvider contentProvider);
 
+    MediaRepository mediaRepository();
+
 }
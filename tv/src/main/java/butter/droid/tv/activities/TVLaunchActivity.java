@@ -43,8 +43,8 @@ public class TVLaunchActivity extends Activity {
 	protected void onCreate(Bundle savedInstanceState) {
 		super.onCreate(savedInstanceState);
 
-		Intent recommendationIntent = new Intent(this, RecommendationService.class);
-		startService(recommendationIntent);
+		RecommendationService.schedule(this);
+		RecommendationService.refresh(this);
 
 		if (ContextCompat.checkSelfPermission(this, Manifest.permission.RECORD_AUDIO) != PackageManager.PERMISSION_GRANTED) {
 			ActivityCompat.requestPermissions(this, new String[]{Manifest.permission.RECORD_AUDIO, Manifest.permission.WRITE_EXTERNAL_STORAGE}, PERMISSIONS_REQUEST);
@@ -22,7 +22,11 @@ import android.app.Activity;
 import android.content.Context;
 import android.content.Intent;
 import android.os.Bundle;
+import android.os.SystemClock;
 
+import javax.inject.Inject;
+
+import butter.droid.base.providers.media.MediaRepository;
 import butter.droid.base.providers.media.models.Media;
 import butter.droid.base.providers.media.models.Movie;
 import butter.droid.base.utils.VersionUtils;
@@ -32,12 +36,18 @@ import butter.droid.tv.activities.base.TVBaseActivity;
 import butter.droid.tv.fragments.TVMovieDetailsFragment;
 import butter.droid.tv.fragments.TVShowDetailsFragment;
 import butter.droid.tv.utils.BackgroundUpdater;
+import timber.log.Timber;
 
 public class TVMediaDetailActivity extends TVBaseActivity implements TVMovieDetailsFragment.Callback {
 
     public static final String EXTRA_ITEM = "item";
+    public static final String EXTRA_ITEM_KEY = "item_key";
+    private static final String EXTRA_START_TIME = "start_time";
     public static final String SHARED_ELEMENT_NAME = "hero";
 
+    @Inject
+    MediaRepository mediaRepository;
+
     private BackgroundUpdater mBackgroundUpdater = new BackgroundUpdater();
 
     public static Intent startActivity(Activity activity, Media item) {
@@ -50,7 +60,25 @@ public class TVMediaDetailActivity extends TVBaseActivity implements TVMovieDeta
         return intent;
     }
 
+    /**
+     * Builds an intent that only carries the key of the item in the {@link MediaRepository}.
+     */
     public static Intent buildIntent(Context context, Media item){
+        Intent intent = new Intent(context, TVMediaDetailActivity.class);
+        intent.putExtra(EXTRA_ITEM_KEY, TVButterApplication.getAppContext()
+                .getComponent()
+                .mediaRepository()
+                .put(item));
+        intent.putExtra(EXTRA_START_TIME, SystemClock.elapsedRealtime());
+        return intent;
+    }
+
+    /**
+     * Builds an intent that carries the item itself, for intents that may be used long after the
+     * item left the {@link MediaRepository}, like those of notifications. Only for small items
+     * such as movies.
+     */
+    public static Intent buildParcelIntent(Context context, Media item){
         Intent intent = new Intent(context, TVMediaDetailActivity.class);
         intent.putExtra(EXTRA_ITEM, item);
         return intent;
@@ -70,7 +98,38 @@ public class TVMediaDetailActivity extends TVBaseActivity implements TVMovieDeta
         super.onCreate(savedInstanceState, R.layout.activity_media_details);
 
         mBackgroundUpdater.initialise(this, R.color.black);
-        Media media = getIntent().getParcelableExtra(EXTRA_ITEM);
+        final String key = getIntent().getStringExtra(EXTRA_ITEM_KEY);
+        if (key == null) {
+            Media media = getIntent().getParcelableExtra(EXTRA_ITEM);
+            if (media == null) {
+                finish();
+            } else {
+                showMedia(mediaRepository.put(media), media);
+            }
+            return;
+        }
+
+        mediaRepository.get(key, new MediaRepository.Callback<Media>() {
+            @Override
+            public void onMedia(Media media) {
+                if (getSupportFragmentManager().isDestroyed()) {
+                    // closed while the media was read
+                    return;
+                }
+                if (media == null) {
+                    finish();
+                } else {
+                    showMedia(key, media);
+                }
+            }
+        });
+    }
+
+    private void showMedia(String key, Media media) {
+        if (getIntent().hasExtra(EXTRA_START_TIME)) {
+            Timber.d("Details of %s opened %d ms after they were requested", media.title,
+                    SystemClock.elapsedRealtime() - getIntent().getLongExtra(EXTRA_START_TIME, 0));
+        }
 
         updateBackground(media.headerImage);
 
@@ -79,9 +138,9 @@ public class TVMediaDetailActivity extends TVBaseActivity implements TVMovieDeta
         }
 
         if (media instanceof Movie) {
-            getSupportFragmentManager().beginTransaction().replace(R.id.fragment, TVMovieDetailsFragment.newInstance(media)).commit();
+            getSupportFragmentManager().beginTransaction().replace(R.id.fragment, TVMovieDetailsFragment.newInstance(key)).commitAllowingStateLoss();
         } else {
-            getSupportFragmentManager().beginTransaction().replace(R.id.fragment, TVShowDetailsFragment.newInstance(media)).commit();
+            getSupportFragmentManager().beginTransaction().replace(R.id.fragment, TVShowDetailsFragment.newInstance(key)).commitAllowingStateLoss();
         }
         getSupportFragmentManager().executePendingTransactions();
 
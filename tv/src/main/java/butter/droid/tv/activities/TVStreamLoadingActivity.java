@@ -36,6 +36,7 @@ import butter.droid.tv.activities.base.TVBaseActivity;
 public class TVStreamLoadingActivity extends TVBaseActivity implements BaseStreamLoadingFragment.FragmentListener {
 
 	public final static String EXTRA_STREAM_INFO = "stream_info";
+	// key of the show in the MediaRepository
 	public final static String EXTRA_SHOW_INFO = "show_info";
 
 	private StreamInfo mInfo;
@@ -51,7 +52,10 @@ public class TVStreamLoadingActivity extends TVBaseActivity implements BaseStrea
 	public static Intent startActivity(Activity activity, StreamInfo info, Show show) {
 		Intent i = new Intent(activity, TVStreamLoadingActivity.class);
 		i.putExtra(EXTRA_STREAM_INFO, info);
-		i.putExtra(EXTRA_SHOW_INFO, show);
+		i.putExtra(EXTRA_SHOW_INFO, TVButterApplication.getAppContext()
+				.getComponent()
+				.mediaRepository()
+				.put(show));
 		activity.startActivity(i);
 		return i;
 	}
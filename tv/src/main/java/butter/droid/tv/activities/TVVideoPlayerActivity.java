@@ -41,6 +41,7 @@ public class TVVideoPlayerActivity extends TVBaseActivity implements TVVideoPlay
     private TVPlaybackOverlayFragment mPlaybackOverlayFragment;
 
     public final static String EXTRA_STREAM_INFO = "stream_info";
+    // key of the show in the MediaRepository
     public final static String EXTRA_SHOW_INFO = "episode_info";
 
     private StreamInfo mStreamInfo;
@@ -65,7 +66,10 @@ public class TVVideoPlayerActivity extends TVBaseActivity implements TVVideoPlay
     public static Intent startActivity(Context context, StreamInfo info, Show show) {
         Intent i = new Intent(context, TVVideoPlayerActivity.class);
         i.putExtra(EXTRA_STREAM_INFO, info);
-        i.putExtra(EXTRA_SHOW_INFO, show);
+        i.putExtra(EXTRA_SHOW_INFO, TVButterApplication.getAppContext()
+                .getComponent()
+                .mediaRepository()
+                .put(show));
         // todo: resume position
         context.startActivity(i);
         return i;
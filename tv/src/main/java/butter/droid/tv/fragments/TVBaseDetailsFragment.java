@@ -41,7 +41,10 @@ import com.squareup.picasso.Target;
 
 import java.util.ArrayList;
 
+import javax.inject.Inject;
+
 import butter.droid.base.providers.media.MediaProvider;
+import butter.droid.base.providers.media.MediaRepository;
 import butter.droid.base.providers.media.models.Media;
 import butter.droid.base.utils.ThreadUtils;
 import butter.droid.base.utils.VersionUtils;
@@ -54,6 +57,9 @@ public abstract class TVBaseDetailsFragment extends DetailsSupportFragment
     public static final String EXTRA_ITEM = "item";
     public static final String EXTRA_HERO_URL = "hero_url";
 
+    @Inject
+    MediaRepository mediaRepository;
+
     private ArrayObjectAdapter mAdapter;
     private ClassPresenterSelector mPresenterSelector;
     private Media mItem;
@@ -63,7 +69,23 @@ public abstract class TVBaseDetailsFragment extends DetailsSupportFragment
     public void onActivityCreated(Bundle savedInstanceState) {
         super.onActivityCreated(savedInstanceState);
 
-        mItem = getArguments().getParcelable(EXTRA_ITEM);
+        mediaRepository.get(getArguments().getString(EXTRA_ITEM), new MediaRepository.Callback<Media>() {
+            @Override
+            public void onMedia(Media media) {
+                if (!isAdded()) {
+                    return;
+                }
+                if (media == null) {
+                    getActivity().finish();
+                } else {
+                    showItem(media);
+                }
+            }
+        });
+    }
+
+    private void showItem(Media item) {
+        mItem = item;
         mHeroImage = mItem.image;
 
         setupAdapter();
@@ -166,6 +188,8 @@ public abstract class TVBaseDetailsFragment extends DetailsSupportFragment
         Media itemDetail = items.get(0);
 
         mItem = itemDetail;
+        // a recreated screen gets the details too
+        mediaRepository.put(itemDetail);
 
         ThreadUtils.runOnUiThread(new Runnable() {
             @Override public void run() {
@@ -49,6 +49,7 @@ import butter.droid.tv.TVButterApplication;
 import butter.droid.tv.activities.TVMediaDetailActivity;
 import butter.droid.tv.presenters.MediaCardPresenter;
 import butter.droid.tv.utils.BackgroundUpdater;
+import butter.droid.tv.utils.DetailPrefetcher;
 import hugo.weaving.DebugLog;
 import timber.log.Timber;
 
@@ -62,6 +63,8 @@ public class TVMediaGridFragment extends VerticalGridFragment implements OnItemV
 
     @Inject
     ProviderManager providerManager;
+    @Inject
+    DetailPrefetcher detailPrefetcher;
     private List<MediaCardPresenter.MediaCardItem> mItems = new ArrayList<>();
     private ArrayObjectAdapter mAdapter;
     private Callback mCallback;
@@ -174,6 +177,7 @@ public class TVMediaGridFragment extends VerticalGridFragment implements OnItemV
     public void onDestroy() {
         super.onDestroy();
         if (null != mBackgroundUpdater) mBackgroundUpdater.destroy();
+        detailPrefetcher.cancel();
     }
 
     private void onMediaItemClicked(ImageCardView view, MediaCardPresenter.MediaCardItem media) {
@@ -195,7 +199,9 @@ public class TVMediaGridFragment extends VerticalGridFragment implements OnItemV
             MediaCardPresenter.MediaCardItem overviewItem = (MediaCardPresenter.MediaCardItem) item;
             if (overviewItem.isLoading()) return;
 
-            mBackgroundUpdater.updateBackgroundAsync(((MediaCardPresenter.MediaCardItem) item).getMedia().headerImage);
+            mBackgroundUpdater.updateBackgroundAsync(overviewItem.getMedia().headerImage,
+                    BackgroundUpdater.getNeighbourBackgrounds(mItems, item));
+            detailPrefetcher.onItemFocused(mItems, item);
         }
 
         //really hacky way of making and 'endless' adapter
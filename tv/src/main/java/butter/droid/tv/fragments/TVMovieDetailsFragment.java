@@ -37,6 +37,7 @@ import butter.droid.base.content.preferences.Prefs;
 import butter.droid.base.manager.provider.ProviderManager;
 import butter.droid.base.manager.youtube.YouTubeManager;
 import butter.droid.base.providers.media.MediaProvider;
+import butter.droid.base.providers.media.MediaRepository;
 import butter.droid.base.providers.media.models.Media;
 import butter.droid.base.providers.media.models.Movie;
 import butter.droid.base.providers.subs.SubsProvider;
@@ -56,11 +57,14 @@ public class TVMovieDetailsFragment extends TVBaseDetailsFragment implements Med
 	@Inject
 	YouTubeManager youTubeManager;
 
-	public static Fragment newInstance(Media media) {
+	/**
+	 * @param mediaKey Key of the media in the {@link MediaRepository}
+	 */
+	public static Fragment newInstance(String mediaKey) {
 		TVMovieDetailsFragment fragment = new TVMovieDetailsFragment();
 
 		Bundle bundle = new Bundle();
-		bundle.putParcelable(EXTRA_ITEM, media);
+		bundle.putString(EXTRA_ITEM, mediaKey);
 
 		fragment.setArguments(bundle);
 		return fragment;
@@ -43,6 +43,7 @@ import java.util.List;
 
 import javax.inject.Inject;
 
+import butter.droid.base.ButterApplication;
 import butter.droid.base.manager.provider.ProviderManager;
 import butter.droid.base.providers.media.MediaProvider;
 import butter.droid.base.providers.media.models.Media;
@@ -60,6 +61,7 @@ import butter.droid.tv.activities.TVVideoPlayerActivity;
 import butter.droid.tv.presenters.MediaCardPresenter;
 import butter.droid.tv.presenters.MorePresenter;
 import butter.droid.tv.utils.BackgroundUpdater;
+import butter.droid.tv.utils.DetailPrefetcher;
 import hugo.weaving.DebugLog;
 import okhttp3.Call;
 import okhttp3.Callback;
@@ -72,6 +74,8 @@ public class TVOverviewFragment extends BrowseFragment implements OnItemViewClic
 
     @Inject
     ProviderManager providerManager;
+    @Inject
+    DetailPrefetcher detailPrefetcher;
 
     private Integer mSelectedRow = 0;
 
@@ -109,12 +113,23 @@ public class TVOverviewFragment extends BrowseFragment implements OnItemViewClic
         setupEventListeners();
         setupAdapters();
         loadData();
+
+        // the first overview drawn ends a cold start
+        getView().post(new Runnable() {
+            @Override
+            public void run() {
+                if (getActivity() != null) {
+                    ButterApplication.getAppContext().getStartup().onContentDrawn(getActivity(), "TVOverviewFragment");
+                }
+            }
+        });
     }
 
     @Override
     public void onDestroy() {
         super.onDestroy();
         if (null != mBackgroundUpdater) mBackgroundUpdater.destroy();
+        detailPrefetcher.cancel();
     }
 
     @Override
@@ -133,7 +148,9 @@ public class TVOverviewFragment extends BrowseFragment implements OnItemViewClic
         if (item instanceof MediaCardPresenter.MediaCardItem) {
             MediaCardPresenter.MediaCardItem overviewItem = (MediaCardPresenter.MediaCardItem) item;
             if (overviewItem.isLoading()) return;
-            mBackgroundUpdater.updateBackgroundAsync(((MediaCardPresenter.MediaCardItem) item).getMedia().headerImage);
+            mBackgroundUpdater.updateBackgroundAsync(overviewItem.getMedia().headerImage,
+                    BackgroundUpdater.getNeighbourBackgrounds(((ListRow) row).getAdapter(), item));
+            detailPrefetcher.onItemFocused(((ListRow) row).getAdapter(), item);
         }
     }
 
@@ -21,6 +21,7 @@ import android.app.Activity;
 import android.app.AlertDialog;
 import android.content.Context;
 import android.content.DialogInterface;
+import android.graphics.Bitmap;
 import android.os.AsyncTask;
 import android.os.Bundle;
 import android.os.Handler;
@@ -52,21 +53,22 @@ import android.view.KeyEvent;
 import android.view.View;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 
 import de.greenrobot.event.EventBus;
 import butter.droid.base.activities.TorrentActivity;
 import butter.droid.base.content.preferences.Prefs;
+import butter.droid.base.providers.media.MediaRepository;
 import butter.droid.base.providers.media.models.Episode;
 import butter.droid.base.providers.media.models.Media;
 import butter.droid.base.providers.media.models.Show;
 import butter.droid.base.providers.subs.SubsProvider;
+import butter.droid.base.torrent.SeekThumbnailStrip;
 import butter.droid.base.torrent.StreamInfo;
 import butter.droid.base.utils.PrefUtils;
 import butter.droid.tv.R;
+import butter.droid.tv.TVButterApplication;
 import butter.droid.tv.activities.TVStreamLoadingActivity;
 import butter.droid.tv.activities.TVVideoPlayerActivity;
 import butter.droid.tv.events.ConfigureSubtitleEvent;
@@ -75,6 +77,8 @@ import butter.droid.tv.events.PlaybackProgressChangedEvent;
 import butter.droid.tv.events.ScaleVideoEvent;
 import butter.droid.tv.events.SeekBackwardEvent;
 import butter.droid.tv.events.SeekForwardEvent;
+import butter.droid.tv.events.SeekThumbnailLoadedEvent;
+import butter.droid.tv.events.SeekThumbnailsEvent;
 import butter.droid.tv.events.StartPlaybackEvent;
 import butter.droid.tv.events.StreamProgressChangedEvent;
 import butter.droid.tv.events.ToggleSubtitleEvent;
@@ -122,6 +126,8 @@ public class TVPlaybackOverlayFragment extends PlaybackSupportFragment
     private int mCurrentTime;
     private int mFastForwardSpeed = SeekForwardEvent.MINIMUM_SEEK_SPEED;
     private int mRewindSpeed = SeekBackwardEvent.MINIMUM_SEEK_SPEED;
+    private SeekThumbnailStrip mSeekThumbnails;
+    private long mSeekThumbnailTime = -1;
 
     @SuppressLint("RestrictedApi")
     @Override
@@ -289,6 +295,15 @@ public class TVPlaybackOverlayFragment extends PlaybackSupportFragment
                 if (mRowsAdapter != null) mRowsAdapter.notifyArrayItemRangeChanged(0, mRowsAdapter.size());
             }
         }
+        else if (event instanceof SeekThumbnailsEvent) {
+            mSeekThumbnails = ((SeekThumbnailsEvent) event).getThumbnails();
+        }
+        else if (event instanceof SeekThumbnailLoadedEvent) {
+            // the preview asked for while seeking wasn't extracted or read yet
+            if (mSeekThumbnailTime >= 0 && showSeekThumbnail(mSeekThumbnailTime)) {
+                mRowsAdapter.notifyArrayItemRangeChanged(0, 1);
+            }
+        }
         else if (event instanceof ToggleSubtitleEvent) {
             ToggleSubtitleEvent toggleSubtitleEvent = (ToggleSubtitleEvent) event;
             if (toggleSubtitleEvent.isEnabled()) {
@@ -461,6 +476,7 @@ public class TVPlaybackOverlayFragment extends PlaybackSupportFragment
 
                     if (currentTime < mPlaybackControlsRow.getTotalTime()) {
                         mPlaybackControlsRow.setCurrentTime(currentTime);
+                        showSeekThumbnail(currentTime);
                         mRowsAdapter.notifyArrayItemRangeChanged(0, 1);
                         mSeek += mFastForwardSpeed;
                     }
@@ -502,6 +518,7 @@ public class TVPlaybackOverlayFragment extends PlaybackSupportFragment
 
                     if (currentTime > 0) {
                         mPlaybackControlsRow.setCurrentTime(currentTime);
+                        showSeekThumbnail(currentTime);
                         mRowsAdapter.notifyArrayItemRangeChanged(0, 1);
                         mSeek += mRewindSpeed;
                     }
@@ -530,7 +547,36 @@ public class TVPlaybackOverlayFragment extends PlaybackSupportFragment
         mHandlerPlaybackSpeed.postDelayed(runnablePlaybackSpeed, speedRefreshDuration);
     }
 
+    /**
+     * Shows the preview of the time in the controls row while seeking, the previous one stays until
+     * it is available.
+     *
+     * @return whether the preview changed
+     */
+    private boolean showSeekThumbnail(long time) {
+        if (mSeekThumbnails == null) {
+            return false;
+        }
+
+        mSeekThumbnailTime = time;
+        Bitmap thumbnail = mSeekThumbnails.get(time);
+        if (thumbnail != null) {
+            mPlaybackControlsRow.setImageBitmap(getActivity(), thumbnail);
+            return true;
+        }
+        return false;
+    }
+
+    private void hideSeekThumbnail() {
+        mSeekThumbnailTime = -1;
+        if (mPlaybackControlsRow.getImageDrawable() != null) {
+            mPlaybackControlsRow.setImageDrawable(null);
+            mRowsAdapter.notifyArrayItemRangeChanged(0, 1);
+        }
+    }
+
     private void triggerFastForwardEvent() {
+        hideSeekThumbnail();
         SeekForwardEvent event = new SeekForwardEvent();
         event.setSeek(mSeek);
         mSeek = 0;
@@ -538,6 +584,7 @@ public class TVPlaybackOverlayFragment extends PlaybackSupportFragment
     }
 
     private void triggerRewindEvent() {
+        hideSeekThumbnail();
         SeekBackwardEvent event = new SeekBackwardEvent();
         event.setSeek(mSeek);
         mSeek = 0;
@@ -557,12 +604,21 @@ public class TVPlaybackOverlayFragment extends PlaybackSupportFragment
             return;
         }
 
-        Episode mEpisodeInfo = (Episode) mStreamInfo.getMedia();
-        mShow = getActivity().getIntent().getParcelableExtra(TVVideoPlayerActivity.EXTRA_SHOW_INFO);
-        if (mShow == null) return;
-
-        SkipEpisodeAsyncTask skipEpisodeAsyncTask = new SkipEpisodeAsyncTask(mEpisodeInfo);
-        skipEpisodeAsyncTask.execute(mShow);
+        final Episode mEpisodeInfo = (Episode) mStreamInfo.getMedia();
+        TVButterApplication.getAppContext()
+                .getComponent()
+                .mediaRepository()
+                .get(getActivity().getIntent().getStringExtra(TVVideoPlayerActivity.EXTRA_SHOW_INFO),
+                        new MediaRepository.Callback<Show>() {
+                            @Override
+                            public void onMedia(Show show) {
+                                mShow = show;
+                                if (mShow == null || !isAdded()) return;
+
+                                SkipEpisodeAsyncTask skipEpisodeAsyncTask = new SkipEpisodeAsyncTask(mEpisodeInfo);
+                                skipEpisodeAsyncTask.execute(mShow);
+                            }
+                        });
     }
 
     private void playSelectedEpisode(@NonNull final Episode episode) {
@@ -665,8 +721,8 @@ public class TVPlaybackOverlayFragment extends PlaybackSupportFragment
     }
 
     /**
-     * Sort available episodes of a TV show. Then determine if a previous or next
-     * episode is available. Sorting probably can take a while.
+     * Determine if a previous or next episode of a TV show is available. The episodes are sorted
+     * already, but their seasons might still have to be mapped.
      */
     class SkipEpisodeAsyncTask extends AsyncTask<Show, Void, Void> {
 
@@ -679,30 +735,8 @@ public class TVPlaybackOverlayFragment extends PlaybackSupportFragment
         @Override
         protected Void doInBackground(Show... shows) {
             for (Show show : shows) {
-                Collections.sort(show.episodes, new Comparator<Episode>() {
-                    @Override
-                    public int compare(Episode me, Episode them) {
-                        return (me.season * 10 + me.episode) - (them.season * 10 + them.episode);
-                    }
-                });
-
-                int episodeIndex = 0;
-                int episodes = show.episodes.size() - 1;
-
-                for (Episode episode : show.episodes) {
-                    if (mEpisode.season == episode.season && mEpisode.episode == episode.episode) {
-                        break;
-                    }
-                    episodeIndex++;
-                }
-
-                if (episodeIndex < episodes) {
-                    mNextEpisode = show.episodes.get(episodeIndex + 1);
-                }
-
-                if (episodeIndex > 0) {
-                    mPreviousEpisode = show.episodes.get(episodeIndex - 1);
-                }
+                mNextEpisode = show.episodes.getAdjacent(mEpisode, true);
+                mPreviousEpisode = show.episodes.getAdjacent(mEpisode, false);
             }
 
             return null;
@@ -38,20 +38,25 @@ import javax.inject.Inject;
 
 import butter.droid.base.manager.provider.ProviderManager;
 import butter.droid.base.providers.media.MediaProvider;
+import butter.droid.base.providers.media.catalog.MediaCatalog;
 import butter.droid.base.providers.media.models.Media;
 import butter.droid.tv.R;
 import butter.droid.tv.TVButterApplication;
 import butter.droid.tv.activities.TVMediaDetailActivity;
 import butter.droid.tv.presenters.MediaCardPresenter;
 import butter.droid.tv.utils.BackgroundUpdater;
+import butter.droid.tv.utils.DetailPrefetcher;
 import hugo.weaving.DebugLog;
 
 public class TVSearchFragment extends androidx.leanback.app.SearchFragment
 		implements androidx.leanback.app.SearchFragment.SearchResultProvider {
 	private static final int SEARCH_DELAY_MS = 300;
+	private static final int LOCAL_RESULTS = 30;
 
 	@Inject
 	ProviderManager providerManager;
+	@Inject
+	DetailPrefetcher detailPrefetcher;
 
 	private MediaProvider.Filters mSearchFilter = new MediaProvider.Filters();
 
@@ -59,6 +64,7 @@ public class TVSearchFragment extends androidx.leanback.app.SearchFragment
 	private Handler mHandler = new Handler();
 	private SearchRunnable mDelayedLoad;
 	private ListRow mLoadingRow;
+	private String mQuery;
 	private BackgroundUpdater mBackgroundUpdater = new BackgroundUpdater();
 
 	@Override
@@ -86,6 +92,12 @@ public class TVSearchFragment extends androidx.leanback.app.SearchFragment
 		mLoadingRow = createLoadingRow();
 	}
 
+	@Override
+	public void onDestroy() {
+		super.onDestroy();
+		detailPrefetcher.cancel();
+	}
+
 	@Override
 	public ObjectAdapter getResultsAdapter() {
 		return mRowsAdapter;
@@ -99,74 +111,123 @@ public class TVSearchFragment extends androidx.leanback.app.SearchFragment
 	}
 
 	private void queryByWords(String words) {
-		mRowsAdapter.clear();
+		mHandler.removeCallbacks(mDelayedLoad);
 		if (!TextUtils.isEmpty(words)) {
 			mDelayedLoad.setSearchQuery(words);
-			mHandler.removeCallbacks(mDelayedLoad);
 			mHandler.postDelayed(mDelayedLoad, SEARCH_DELAY_MS);
 		}
 	}
 
 	@Override
 	public boolean onQueryTextChange(String newQuery) {
-		if (newQuery.length() > 3)
+		loadLocalRows(newQuery);
+		if (newQuery.length() > 3) {
 			queryByWords(newQuery);
+		} else {
+			mHandler.removeCallbacks(mDelayedLoad);
+		}
 		return true;
 	}
 
 	@Override
 	public boolean onQueryTextSubmit(String query) {
+		loadLocalRows(query);
 		queryByWords(query);
 		return true;
 	}
 
+	/**
+	 * Shows the items of the list pages loaded before that match the query, while typing.
+	 */
+	private void loadLocalRows(String query) {
+		mQuery = query;
+		mRowsAdapter.clear();
+		if (TextUtils.isEmpty(query)) {
+			return;
+		}
+
+		addLocalRow(ProviderManager.PROVIDER_TYPE_SHOW, getString(R.string.show_results), query);
+		addLocalRow(ProviderManager.PROVIDER_TYPE_MOVIE, getString(R.string.movie_results), query);
+	}
+
+	private void addLocalRow(int providerType, String title, String query) {
+		if (!providerManager.hasProvider(providerType)) {
+			return;
+		}
+
+		//noinspection ConstantConditions
+		List<Media> items = providerManager.getMediaProvider(providerType).searchLocal(query, null, LOCAL_RESULTS);
+		if (!items.isEmpty()) {
+			addRow(title, MediaCardPresenter.convertMediaToOverview(items));
+		}
+	}
+
 	@DebugLog
-	private void loadRows(String query) {
+	private void loadRows(final String query) {
+		if (!query.equals(mQuery)) {
+			return;
+		}
 		//mShowsProvider.cancel();
-		mRowsAdapter.clear();
+		mRowsAdapter.remove(mLoadingRow);
 		addLoadingRow();
 
 		mSearchFilter.setKeywords(query);
 		mSearchFilter.setPage(1);
-		if (providerManager.hasProvider(ProviderManager.PROVIDER_TYPE_SHOW)) {
-			MediaProvider mediaProvider = providerManager.getMediaProvider(ProviderManager.PROVIDER_TYPE_SHOW);
-			//noinspection ConstantConditions
-			mediaProvider.cancel();
-			mediaProvider.getList(mSearchFilter, new MediaProvider.Callback() {
-				@Override
-				public void onSuccess(MediaProvider.Filters filters, ArrayList<Media> items) {
-					List<MediaCardPresenter.MediaCardItem> list = MediaCardPresenter.convertMediaToOverview(items);
-					addRow(getString(R.string.show_results), list);
-				}
-
-
-				@Override
-				public void onFailure(Exception e) {
+		loadRow(ProviderManager.PROVIDER_TYPE_SHOW, getString(R.string.show_results), query);
+		loadRow(ProviderManager.PROVIDER_TYPE_MOVIE, getString(R.string.movie_results), query);
+	}
 
-				}
-			});
+	private void loadRow(int providerType, final String title, final String query) {
+		if (!providerManager.hasProvider(providerType)) {
+			return;
 		}
 
+		MediaProvider mediaProvider = providerManager.getMediaProvider(providerType);
+		//noinspection ConstantConditions
+		mediaProvider.cancel();
+		mediaProvider.getList(mSearchFilter, new MediaProvider.Callback() {
+			@Override
+			public void onSuccess(MediaProvider.Filters filters, final ArrayList<Media> items) {
+				mHandler.post(new Runnable() {
+					@Override
+					public void run() {
+						// results of a query that was typed over already
+						if (query.equals(mQuery)) {
+							mergeRow(title, items);
+						}
+					}
+				});
+			}
 
-		if (providerManager.hasProvider(ProviderManager.PROVIDER_TYPE_MOVIE)) {
-			MediaProvider mediaProvider = providerManager.getMediaProvider(ProviderManager.PROVIDER_TYPE_MOVIE);
-			//noinspection ConstantConditions
-			mediaProvider.cancel();
-			mediaProvider.getList(mSearchFilter, new MediaProvider.Callback() {
-				@Override
-				public void onSuccess(MediaProvider.Filters filters, ArrayList<Media> items) {
-					List<MediaCardPresenter.MediaCardItem> list = MediaCardPresenter.convertMediaToOverview(items);
-					addRow(getString(R.string.movie_results), list);
-				}
+			@Override
+			public void onFailure(Exception e) {
 
+			}
+		});
+	}
 
-				@Override
-				public void onFailure(Exception e) {
+	/**
+	 * Puts the server's results in front of the local ones of the row, or adds the row if there were none.
+	 */
+	private void mergeRow(String title, List<Media> items) {
+		for (int i = 0; i < mRowsAdapter.size(); i++) {
+			Object row = mRowsAdapter.get(i);
+			if (row == mLoadingRow || !title.equals(((ListRow) row).getHeaderItem().getName())) {
+				continue;
+			}
 
-				}
-			});
+			ArrayObjectAdapter listRowAdapter = (ArrayObjectAdapter) ((ListRow) row).getAdapter();
+			List<Media> local = new ArrayList<>();
+			for (int j = 0; j < listRowAdapter.size(); j++) {
+				local.add(((MediaCardPresenter.MediaCardItem) listRowAdapter.get(j)).getMedia());
+			}
+			listRowAdapter.clear();
+			listRowAdapter.addAll(0, MediaCardPresenter.convertMediaToOverview(MediaCatalog.merge(items, local)));
+			mRowsAdapter.remove(mLoadingRow);
+			return;
 		}
 
+		addRow(title, MediaCardPresenter.convertMediaToOverview(items));
 	}
 
 	private void addRow(String title, List<MediaCardPresenter.MediaCardItem> items) {
@@ -203,7 +264,9 @@ public class TVSearchFragment extends androidx.leanback.app.SearchFragment
 				MediaCardPresenter.MediaCardItem overviewItem = (MediaCardPresenter.MediaCardItem) item;
 				if (overviewItem.isLoading()) return;
 
-				mBackgroundUpdater.updateBackgroundAsync(overviewItem.getMedia().headerImage);
+				mBackgroundUpdater.updateBackgroundAsync(overviewItem.getMedia().headerImage,
+						BackgroundUpdater.getNeighbourBackgrounds(((ListRow) row).getAdapter(), item));
+				detailPrefetcher.onItemFocused(((ListRow) row).getAdapter(), item);
 			}
 		}
 	}
@@ -29,24 +29,25 @@ import androidx.leanback.widget.ClassPresenterSelector;
 import androidx.leanback.widget.DetailsOverviewRow;
 import androidx.leanback.widget.HeaderItem;
 import androidx.leanback.widget.ListRow;
+import androidx.leanback.widget.ObjectAdapter;
 import androidx.leanback.widget.OnActionClickedListener;
+import androidx.leanback.widget.Presenter;
 import androidx.leanback.widget.PresenterSelector;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
 
 import javax.inject.Inject;
 
 import butter.droid.base.content.preferences.Prefs;
 import butter.droid.base.manager.provider.ProviderManager;
 import butter.droid.base.providers.media.MediaProvider;
+import butter.droid.base.providers.media.MediaRepository;
 import butter.droid.base.providers.media.models.Episode;
 import butter.droid.base.providers.media.models.Media;
 import butter.droid.base.providers.media.models.Show;
+import butter.droid.base.providers.subs.SeasonSubtitleIndex;
 import butter.droid.base.providers.subs.SubsProvider;
 import butter.droid.base.torrent.StreamInfo;
 import butter.droid.base.utils.PrefUtils;
@@ -63,12 +64,17 @@ public class TVShowDetailsFragment extends TVBaseDetailsFragment
 
     @Inject
     ProviderManager providerManager;
+    @Inject
+    SeasonSubtitleIndex seasonSubtitleIndex;
 
-    public static Fragment newInstance(Media media) {
+    /**
+     * @param mediaKey Key of the media in the {@link MediaRepository}
+     */
+    public static Fragment newInstance(String mediaKey) {
         TVShowDetailsFragment fragment = new TVShowDetailsFragment();
 
         Bundle bundle = new Bundle();
-        bundle.putParcelable(EXTRA_ITEM, media);
+        bundle.putString(EXTRA_ITEM, mediaKey);
 
         fragment.setArguments(bundle);
         return fragment;
@@ -88,7 +94,8 @@ public class TVShowDetailsFragment extends TVBaseDetailsFragment
         ArrayList<Media> mediaList = new ArrayList<>();
         mediaList.add(getShowItem());
 
-        providerManager.getCurrentMediaProvider().getDetail(mediaList, 0, this);
+        // the provider of the show, the prefetched details are cached per provider
+        providerManager.getMediaProvider(getShowItem().getProviderType()).getDetail(mediaList, 0, this);
     }
 
     @Override
@@ -99,6 +106,11 @@ public class TVShowDetailsFragment extends TVBaseDetailsFragment
     @Override
     void onDetailLoaded() {
         updateShowsAdapterContent();
+
+        // fills in the subtitles of the episodes, the stream of an episode needs them
+        if (providerManager.hasCurrentSubsProvider()) {
+            seasonSubtitleIndex.prefetch(providerManager.getCurrentSubsProvider(), getShowItem());
+        }
     }
 
     @Override
@@ -138,45 +150,17 @@ public class TVShowDetailsFragment extends TVBaseDetailsFragment
     }
 
     private void updateShowsAdapterContent() {
-        final TreeMap<Integer, List<Episode>> seasons = new TreeMap<>(new Comparator<Integer>() {
-            @Override
-            public int compare(Integer me, Integer other) {
-                return me - other;
-            }
-        });
-
-        for (Episode episode : getShowItem().episodes) {
-            // create list of season if does not exists
-            if (!seasons.containsKey(episode.season)) {
-                seasons.put(episode.season, new ArrayList<Episode>());
-            }
-
-            // add episode to the list
-            final List<Episode> seasonEpisodes = seasons.get(episode.season);
-            seasonEpisodes.add(episode);
-        }
+        Show show = getShowItem();
+        int[] seasons = show.episodes.getSeasonNumbers();
 
+        // latest season first, a season is only mapped once its row is bound
         ArrayObjectAdapter objectAdapter = getObjectArrayAdapter();
-
-        for (Integer seasonKey : seasons.descendingKeySet()) {
-            Collections.sort(seasons.get(seasonKey), new Comparator<Episode>() {
-                @Override
-                public int compare(Episode me, Episode other) {
-                    if (me.episode < other.episode) return -1;
-                    else if (me.episode > other.episode) return 1;
-                    return 0;
-                }
-            });
-
+        for (int i = seasons.length - 1; i >= 0; i--) {
+            int season = seasons[i];
             EpisodeCardPresenter presenter = new EpisodeCardPresenter(getActivity());
             presenter.setOnClickListener(this);
-            ArrayObjectAdapter episodes = new ArrayObjectAdapter(presenter);
-
-            for (Episode episode : seasons.get(seasonKey)) {
-                episodes.add(episode);
-            }
-            HeaderItem header = new HeaderItem(seasonKey, String.format("Season %d", seasonKey));
-            objectAdapter.add(new ListRow(header, episodes));
+            HeaderItem header = new HeaderItem(season, String.format("Season %d", season));
+            objectAdapter.add(new ListRow(header, new SeasonAdapter(presenter, show, season)));
         }
 
         objectAdapter.notifyArrayItemRangeChanged(0, objectAdapter.size());
@@ -201,6 +185,38 @@ public class TVShowDetailsFragment extends TVBaseDetailsFragment
                 }).show();
     }
 
+    /**
+     * The episodes of a season, which maps the season when the first of them is bound.
+     */
+    private class SeasonAdapter extends ObjectAdapter {
+        private final Show show;
+        private final int season;
+        private List<Episode> episodes;
+
+        SeasonAdapter(Presenter presenter, Show show, int season) {
+            super(presenter);
+            this.show = show;
+            this.season = season;
+        }
+
+        @Override
+        public int size() {
+            return show.episodes.getSize(season);
+        }
+
+        @Override
+        public Object get(int position) {
+            if (episodes == null) {
+                episodes = show.episodes.get(season);
+                // the subtitles of the seasons are loading already, fill in the new episodes
+                if (getActivity() != null && providerManager.hasCurrentSubsProvider()) {
+                    seasonSubtitleIndex.prefetch(providerManager.getCurrentSubsProvider(), show);
+                }
+            }
+            return episodes.get(position);
+        }
+    }
+
     private void onTorrentSelected(Episode episode, Map.Entry<String, Media.Torrent> torrent) {
         String subtitleLanguage = PrefUtils.get(
             getActivity(),
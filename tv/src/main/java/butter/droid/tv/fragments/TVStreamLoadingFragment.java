@@ -48,7 +48,10 @@ import com.github.se_bastiaan.torrentstream.StreamStatus;
 
 import java.text.DecimalFormat;
 
+import javax.inject.Inject;
+
 import butter.droid.base.fragments.BaseStreamLoadingFragment;
+import butter.droid.base.providers.media.MediaRepository;
 import butter.droid.base.providers.media.models.Show;
 import butter.droid.base.torrent.StreamInfo;
 import butter.droid.base.utils.ThreadUtils;
@@ -62,6 +65,9 @@ import butterknife.ButterKnife;
 
 public class TVStreamLoadingFragment extends BaseStreamLoadingFragment {
 
+	@Inject
+	MediaRepository mediaRepository;
+
 	View mRoot;
 	@BindView(R.id.progressIndicator)
 	ProgressBar progressIndicator;
@@ -168,16 +174,24 @@ public class TVStreamLoadingFragment extends BaseStreamLoadingFragment {
 	}
 
 	@Override
-	protected void startPlayerActivity(String location, int resumePosition) {
+	protected void startPlayerActivity(String location, final int resumePosition) {
 		if (getActivity() != null && !mPlayerStarted) {
 			mStreamInfo.setVideoLocation(location);
-			if (getActivity().getIntent().hasExtra(TVStreamLoadingActivity.EXTRA_SHOW_INFO)) {
-				Show show = getActivity().getIntent().getParcelableExtra(TVStreamLoadingActivity.EXTRA_SHOW_INFO);
-				TVVideoPlayerActivity.startActivity(getActivity(), mStreamInfo, show);
-			}
-			else {
-				TVVideoPlayerActivity.startActivity(getActivity(), mStreamInfo, resumePosition);
-			}
+			mediaRepository.get(getActivity().getIntent().getStringExtra(TVStreamLoadingActivity.EXTRA_SHOW_INFO),
+					new MediaRepository.Callback<Show>() {
+						@Override
+						public void onMedia(Show show) {
+							if (getActivity() == null) {
+								return;
+							}
+							if (show != null) {
+								TVVideoPlayerActivity.startActivity(getActivity(), mStreamInfo, show);
+							}
+							else {
+								TVVideoPlayerActivity.startActivity(getActivity(), mStreamInfo, resumePosition);
+							}
+						}
+					});
 		}
 	}
 
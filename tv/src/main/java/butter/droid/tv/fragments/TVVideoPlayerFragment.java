@@ -56,6 +56,7 @@ import butter.droid.base.content.preferences.Prefs;
 import butter.droid.base.fragments.BaseVideoPlayerFragment;
 import butter.droid.base.providers.media.models.Media;
 import butter.droid.base.subs.Caption;
+import butter.droid.base.torrent.SeekThumbnailStrip;
 import butter.droid.base.torrent.StreamInfo;
 import butter.droid.base.utils.PrefUtils;
 import butter.droid.base.widget.StrokedTextView;
@@ -68,6 +69,8 @@ import butter.droid.tv.events.PlaybackProgressChangedEvent;
 import butter.droid.tv.events.ScaleVideoEvent;
 import butter.droid.tv.events.SeekBackwardEvent;
 import butter.droid.tv.events.SeekForwardEvent;
+import butter.droid.tv.events.SeekThumbnailLoadedEvent;
+import butter.droid.tv.events.SeekThumbnailsEvent;
 import butter.droid.tv.events.StartPlaybackEvent;
 import butter.droid.tv.events.StreamProgressChangedEvent;
 import butter.droid.tv.events.ToggleSubtitleEvent;
@@ -278,6 +281,16 @@ public class TVVideoPlayerFragment extends BaseVideoPlayerFragment {
         mMediaSession.release();
     }
 
+    @Override
+    protected void onSeekThumbnailsCreated(SeekThumbnailStrip thumbnails) {
+        EventBus.getDefault().post(new SeekThumbnailsEvent(thumbnails));
+    }
+
+    @Override
+    protected void onSeekThumbnailLoaded(long time) {
+        EventBus.getDefault().post(new SeekThumbnailLoadedEvent(time));
+    }
+
     @Override
     public void onStreamReady(Torrent torrent) { }
 
@@ -481,7 +494,7 @@ public class TVVideoPlayerFragment extends BaseVideoPlayerFragment {
             Context context = contextReference.get();
             Media media = extras.getParcelable(TVMediaDetailActivity.EXTRA_ITEM);
             if (media == null) return;
-            Intent detailIntent = TVMediaDetailActivity.buildIntent(
+            Intent detailIntent = TVMediaDetailActivity.buildParcelIntent(
                     context,
                     media);
             detailIntent.setAction(media.videoId);
@@ -17,8 +17,6 @@
 
 package butter.droid.tv.receivers;
 
-import android.app.AlarmManager;
-import android.app.PendingIntent;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
@@ -32,26 +30,12 @@ import butter.droid.tv.service.RecommendationService;
 public class BootReceiver extends BroadcastReceiver {
     private static final String TAG = "ReceiverActivity";
 
-    private static final long INITIAL_DELAY = 5000;
-
     @Override
     public void onReceive(Context context, Intent intent) {
         Log.d(TAG, "BootupReceiver initiated");
         if (intent.getAction().endsWith(Intent.ACTION_BOOT_COMPLETED)) {
-            scheduleRecommendationUpdate(context);
+            Log.d(TAG, "Scheduling recommendations update");
+            RecommendationService.onBoot(context);
         }
     }
-
-    private void scheduleRecommendationUpdate(Context context) {
-        Log.d(TAG, "Scheduling recommendations update");
-
-        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
-        Intent recommendationIntent = new Intent(context, RecommendationService.class);
-        PendingIntent alarmIntent = PendingIntent.getService(context, 0, recommendationIntent, 0);
-
-        alarmManager.setInexactRepeating(AlarmManager.ELAPSED_REALTIME_WAKEUP,
-                INITIAL_DELAY,
-                AlarmManager.INTERVAL_HALF_HOUR,
-                alarmIntent);
-    }
 }
@@ -14,48 +14,145 @@
  * You should have received a copy of the GNU General Public License
  * along with Butter. If not, see <http://www.gnu.org/licenses/>.
  */
-
 package butter.droid.tv.service;
 
-import android.app.IntentService;
+import android.app.AlarmManager;
+import android.app.NotificationManager;
 import android.app.PendingIntent;
 import android.app.TaskStackBuilder;
+import android.app.job.JobInfo;
+import android.app.job.JobParameters;
+import android.app.job.JobScheduler;
+import android.app.job.JobService;
+import android.content.ComponentName;
+import android.content.Context;
 import android.content.Intent;
-import androidx.annotation.NonNull;
+import android.content.pm.PackageManager;
+import android.os.SystemClock;
+import android.service.notification.StatusBarNotification;
+
+import com.squareup.picasso.Picasso;
+import com.squareup.picasso.StatsSnapshot;
+
+import org.json.JSONException;
+import org.json.JSONObject;
 
 import java.io.IOException;
+import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.util.ArrayList;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import javax.inject.Inject;
 
+import butter.droid.base.data.TrafficCounter;
 import butter.droid.base.manager.provider.ProviderManager;
 import butter.droid.base.providers.media.MediaProvider;
 import butter.droid.base.providers.media.models.Episode;
 import butter.droid.base.providers.media.models.Media;
 import butter.droid.base.providers.media.models.Movie;
 import butter.droid.base.providers.media.models.Show;
+import butter.droid.base.utils.PrefUtils;
 import butter.droid.base.utils.VersionUtils;
 import butter.droid.tv.R;
 import butter.droid.tv.TVButterApplication;
 import butter.droid.tv.activities.TVMediaDetailActivity;
 import butter.droid.tv.service.recommendation.RecommendationBuilder;
 import butter.droid.tv.service.recommendation.RecommendationContentProvider;
+import butter.droid.tv.service.recommendation.RecommendationImageCache;
 import timber.log.Timber;
 
-public class RecommendationService extends IntentService {
+/**
+ * Keeps the recommendation cards of the Android TV home screen up to date.
+ * <p/>
+ * Runs as a job, every {@link #UPDATE_INTERVAL} while the device is idle and once shortly after
+ * the app is launched, always with a network connection. The cards that were posted last time are
+ * remembered, only cards that changed or aren't showing anymore are posted again and cards that are
+ * gone are removed. Card
+ * images are loaded through Picasso, at most {@link #IMAGE_THREADS} at a time, and their backgrounds
+ * stored in the {@link RecommendationImageCache} the launcher reads them from.
+ */
+public class RecommendationService extends JobService {
+
+    private static final int JOB_PERIODIC = 1;
+    private static final int JOB_REFRESH = 2;
+    private static final long UPDATE_INTERVAL = AlarmManager.INTERVAL_HALF_HOUR;
+    // leaves the network to the app while it is starting
+    private static final long REFRESH_DELAY = 10000;
+    private static final long LIST_TIMEOUT = 30000;
+    private static final long CARD_TIMEOUT = 30000;
+    private static final int IMAGE_THREADS = 3;
 
     private static final int MAX_MOVIE_RECOMMENDATIONS = 10;
     private static final int MAX_SHOW_RECOMMENDATIONS = 10;
+    private static final int MAX_RECOMMENDATIONS = MAX_MOVIE_RECOMMENDATIONS + MAX_SHOW_RECOMMENDATIONS;
+
+    private static final String POSTED_CARDS = "recommendation_posted_cards";
+    private static final String POSTED_CARDS_INSTALL_TIME = "recommendation_posted_cards_install_time";
+
     @Inject
     ProviderManager providerManager;
-    private ArrayList<Media> mMovies = new ArrayList<>();
-    private ArrayList<Media> mShows = new ArrayList<>();
-    private int PRIORITY = MAX_MOVIE_RECOMMENDATIONS + MAX_SHOW_RECOMMENDATIONS;
-    private int TOTAL_COUNT = 0;
-    public RecommendationService() {
-        super("RecommendationService");
+    @Inject
+    RecommendationImageCache imageCache;
+    @Inject
+    TrafficCounter trafficCounter;
+
+    private final ExecutorService worker = Executors.newSingleThreadExecutor();
+    private final ExecutorService imageLoader = Executors.newFixedThreadPool(IMAGE_THREADS);
+    private volatile boolean stopped;
+
+    /**
+     * Schedules the periodic update, if it isn't scheduled yet.
+     */
+    public static void schedule(Context context) {
+        JobScheduler scheduler = (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        for (JobInfo job : scheduler.getAllPendingJobs()) {
+            if (job.getId() == JOB_PERIODIC) {
+                return;
+            }
+        }
+
+        scheduler.schedule(new JobInfo.Builder(JOB_PERIODIC, new ComponentName(context, RecommendationService.class))
+                .setRequiredNetworkType(JobInfo.NETWORK_TYPE_ANY)
+                .setRequiresDeviceIdle(true)
+                .setPeriodic(UPDATE_INTERVAL)
+                .setPersisted(true)
+                .build());
+    }
+
+    /**
+     * Updates the cards soon. Calls that follow each other quickly result in a single update.
+     */
+    public static void refresh(Context context) {
+        JobScheduler scheduler = (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        // replaces a refresh that is still waiting
+        scheduler.schedule(new JobInfo.Builder(JOB_REFRESH, new ComponentName(context, RecommendationService.class))
+                .setRequiredNetworkType(JobInfo.NETWORK_TYPE_ANY)
+                .setMinimumLatency(REFRESH_DELAY)
+                .build());
+    }
+
+    /**
+     * Forgets the posted cards after a reboot, since the notifications didn't survive it, and
+     * posts them again.
+     */
+    public static void onBoot(Context context) {
+        PrefUtils.remove(context, POSTED_CARDS);
+        schedule(context);
+        refresh(context);
     }
 
     @Override
@@ -67,173 +164,239 @@ public class RecommendationService extends IntentService {
                 .inject(this);
     }
 
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        worker.shutdownNow();
+        imageLoader.shutdownNow();
+    }
 
     @Override
-    protected void onHandleIntent(Intent intent) {
+    public boolean onStartJob(final JobParameters params) {
         if (!VersionUtils.isAndroidTV()) {
-            return;
+            return false;
         }
 
-        try {
-            Thread.sleep(10000);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
-
-        MediaProvider.Filters movieFilter = new MediaProvider.Filters();
-        movieFilter.setOrder(MediaProvider.Filters.Order.DESC);
-        movieFilter.setSort(MediaProvider.Filters.Sort.TRENDING);
-
-        /*
-        Disabled, since no shows provider
-        MediaProvider.Filters showsFilter = new MediaProvider.Filters();
-        showsFilter.order = MediaProvider.Filters.Order.DESC;
-        showsFilter.sort = MediaProvider.Filters.Sort.DATE;
-        */
+        stopped = false;
+        worker.execute(new Runnable() {
+            @Override
+            public void run() {
+                boolean retry;
+                try {
+                    retry = !update();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (!stopped) {
+                    jobFinished(params, retry);
+                }
+            }
+        });
+        return true;
+    }
 
-        final AtomicBoolean mMoviesCallFinished = new AtomicBoolean(false);
-        final AtomicBoolean mShowsCallFinished = new AtomicBoolean(false);
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        Timber.d("Recommendation update stopped");
+        stopped = true;
+        return true;
+    }
 
+    /**
+     * @return false if nothing could be loaded and the update should be retried
+     */
+    private boolean update() throws InterruptedException {
+        long start = SystemClock.elapsedRealtime();
+        long received = trafficCounter.getReceivedBytes();
+        StatsSnapshot images = Picasso.get().getSnapshot();
 
-        Timber.d("Fetching movies");
-        //fetch movies
+        ListRequest movies = null;
         if (providerManager.hasProvider(ProviderManager.PROVIDER_TYPE_MOVIE)) {
-            Timber.d("Fetching movies");
+            MediaProvider.Filters movieFilter = new MediaProvider.Filters();
+            movieFilter.setOrder(MediaProvider.Filters.Order.DESC);
+            movieFilter.setSort(MediaProvider.Filters.Sort.TRENDING);
+
+            movies = new ListRequest("movies");
             //noinspection ConstantConditions
-            providerManager.getMediaProvider(ProviderManager.PROVIDER_TYPE_MOVIE)
-                    .getList(movieFilter, new MediaProvider.Callback() {
-                        @Override
-                        public void onSuccess(MediaProvider.Filters filters, ArrayList<Media> items) {
-                            Timber.d(String.format("loaded %s movies", items.size()));
-                            mMovies.addAll(items);
-                            mMoviesCallFinished.set(true);
-                        }
+            providerManager.getMediaProvider(ProviderManager.PROVIDER_TYPE_MOVIE).getList(movieFilter, movies);
+        }
+        // shows are disabled, since there is no shows provider
 
-                        @Override
-                        public void onFailure(Exception e) {
-                            Timber.d("Failed to fetch movies");
-                            mMoviesCallFinished.set(true);
-                        }
-                    });
+        List<Card> cards = new ArrayList<>();
+        if (movies != null) {
+            addCards(cards, movies.get(LIST_TIMEOUT), MAX_MOVIE_RECOMMENDATIONS);
+        }
+        if (cards.isEmpty() || stopped) {
+            Timber.d("No recommendations loaded");
+            return stopped;
         }
 
-        /*
-        Disabled, since no shows provider
+        int posted = post(cards);
+
+        // the lists come through the shared client, other requests of the app running meanwhile count too
+        long bytes = trafficCounter.getReceivedBytes() - received;
+        StatsSnapshot imagesAfter = Picasso.get().getSnapshot();
+        Timber.i("Recommendations updated in %d ms: %d cards, %d posted, %d bytes of lists fetched, "
+                        + "%d images downloaded (%d bytes), %d from cache",
+                SystemClock.elapsedRealtime() - start, cards.size(), posted, bytes,
+                imagesAfter.downloadCount - images.downloadCount,
+                imagesAfter.totalDownloadSize - images.totalDownloadSize,
+                imagesAfter.cacheHits - images.cacheHits);
+        return true;
+    }
 
-        Timber.d("Fetching shows");
-        //fetch shows
-        mShowProvider.getList(showsFilter, new MediaProvider.Callback() {
-            @Override
-            public void onSuccess(MediaProvider.Filters filters, ArrayList<Media> items, boolean changed) {
-                Timber.d(String.format("loaded %s shows", items.size()));
-                mShows.addAll(items);
-                mShowsCallFinished.set(true);
+    private void addCards(List<Card> cards, List<Media> items, int max) {
+        int count = 0;
+        for (Media media : items) {
+            if (count++ >= max) {
+                break;
             }
 
-            @Override
-            public void onFailure(Exception e) {
-                Timber.d("Failed to fetch shows");
-                mShowsCallFinished.set(true);
+            String description;
+            if (media instanceof Movie) {
+                description = ((Movie) media).synopsis;
+            } else {
+                Episode latestEpisode = findLatestEpisode((Show) media);
+                description = latestEpisode == null ? "" : getString(R.string.episode_number_format, latestEpisode.episode);
             }
-        });
-        */
-        mShowsCallFinished.set(true);
+            // the same card keeps the same id and priority
+            int slot = cards.size();
+            cards.add(new Card(-(slot + 1), MAX_RECOMMENDATIONS - slot, media, description));
+        }
+    }
+
+    /**
+     * Posts the cards that changed since the last update and removes the ones that are gone.
+     *
+     * @return the number of cards posted
+     */
+    private int post(List<Card> cards) throws InterruptedException {
+        NotificationManager notificationManager = (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
+        Map<Integer, String> previous = loadPosted(notificationManager);
+        Map<Integer, String> current = new HashMap<>();
+        Map<Card, Future<?>> pending = new HashMap<>();
+
+        for (final Card card : cards) {
+            String key = card.getKey();
+            if (key.equals(previous.remove(card.id))) {
+                current.put(card.id, key);
+                continue;
+            }
+
+            pending.put(card, imageLoader.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    Timber.d("Recommendation - %s", card.media.title);
+                    if (card.media.headerImage != null) {
+                        try {
+                            // ready before the launcher asks the content provider for it
+                            imageCache.load(card.media.headerImage);
+                        } catch (IOException e) {
+                            Timber.d(e, "Background of %s not cached", card.media.title);
+                        }
+                    }
+                    new RecommendationBuilder()
+                            .setContext(getApplicationContext())
+                            .setSmallIcon(R.drawable.header_logo)
+                            .setBackgroundContentUri(RecommendationContentProvider.CONTENT_URI + encode(card.media.headerImage))
+                            .setId(card.id)
+                            .setPriority(card.priority)
+                            .setTitle(card.media.title)
+                            .setDescription(card.description)
+                            .setImage(card.media.image)
+                            .setIntent(buildPendingIntent(card.media))
+                            .build();
+                    return null;
+                }
+            }));
+        }
 
-        //wait for callbacks to finish
-        while (!mShowsCallFinished.get() || !mMoviesCallFinished.get()) {
-            Timber.d("Waiting on callbacks");
+        long deadline = SystemClock.elapsedRealtime() + CARD_TIMEOUT;
+        int posted = 0;
+        for (Map.Entry<Card, Future<?>> entry : pending.entrySet()) {
             try {
-                Thread.sleep(200);
-            } catch (InterruptedException e) {
-                e.printStackTrace();
+                entry.getValue().get(Math.max(0, deadline - SystemClock.elapsedRealtime()), TimeUnit.MILLISECONDS);
+                current.put(entry.getKey().id, entry.getKey().getKey());
+                posted++;
+            } catch (ExecutionException | TimeoutException e) {
+                // not remembered, so the next update tries again
+                entry.getValue().cancel(true);
+                Timber.e(e, "Unable to update recommendation %s", entry.getKey().media.title);
             }
         }
 
-        Timber.d("mShowsCallFinished: " + mShowsCallFinished.get());
-        Timber.d("mMoviesCallFinished: " + mMoviesCallFinished.get());
-        //process items
+        for (Integer id : previous.keySet()) {
+            notificationManager.cancel(id);
+        }
 
-        Timber.d("Updating recommendation cards");
-        if (mMovies.size() == 0 && mShows.size() == 0)
-            return;
+        savePosted(current);
+        return posted;
+    }
 
+    /**
+     * @return the cards posted before that are still showing, cards the user dismissed or the system
+     * removed have to be posted again
+     */
+    private Map<Integer, String> loadPosted(NotificationManager notificationManager) {
+        Map<Integer, String> posted = new HashMap<>();
+        if (!VersionUtils.isMarshmallow() && PrefUtils.get(this, POSTED_CARDS_INSTALL_TIME, 0L) != getInstallTime()) {
+            // the showing notifications can't be listed, an update removed the ones posted before it
+            return posted;
+        }
 
-        RecommendationBuilder builder = new RecommendationBuilder()
-                .setContext(getApplicationContext())
-                .setSmallIcon(R.drawable.header_logo);
+        try {
+            JSONObject json = new JSONObject(PrefUtils.get(this, POSTED_CARDS, "{}"));
+            Iterator<String> ids = json.keys();
+            while (ids.hasNext()) {
+                String id = ids.next();
+                posted.put(Integer.parseInt(id), json.getString(id));
+            }
+        } catch (JSONException | NumberFormatException e) {
+            Timber.w(e, "Broken posted recommendations");
+        }
 
-        buildMovieRecommendations(builder);
-        buildShowRecommendations(builder);
+        if (VersionUtils.isMarshmallow()) {
+            Set<Integer> showing = new HashSet<>();
+            for (StatusBarNotification notification : notificationManager.getActiveNotifications()) {
+                showing.add(notification.getId());
+            }
+            posted.keySet().retainAll(showing);
+        }
+        return posted;
     }
 
-    private void buildMovieRecommendations(@NonNull RecommendationBuilder builder) {
-        Timber.d("building movie recommendations");
+    private void savePosted(Map<Integer, String> posted) {
+        JSONObject json = new JSONObject();
         try {
-            int count = 0;
-            for (Media media : mMovies) {
-                Movie movie = (Movie) media;
-
-                Timber.d("Recommendation - " + movie.title);
-                PRIORITY--;
-                TOTAL_COUNT--;
-                builder.setBackgroundContentUri(RecommendationContentProvider.CONTENT_URI + URLEncoder.encode(movie.headerImage, "UTF-8"))
-                        .setId(TOTAL_COUNT)
-                        .setPriority(PRIORITY)
-                        .setTitle(movie.title)
-                        .setDescription(movie.synopsis)
-                        .setImage(movie.image)
-                        .setIntent(buildPendingIntent(movie))
-                        .build();
-
-                if (++count >= MAX_MOVIE_RECOMMENDATIONS) {
-                    break;
-                }
-
+            for (Map.Entry<Integer, String> entry : posted.entrySet()) {
+                json.put(String.valueOf(entry.getKey()), entry.getValue());
             }
-        } catch (IOException e) {
-            Timber.e("Unable to update recommendation", e);
+        } catch (JSONException e) {
+            Timber.w(e, "Could not remember posted recommendations");
         }
+        PrefUtils.save(this, POSTED_CARDS, json.toString());
+        PrefUtils.save(this, POSTED_CARDS_INSTALL_TIME, getInstallTime());
     }
 
-    private void buildShowRecommendations(@NonNull RecommendationBuilder builder) {
-        Timber.d("building show recommendations");
+    private long getInstallTime() {
         try {
-            int count = 0;
-            for (Media media : mShows) {
-                Show show = (Show) media;
-
-                Timber.d("Recommendation - " + show.title);
-
-                Episode latestEpisode = findLatestEpisode(show);
-
-                PRIORITY--;
-                TOTAL_COUNT--;
-                builder.setBackgroundContentUri(RecommendationContentProvider.CONTENT_URI + URLEncoder.encode(show.headerImage, "UTF-8"))
-                        .setId(TOTAL_COUNT)
-                        .setPriority(PRIORITY)
-                        .setTitle(show.title)
-                        .setDescription(latestEpisode == null ? "" : getString(R.string.episode_number_format, latestEpisode.episode))
-                        .setImage(show.image)
-                        .setIntent(buildPendingIntent(show))
-                        .build();
-
-                if (++count >= MAX_SHOW_RECOMMENDATIONS) {
-                    break;
-                }
-
-            }
-        } catch (IOException e) {
-            Timber.e("Unable to update recommendation", e);
+            return getPackageManager().getPackageInfo(getPackageName(), 0).lastUpdateTime;
+        } catch (PackageManager.NameNotFoundException e) {
+            return 0;
         }
     }
 
+    private static String encode(String url) throws UnsupportedEncodingException {
+        return url == null ? "" : URLEncoder.encode(url, "UTF-8");
+    }
+
     private Episode findLatestEpisode(Show show) {
-        if (show.episodes == null || show.episodes.size() == 0) return null;
-        return show.episodes.get(show.episodes.size());
+        if (show.episodes == null) return null;
+        return show.episodes.getLatest();
     }
 
     private PendingIntent buildPendingIntent(Media media) {
-        Intent detailIntent = TVMediaDetailActivity.buildIntent(this, media);
+        Intent detailIntent = TVMediaDetailActivity.buildParcelIntent(this, media);
 
         TaskStackBuilder stackBuilder = TaskStackBuilder.create(this);
         stackBuilder.addParentStack(TVMediaDetailActivity.class);
@@ -245,4 +408,56 @@ public class RecommendationService extends IntentService {
         PendingIntent intent = stackBuilder.getPendingIntent(0, PendingIntent.FLAG_UPDATE_CURRENT);
         return intent;
     }
+
+    private static class Card {
+        final int id;
+        final int priority;
+        final Media media;
+        final String description;
+
+        Card(int id, int priority, Media media, String description) {
+            this.id = id;
+            this.priority = priority;
+            this.media = media;
+            this.description = description;
+        }
+
+        // everything the posted card shows, a card with the same key doesn't have to be posted again
+        String getKey() {
+            return media.videoId + '\n' + media.title + '\n' + description + '\n' + media.image + '\n' + media.headerImage;
+        }
+    }
+
+    /**
+     * The result of a list request, waited for with a timeout.
+     */
+    private static class ListRequest implements MediaProvider.Callback {
+        private final String name;
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile List<Media> items = new ArrayList<>();
+
+        ListRequest(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public void onSuccess(MediaProvider.Filters filters, ArrayList<Media> items) {
+            Timber.d("loaded %s %s", items.size(), name);
+            this.items = items;
+            done.countDown();
+        }
+
+        @Override
+        public void onFailure(Exception e) {
+            Timber.d(e, "Failed to fetch %s", name);
+            done.countDown();
+        }
+
+        List<Media> get(long timeout) throws InterruptedException {
+            if (!done.await(timeout, TimeUnit.MILLISECONDS)) {
+                Timber.d("Fetching %s timed out", name);
+            }
+            return items;
+        }
+    }
 }
@@ -22,30 +22,40 @@ import android.content.ContentValues;
 import android.database.Cursor;
 import android.net.Uri;
 import android.os.ParcelFileDescriptor;
+import android.os.SystemClock;
 import android.util.Log;
 
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.net.URL;
 import java.net.URLDecoder;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.inject.Inject;
 
 import butter.droid.tv.TVButterApplication;
-import okhttp3.OkHttpClient;
-import okhttp3.Request;
-import okhttp3.Request.Builder;
-import okhttp3.Response;
 
 public class RecommendationContentProvider extends ContentProvider {
 
-    public static final String AUTHORITY = "pct.droid.tv.RecommendationContentProvider";
+    public static final String AUTHORITY = "butter.droid.tv.RecommendationContentProvider";
     public static final String CONTENT_URI = "content://" + AUTHORITY + "/";
 
+    // images that aren't cached yet are only loaded a few at a time
+    private static final ExecutorService TRANSFER_EXECUTOR = Executors.newFixedThreadPool(2);
+
     @Inject
-    OkHttpClient client;
+    RecommendationImageCache imageCache;
+
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+    private final AtomicLong transferTime = new AtomicLong();
 
     private boolean initialized;
 
@@ -54,6 +64,10 @@ public class RecommendationContentProvider extends ContentProvider {
         return true;
     }
 
+    /**
+     * Serves the image from the {@link RecommendationImageCache}, an image that isn't cached yet
+     * is downloaded into it on a shared thread and streamed from there.
+     */
     @Override
     public ParcelFileDescriptor openFile(Uri uri, String mode)
             throws FileNotFoundException {
@@ -62,19 +76,23 @@ public class RecommendationContentProvider extends ContentProvider {
         String url = uri.getPath();
 
         try {
-            String decodedUrl = URLDecoder.decode(url.replaceFirst("/", ""),
+            final String decodedUrl = URLDecoder.decode(url.replaceFirst("/", ""),
                     "UTF-8");
-            pipe = ParcelFileDescriptor.createPipe();
-            Request request = new Builder()
-                    .url(new URL(decodedUrl))
-                    .build();
-
-            Response response = getOkHttpClient().newCall(request)
-                    .execute();
+            File file = getImageCache().get(decodedUrl);
+            if (file != null) {
+                hits.incrementAndGet();
+                return ParcelFileDescriptor.open(file, ParcelFileDescriptor.MODE_READ_ONLY);
+            }
 
-            new TransferThread(response.body().byteStream(),
-                    new ParcelFileDescriptor.AutoCloseOutputStream(pipe[1]))
-                    .start();
+            misses.incrementAndGet();
+            pipe = ParcelFileDescriptor.createPipe();
+            final OutputStream out = new ParcelFileDescriptor.AutoCloseOutputStream(pipe[1]);
+            TRANSFER_EXECUTOR.execute(new Runnable() {
+                @Override
+                public void run() {
+                    transfer(decodedUrl, out);
+                }
+            });
         } catch (IOException e) {
             Log.e(getClass().getSimpleName(), "Exception opening pipe", e);
             throw new FileNotFoundException("Could not open pipe for: "
@@ -111,9 +129,9 @@ public class RecommendationContentProvider extends ContentProvider {
         return 0;
     }
 
-    private OkHttpClient getOkHttpClient() {
+    private RecommendationImageCache getImageCache() {
         init();
-        return client;
+        return imageCache;
     }
 
     private void init() {
@@ -121,36 +139,39 @@ public class RecommendationContentProvider extends ContentProvider {
             TVButterApplication.getAppContext()
                     .getComponent()
                     .inject(this);
+            initialized = true;
         }
     }
 
-    static class TransferThread extends Thread {
-        InputStream in;
-        OutputStream out;
-
-        TransferThread(InputStream in, OutputStream out) {
-            this.in = in;
-            this.out = out;
-        }
-
-        @Override
-        public void run() {
-            byte[] buf = new byte[8192];
-            int len;
-
+    private void transfer(String url, OutputStream out) {
+        long start = SystemClock.elapsedRealtime();
+        try {
+            InputStream in = new FileInputStream(getImageCache().load(url));
             try {
+                byte[] buf = new byte[8192];
+                int len;
                 while ((len = in.read(buf)) > 0) {
                     out.write(buf, 0, len);
                 }
-
-                in.close();
                 out.flush();
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            Log.e(getClass().getSimpleName(),
+                    "Exception transferring file", e);
+        } finally {
+            try {
                 out.close();
             } catch (IOException e) {
-                Log.e(getClass().getSimpleName(),
-                        "Exception transferring file", e);
+                Log.e(getClass().getSimpleName(), "Exception closing pipe", e);
             }
         }
+
+        long time = SystemClock.elapsedRealtime() - start;
+        Log.d(getClass().getSimpleName(), String.format(Locale.US,
+                "Transferred %s in %d ms (%d hits, %d misses, %d ms transferring)",
+                url, time, hits.get(), misses.get(), transferTime.addAndGet(time)));
     }
 
-}
\ No newline at end of file
+}
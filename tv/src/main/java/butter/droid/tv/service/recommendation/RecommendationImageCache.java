@@ -0,0 +1,185 @@
+/*
+ * This file is part of Butter.
+ *
+ * Butter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Butter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Butter. If not, see <http://www.gnu.org/licenses/>.
+ */
+package butter.droid.tv.service.recommendation;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.util.DisplayMetrics;
+
+import com.squareup.picasso.MemoryPolicy;
+import com.squareup.picasso.Picasso;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import timber.log.Timber;
+
+/**
+ * Background images of the recommendation cards, scaled down to the screen and stored on disk,
+ * so the launcher asking for them again doesn't download them again.
+ * <p/>
+ * The images are stored when the cards are built, at most {@link #MAX_IMAGES} are kept and the
+ * least recently used are dropped first.
+ */
+@Singleton
+public class RecommendationImageCache {
+
+    private static final String DIRECTORY = "recommendations";
+    private static final int MAX_IMAGES = 40;
+    private static final int QUALITY = 85;
+    private static final String TEMP_SUFFIX = ".tmp";
+    // temp files this old were left behind by a load that didn't finish
+    private static final long TEMP_MAX_AGE_MS = 10 * 60 * 1000;
+
+    private final Context context;
+    private final Picasso picasso;
+
+    @Inject
+    public RecommendationImageCache(Context context, Picasso picasso) {
+        this.context = context;
+        this.picasso = picasso;
+    }
+
+    /**
+     * @return the cached image of the url, or null if it isn't cached
+     */
+    public File get(String url) {
+        File file = getFile(url);
+        if (!file.exists()) {
+            return null;
+        }
+        //noinspection ResultOfMethodCallIgnored
+        file.setLastModified(System.currentTimeMillis());
+        return file;
+    }
+
+    /**
+     * Downloads and stores the image of the url if it isn't cached yet. Blocks, so it must not be
+     * called on the main thread.
+     *
+     * @return the cached image
+     */
+    public File load(String url) throws IOException {
+        File file = get(url);
+        if (file != null) {
+            return file;
+        }
+
+        DisplayMetrics metrics = context.getResources().getDisplayMetrics();
+        Bitmap bitmap = picasso.load(url)
+                .resize(metrics.widthPixels, metrics.heightPixels)
+                .centerCrop()
+                .onlyScaleDown()
+                .memoryPolicy(MemoryPolicy.NO_CACHE, MemoryPolicy.NO_STORE)
+                .get();
+
+        file = getFile(url);
+        // written next to it first, so the launcher never reads a partial image, under a name of
+        // its own so concurrent loads of the same url don't write into each other's file
+        File temp = File.createTempFile(file.getName(), TEMP_SUFFIX, getDirectory());
+        boolean stored = false;
+        try {
+            OutputStream out = new FileOutputStream(temp);
+            try {
+                bitmap.compress(Bitmap.CompressFormat.JPEG, QUALITY, out);
+            } finally {
+                out.close();
+            }
+            stored = temp.renameTo(file);
+        } finally {
+            if (!stored) {
+                //noinspection ResultOfMethodCallIgnored
+                temp.delete();
+            }
+        }
+        if (!stored) {
+            throw new IOException("Could not store " + file);
+        }
+
+        trim();
+        return file;
+    }
+
+    private void trim() {
+        // images that are still being written aren't counted
+        final long staleTime = System.currentTimeMillis() - TEMP_MAX_AGE_MS;
+        File[] files = getDirectory().listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                if (!file.getName().endsWith(TEMP_SUFFIX)) {
+                    return true;
+                }
+                if (file.lastModified() < staleTime && !file.delete()) {
+                    Timber.w("Could not remove %s", file);
+                }
+                return false;
+            }
+        });
+        if (files == null || files.length <= MAX_IMAGES) {
+            return;
+        }
+
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                long diff = b.lastModified() - a.lastModified();
+                return diff > 0 ? 1 : diff < 0 ? -1 : 0;
+            }
+        });
+        for (int i = MAX_IMAGES; i < files.length; i++) {
+            if (!files[i].delete()) {
+                Timber.w("Could not remove cached recommendation image %s", files[i]);
+            }
+        }
+    }
+
+    private File getFile(String url) {
+        return new File(getDirectory(), hash(url));
+    }
+
+    private File getDirectory() {
+        File directory = new File(context.getCacheDir(), DIRECTORY);
+        if (!directory.exists() && !directory.mkdirs()) {
+            Timber.w("Could not create %s", directory);
+        }
+        return directory;
+    }
+
+    private static String hash(String url) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA1");
+            StringBuilder hash = new StringBuilder();
+            for (byte b : md.digest(url.getBytes("UTF-8"))) {
+                hash.append(String.format("%02x", b));
+            }
+            return hash.toString();
+        } catch (NoSuchAlgorithmException | IOException e) {
+            return Integer.toHexString(url.hashCode());
+        }
+    }
+
+}
@@ -19,41 +19,74 @@ package butter.droid.tv.utils;
 
 import android.app.Activity;
 import android.content.Context;
+import android.graphics.Bitmap;
 import android.graphics.drawable.Drawable;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.LruCache;
 import androidx.annotation.DrawableRes;
 import androidx.leanback.app.BackgroundManager;
+import androidx.leanback.widget.ObjectAdapter;
 
 import com.squareup.picasso.Picasso;
+import com.squareup.picasso.RequestCreator;
 import com.squareup.picasso.Target;
 
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.ArrayList;
+import java.util.List;
 
+import butter.droid.base.providers.media.models.Media;
 import butter.droid.base.utils.PixelUtils;
-import butter.droid.base.utils.ThreadUtils;
-
+import butter.droid.tv.presenters.MediaCardPresenter;
+
+/**
+ * Shows the background art of the focused item.
+ * <p/>
+ * Focus changes are debounced on a handler shared by all screens, so only the item focus settles on
+ * gets its background loaded. Backgrounds are decoded at the size of the screen, the last few shown
+ * are kept to show them again without decoding, and the backgrounds of the neighbours of the
+ * focused item are loaded in advance so moving on to them shows theirs right away.
+ */
 public class BackgroundUpdater {
 
+    private static final int BACKGROUND_UPDATE_DELAY = 300;
+    private static final int RECENT_BACKGROUNDS = 4;
+    private static final int PREFETCH_NEIGHBOURS = 1;
+
+    private static final Handler sHandler = new Handler(Looper.getMainLooper());
+    // shared by all screens, they all show backgrounds at the size of the screen
+    private static final LruCache<String, Bitmap> sRecentBackgrounds = new LruCache<>(RECENT_BACKGROUNDS);
 
     private int mDisplayWidth;
     private int mDisplayHeight;
-    private static int BACKGROUND_UPDATE_DELAY = 300;
     private int mDefaultBackground;
     private Context mContext;
     private Target mBackgroundImageTarget;
-    private Timer mBackgroundTimer;
     private BackgroundManager mBackgroundManager;
     private String mBackgroundUrl;
+    private String mShownUrl;
+    private String[] mPrefetchUrls;
+    private final Object mPrefetchTag = new Object();
+
+    private final Runnable mUpdateBackgroundRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (mBackgroundUrl != null) {
+                updateBackground(mBackgroundUrl);
+            }
+            prefetch(mPrefetchUrls);
+        }
+    };
 
     public void initialise(Activity activity, @DrawableRes int defaultBackground) {
         mContext = activity.getApplicationContext();
 
         mBackgroundManager = BackgroundManager.getInstance(activity);
         mBackgroundManager.attach(activity.getWindow());
-        mBackgroundImageTarget = new PicassoBackgroundManagerTarget(mBackgroundManager);
+        mBackgroundImageTarget = new BackgroundTarget();
         mDefaultBackground = defaultBackground;
         mDisplayWidth = PixelUtils.getScreenWidth(mContext);
-        mDisplayHeight = PixelUtils.getScreenWidth(mContext);
+        mDisplayHeight = PixelUtils.getScreenHeight(mContext);
     }
 
     public BackgroundUpdater() {
@@ -61,43 +94,48 @@ public class BackgroundUpdater {
 
 
     /**
-     * Updates the background asynchronously with the given image url, after a short delay.
+     * Updates the background asynchronously with the given image url, once the focus stayed on it
+     * for a short delay. The neighbours are loaded in advance at the same time.
      *
-     * @param url
+     * @param url        Background of the focused item
+     * @param neighbours Backgrounds of the items next to it, null entries are skipped
      */
-    public void updateBackgroundAsync(String url) {
+    public void updateBackgroundAsync(String url, String... neighbours) {
         mBackgroundUrl = url;
-        if (null != mBackgroundTimer) {
-            mBackgroundTimer.cancel();
-        }
-        mBackgroundTimer = new Timer();
-        mBackgroundTimer.schedule(new UpdateBackgroundTask(), BACKGROUND_UPDATE_DELAY);
+        mPrefetchUrls = neighbours;
+        sHandler.removeCallbacks(mUpdateBackgroundRunnable);
+        sHandler.postDelayed(mUpdateBackgroundRunnable, BACKGROUND_UPDATE_DELAY);
     }
 
 
     public void updateBackground(final String uri) {
-        if (null != mBackgroundTimer) {
-            mBackgroundTimer.cancel();
-        }
+        sHandler.removeCallbacks(mUpdateBackgroundRunnable);
 
         //load default background image
         if (null == uri) {
+            mShownUrl = null;
             Picasso.get().load(mDefaultBackground).into(mBackgroundImageTarget);
             return;
         }
 
+        if (uri.equals(mShownUrl)) {
+            return;
+        }
+        mShownUrl = uri;
+
+        Bitmap recent = sRecentBackgrounds.get(uri);
+        if (recent != null) {
+            Picasso.get().cancelRequest(mBackgroundImageTarget);
+            mBackgroundManager.setBitmap(recent);
+            return;
+        }
+
         //load actual background image
-        Picasso.get()
-                .load(uri)
+        load(uri)
                 .error(mDefaultBackground)
                 .into(mBackgroundImageTarget);
     }
 
-//    protected void setDefaultBackground(Drawable background) {
-//        mDefaultBackground = background;
-//    }
-
-
     protected void setDefaultBackground(int resourceId) {
         mDefaultBackground = resourceId;
     }
@@ -108,6 +146,7 @@ public class BackgroundUpdater {
      * @param drawable
      */
     public void updateBackground(Drawable drawable) {
+        mShownUrl = null;
         mBackgroundManager.setDrawable(drawable);
     }
 
@@ -115,31 +154,102 @@ public class BackgroundUpdater {
      * Clears the background immediately
      */
     public void clearBackground() {
+        mShownUrl = null;
         mBackgroundManager.setThemeDrawableResourceId(mDefaultBackground);
     }
 
-    private class UpdateBackgroundTask extends TimerTask {
+    public void destroy() {
+        sHandler.removeCallbacks(mUpdateBackgroundRunnable);
 
-        @Override
-        public void run() {
-            ThreadUtils.runOnUiThread(new Runnable() {
-                @Override
-                public void run() {
-                    if (mBackgroundUrl != null) {
-                        updateBackground(mBackgroundUrl.toString());
-                    }
-
-                }
-            });
+        Picasso.get().cancelRequest(mBackgroundImageTarget);
+        Picasso.get().cancelTag(mPrefetchTag);
+        mBackgroundManager.release();
+    }
+
+    /**
+     * @return the backgrounds of the cards next to the item in the adapter, to pass to
+     * {@link #updateBackgroundAsync}
+     */
+    public static String[] getNeighbourBackgrounds(ObjectAdapter adapter, Object item) {
+        List<Object> items = new ArrayList<>(adapter.size());
+        for (int i = 0; i < adapter.size(); i++) {
+            items.add(adapter.get(i));
         }
+        return getNeighbourBackgrounds(items, item);
     }
 
-    public void destroy() {
-        if (null != mBackgroundTimer) {
-            mBackgroundTimer.cancel();
+    /**
+     * @return the backgrounds of the cards next to the item in the list, to pass to
+     * {@link #updateBackgroundAsync}
+     */
+    public static String[] getNeighbourBackgrounds(List<?> items, Object item) {
+        int position = items.indexOf(item);
+        if (position < 0) {
+            return new String[0];
         }
 
-        Picasso.get().cancelRequest(mBackgroundImageTarget);
-        mBackgroundManager.release();
+        String[] neighbours = new String[PREFETCH_NEIGHBOURS * 2];
+        for (int i = 1; i <= PREFETCH_NEIGHBOURS; i++) {
+            neighbours[i * 2 - 2] = getBackground(items, position + i);
+            neighbours[i * 2 - 1] = getBackground(items, position - i);
+        }
+        return neighbours;
+    }
+
+    private static String getBackground(List<?> items, int position) {
+        if (position < 0 || position >= items.size() || !(items.get(position) instanceof MediaCardPresenter.MediaCardItem)) {
+            return null;
+        }
+        Media media = ((MediaCardPresenter.MediaCardItem) items.get(position)).getMedia();
+        return media != null ? media.headerImage : null;
+    }
+
+    private void prefetch(String[] urls) {
+        // neighbours of an item the focus already left aren't needed anymore
+        Picasso.get().cancelTag(mPrefetchTag);
+        if (urls == null) {
+            return;
+        }
+
+        for (String url : urls) {
+            if (url != null && sRecentBackgrounds.get(url) == null) {
+                load(url)
+                        .priority(Picasso.Priority.LOW)
+                        .tag(mPrefetchTag)
+                        .fetch();
+            }
+        }
+    }
+
+    // the same request for showing and prefetching, so a prefetched background is in Picasso's memory cache
+    private RequestCreator load(String url) {
+        return Picasso.get()
+                .load(url)
+                .resize(mDisplayWidth, mDisplayHeight)
+                .centerCrop()
+                .onlyScaleDown()
+                .config(Bitmap.Config.RGB_565);
+    }
+
+    private class BackgroundTarget implements Target {
+
+        @Override
+        public void onBitmapLoaded(Bitmap bitmap, Picasso.LoadedFrom loadedFrom) {
+            if (mShownUrl != null) {
+                sRecentBackgrounds.put(mShownUrl, bitmap);
+            }
+            mBackgroundManager.setBitmap(bitmap);
+        }
+
+        @Override
+        public void onBitmapFailed(Exception exc, Drawable drawable) {
+            mShownUrl = null;
+            mBackgroundManager.setDrawable(drawable);
+        }
+
+        @Override
+        public void onPrepareLoad(Drawable drawable) {
+            // Do nothing, default_background manager has its own transitions
+        }
     }
 }
@@ -0,0 +1,191 @@
+/*
+ * This file is part of Butter.
+ *
+ * Butter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Butter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Butter. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package butter.droid.tv.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import androidx.leanback.widget.ObjectAdapter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import butter.droid.base.manager.provider.ProviderManager;
+import butter.droid.base.providers.media.MediaProvider;
+import butter.droid.base.providers.media.models.Media;
+import butter.droid.base.providers.media.models.Show;
+import butter.droid.tv.presenters.MediaCardPresenter;
+import timber.log.Timber;
+
+/**
+ * Loads the details of the show that has focus, and of the cards next to it, into the detail cache
+ * of its provider, so opening it doesn't wait for the server.
+ * <p/>
+ * Only a card that keeps focus for {@link #DWELL_MS} is prefetched, moving on cancels what wasn't
+ * started yet. At most {@link #MAX_RUNNING} prefetches run at a time and at most
+ * {@link #MAX_PER_MINUTE} start in a minute, so scrolling through rows can't flood the server. The
+ * requests go through {@link MediaProvider#prefetchDetail}, which keeps them out of the queue of
+ * the requests the screens wait for.
+ */
+@Singleton
+public class DetailPrefetcher {
+
+    static final long DWELL_MS = 800;
+    static final int MAX_RUNNING = 2;
+    static final int MAX_PER_MINUTE = 12;
+    private static final int NEIGHBOURS = 1;
+    private static final long MINUTE_MS = 60 * 1000;
+
+    private final ProviderManager providerManager;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final List<Media> pending = new ArrayList<>();
+    // start times of the prefetches of the last minute
+    private final Deque<Long> started = new ArrayDeque<>();
+    private int running;
+    private int skipped;
+
+    private final Runnable prefetchRunnable = new Runnable() {
+        @Override
+        public void run() {
+            prefetch();
+        }
+    };
+
+    @Inject
+    public DetailPrefetcher(ProviderManager providerManager) {
+        this.providerManager = providerManager;
+    }
+
+    /**
+     * Called on the main thread when a card gets focus.
+     *
+     * @param adapter The row or grid the card is in
+     * @param item    The focused {@link MediaCardPresenter.MediaCardItem}
+     */
+    public void onItemFocused(ObjectAdapter adapter, Object item) {
+        List<Object> items = new ArrayList<>(adapter.size());
+        for (int i = 0; i < adapter.size(); i++) {
+            items.add(adapter.get(i));
+        }
+        onItemFocused(items, item);
+    }
+
+    /**
+     * Called on the main thread when a card gets focus.
+     *
+     * @param items The cards of the row or grid the card is in
+     * @param item  The focused {@link MediaCardPresenter.MediaCardItem}
+     */
+    public void onItemFocused(List<?> items, Object item) {
+        handler.removeCallbacks(prefetchRunnable);
+        pending.clear();
+
+        int position = items.indexOf(item);
+        if (position < 0) {
+            return;
+        }
+        addPending(items, position);
+        for (int i = 1; i <= NEIGHBOURS; i++) {
+            addPending(items, position + i);
+            addPending(items, position - i);
+        }
+
+        if (!pending.isEmpty()) {
+            handler.postDelayed(prefetchRunnable, DWELL_MS);
+        }
+    }
+
+    /**
+     * Drops the prefetches that weren't started yet, e.g. when the screen goes away.
+     */
+    public void cancel() {
+        handler.removeCallbacks(prefetchRunnable);
+        pending.clear();
+    }
+
+    private void addPending(List<?> items, int position) {
+        if (position < 0 || position >= items.size() || !(items.get(position) instanceof MediaCardPresenter.MediaCardItem)) {
+            return;
+        }
+        MediaCardPresenter.MediaCardItem card = (MediaCardPresenter.MediaCardItem) items.get(position);
+        // the details of a movie come with the list
+        if (!card.isLoading() && card.getMedia() instanceof Show) {
+            pending.add(card.getMedia());
+        }
+    }
+
+    private void prefetch() {
+        long now = SystemClock.elapsedRealtime();
+        while (!started.isEmpty() && now - started.peekFirst() > MINUTE_MS) {
+            started.removeFirst();
+        }
+
+        while (!pending.isEmpty()) {
+            if (running >= MAX_RUNNING || started.size() >= MAX_PER_MINUTE) {
+                skipped += pending.size();
+                Timber.d("Detail prefetch budget used up, %d running, %d started in the last minute, %d skipped",
+                        running, started.size(), skipped);
+                pending.clear();
+                return;
+            }
+
+            Media media = pending.remove(0);
+            MediaProvider provider = providerManager.getMediaProvider(media.getProviderType());
+            if (provider == null || !provider.prefetchDetail(media, new PrefetchCallback(media))) {
+                continue;
+            }
+            running++;
+            started.addLast(now);
+            Timber.d("Prefetching details of %s", media.videoId);
+        }
+    }
+
+    private void onPrefetchDone() {
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                running--;
+            }
+        });
+    }
+
+    private class PrefetchCallback implements MediaProvider.Callback {
+        private final Media media;
+
+        PrefetchCallback(Media media) {
+            this.media = media;
+        }
+
+        @Override
+        public void onSuccess(MediaProvider.Filters filters, ArrayList<Media> items) {
+            onPrefetchDone();
+        }
+
+        @Override
+        public void onFailure(Exception e) {
+            Timber.d(e, "Could not prefetch details of %s", media.videoId);
+            onPrefetchDone();
+        }
+    }
+
+}
@@ -29,7 +29,7 @@ public class MediaPlayer extends VLCObject<MediaPlayer.Event> {
         //public static final int MediaChanged        = 0x100;
         //public static final int NothingSpecial      = 0x101;
         public static final int Opening             = 0x102;
-        //public static final int Buffering           = 0x103;
+        public static final int Buffering           = 0x103;
         public static final int Playing             = 0x104;
         public static final int Paused              = 0x105;
         public static final int Stopped             = 0x106;
@@ -50,8 +50,8 @@ public class MediaPlayer extends VLCObject<MediaPlayer.Event> {
         public static final int ESDeleted           = 0x115;
         //public static final int ESSelected          = 0x116;
 
-        private final long arg1;
-        private final float arg2;
+        private long arg1;
+        private float arg2;
         protected Event(int type) {
             super(type);
             this.arg1 = 0;
@@ -67,12 +67,20 @@ public class MediaPlayer extends VLCObject<MediaPlayer.Event> {
             this.arg1 = 0;
             this.arg2 = arg2;
         }
+        /* Only used on events that are not being delivered, see onUpdateEventNative */
+        void update(long arg1, float arg2) {
+            this.arg1 = arg1;
+            this.arg2 = arg2;
+        }
         public long getTimeChanged() {
             return arg1;
         }
         public float getPositionChanged() {
             return arg2;
         }
+        public float getBuffering() {
+            return arg2;
+        }
         public int getVoutCount() {
             return (int) arg1;
         }
@@ -792,6 +800,43 @@ public class MediaPlayer extends VLCObject<MediaPlayer.Event> {
         super.setEventListener(listener);
     }
 
+    /**
+     * Set an event listener, with {@link Event#TimeChanged}, {@link Event#PositionChanged} and
+     * {@link Event#Buffering} delivered at most once per progressInterval ms. Time and position
+     * deliver their latest value, buffering the lowest one so a cache that ran empty in between
+     * isn't lost.
+     */
+    public synchronized void setEventListener(EventListener listener, long progressInterval) {
+        super.setEventListener(listener, progressInterval);
+    }
+
+    @Override
+    protected boolean isCoalescable(int eventType) {
+        return eventType == Event.TimeChanged || eventType == Event.PositionChanged
+                || eventType == Event.Buffering;
+    }
+
+    @Override
+    protected Event onCreateCoalescableEvent(int eventType) {
+        return new Event(eventType);
+    }
+
+    @Override
+    protected void onUpdateEventNative(Event event, long arg1, float arg2) {
+        if (event.type == Event.TimeChanged)
+            event.update(arg1, 0);
+        else
+            event.update(0, arg2);
+    }
+
+    @Override
+    protected void onCoalesceEventNative(Event pending, long arg1, float arg2) {
+        if (pending.type == Event.Buffering)
+            pending.update(0, Math.min(pending.getBuffering(), arg2));
+        else
+            onUpdateEventNative(pending, arg1, arg2);
+    }
+
     @Override
     protected synchronized Event onEventNative(int eventType, long arg1, float arg2) {
         switch (eventType) {
@@ -804,10 +849,7 @@ public class MediaPlayer extends VLCObject<MediaPlayer.Event> {
             case Event.Playing:
             case Event.Paused:
                 return new Event(eventType);
-            case Event.TimeChanged:
-                return new Event(eventType, arg1);
-            case Event.PositionChanged:
-                return new Event(eventType, arg2);
+            /* TimeChanged, PositionChanged and Buffering are coalescable, see onCreateCoalescableEvent */
             case Event.Vout:
                 mVoutCount = (int) arg1;
                 notify();
@@ -22,14 +22,35 @@ package org.videolan.libvlc;
 
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
+import android.util.SparseArray;
 
 import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 
 abstract class VLCObject<T extends VLCEvent> {
+    /**
+     * Default minimum delay between two deliveries of coalesced events, about one display frame.
+     */
+    public static final long DEFAULT_COALESCE_INTERVAL_MS = 16;
+
     private VLCEvent.Listener<T> mEventListener = null;
     private Handler mHandler = null;
     private int mNativeRefCount = 1;
 
+    /* Event queue, guarded by mEventLock so native threads don't contend with the object lock */
+    private final Object mEventLock = new Object();
+    private final ArrayDeque<T> mPendingEvents = new ArrayDeque<T>();
+    private final SparseArray<T> mCoalescedEvents = new SparseArray<T>();
+    private final ArrayList<T> mDeliveringEvents = new ArrayList<T>();
+    /* Delivered coalescable events, one per type, reused for the next event of their type */
+    private final SparseArray<T> mRecycledEvents = new SparseArray<T>();
+    private long mCoalesceInterval = DEFAULT_COALESCE_INTERVAL_MS;
+    private long mLastDelivery = 0;
+    private long mDeliveryTime = 0;
+    private boolean mDeliveryScheduled = false;
+
     /**
      * Returns true if native object is released
      */
@@ -84,11 +105,32 @@ abstract class VLCObject<T extends VLCEvent> {
      * @param listener see {@link VLCEvent.Listener}
      */
     protected synchronized void setEventListener(VLCEvent.Listener<T> listener) {
-        if (mHandler != null)
-            mHandler.removeCallbacksAndMessages(null);
-        mEventListener = listener;
-        if (mEventListener != null && mHandler == null)
-            mHandler = new Handler(Looper.getMainLooper());
+        setEventListener(listener, DEFAULT_COALESCE_INTERVAL_MS);
+    }
+
+    /**
+     * Set an event listener.
+     * Events are sent via the android main thread. Coalescable events (see {@link #isCoalescable(int)})
+     * that arrive while a previous one of the same type is still pending only update it, and are
+     * delivered at most once per coalesceInterval. Other events are delivered right away, after the
+     * coalesced events that were pending when they arrived. Coalescable events are reused once
+     * the listener returns, so it must not keep them.
+     *
+     * @param listener see {@link VLCEvent.Listener}
+     * @param coalesceInterval minimum delay in ms between two deliveries of coalesced events
+     */
+    protected synchronized void setEventListener(VLCEvent.Listener<T> listener, long coalesceInterval) {
+        synchronized (mEventLock) {
+            if (mHandler != null)
+                mHandler.removeCallbacksAndMessages(null);
+            mPendingEvents.clear();
+            mCoalescedEvents.clear();
+            mDeliveryScheduled = false;
+            mCoalesceInterval = coalesceInterval;
+            mEventListener = listener;
+            if (mEventListener != null && mHandler == null)
+                mHandler = new Handler(Looper.getMainLooper());
+        }
     }
 
     /**
@@ -101,6 +143,39 @@ abstract class VLCObject<T extends VLCEvent> {
      */
     protected abstract T onEventNative(int eventType, long arg1, float arg2);
 
+    /**
+     * @return true if only the latest event of this type matters, like time or position updates
+     */
+    protected boolean isCoalescable(int eventType) {
+        return false;
+    }
+
+    /**
+     * Called instead of {@link #onEventNative(int, long, float)} for a coalescable event type that
+     * has no event to reuse yet. Called holding the event lock, so it must not block.
+     *
+     * @return an event of the type, its arguments are set with {@link #onUpdateEventNative}
+     */
+    protected T onCreateCoalescableEvent(int eventType) {
+        return null;
+    }
+
+    /**
+     * Sets the arguments of a new or reused coalescable event. Called holding the event lock.
+     */
+    protected void onUpdateEventNative(T event, long arg1, float arg2) {
+    }
+
+    /**
+     * Called when a coalescable event arrives while another one of the same type has not been
+     * delivered yet. Called holding the event lock.
+     *
+     * @param pending the undelivered event, to be updated with the new arguments
+     */
+    protected void onCoalesceEventNative(T pending, long arg1, float arg2) {
+        onUpdateEventNative(pending, arg1, arg2);
+    }
+
     /**
      * Called when native object is released (refcount is 0).
      *
@@ -111,28 +186,89 @@ abstract class VLCObject<T extends VLCEvent> {
     /* JNI */
     @SuppressWarnings("unused") /* Used from JNI */
     private long mInstance = 0;
-    private synchronized void dispatchEventFromNative(int eventType, long arg1, float arg2) {
+    private void dispatchEventFromNative(int eventType, long arg1, float arg2) {
         if (isReleased())
             return;
+
+        if (isCoalescable(eventType)) {
+            /* one critical section, so two native threads can't both queue an event of the type */
+            synchronized (mEventLock) {
+                if (mEventListener == null || mHandler == null)
+                    return;
+                final T pending = mCoalescedEvents.get(eventType);
+                if (pending != null) {
+                    onCoalesceEventNative(pending, arg1, arg2);
+                    return;
+                }
+                T event = mRecycledEvents.get(eventType);
+                if (event != null)
+                    mRecycledEvents.remove(eventType);
+                else
+                    event = onCreateCoalescableEvent(eventType);
+                if (event == null)
+                    return;
+                onUpdateEventNative(event, arg1, arg2);
+                mCoalescedEvents.put(eventType, event);
+                mPendingEvents.add(event);
+                scheduleDelivery(false);
+            }
+            return;
+        }
+
         final T event = onEventNative(eventType, arg1, arg2);
+        if (event == null)
+            return;
+
+        synchronized (mEventLock) {
+            if (mEventListener == null || mHandler == null)
+                return;
+            /* flush: pending coalesced events stay ahead of this one with their current values,
+             * later ones are queued after it instead of updating an event delivered before it */
+            mCoalescedEvents.clear();
+            mPendingEvents.add(event);
+            scheduleDelivery(true);
+        }
+    }
 
-        class EventRunnable implements Runnable {
-            private final VLCEvent.Listener<T> listener;
-            private final T event;
+    /* must hold mEventLock */
+    private void scheduleDelivery(boolean now) {
+        final long uptime = SystemClock.uptimeMillis();
+        final long time = now ? uptime : Math.max(uptime, mLastDelivery + mCoalesceInterval);
+        if (mDeliveryScheduled && mDeliveryTime <= time)
+            return;
+        mHandler.removeCallbacks(mDeliverRunnable);
+        mHandler.postDelayed(mDeliverRunnable, time - uptime);
+        mDeliveryTime = time;
+        mDeliveryScheduled = true;
+    }
 
-            private EventRunnable(VLCEvent.Listener<T> listener, T event) {
-                this.listener = listener;
-                this.event = event;
+    private final Runnable mDeliverRunnable = new Runnable() {
+        @Override
+        public void run() {
+            final VLCEvent.Listener<T> listener;
+            synchronized (mEventLock) {
+                mDeliveryScheduled = false;
+                listener = mEventListener;
+                if (listener == null)
+                    return;
+                mDeliveringEvents.addAll(mPendingEvents);
+                mPendingEvents.clear();
+                mCoalescedEvents.clear();
+                mLastDelivery = SystemClock.uptimeMillis();
             }
-            @Override
-            public void run() {
-                listener.onEvent(event);
+            for (int i = 0; i < mDeliveringEvents.size(); i++)
+                listener.onEvent(mDeliveringEvents.get(i));
+            synchronized (mEventLock) {
+                for (int i = 0; i < mDeliveringEvents.size(); i++) {
+                    final T event = mDeliveringEvents.get(i);
+                    if (isCoalescable(event.type))
+                        mRecycledEvents.put(event.type, event);
+                }
             }
+            mDeliveringEvents.clear();
         }
+    };
 
-        if (event != null && mEventListener != null && mHandler != null)
-            mHandler.post(new EventRunnable(mEventListener, event));
-    }
     private native void nativeDetachEvents();
 
     /* used only before API 7: substitute for NewWeakGlobalRef */
@@ -0,0 +1,198 @@
+/*****************************************************************************
+ * VLCObjectEventStormTest.java
+ *****************************************************************************
+ * Copyright © 2015 VLC authors, VideoLAN and VideoLabs
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston MA 02110-1301, USA.
+ *****************************************************************************/
+
+package org.videolan.libvlc;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Fires storms of events from several threads at a {@link VLCObject} the way libvlc does from its
+ * native threads, then lets the main looper deliver them.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, emulateSdk = 18)
+public class VLCObjectEventStormTest {
+
+    private static final int TIME = 1;
+    private static final int POSITION = 2;
+    private static final int PAUSED = 3;
+
+    private static final int THREADS = 4;
+    private static final int ROUNDS = 20;
+    private static final int EVENTS_PER_THREAD = 5000;
+    private static final int PAUSE_EVERY = 1000;
+
+    private static class TestEvent extends VLCEvent {
+        long arg1;
+
+        TestEvent(int type, long arg1) {
+            super(type);
+            this.arg1 = arg1;
+        }
+    }
+
+    private static class TestObject extends VLCObject<TestEvent> {
+        final AtomicInteger created = new AtomicInteger();
+
+        @Override
+        protected boolean isCoalescable(int eventType) {
+            return eventType == TIME || eventType == POSITION;
+        }
+
+        @Override
+        protected TestEvent onCreateCoalescableEvent(int eventType) {
+            created.incrementAndGet();
+            return new TestEvent(eventType, 0);
+        }
+
+        @Override
+        protected void onUpdateEventNative(TestEvent event, long arg1, float arg2) {
+            event.arg1 = arg1;
+        }
+
+        @Override
+        protected TestEvent onEventNative(int eventType, long arg1, float arg2) {
+            return new TestEvent(eventType, arg1);
+        }
+
+        @Override
+        protected void onReleaseNative() {
+        }
+    }
+
+    private final TestObject object = new TestObject();
+    // types and first arguments of the delivered events, copied since the events are reused
+    private final List<long[]> delivered = new ArrayList<long[]>();
+    private Method dispatch;
+
+    @Before
+    public void setUp() throws Exception {
+        Robolectric.getUiThreadScheduler().pause();
+        dispatch = VLCObject.class.getDeclaredMethod("dispatchEventFromNative", int.class, long.class, float.class);
+        dispatch.setAccessible(true);
+        object.setEventListener(new VLCEvent.Listener<TestEvent>() {
+            @Override
+            public void onEvent(TestEvent event) {
+                delivered.add(new long[]{event.type, event.arg1});
+            }
+        });
+    }
+
+    @Test
+    public void testProgressStormIsDeliveredOncePerRoundFromPooledEvents() throws Exception {
+        for (int round = 0; round < ROUNDS; round++) {
+            final long base = (long) round * THREADS * EVENTS_PER_THREAD;
+            Set<Long> lastValues = storm(base, false);
+            deliver();
+
+            assertEquals("events delivered in round " + round, 2, delivered.size());
+            for (long[] event : delivered) {
+                assertTrue("round " + round + " delivered " + event[1] + ", not the last value of a thread "
+                        + lastValues, lastValues.contains(event[1]));
+            }
+            delivered.clear();
+        }
+        assertEquals("events created for " + ROUNDS * THREADS * EVENTS_PER_THREAD * 2 + " native events",
+                2, object.created.get());
+    }
+
+    @Test
+    public void testStateChangesSealPendingProgress() throws Exception {
+        int pauses = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            storm((long) round * THREADS * EVENTS_PER_THREAD, true);
+            deliver();
+
+            Set<Long> segment = new HashSet<Long>();
+            for (long[] event : delivered) {
+                if (event[0] == PAUSED) {
+                    pauses++;
+                    segment.clear();
+                } else {
+                    assertTrue("two pending events of type " + event[0] + " in round " + round,
+                            segment.add(event[0]));
+                }
+            }
+            delivered.clear();
+        }
+        assertEquals(ROUNDS * THREADS * (EVENTS_PER_THREAD / PAUSE_EVERY), pauses);
+    }
+
+    /**
+     * @return the last time each thread fired
+     */
+    private Set<Long> storm(final long base, final boolean pause) throws InterruptedException {
+        final CountDownLatch start = new CountDownLatch(1);
+        final Set<Long> lastValues = new HashSet<Long>();
+        final List<Throwable> errors = new ArrayList<Throwable>();
+        Thread[] threads = new Thread[THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            final long first = base + (long) t * EVENTS_PER_THREAD;
+            lastValues.add(first + EVENTS_PER_THREAD - 1);
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int i = 0; i < EVENTS_PER_THREAD; i++) {
+                            dispatch.invoke(object, TIME, first + i, 0f);
+                            dispatch.invoke(object, POSITION, first + i, 0f);
+                            if (pause && i % PAUSE_EVERY == 0) {
+                                dispatch.invoke(object, PAUSED, 0L, 0f);
+                            }
+                        }
+                    } catch (Throwable e) {
+                        synchronized (errors) {
+                            errors.add(e);
+                        }
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(errors.toString(), errors.isEmpty());
+        return lastValues;
+    }
+
+    private void deliver() {
+        Robolectric.getUiThreadScheduler().advanceBy(VLCObject.DEFAULT_COALESCE_INTERVAL_MS);
+    }
+
+}